@@ -0,0 +1,33 @@
+package com.group6.Rental_Car.config;
+
+import com.group6.Rental_Car.services.bookinglock.AdvisoryVehicleBookingLock;
+import com.group6.Rental_Car.services.bookinglock.BookingLockMetrics;
+import com.group6.Rental_Car.services.bookinglock.LocalVehicleBookingLock;
+import com.group6.Rental_Car.services.bookinglock.VehicleBookingLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class BookingLockConfig {
+
+    @Value("${booking.lock.mode:local}")
+    private String mode;
+
+    @Value("${booking.lock.stripes:64}")
+    private int stripes;
+
+    @Value("${booking.lock.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Bean
+    public VehicleBookingLock vehicleBookingLock(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                                 BookingLockMetrics metrics) {
+        if ("advisory".equalsIgnoreCase(mode)) {
+            return new AdvisoryVehicleBookingLock(jdbcTemplate, timeoutMs, transactionTemplate, metrics);
+        }
+        return new LocalVehicleBookingLock(stripes, timeoutMs, transactionTemplate, metrics);
+    }
+}
@@ -51,5 +51,154 @@ public class MoMoConfig {
      * - payWithATM: Thanh toán qua ATM
      */
     private String requestType;
+
+    /**
+     * API tra cứu giao dịch, để trống thì suy ra từ endpoint (/create → /query)
+     */
+    private String queryEndpoint;
+
+    /**
+     * Timeout mở kết nối tới MoMo (ms)
+     */
+    private long connectTimeoutMs = 2000;
+
+    /**
+     * Timeout toàn bộ request tới MoMo, tính cả thời gian chờ phản hồi (ms)
+     */
+    private long requestTimeoutMs = 8000;
+
+    /**
+     * Số lần lỗi liên tiếp (timeout, lỗi kết nối, HTTP 5xx) trước khi ngắt mạch
+     */
+    private int circuitFailureThreshold = 5;
+
+    /**
+     * Thời gian ngắt mạch trước khi cho 1 request thử lại (ms)
+     */
+    private long circuitOpenMs = 30000;
+
+    /**
+     * Hộp thư IPN (momo_ipn_inbox)
+     */
+    private Ipn ipn = new Ipn();
+
+    /**
+     * Đối soát payment PENDING bị mất IPN
+     */
+    private Reconcile reconcile = new Reconcile();
+
+    /**
+     * Giả lập cổng MoMo chạy ngay trong ứng dụng (chỉ dùng cho dev / load test)
+     */
+    private Simulator simulator = new Simulator();
+
+    @Data
+    public static class Ipn {
+        /**
+         * Số worker xử lý IPN song song (mỗi worker giữ 1 connection DB khi chạy)
+         */
+        private int workers = 2;
+
+        /**
+         * Chu kỳ quét hộp thư (ms)
+         */
+        private long pollMs = 1000;
+
+        /**
+         * Số IPN lấy mỗi lần quét
+         */
+        private int batchSize = 20;
+
+        /**
+         * Số lần thử tối đa trước khi đánh dấu FAILED
+         */
+        private int maxAttempts = 6;
+
+        /**
+         * IPN PROCESSING quá thời gian này coi như node xử lý đã chết, cho lấy lại (giây)
+         */
+        private long staleSeconds = 300;
+
+        /**
+         * Giữ IPN đã xử lý bao nhiêu ngày để chống trùng
+         */
+        private int retentionDays = 30;
+    }
+
+    @Data
+    public static class Reconcile {
+        /**
+         * http: gọi API query của MoMo | stub: trả kết quả cố định (test / môi trường không có MoMo)
+         */
+        private String client = "http";
+
+        /**
+         * Payment PENDING quá số phút này mới đối soát
+         */
+        private long staleMinutes = 30;
+
+        /**
+         * Số payment mỗi trang
+         */
+        private int batchSize = 50;
+
+        /**
+         * Số request query MoMo chạy song song tối đa
+         */
+        private int concurrency = 8;
+
+        /**
+         * resultCode mà client stub trả về (1005 = link thanh toán hết hạn)
+         */
+        private int stubResultCode = 1005;
+    }
+
+    @Data
+    public static class Simulator {
+        /**
+         * Bật endpoint /api/momo-sim (trỏ momo.endpoint về đây thay cho MoMo sandbox)
+         */
+        private boolean enabled = false;
+
+        /**
+         * Độ trễ trả lời API create / query (ms)
+         */
+        private long latencyMs = 50;
+
+        /**
+         * Tỉ lệ request create trả HTTP 503 (0..1), để thử ngắt mạch
+         */
+        private double errorRate = 0;
+
+        /**
+         * Tự thanh toán sau ipnDelayMs, không cần mở payUrl
+         */
+        private boolean autoPay = true;
+
+        /**
+         * Thời gian từ lúc tạo giao dịch đến lúc bắn IPN (ms)
+         */
+        private long ipnDelayMs = 1000;
+
+        /**
+         * Tỉ lệ giao dịch bị người dùng từ chối (IPN resultCode 1006)
+         */
+        private double declineRate = 0;
+
+        /**
+         * Tỉ lệ IPN bị gửi trùng lần 2
+         */
+        private double duplicateRate = 0;
+
+        /**
+         * Giữ giao dịch trong bộ nhớ bao lâu (ms) để query / trang thanh toán còn thấy, quá hạn thì xoá
+         */
+        private long transactionTtlMs = 30 * 60 * 1000L;
+
+        /**
+         * Số giao dịch giữ tối đa, vượt thì xoá giao dịch cũ nhất
+         */
+        private int maxTransactions = 100_000;
+    }
 }
 
@@ -0,0 +1,23 @@
+package com.group6.Rental_Car.config;
+
+import com.group6.Rental_Car.services.payment.momo.HttpMoMoQueryClient;
+import com.group6.Rental_Car.services.payment.momo.MoMoGatewayClient;
+import com.group6.Rental_Car.services.payment.momo.MoMoQueryClient;
+import com.group6.Rental_Car.services.payment.momo.MoMoSigner;
+import com.group6.Rental_Car.services.payment.momo.StubMoMoQueryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MoMoQueryClientConfig {
+
+    @Bean
+    public MoMoQueryClient momoQueryClient(MoMoConfig momoConfig,
+                                           MoMoSigner momoSigner,
+                                           MoMoGatewayClient momoGatewayClient) {
+        if ("stub".equalsIgnoreCase(momoConfig.getReconcile().getClient())) {
+            return new StubMoMoQueryClient(momoConfig.getReconcile().getStubResultCode());
+        }
+        return new HttpMoMoQueryClient(momoConfig, momoSigner, momoGatewayClient);
+    }
+}
@@ -0,0 +1,24 @@
+package com.group6.Rental_Car.config;
+
+import com.group6.Rental_Car.repositories.VehicleHoldRepository;
+import com.group6.Rental_Car.services.vehiclehold.InMemoryVehicleHoldStore;
+import com.group6.Rental_Car.services.vehiclehold.JpaVehicleHoldStore;
+import com.group6.Rental_Car.services.vehiclehold.VehicleHoldStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class VehicleHoldConfig {
+
+    @Value("${booking.hold.store:memory}")
+    private String store;
+
+    @Bean
+    public VehicleHoldStore vehicleHoldStore(VehicleHoldRepository vehicleHoldRepository) {
+        if ("db".equalsIgnoreCase(store)) {
+            return new JpaVehicleHoldStore(vehicleHoldRepository);
+        }
+        return new InMemoryVehicleHoldStore();
+    }
+}
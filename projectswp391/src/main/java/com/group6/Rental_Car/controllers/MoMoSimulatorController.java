@@ -0,0 +1,61 @@
+package com.group6.Rental_Car.controllers;
+
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentRequest;
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentResponse;
+import com.group6.Rental_Car.dtos.payment.MomoQueryRequest;
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import com.group6.Rental_Car.services.payment.momo.MoMoSimulator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Giả lập API MoMo v2, chỉ có khi momo.simulator.enabled=true.
+ * Trỏ momo.endpoint = http://localhost:8080/api/momo-sim/v2/gateway/api/create (query tự suy ra).
+ */
+@RestController
+@RequestMapping("/api/momo-sim")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "momo.simulator", name = "enabled", havingValue = "true")
+@Tag(name = "MoMo Simulator", description = "Giả lập cổng MoMo cho dev / load test")
+public class MoMoSimulatorController {
+
+    private final MoMoSimulator momoSimulator;
+
+    @PostMapping("/v2/gateway/api/create")
+    @Operation(summary = "Giả lập tạo giao dịch MoMo")
+    public ResponseEntity<MomoCreatePaymentResponse> create(@RequestBody MomoCreatePaymentRequest request) {
+        String payUrlBase = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/momo-sim/pay").toUriString();
+        MomoCreatePaymentResponse response = momoSimulator.create(request, payUrlBase);
+        if (response == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/v2/gateway/api/query")
+    @Operation(summary = "Giả lập tra cứu giao dịch MoMo")
+    public ResponseEntity<MomoQueryResponse> query(@RequestBody MomoQueryRequest request) {
+        return ResponseEntity.ok(momoSimulator.query(request));
+    }
+
+    @GetMapping("/pay")
+    @Operation(summary = "Trang thanh toán giả lập: chốt giao dịch, bắn IPN rồi redirect về ứng dụng")
+    public void pay(@RequestParam String orderId, HttpServletResponse response) throws IOException {
+        String redirectUrl = momoSimulator.complete(orderId);
+        if (redirectUrl == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Không tìm thấy giao dịch " + orderId);
+            return;
+        }
+        response.sendRedirect(redirectUrl);
+    }
+}
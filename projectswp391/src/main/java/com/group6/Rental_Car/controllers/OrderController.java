@@ -11,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,6 +40,31 @@ public class OrderController {
     }
 
  
+    // Phân trang theo con trỏ: truyền nextCursor của trang trước vào cursor
+    @GetMapping("/getAll/page")
+    public ResponseEntity<OrderPageResponse<OrderResponse>> getAllPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) Integer stationId,
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to) {
+        return ResponseEntity.ok(rentalOrderService.getRentalOrdersPage(
+                pageFilter(cursor, limit, status, stationId, from, to)));
+    }
+
+    @GetMapping("/getAll/simple/page")
+    public ResponseEntity<OrderPageResponse<OrderSimpleResponse>> getAllSimplePage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) Integer stationId,
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to) {
+        return ResponseEntity.ok(rentalOrderService.getRentalOrdersSimplePage(
+                pageFilter(cursor, limit, status, stationId, from, to)));
+    }
+
     @GetMapping("/get/my-orders")
     public ResponseEntity<List<OrderResponse>> getMyOrders(@AuthenticationPrincipal JwtUserDetails userDetails) {
         UUID customerId = userDetails.getUserId();
@@ -107,6 +133,17 @@ public class OrderController {
     public List<OrderVerificationResponse> getPendingVerificationOrders() {
         return rentalOrderService.getPendingVerificationOrders();
     }
+    @GetMapping("/pending-verification/page")
+    public ResponseEntity<OrderPageResponse<OrderVerificationResponse>> getPendingVerificationOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) Integer stationId,
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to) {
+        return ResponseEntity.ok(rentalOrderService.getPendingVerificationOrdersPage(
+                pageFilter(cursor, limit, status, stationId, from, to)));
+    }
     @GetMapping("/vehicle/{vehicleId}/history")
     public ResponseEntity<List<VehicleOrderHistoryResponse>> getVehicleOrderHistory(@PathVariable Long vehicleId) {
         return ResponseEntity.ok(rentalOrderService.getOrderHistoryByVehicle(vehicleId));
@@ -135,4 +172,16 @@ public class OrderController {
         OrderResponse response = rentalOrderService.completeOrder(orderId);
         return ResponseEntity.ok(response);
     }
+
+    private OrderPageFilter pageFilter(String cursor, Integer limit, List<String> status,
+                                       Integer stationId, LocalDateTime from, LocalDateTime to) {
+        return OrderPageFilter.builder()
+                .cursor(cursor)
+                .limit(limit)
+                .statuses(status)
+                .stationId(stationId)
+                .from(from)
+                .to(to)
+                .build();
+    }
 }
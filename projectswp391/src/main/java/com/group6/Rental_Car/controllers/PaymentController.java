@@ -9,6 +9,7 @@ import com.group6.Rental_Car.exceptions.BadRequestException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
 import com.group6.Rental_Car.repositories.PaymentRepository;
 import com.group6.Rental_Car.services.payment.PaymentService;
+import com.group6.Rental_Car.services.payment.momo.MoMoIpnInboxService;
 import com.group6.Rental_Car.utils.JwtUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -35,6 +36,7 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final PaymentRepository paymentRepository;
+    private final MoMoIpnInboxService momoIpnInboxService;
 
     @PostMapping("/url")
     @Operation(summary = "Create MoMo payment URL")
@@ -74,21 +76,12 @@ public class PaymentController {
 
     @PostMapping("/momo-callback")
     @Operation(summary = "MoMo IPN callback (called by MoMo server)")
-    public ResponseEntity<?> momoCallback(@RequestBody Map<String, String> momoParams) {
-        log.info("📥 MoMo IPN Callback: {}", momoParams);
+    public ResponseEntity<Void> momoCallback(@RequestBody Map<String, String> momoParams) {
+        log.info("📥 MoMo IPN Callback: orderId={}, resultCode={}", momoParams.get("orderId"), momoParams.get("resultCode"));
 
-        try {
-            PaymentResponse response = paymentService.handleMoMoCallback(momoParams);
-            log.info("✅ MoMo callback processed successfully: {}", response);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("❌ MoMo callback error: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of(
-                        "message", "ERROR",
-                        "error", e.getMessage()
-                    ));
-        }
+        // Chỉ kiểm chữ ký + ghi hộp thư rồi trả 204 ngay, MoMoIpnWorker xử lý sau
+        momoIpnInboxService.receive(momoParams);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/momo-return")
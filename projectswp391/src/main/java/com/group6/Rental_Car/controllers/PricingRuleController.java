@@ -1,14 +1,18 @@
 package com.group6.Rental_Car.controllers;
 
+import com.group6.Rental_Car.dtos.pricingrule.HolidayDto;
+import com.group6.Rental_Car.dtos.pricingrule.PricingQuoteResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleUpdateRequest;
 import com.group6.Rental_Car.services.pricingrule.PricingRuleService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -33,4 +37,32 @@ public class PricingRuleController {
         PricingRuleResponse updated = pricingRuleService.updatePricingRule(carmodel, request);
         return ResponseEntity.ok(updated);
     }
+
+    // Báo giá chi tiết: số ngày thường / cuối tuần / ngày lễ trong [startDate, endDate)
+    @GetMapping("/{carmodel}/quote")
+    public ResponseEntity<PricingQuoteResponse> quote(
+            @PathVariable String carmodel,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        return ResponseEntity.ok(pricingRuleService.quote(carmodel, startDate, endDate));
+    }
+
+    @GetMapping("/holidays")
+    public ResponseEntity<List<HolidayDto>> getHolidays() {
+        return ResponseEntity.ok(pricingRuleService.getHolidays());
+    }
+
+    @PostMapping("/holidays")
+    public ResponseEntity<HolidayDto> addHoliday(@Valid @RequestBody HolidayDto request) {
+        return ResponseEntity.ok(pricingRuleService.addHoliday(request));
+    }
+
+    @DeleteMapping("/holidays/{date}")
+    public ResponseEntity<Void> deleteHoliday(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        pricingRuleService.deleteHoliday(date);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,9 +1,14 @@
 package com.group6.Rental_Car.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleCreateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleDetailResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSlotSuggestionResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateStatusRequest;
 import com.group6.Rental_Car.services.vehicle.VehicleService;
@@ -107,8 +112,10 @@ public class VehicleController {
     @GetMapping("/station/{stationId}/available")
     public ResponseEntity<List<VehicleResponse>> getAvailableVehiclesByStation(
             @PathVariable Integer stationId,
-            @RequestParam(required = false) String carmodel) {
-        List<VehicleResponse> vehicles = vehicleService.getAvailableVehiclesByStation(stationId, carmodel);
+            @RequestParam(required = false) String carmodel,
+            @RequestParam(required = false) LocalDateTime startTime,
+            @RequestParam(required = false) LocalDateTime endTime) {
+        List<VehicleResponse> vehicles = vehicleService.getAvailableVehiclesByStation(stationId, carmodel, startTime, endTime);
         return ResponseEntity.ok(vehicles);
     }
 
@@ -123,8 +130,9 @@ public class VehicleController {
     public ResponseEntity<List<VehicleResponse>> getAvailableVehicles(
             @RequestParam LocalDateTime startTime,
             @RequestParam LocalDateTime endTime,
-            @RequestParam(required = false) Integer stationId) {
-        List<VehicleResponse> vehicles = vehicleService.getAvailableVehicles(startTime, endTime, stationId);
+            @RequestParam(required = false) Integer stationId,
+            @RequestParam(required = false) String carmodel) {
+        List<VehicleResponse> vehicles = vehicleService.getAvailableVehicles(startTime, endTime, stationId, carmodel);
         return ResponseEntity.ok(vehicles);
     }
 
@@ -135,4 +143,27 @@ public class VehicleController {
         return ResponseEntity.ok(vehicles);
     }
 
+    // Gợi ý các khung giờ rảnh sớm nhất (xe đã chọn + xe cùng mẫu cùng trạm) khi đặt xe bị trùng lịch
+    @GetMapping("/{vehicleId}/suggestions")
+    public ResponseEntity<List<VehicleSlotSuggestionResponse>> suggestFreeSlots(
+            @PathVariable Long vehicleId,
+            @RequestParam LocalDateTime startTime,
+            @RequestParam LocalDateTime endTime,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(vehicleService.suggestFreeSlots(vehicleId, startTime, endTime, limit));
+    }
+
+    // Lịch rảnh của nhiều xe x nhiều khung giờ trong 1 lần gọi (cho màn hình lịch đội xe)
+    @PostMapping("/availability-matrix")
+    public ResponseEntity<VehicleAvailabilityMatrixResponse> getAvailabilityMatrix(
+            @RequestBody VehicleAvailabilityMatrixRequest request) {
+        return ResponseEntity.ok(vehicleService.getAvailabilityMatrix(request));
+    }
+
+    // Tìm xe theo nhiều thuộc tính kèm số xe theo từng giá trị (facet), tùy chọn lọc theo khung giờ rảnh
+    @PostMapping("/search")
+    public ResponseEntity<VehicleSearchResponse> searchVehicles(@RequestBody VehicleSearchRequest request) {
+        return ResponseEntity.ok(vehicleService.searchVehicles(request));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.group6.Rental_Car.controllers;
+
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldRequest;
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldResponse;
+import com.group6.Rental_Car.services.vehiclehold.VehicleHoldService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/vehicle-hold")
+@Tag(name = "Api Vehicle Hold", description = "Giữ chỗ xe tạm thời trong lúc thanh toán")
+@RequiredArgsConstructor
+public class VehicleHoldController {
+
+    private final VehicleHoldService vehicleHoldService;
+
+    @PostMapping("/create")
+    public ResponseEntity<VehicleHoldResponse> create(@Valid @RequestBody VehicleHoldRequest request) {
+        return ResponseEntity.ok(vehicleHoldService.createHold(request));
+    }
+
+    @DeleteMapping("/{holdToken}")
+    public ResponseEntity<String> release(@PathVariable UUID holdToken) {
+        vehicleHoldService.releaseHold(holdToken);
+        return ResponseEntity.ok("Released hold successfully");
+    }
+}
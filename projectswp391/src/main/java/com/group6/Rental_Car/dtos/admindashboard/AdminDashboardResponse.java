@@ -29,6 +29,9 @@ public class AdminDashboardResponse {
     private ServiceKpi serviceKpi;                 // Thống kê dịch vụ (Service KPI)
     // ======= DỊCH VỤ GẦN NHẤT =======
     private List<RecentService> recentServices;       // danh sách dịch vụ gần nhất
+    // ======= TRẠNG THÁI =======
+    private boolean degraded;                         // có phần KPI lỗi / quá hạn, đang hiển thị giá trị mặc định
+    private List<String> degradedSections;            // tên các phần đó
 
     // ----------------- NESTED DTOs -----------------
 
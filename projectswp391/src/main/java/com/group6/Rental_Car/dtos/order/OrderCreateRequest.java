@@ -25,5 +25,5 @@ public class OrderCreateRequest {
     private LocalDateTime endTime;    // Thời điểm kết thúc thuê
 
     private String couponCode;        // Mã giảm giá (nếu có)
-    private boolean holiday;          // Có phải ngày lễ hay không (áp dụng holidayPrice)
+    private UUID holdToken;           // Token giữ chỗ từ /api/vehicle-hold/create (nếu có)
 }
@@ -0,0 +1,22 @@
+package com.group6.Rental_Car.dtos.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageFilter {
+    private String cursor;            // nextCursor của trang trước (null = trang đầu)
+    private Integer limit;            // Số đơn mỗi trang (mặc định 20, tối đa 100)
+    private List<String> statuses;    // Lọc theo trạng thái (không phân biệt hoa thường)
+    private Integer stationId;        // Trạm của xe trong chi tiết RENTAL
+    private LocalDateTime from;       // created_at >= from
+    private LocalDateTime to;         // created_at < to
+}
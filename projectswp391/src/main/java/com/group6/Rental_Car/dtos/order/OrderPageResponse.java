@@ -0,0 +1,20 @@
+package com.group6.Rental_Car.dtos.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 1 trang kết quả phân trang theo con trỏ (created_at, order_id).
+ * nextCursor = null khi đã hết dữ liệu; gửi lại nguyên giá trị qua tham số cursor để lấy trang tiếp theo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
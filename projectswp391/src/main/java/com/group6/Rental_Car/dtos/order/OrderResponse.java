@@ -29,6 +29,7 @@ public class OrderResponse {
     private LocalDateTime createdAt;
 
     private BigDecimal totalPrice;
+    private BigDecimal paidAmount; // Tiền đã thanh toán
     private BigDecimal remainingAmount; // Tiền chưa thanh toán
     private String status;
     private String couponCode;
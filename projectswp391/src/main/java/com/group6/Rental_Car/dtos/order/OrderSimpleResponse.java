@@ -19,6 +19,7 @@ public class OrderSimpleResponse {
     private LocalDateTime createdAt;
 
     private BigDecimal totalPrice;
+    private BigDecimal paidAmount; // Tiền đã thanh toán
     private BigDecimal remainingAmount; // Tiền chưa thanh toán
     private String status;
     private String couponCode;
@@ -0,0 +1,36 @@
+package com.group6.Rental_Car.dtos.payment;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * MoMo Query Transaction Request DTO
+ * Tra cứu trạng thái giao dịch theo orderId
+ * Docs: https://developers.momo.vn/v3/docs/payment/api/payment-api/query
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MomoQueryRequest {
+
+    @JsonProperty("partnerCode")
+    private String partnerCode;
+
+    @JsonProperty("requestId")
+    private String requestId;
+
+    @JsonProperty("orderId")
+    private String orderId;
+
+    @JsonProperty("lang")
+    private String lang;
+
+    @JsonProperty("signature")
+    private String signature;
+}
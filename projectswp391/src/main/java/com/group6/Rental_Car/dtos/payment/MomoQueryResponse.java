@@ -0,0 +1,50 @@
+package com.group6.Rental_Car.dtos.payment;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * MoMo Query Transaction Response DTO
+ * resultCode = 0: thanh toán thành công, 1000 / 7000 / 7002: đang xử lý, khác: thất bại
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MomoQueryResponse {
+
+    @JsonProperty("partnerCode")
+    private String partnerCode;
+
+    @JsonProperty("orderId")
+    private String orderId;
+
+    @JsonProperty("requestId")
+    private String requestId;
+
+    @JsonProperty("extraData")
+    private String extraData;
+
+    @JsonProperty("amount")
+    private Long amount;
+
+    @JsonProperty("transId")
+    private Long transId;
+
+    @JsonProperty("payType")
+    private String payType;
+
+    @JsonProperty("resultCode")
+    private Integer resultCode;
+
+    @JsonProperty("message")
+    private String message;
+
+    @JsonProperty("responseTime")
+    private Long responseTime;
+}
@@ -0,0 +1,39 @@
+package com.group6.Rental_Car.dtos.pricingrule;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Báo giá chi tiết cho kỳ thuê [startDate, endDate) - ngày endDate là ngày trả, không tính
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PricingQuoteResponse {
+    private String carmodel;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private long totalDays;
+
+    private List<Line> lines;
+    private List<LocalDate> holidays; // ngày lễ (thứ 2 - thứ 6) trong kỳ thuê
+    private BigDecimal total;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Line {
+        private String type; // WEEKDAY | WEEKEND | HOLIDAY
+        private long days;
+        private BigDecimal unitPrice;
+        private BigDecimal amount;
+    }
+}
@@ -11,5 +11,7 @@ public class RentalStationResponse {
     private String district;
     private String ward;
     private String street;
+    private Long totalVehicles;
+    private Long availableVehicles;
 
 }
@@ -0,0 +1,34 @@
+package com.group6.Rental_Car.dtos.vehicle;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Truyền vehicleIds, hoặc stationId / carmodel để lấy toàn bộ xe thỏa điều kiện
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleAvailabilityMatrixRequest {
+
+    private List<Long> vehicleIds;
+    private Integer stationId;
+    private String carmodel;
+    private List<TimeWindow> windows;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimeWindow {
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private LocalDateTime startTime;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private LocalDateTime endTime;
+    }
+}
@@ -0,0 +1,26 @@
+package com.group6.Rental_Car.dtos.vehicle;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleAvailabilityMatrixResponse {
+
+    private List<VehicleAvailabilityMatrixRequest.TimeWindow> windows;
+    private List<Row> vehicles;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private Long vehicleId;
+        private String plateNumber;
+        private String status;
+        private List<Boolean> available; // available.get(i) ứng với windows.get(i)
+    }
+}
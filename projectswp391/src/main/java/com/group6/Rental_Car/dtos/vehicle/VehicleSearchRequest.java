@@ -0,0 +1,41 @@
+package com.group6.Rental_Car.dtos.vehicle;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tìm xe theo thuộc tính. Trong 1 thuộc tính các giá trị là OR; giữa các thuộc tính là mode (AND mặc định / OR).
+ * Thuộc tính để trống = không lọc. Có startTime + endTime thì chỉ lấy xe không vướng lịch BOOKED/RENTAL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleSearchRequest {
+
+    private List<String> carmodels;
+    private List<String> colors;
+    private List<Integer> seatCounts;
+    private List<String> variants;
+    private List<String> transmissions;
+    private List<String> batteryCapacities;
+    private List<Integer> stationIds;
+    private List<String> statuses;
+
+    private String mode; // AND | OR
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private String sortBy;  // plateNumber | vehicleName | carmodel | seatCount | year | batteryCapacity
+    private String sortDir; // asc | desc
+    private Integer page;
+    private Integer size;
+}
@@ -0,0 +1,23 @@
+package com.group6.Rental_Car.dtos.vehicle;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleSearchResponse {
+
+    private long total;
+    private int page;
+    private int size;
+    private List<VehicleResponse> items;
+
+    // thuộc tính -> (giá trị -> số xe), sắp theo số xe giảm dần.
+    // mode AND: đếm trên kết quả lọc bởi các thuộc tính KHÁC (chọn thêm giá trị cùng thuộc tính vẫn thấy số xe)
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,23 @@
+package com.group6.Rental_Car.dtos.vehicle;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleSlotSuggestionResponse {
+    private Long vehicleId;
+    private String plateNumber;
+    private boolean sameVehicle;      // true = chính xe khách đã chọn
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+}
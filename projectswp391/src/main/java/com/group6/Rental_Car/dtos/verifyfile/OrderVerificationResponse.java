@@ -29,6 +29,7 @@ public class OrderVerificationResponse {
     // Thông tin tài chính
     private BigDecimal totalPrice;      // Tổng tiền của order
     private BigDecimal totalServices;   // Tổng tiền dịch vụ (nếu có)
+    private BigDecimal paidAmount;      // Số tiền đã thanh toán
     private BigDecimal remainingAmount; // Số tiền còn lại cần thanh toán
 
     // Trạng thái
@@ -0,0 +1,26 @@
+package com.group6.Rental_Car.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Ngày lễ tính giá theo holidayPrice (xem HolidayCalendar)
+ */
+@Entity
+@Table(name = "holiday")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Holiday {
+
+    @Id
+    @Column(name = "holiday_date")
+    private LocalDate holidayDate;
+
+    @Column(name = "name", length = 100, nullable = false)
+    private String name;
+}
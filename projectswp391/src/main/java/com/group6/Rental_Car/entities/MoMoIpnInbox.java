@@ -0,0 +1,68 @@
+package com.group6.Rental_Car.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * IPN MoMo đã nhận (đã kiểm chữ ký), chờ worker xử lý.
+ * Unique (momo_order_id, request_id) nên MoMo gửi lại cùng IPN chỉ được ghi 1 lần.
+ */
+@Entity
+@Table(name = "momo_ipn_inbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MoMoIpnInbox {
+
+    public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "inbox_id")
+    private Long inboxId;
+
+    @Column(name = "momo_order_id", nullable = false, length = 100)
+    private String momoOrderId;
+
+    @Column(name = "request_id", nullable = false, length = 100)
+    private String requestId;
+
+    @Column(name = "payment_id", nullable = false)
+    private UUID paymentId;
+
+    @Column(name = "result_code")
+    private Integer resultCode;
+
+    // Toàn bộ tham số IPN dạng JSON
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -1,10 +1,12 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.admindashboard.DashboardCacheInvalidator;
 import com.group6.Rental_Car.enums.PaymentStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -14,6 +16,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DashboardCacheInvalidator.class)
 public class Payment {
 
     @Id
@@ -35,5 +38,12 @@ public class Payment {
     private PaymentStatus status;
     private BigDecimal remainingAmount;
 
+    // orderId gửi MoMo ở lần tạo link gần nhất (tra cứu khi mất IPN)
+    @Column(name = "momo_order_id", length = 100)
+    private String momoOrderId;
+
+    // DB tự gán (DEFAULT now())
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
 
 }
@@ -1,5 +1,6 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.admindashboard.DashboardCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.UuidGenerator;
@@ -16,6 +17,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DashboardCacheInvalidator.class)
 public class RentalOrder {
 
     @Id
@@ -42,6 +44,13 @@ public class RentalOrder {
     private Coupon coupon;
     private LocalDateTime actualReturnTime;
 
+    // Số dư do trigger DB duy trì theo payment (db/rentalorder_balance.sql) - Hibernate chỉ đọc
+    @Column(name = "paid_amount", precision = 12, scale = 2, insertable = false, updatable = false)
+    private BigDecimal paidAmount;
+
+    @Column(name = "remaining_amount", precision = 12, scale = 2, insertable = false, updatable = false)
+    private BigDecimal remainingAmount;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<RentalOrderDetail> details;
 
@@ -1,5 +1,6 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.admindashboard.DashboardCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DashboardCacheInvalidator.class)
 public class RentalOrderDetail {
 
     @Id
@@ -1,5 +1,6 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.vehicle.VehicleCatalogListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(VehicleCatalogListener.class)
 public class RentalStation {
 
     @Id
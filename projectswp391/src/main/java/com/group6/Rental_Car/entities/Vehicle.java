@@ -1,5 +1,7 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.admindashboard.DashboardCacheInvalidator;
+import com.group6.Rental_Car.services.vehicle.VehicleCatalogListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.util.List;
@@ -11,6 +13,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners({DashboardCacheInvalidator.class, VehicleCatalogListener.class})
 public class Vehicle {
 
     @Id
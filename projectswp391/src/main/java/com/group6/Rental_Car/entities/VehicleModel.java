@@ -1,5 +1,6 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.vehicle.VehicleCatalogListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,6 +10,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(VehicleCatalogListener.class)
 public class VehicleModel {
 
     @Id
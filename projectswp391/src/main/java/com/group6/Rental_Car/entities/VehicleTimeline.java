@@ -1,5 +1,6 @@
 package com.group6.Rental_Car.entities;
 
+import com.group6.Rental_Car.services.timeline.VehicleTimelineIndexListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(VehicleTimelineIndexListener.class)
 public class VehicleTimeline {
 
     @Id
@@ -67,6 +67,11 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    @ExceptionHandler(PaymentGatewayException.class)
+    public ResponseEntity<?> handlePaymentGateway(PaymentGatewayException ex) {
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<?> handleIllegalArg(IllegalArgumentException ex) {
         return build(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -0,0 +1,14 @@
+package com.group6.Rental_Car.exceptions;
+
+/**
+ * Cổng thanh toán không phản hồi / lỗi kết nối / đang ngắt mạch → 503
+ */
+public class PaymentGatewayException extends RuntimeException {
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.group6.Rental_Car.repositories;
+
+import com.group6.Rental_Car.entities.Holiday;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface HolidayRepository extends JpaRepository<Holiday, LocalDate> {
+    List<Holiday> findAllByOrderByHolidayDateAsc();
+}
@@ -0,0 +1,64 @@
+package com.group6.Rental_Car.repositories;
+
+import com.group6.Rental_Car.entities.MoMoIpnInbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MoMoIpnInboxRepository extends JpaRepository<MoMoIpnInbox, Long> {
+
+    /**
+     * Ghi IPN nếu chưa có (momo_order_id, request_id)
+     * @return 1 nếu ghi mới, 0 nếu là IPN trùng
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO momo_ipn_inbox (momo_order_id, request_id, payment_id, result_code, payload,
+                                    status, attempts, received_at, next_attempt_at)
+        VALUES (:momoOrderId, :requestId, :paymentId, :resultCode, :payload,
+                'PENDING', 0, :receivedAt, :receivedAt)
+        ON CONFLICT (momo_order_id, request_id) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(@Param("momoOrderId") String momoOrderId,
+                       @Param("requestId") String requestId,
+                       @Param("paymentId") UUID paymentId,
+                       @Param("resultCode") Integer resultCode,
+                       @Param("payload") String payload,
+                       @Param("receivedAt") LocalDateTime receivedAt);
+
+    /**
+     * Lấy các IPN đến hạn xử lý (kể cả PROCESSING bị treo do node chết giữa chừng).
+     * Bỏ qua IPN còn IPN cũ hơn chưa xong của cùng payment → mỗi payment xử lý đúng thứ tự nhận,
+     * và 1 batch không bao giờ có 2 IPN của cùng payment. SKIP LOCKED cho phép nhiều node cùng lấy.
+     */
+    @Query(value = """
+        SELECT i.* FROM momo_ipn_inbox i
+        WHERE ((i.status = 'PENDING' AND i.next_attempt_at <= :now)
+               OR (i.status = 'PROCESSING' AND i.claimed_at < :staleBefore))
+          AND NOT EXISTS (
+              SELECT 1 FROM momo_ipn_inbox e
+              WHERE e.payment_id = i.payment_id
+                AND e.inbox_id < i.inbox_id
+                AND e.status IN ('PENDING', 'PROCESSING'))
+        ORDER BY i.inbox_id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<MoMoIpnInbox> lockDueEntries(@Param("now") LocalDateTime now,
+                                      @Param("staleBefore") LocalDateTime staleBefore,
+                                      @Param("limit") int limit);
+
+    long countByStatusIn(Collection<String> statuses);
+
+    @Modifying
+    @Query("DELETE FROM MoMoIpnInbox i WHERE i.status = 'DONE' AND i.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,16 @@
 package com.group6.Rental_Car.repositories;
 
 import com.group6.Rental_Car.entities.Payment;
+import com.group6.Rental_Car.enums.PaymentStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -11,4 +18,33 @@ import java.util.UUID;
 public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Payment> findByRentalOrder_OrderId(UUID orderId);
 
+    // Payment của nhiều đơn trong 1 query (danh sách đơn)
+    List<Payment> findByRentalOrder_OrderIdIn(Collection<UUID> orderIds);
+
+    // Payment MoMo còn treo ở trạng thái status, phân trang keyset theo (createdAt, paymentId)
+    @Query("""
+        SELECT p FROM Payment p
+        WHERE p.status = :status
+          AND p.momoOrderId IS NOT NULL
+          AND p.createdAt < :staleBefore
+          AND (p.createdAt > :afterCreatedAt
+               OR (p.createdAt = :afterCreatedAt AND p.paymentId > :afterPaymentId))
+        ORDER BY p.createdAt, p.paymentId
+    """)
+    List<Payment> findStaleMoMoPayments(@Param("status") PaymentStatus status,
+                                        @Param("staleBefore") LocalDateTime staleBefore,
+                                        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                        @Param("afterPaymentId") UUID afterPaymentId,
+                                        Pageable pageable);
+
+    // Tổng tiền payment theo trạng thái của các đơn tạo trong [from, to]
+    @Query("""
+        SELECT COALESCE(SUM(p.amount), 0) FROM Payment p
+        WHERE p.status = :status
+          AND p.rentalOrder.createdAt BETWEEN :from AND :to
+    """)
+    BigDecimal sumAmountByStatusForOrdersCreatedBetween(@Param("status") PaymentStatus status,
+                                                        @Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to);
+
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package com.group6.Rental_Car.repositories;
 
 import com.group6.Rental_Car.entities.RentalOrderDetail;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,4 +29,66 @@ public interface RentalOrderDetailRepository extends JpaRepository<RentalOrderDe
 
     // Lấy tất cả detail đang pending (chưa xử lý)
     List<RentalOrderDetail> findByStatus(String status);
+
+    // ========================
+    //  DASHBOARD
+    // ========================
+
+    // [số service, tổng chi phí] của toàn bộ service
+    @Query("""
+        SELECT COUNT(d), COALESCE(SUM(d.price), 0) FROM RentalOrderDetail d
+        WHERE UPPER(d.type) = 'SERVICE'
+    """)
+    List<Object[]> countAndSumServices();
+
+    // [loại service (50 ký tự đầu của description, rỗng = SERVICE), số lượng]
+    @Query(value = """
+        SELECT CASE WHEN d.description IS NULL OR d.description = '' THEN 'SERVICE'
+                    ELSE LEFT(d.description, 50) END AS service_type,
+               COUNT(*)
+        FROM rentalorder_detail d
+        WHERE UPPER(d.type) = 'SERVICE'
+        GROUP BY service_type
+    """, nativeQuery = true)
+    List<Object[]> countServicesByType();
+
+    // [trạng thái service (null = UNKNOWN), số lượng]
+    @Query("""
+        SELECT COALESCE(d.status, 'UNKNOWN'), COUNT(d) FROM RentalOrderDetail d
+        WHERE UPPER(d.type) = 'SERVICE'
+        GROUP BY COALESCE(d.status, 'UNKNOWN')
+    """)
+    List<Object[]> countServicesByStatus();
+
+    // [ngày bắt đầu, số service] trong [from, to]
+    @Query(value = """
+        SELECT CAST(d.start_time AS date) AS day, COUNT(*)
+        FROM rentalorder_detail d
+        WHERE UPPER(d.type) = 'SERVICE'
+          AND d.start_time BETWEEN :from AND :to
+        GROUP BY day
+    """, nativeQuery = true)
+    List<Object[]> countServicesByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Service mới nhất theo startTime, kèm xe (1 query, không lazy load)
+    @Query("""
+        SELECT d FROM RentalOrderDetail d
+        JOIN FETCH d.vehicle
+        WHERE UPPER(d.type) = 'SERVICE' AND d.startTime IS NOT NULL
+        ORDER BY d.startTime DESC
+    """)
+    List<RentalOrderDetail> findRecentServices(Pageable pageable);
+
+    // [ngày, doanh thu] trong [from, to], đọc từ rollup revenue_daily (db/dashboard_rollup.sql)
+    @Query(value = """
+        SELECT r.day, COALESCE(SUM(r.revenue), 0)
+        FROM revenue_daily r
+        WHERE r.day BETWEEN :from AND :to
+        GROUP BY r.day
+    """, nativeQuery = true)
+    List<Object[]> sumRevenueByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Dựng lại revenue_daily / order_hourly từ dữ liệu gốc, trả về số dòng revenue_daily
+    @Query(value = "SELECT dashboard_rollup_rebuild()", nativeQuery = true)
+    int rebuildDashboardRollup();
 }
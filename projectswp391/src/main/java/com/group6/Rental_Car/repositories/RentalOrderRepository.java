@@ -1,12 +1,16 @@
 package com.group6.Rental_Car.repositories;
 
 import com.group6.Rental_Car.entities.RentalOrder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -29,11 +33,31 @@ public interface RentalOrderRepository extends JpaRepository<RentalOrder, UUID>
 
     List<RentalOrder> findByStatusIn(List<String> statuses);
 
+    // Sửa số dư lệch (OrderBalanceRebuildJob) - không đổi total_price nên trigger không tính lại
+    @Modifying
+    @Query(value = """
+        UPDATE rentalorder
+        SET paid_amount = :paidAmount, remaining_amount = :remainingAmount
+        WHERE order_id = :orderId
+    """, nativeQuery = true)
+    int updateBalance(@Param("orderId") UUID orderId,
+                      @Param("paidAmount") BigDecimal paidAmount,
+                      @Param("remainingAmount") BigDecimal remainingAmount);
+
+    // Danh sách đơn cho màn hình quản lý: nạp sẵn customer + coupon trong cùng câu lệnh
+    @EntityGraph(attributePaths = {"customer", "coupon"})
+    @Query("SELECT o FROM RentalOrder o")
+    List<RentalOrder> findAllForListing();
+
     List<RentalOrder> findByCustomer_UserIdOrderByCreatedAtDesc(UUID customerId);
 
     // Đếm số order theo trạng thái (cho dashboard)
     long countByStatus(String status);
 
+    // [status, số order] - nạp / đối chiếu FleetStateRegistry
+    @Query("SELECT o.status, COUNT(o) FROM RentalOrder o GROUP BY o.status")
+    List<Object[]> countGroupByStatus();
+
     // =============================
     // DOANH THU THEO ORDER DETAIL
     // =============================
@@ -61,79 +85,16 @@ public interface RentalOrderRepository extends JpaRepository<RentalOrder, UUID>
     """, nativeQuery = true)
     List<Object[]> revenueByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
-    // Doanh thu theo trạm (dựa vào vehicle)
-    @Query(value = """
-        SELECT s.station_id,
-               s.name AS station_name,
-               COALESCE(SUM(rod.price), 0) AS total
-        FROM rentalstation s
-        LEFT JOIN vehicle v ON v.station_id = s.station_id
-        LEFT JOIN rentalorder_detail rod ON rod.vehicle_id = v.vehicle_id
-        LEFT JOIN rentalorder ro ON rod.order_id = ro.order_id
-             AND rod.start_time BETWEEN :from AND :to
-             AND UPPER(ro.status) IN ('RENTAL', 'COMPLETED', 'RETURN', 'ACTIVE')
-        GROUP BY s.station_id, s.name
-        ORDER BY total DESC
-    """, nativeQuery = true)
-    List<Object[]> revenuePerStation(@Param("from") LocalDateTime from,
-                                     @Param("to") LocalDateTime to);
-
-    // Doanh thu hôm nay
+    // Đếm order theo giờ trong ngày (giờ bắt đầu của detail), đọc từ rollup order_hourly
     @Query(value = """
-        SELECT s.station_id,
-               s.name AS station_name,
-               COALESCE(SUM(rod.price), 0) AS total
-        FROM rentalstation s
-        LEFT JOIN vehicle v ON v.station_id = s.station_id
-        LEFT JOIN rentalorder_detail rod ON rod.vehicle_id = v.vehicle_id
-        LEFT JOIN rentalorder ro ON rod.order_id = ro.order_id
-             AND DATE(rod.start_time) = CURRENT_DATE
-             AND UPPER(ro.status) IN ('RENTAL', 'COMPLETED', 'RETURN', 'ACTIVE')
-        GROUP BY s.station_id, s.name
-    """, nativeQuery = true)
-    List<Object[]> revenueTodayPerStation();
-
-    // Doanh thu tuần này
-    @Query(value = """
-        SELECT s.station_id,
-               s.name AS station_name,
-               COALESCE(SUM(rod.price), 0) AS total
-        FROM rentalstation s
-        LEFT JOIN vehicle v ON v.station_id = s.station_id
-        LEFT JOIN rentalorder_detail rod ON rod.vehicle_id = v.vehicle_id
-        LEFT JOIN rentalorder ro ON rod.order_id = ro.order_id
-             AND rod.start_time >= DATE_TRUNC('week', CURRENT_DATE)
-             AND UPPER(ro.status) IN ('RENTAL', 'COMPLETED', 'RETURN', 'ACTIVE')
-        GROUP BY s.station_id, s.name
+        SELECT h.hour, COALESCE(SUM(h.order_count), 0) AS count
+        FROM order_hourly h
+        WHERE h.day BETWEEN :from AND :to
+        GROUP BY h.hour
+        HAVING SUM(h.order_count) > 0
+        ORDER BY h.hour
     """, nativeQuery = true)
-    List<Object[]> revenueThisWeekPerStation();
-
-    // Doanh thu tháng này
-    @Query(value = """
-        SELECT s.station_id,
-               s.name AS station_name,
-               COALESCE(SUM(rod.price), 0) AS total
-        FROM rentalstation s
-        LEFT JOIN vehicle v ON v.station_id = s.station_id
-        LEFT JOIN rentalorder_detail rod ON rod.vehicle_id = v.vehicle_id
-        LEFT JOIN rentalorder ro ON rod.order_id = ro.order_id
-             AND rod.start_time >= DATE_TRUNC('month', CURRENT_DATE)
-             AND UPPER(ro.status) IN ('RENTAL', 'COMPLETED', 'RETURN', 'ACTIVE')
-        GROUP BY s.station_id, s.name
-    """, nativeQuery = true)
-    List<Object[]> revenueThisMonthPerStation();
-
-    // Đếm order theo giờ trong ngày
-    @Query(value = """
-        SELECT EXTRACT(HOUR FROM rod.start_time) AS hour,
-               COUNT(DISTINCT ro.order_id) AS count
-        FROM rentalorder_detail rod
-        JOIN rentalorder ro ON rod.order_id = ro.order_id
-        WHERE rod.start_time BETWEEN :from AND :to
-        GROUP BY hour
-        ORDER BY hour
-    """, nativeQuery = true)
-    List<Object[]> countOrdersByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    List<Object[]> countOrdersByHour(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
     // Doanh thu của 1 station trong khoảng thời gian
     @Query(value = """
@@ -148,4 +109,61 @@ public interface RentalOrderRepository extends JpaRepository<RentalOrder, UUID>
     Double revenueByStationBetween(@Param("stationId") Integer stationId,
                                     @Param("from") LocalDateTime from,
                                     @Param("to") LocalDateTime to);
+
+    // =============================
+    // PHÂN TRANG THEO CON TRỎ (created_at, order_id)
+    // =============================
+    // 4 biến thể (trang đầu / sau con trỏ × mọi trạng thái / lọc trạng thái) để mỗi câu đều range scan được
+    // idx_rentalorder_created_order / idx_rentalorder_status_created_order: con trỏ so sánh theo row value,
+    // không dùng "tham số IS NULL OR ..." cho trạng thái / con trỏ.
+    // Truyền Pageable = PageRequest.of(0, limit + 1) để biết còn trang sau
+    String ORDER_PAGE_QUERY = """
+        SELECT o
+        FROM RentalOrder o
+        WHERE (:from IS NULL OR o.createdAt >= :from)
+          AND (:to IS NULL OR o.createdAt < :to)
+          AND (:stationId IS NULL OR EXISTS (
+                SELECT 1 FROM RentalOrderDetail d
+                WHERE d.order = o
+                  AND UPPER(d.type) = 'RENTAL'
+                  AND d.vehicle.rentalStation.stationId = :stationId
+          ))
+        """;
+    String ORDER_PAGE_STATUS = " AND UPPER(o.status) IN :statuses";
+    String ORDER_PAGE_AFTER_CURSOR = " AND (o.createdAt, o.orderId) < (:cursorCreatedAt, :cursorOrderId)";
+    String ORDER_PAGE_ORDER_BY = " ORDER BY o.createdAt DESC, o.orderId DESC";
+
+    @EntityGraph(attributePaths = {"customer", "coupon"})
+    @Query(ORDER_PAGE_QUERY + ORDER_PAGE_ORDER_BY)
+    List<RentalOrder> findFirstPage(@Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("stationId") Integer stationId,
+                                    Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "coupon"})
+    @Query(ORDER_PAGE_QUERY + ORDER_PAGE_AFTER_CURSOR + ORDER_PAGE_ORDER_BY)
+    List<RentalOrder> findPageAfter(@Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("stationId") Integer stationId,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorOrderId") UUID cursorOrderId,
+                                    Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "coupon"})
+    @Query(ORDER_PAGE_QUERY + ORDER_PAGE_STATUS + ORDER_PAGE_ORDER_BY)
+    List<RentalOrder> findFirstPageByStatus(@Param("statuses") List<String> statuses,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("stationId") Integer stationId,
+                                            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "coupon"})
+    @Query(ORDER_PAGE_QUERY + ORDER_PAGE_STATUS + ORDER_PAGE_AFTER_CURSOR + ORDER_PAGE_ORDER_BY)
+    List<RentalOrder> findPageByStatusAfter(@Param("statuses") List<String> statuses,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("stationId") Integer stationId,
+                                            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                            @Param("cursorOrderId") UUID cursorOrderId,
+                                            Pageable pageable);
 }
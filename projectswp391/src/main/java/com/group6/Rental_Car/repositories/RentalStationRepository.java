@@ -2,7 +2,10 @@ package com.group6.Rental_Car.repositories;
 
 import com.group6.Rental_Car.entities.RentalStation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface RentalStationRepository extends JpaRepository<RentalStation, Integer> {
@@ -16,4 +19,78 @@ public interface RentalStationRepository extends JpaRepository<RentalStation, In
     //update check
     boolean existsByNameIgnoreCaseAndCityIgnoreCaseAndDistrictIgnoreCaseAndWardIgnoreCaseAndStreetIgnoreCaseAndStationIdNot(
             String name, String city, String district, String ward, String street, Integer stationId);
+
+    /**
+     * Số liệu từng trạm cho dashboard trong 1 lần đọc: số xe / xe đang thuê (vehicle)
+     * và doanh thu các kỳ (rollup revenue_daily, gom bằng FILTER theo kỳ).
+     * rangeRevenue tính mọi đơn ghi nhận doanh thu trong [from, to]; các kỳ còn lại tính theo today
+     * và chỉ gồm đơn đã có payment SUCCESS. Sắp theo số xe giảm dần.
+     */
+    @Query(value = """
+        WITH fleet AS (
+            SELECT v.station_id,
+                   COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE v.status = 'RENTAL') AS rented
+            FROM vehicle v
+            WHERE v.station_id IS NOT NULL
+            GROUP BY v.station_id
+        ), revenue AS (
+            SELECT r.station_id,
+                   SUM(r.revenue) FILTER (WHERE r.day BETWEEN :from AND :to) AS range_revenue,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day = :today) AS today,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day BETWEEN CAST(:today AS date) - 7 AND :today) AS week,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day BETWEEN CAST(:today AS date) - 30 AND :today) AS month,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day = CAST(:today AS date) - 1) AS yesterday,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day BETWEEN CAST(:today AS date) - 14
+                                                                     AND CAST(:today AS date) - 9) AS last_week,
+                   SUM(r.revenue) FILTER (WHERE r.paid AND r.day BETWEEN CAST(:today AS date) - 60
+                                                                     AND CAST(:today AS date) - 32) AS last_month
+            FROM revenue_daily r
+            WHERE r.station_id <> 0
+              AND (r.day BETWEEN :from AND :to OR r.day BETWEEN CAST(:today AS date) - 60 AND :today)
+            GROUP BY r.station_id
+        )
+        SELECT s.station_id                              AS "stationId",
+               s.name                                    AS "stationName",
+               CAST(COALESCE(f.total, 0) AS bigint)      AS "vehicleTotal",
+               CAST(COALESCE(f.rented, 0) AS bigint)     AS "vehicleRented",
+               CAST(COALESCE(r.range_revenue, 0) AS float8) AS "rangeRevenue",
+               CAST(COALESCE(r.today, 0) AS float8)      AS "todayRevenue",
+               CAST(COALESCE(r.week, 0) AS float8)       AS "weekRevenue",
+               CAST(COALESCE(r.month, 0) AS float8)      AS "monthRevenue",
+               CAST(COALESCE(r.yesterday, 0) AS float8)  AS "yesterdayRevenue",
+               CAST(COALESCE(r.last_week, 0) AS float8)  AS "lastWeekRevenue",
+               CAST(COALESCE(r.last_month, 0) AS float8) AS "lastMonthRevenue"
+        FROM rentalstation s
+        LEFT JOIN fleet f ON f.station_id = s.station_id
+        LEFT JOIN revenue r ON r.station_id = s.station_id
+        ORDER BY COALESCE(f.total, 0) DESC, s.station_id
+        """, nativeQuery = true)
+    List<StationMetrics> findStationMetrics(@Param("from") LocalDate from,
+                                            @Param("to") LocalDate to,
+                                            @Param("today") LocalDate today);
+
+    interface StationMetrics {
+        Integer getStationId();
+
+        String getStationName();
+
+        Long getVehicleTotal();
+
+        Long getVehicleRented();
+
+        Double getRangeRevenue();
+
+        Double getTodayRevenue();
+
+        Double getWeekRevenue();
+
+        Double getMonthRevenue();
+
+        Double getYesterdayRevenue();
+
+        Double getLastWeekRevenue();
+
+        Double getLastMonthRevenue();
+    }
 }
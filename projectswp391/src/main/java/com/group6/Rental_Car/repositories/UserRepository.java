@@ -27,6 +27,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByEmailAndPassword(@Email String email, @Min(6) @Max(200) @Pattern(regexp = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]") String password);
     //Admin Dashboard
     long countByRole(Role role);
+
+    // [role, số user] - nạp / đối chiếu FleetStateRegistry
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countGroupByRole();
     // 'admin' | 'staff' | 'customer'
     List<User> findByStatusIn(List<UserStatus> statuses);
     Optional<User> findByPhone(String phone);
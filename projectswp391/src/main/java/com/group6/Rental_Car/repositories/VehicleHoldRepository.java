@@ -0,0 +1,25 @@
+package com.group6.Rental_Car.repositories;
+
+import com.group6.Rental_Car.entities.VehicleHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface VehicleHoldRepository extends JpaRepository<VehicleHold, UUID> {
+
+    Optional<VehicleHold> findByHoldIdAndExpiresAtAfter(UUID holdId, LocalDateTime now);
+
+    List<VehicleHold> findByVehicleIdAndExpiresAtAfter(Long vehicleId, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM VehicleHold h WHERE h.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
@@ -14,6 +16,14 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     //Admin Dashboard
     long countByStatus(String status);
 
+    // [station_id, status, số xe] - nạp / đối chiếu FleetStateRegistry (station_id null = chưa gán trạm)
+    @Query("""
+        SELECT s.stationId, v.status, COUNT(v)
+        FROM Vehicle v LEFT JOIN v.rentalStation s
+        GROUP BY s.stationId, v.status
+        """)
+    List<Object[]> countGroupByStationAndStatus();
+
     @Query(value = "SELECT station_id FROM vehicle WHERE vehicle_id = :id", nativeQuery = true)
     Integer findStationId(@Param("id") Long id);
 
@@ -39,22 +49,55 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     """, nativeQuery = true)
     List<Object[]> vehicleUsagePerStation();
 
-    // Đếm xe theo station
-    @Query(value = """
-        SELECT rs.station_id, rs.name, COUNT(v.vehicle_id)
-        FROM rentalstation rs
-        LEFT JOIN vehicle v ON v.station_id = rs.station_id
-        GROUP BY rs.station_id, rs.name
-        ORDER BY COUNT(v.vehicle_id) DESC
-        """, nativeQuery = true)
-    List<Object[]> countByStation();
-
-    // Đếm xe theo station và status
-    long countByRentalStation_StationIdAndStatus(Integer stationId, String status);
-
     // Lấy tất cả xe theo stationId (bao gồm MAINTENANCE), sắp xếp theo biển số
     List<Vehicle> findByRentalStation_StationIdOrderByPlateNumberAsc(Integer stationId);
     
     // Lấy xe theo stationId và status, sắp xếp theo biển số
     List<Vehicle> findByRentalStation_StationIdAndStatusOrderByPlateNumberAsc(Integer stationId, String status);
+
+    // Xe kèm VehicleModel + RentalStation (nạp VehicleCatalog), sắp xếp theo biển số
+    @Query("""
+        SELECT DISTINCT v
+        FROM Vehicle v
+        LEFT JOIN FETCH v.rentalStation
+        LEFT JOIN FETCH v.attributes
+        ORDER BY v.plateNumber
+    """)
+    List<Vehicle> findAllWithDetails();
+
+    // Xe rảnh: 1 câu lệnh duy nhất, fetch sẵn VehicleModel + RentalStation,
+    // loại xe có timeline BOOKED/RENTAL giao với [startTime, endTime) bằng NOT EXISTS.
+    // Tham số null = bỏ qua điều kiện tương ứng
+    @Query("""
+        SELECT DISTINCT v
+        FROM Vehicle v
+        LEFT JOIN FETCH v.rentalStation s
+        LEFT JOIN FETCH v.attributes m
+        WHERE (:stationId IS NULL OR s.stationId = :stationId)
+          AND (:status IS NULL OR v.status = :status)
+          AND (:carmodel IS NULL OR LOWER(m.carmodel) = LOWER(:carmodel))
+          AND (:startTime IS NULL OR :endTime IS NULL OR NOT EXISTS (
+                SELECT 1 FROM VehicleTimeline t
+                WHERE t.vehicle = v
+                  AND UPPER(t.status) IN ('BOOKED', 'RENTAL')
+                  AND t.startTime < :endTime
+                  AND t.endTime > :startTime
+          ))
+        ORDER BY v.plateNumber
+    """)
+    List<Vehicle> findAvailableWithDetails(@Param("stationId") Integer stationId,
+                                           @Param("carmodel") String carmodel,
+                                           @Param("status") String status,
+                                           @Param("startTime") LocalDateTime startTime,
+                                           @Param("endTime") LocalDateTime endTime);
+
+    @Query("""
+        SELECT DISTINCT v
+        FROM Vehicle v
+        LEFT JOIN FETCH v.rentalStation
+        LEFT JOIN FETCH v.attributes
+        WHERE v.vehicleId IN :vehicleIds
+        ORDER BY v.plateNumber
+    """)
+    List<Vehicle> findWithDetailsByIds(@Param("vehicleIds") Collection<Long> vehicleIds);
 }
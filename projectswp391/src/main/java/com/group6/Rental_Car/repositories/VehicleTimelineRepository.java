@@ -2,13 +2,41 @@ package com.group6.Rental_Car.repositories;
 
 import com.group6.Rental_Car.entities.VehicleTimeline;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface VehicleTimelineRepository extends JpaRepository<VehicleTimeline, Long> {
     List<VehicleTimeline> findByVehicle_VehicleId(Long vehicleId);
     List<VehicleTimeline> findByVehicle_VehicleIdAndDayBetween(Long vehicleId, LocalDate from, LocalDate to);
+
+    // Các timeline đang chặn xe (BOOKED/RENTAL) có đủ start/end - dùng để nạp availability index
+    @Query("""
+        SELECT t FROM VehicleTimeline t
+        WHERE UPPER(t.status) IN :statuses
+          AND t.startTime IS NOT NULL
+          AND t.endTime IS NOT NULL
+    """)
+    List<VehicleTimeline> findBlockingWindows(@Param("statuses") List<String> statuses);
+
+    // Khoảng BOOKED/RENTAL của nhiều xe giao với [from, to), sắp theo xe rồi startTime: [vehicleId, startTime, endTime]
+    @Query("""
+        SELECT t.vehicle.vehicleId, t.startTime, t.endTime
+        FROM VehicleTimeline t
+        WHERE t.vehicle.vehicleId IN :vehicleIds
+          AND UPPER(t.status) IN :statuses
+          AND t.startTime < :to
+          AND t.endTime > :from
+        ORDER BY t.vehicle.vehicleId, t.startTime
+    """)
+    List<Object[]> findBlockingIntervals(@Param("vehicleIds") Collection<Long> vehicleIds,
+                                         @Param("statuses") List<String> statuses,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
 }
@@ -1,16 +1,18 @@
 package com.group6.Rental_Car.services.admindashboard;
 
 import com.group6.Rental_Car.dtos.admindashboard.AdminDashboardResponse;
+import com.group6.Rental_Car.enums.PaymentStatus;
 import com.group6.Rental_Car.enums.Role;
 import com.group6.Rental_Car.repositories.*;
+import com.group6.Rental_Car.services.fleet.FleetStateRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +25,10 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
     private final OrderServiceRepository orderServiceRepository;
     private final RentalOrderDetailRepository rentalOrderDetailRepository;
     private final PaymentRepository paymentRepository;
+    private final RentalStationRepository rentalStationRepository;
+    private final DashboardSectionRunner sectionRunner;
+    private final DashboardCache dashboardCache;
+    private final FleetStateRegistry fleetState;
 
     @Override
     public AdminDashboardResponse getOverview(LocalDate from, LocalDate to) {
@@ -41,117 +47,56 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
             toDate = to;
         }
 
+        // Khoảng đã chuẩn hóa + ngày hiện tại làm key cache
+        LocalDate today = LocalDate.now();
+        return dashboardCache.get(fromDate, toDate, today, () -> computeOverview(fromDate, toDate, today));
+    }
+
+    private AdminDashboardResponse computeOverview(LocalDate fromDate, LocalDate toDate, LocalDate today) {
         LocalDateTime dtFrom = fromDate.atStartOfDay();
         LocalDateTime dtTo = LocalDateTime.of(toDate, LocalTime.MAX);
 
-        // ===== VEHICLE KPIs =====
-        long totalVehicles = vehicleRepository.count();
-        long availableVehicles = vehicleRepository.countByStatus("AVAILABLE");
-        long rentedVehicles = vehicleRepository.countByStatus("RENTAL");
-        long maintenanceVehicles = vehicleRepository.countByStatus("MAINTENANCE");
-
-        // ===== ORDER KPIs =====
-        long totalOrders = rentalOrderRepository.count();
-        long completedOrders = rentalOrderRepository.countByStatus("COMPLETED");
-        
-        // Tính revenueInRange: chỉ tính các payment có status = SUCCESS
-        // Tính tổng amount của tất cả payment SUCCESS trong khoảng thời gian
-        // Filter theo createdAt của order (vì Payment không có createdAt)
-        double revenueInRange = paymentRepository.findAll().stream()
-                .filter(p -> {
-                    // Chỉ tính các payment có status = SUCCESS
-                    if (p.getStatus() == null || p.getStatus() != com.group6.Rental_Car.enums.PaymentStatus.SUCCESS) {
-                        return false;
-                    }
-                    
-                    // Filter theo createdAt của order (vì Payment không có createdAt)
-                    if (p.getRentalOrder() == null) return false;
-                    com.group6.Rental_Car.entities.RentalOrder order = p.getRentalOrder();
-                    LocalDateTime orderTime = order.getCreatedAt();
-                    if (orderTime == null) return false;
-                    
-                    // Chỉ tính các payment SUCCESS có order createdAt trong khoảng thời gian
-                    return !orderTime.isBefore(dtFrom) && !orderTime.isAfter(dtTo);
-                })
-                .mapToDouble(p -> p.getAmount() != null ? p.getAmount().doubleValue() : 0d)
-                .sum();
+        // ===== CHẠY SONG SONG CÁC PHẦN KPI ĐỘC LẬP =====
+        // Phần nào lỗi / quá hạn thì dùng giá trị mặc định và response được đánh dấu degraded
+        DashboardSectionRunner.Scope scope = sectionRunner.open();
 
-        // ===== USER KPIs =====
-        long totalUsers = userRepository.count();
-        long admins = userRepository.countByRole(Role.admin);
-        long staffs = userRepository.countByRole(Role.staff);
-        long customers = userRepository.countByRole(Role.customer);
+        // Số xe / đơn / user đọc từ FleetStateRegistry, chỉ query DB khi registry chưa nạp xong
+        var vehicleCountsSection = scope.fork("vehicleCounts", this::vehicleCounts, new VehicleCounts(0, 0, 0, 0));
+        var orderCountsSection = scope.fork("orderCounts", this::orderCounts, new OrderCounts(0, 0));
 
-        // ===== SERVICE KPIs =====
-        // Tính TẤT CẢ service (không filter theo thời gian) cho tổng số
-        List<com.group6.Rental_Car.entities.RentalOrderDetail> allServiceDetails = rentalOrderDetailRepository.findAll().stream()
-                .filter(d -> "SERVICE".equalsIgnoreCase(d.getType()))
-                .toList();
-        
-        // Tính service trong khoảng thời gian cho các metric khác (servicesByDay, etc.)
-        List<com.group6.Rental_Car.entities.RentalOrderDetail> serviceDetailsForKpi = allServiceDetails.stream()
-                .filter(d -> d.getStartTime() != null
-                        && !d.getStartTime().isBefore(dtFrom)
-                        && !d.getStartTime().isAfter(dtTo))
-                .toList();
-        
-        // Tổng số service: TẤT CẢ service (không filter theo thời gian)
-        long totalServices = allServiceDetails.size();
-        
-        // Tổng chi phí: TẤT CẢ service (không filter theo thời gian)
-        double totalServiceCost = allServiceDetails.stream()
-                .mapToDouble(d -> d.getPrice() != null ? d.getPrice().doubleValue() : 0d)
-                .sum();
-
-        // Phân loại theo description hoặc type (từ tất cả service)
-        Map<String, Long> servicesByType = allServiceDetails.stream()
-                .collect(Collectors.groupingBy(
-                        d -> {
-                            String desc = d.getDescription();
-                            if (desc != null && !desc.isEmpty()) {
-                                // Lấy từ đầu description (có thể là service type)
-                                return desc.length() > 50 ? desc.substring(0, 50) : desc;
-                            }
-                            return "SERVICE";
-                        },
-                        Collectors.counting()
-                ));
-        
-        // Phân loại theo status (từ TẤT CẢ service để có trạng thái hiện tại chính xác)
-        Map<String, Long> servicesByStatus = allServiceDetails.stream()
-                .collect(Collectors.groupingBy(
-                        d -> Optional.ofNullable(d.getStatus()).orElse("UNKNOWN"),
-                        Collectors.counting()
-                ));
+        // Tổng amount các payment SUCCESS, filter theo createdAt của order
+        var revenueInRangeSection = scope.fork("revenueInRange", () -> paymentRepository
+                .sumAmountByStatusForOrdersCreatedBetween(PaymentStatus.SUCCESS, dtFrom, dtTo)
+                .doubleValue(), 0d);
 
-        // ===== SERVICES BY DAY =====
-        // Đếm services theo ngày từ serviceDetailsForKpi
-        Map<LocalDate, Long> servicesByDayMap = serviceDetailsForKpi.stream()
-                .collect(Collectors.groupingBy(
-                        d -> d.getStartTime().toLocalDate(),
-                        Collectors.counting()
-                ));
-        
-        List<AdminDashboardResponse.DayCount> servicesByDay = new ArrayList<>();
-        for (LocalDate d = fromDate; !d.isAfter(toDate); d = d.plusDays(1)) {
-            servicesByDay.add(AdminDashboardResponse.DayCount.builder()
-                    .date(d)
-                    .count(servicesByDayMap.getOrDefault(d, 0L))
-                    .build());
-        }
+        var userCountsSection = scope.fork("userCounts", this::userCounts, new UserCounts(0, 0, 0, 0));
 
-        // ===== RECENT SERVICES =====
-        // Lấy 10 service details gần nhất từ TẤT CẢ details (không filter theo thời gian)
-        // Sắp xếp theo startTime giảm dần để lấy các service mới nhất
-        var recentServices = rentalOrderDetailRepository.findAll().stream()
-                .filter(d -> "SERVICE".equalsIgnoreCase(d.getType()))
-                .filter(d -> d.getStartTime() != null)
-                .sorted((a, b) -> b.getStartTime().compareTo(a.getStartTime()))
-                .limit(10)
+        // Tổng số service và tổng chi phí: TẤT CẢ service (không filter theo thời gian)
+        var serviceTotalsSection = scope.fork("serviceTotals", () -> {
+            Object[] totals = rentalOrderDetailRepository.countAndSumServices().get(0);
+            return new ServiceTotals(((Number) totals[0]).longValue(), ((Number) totals[1]).doubleValue());
+        }, new ServiceTotals(0, 0d));
+
+        // Phân loại theo description (50 ký tự đầu) và theo status, từ tất cả service
+        var servicesByTypeSection = scope.fork("servicesByType",
+                () -> toCountMap(rentalOrderDetailRepository.countServicesByType()), Map.<String, Long>of());
+        var servicesByStatusSection = scope.fork("servicesByStatus",
+                () -> toCountMap(rentalOrderDetailRepository.countServicesByStatus()), Map.<String, Long>of());
+
+        var servicesByDaySection = scope.fork("servicesByDay", () -> rentalOrderDetailRepository
+                .countServicesByDay(dtFrom, dtTo).stream()
+                .collect(Collectors.toMap(
+                        r -> toLocalDate(r[0]),
+                        r -> ((Number) r[1]).longValue()
+                )), Map.<LocalDate, Long>of());
+
+        // 10 service gần nhất theo startTime (không filter theo thời gian)
+        var recentServicesSection = scope.fork("recentServices", () -> rentalOrderDetailRepository
+                .findRecentServices(PageRequest.of(0, 10)).stream()
                 .map(d -> AdminDashboardResponse.RecentService.builder()
                         .serviceId(d.getDetailId())
                         .vehicleId(d.getVehicle() != null ? d.getVehicle().getVehicleId() : null)
-                        .vehicleName(d.getVehicle() != null ? 
+                        .vehicleName(d.getVehicle() != null ?
                                 (d.getVehicle().getPlateNumber() != null ? d.getVehicle().getPlateNumber() : "N/A") : null)
                         .serviceType(d.getDescription() != null ? d.getDescription() : "SERVICE")
                         .description(d.getDescription())
@@ -160,172 +105,78 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
                         .occurredAt(d.getStartTime())
                         .resolvedAt(d.getEndTime())
                         .build()
-                ).toList();
+                ).toList(), List.<AdminDashboardResponse.RecentService>of());
+
+        // Xe theo trạm + doanh thu theo trạm (khoảng chọn, các kỳ và kỳ trước) trong 1 query,
+        // doanh thu gồm RENTAL và SERVICE đọc từ rollup revenue_daily (quy tắc ghi nhận: db/dashboard_rollup.sql)
+        var stationMetricsSection = scope.fork("stationMetrics", () -> rentalStationRepository
+                .findStationMetrics(fromDate, toDate, today), List.<RentalStationRepository.StationMetrics>of());
+
+        // SERVICE ghi theo startTime, đơn COMPLETED theo thời gian trả xe, đơn khác theo startTime của detail
+        var revenueByDaySection = scope.fork("revenueByDay", () -> rentalOrderDetailRepository
+                .sumRevenueByDay(fromDate, toDate).stream()
+                .collect(Collectors.toMap(
+                        r -> toLocalDate(r[0]),
+                        r -> ((Number) r[1]).doubleValue()
+                )), Map.<LocalDate, Double>of());
+
+        var avgRatingSection = scope.fork("avgRating",
+                () -> Optional.ofNullable(feedbackRepository.avgRating()).orElse(0d), 0d);
+        var ratingDistributionSection = scope.<Map<Integer, Long>>fork("ratingDistribution", () -> feedbackRepository
+                .ratingDistribution().stream()
+                .collect(Collectors.toMap(
+                        r -> ((Number) r[0]).intValue(),
+                        r -> ((Number) r[1]).longValue(),
+                        Long::sum,
+                        TreeMap::new
+                )), new TreeMap<>());
+
+        var orderHourSection = scope.fork("orderByHour", () -> rentalOrderRepository
+                .countOrdersByHour(fromDate, toDate).stream()
+                .collect(Collectors.toMap(
+                        r -> ((Number) r[0]).intValue(),
+                        r -> ((Number) r[1]).longValue()
+                )), Map.<Integer, Long>of());
+
+        List<String> degradedSections = scope.join();
+
+        // ===== VEHICLE / ORDER / USER KPIs =====
+        VehicleCounts vehicleCounts = vehicleCountsSection.get();
+        OrderCounts orderCounts = orderCountsSection.get();
+        UserCounts userCounts = userCountsSection.get();
+        double revenueInRange = revenueInRangeSection.get();
+
+        // ===== SERVICE KPIs =====
+        long totalServices = serviceTotalsSection.get().count();
+        double totalServiceCost = serviceTotalsSection.get().cost();
+        Map<String, Long> servicesByType = servicesByTypeSection.get();
+        Map<String, Long> servicesByStatus = servicesByStatusSection.get();
+
+        // ===== SERVICES BY DAY =====
+        Map<LocalDate, Long> servicesByDayMap = servicesByDaySection.get();
+        List<AdminDashboardResponse.DayCount> servicesByDay = new ArrayList<>();
+        for (LocalDate d = fromDate; !d.isAfter(toDate); d = d.plusDays(1)) {
+            servicesByDay.add(AdminDashboardResponse.DayCount.builder()
+                    .date(d)
+                    .count(servicesByDayMap.getOrDefault(d, 0L))
+                    .build());
+        }
+
+        // ===== RECENT SERVICES =====
+        var recentServices = recentServicesSection.get();
 
         // ===== REVENUE BY STATION =====
-        // Tính revenue từ RentalOrderDetail bao gồm cả RENTAL và SERVICE
-        // Với SERVICE: luôn filter theo startTime của detail, không phụ thuộc order status
-        Map<Integer, Double> revenueByStationMap = rentalOrderDetailRepository.findAll().stream()
-                .filter(d -> d.getVehicle() != null && d.getVehicle().getRentalStation() != null
-                        && d.getVehicle().getRentalStation().getStationId() != null)
-                .filter(d -> {
-                    String type = d.getType();
-                    if (type == null) return false;
-                    
-                    // Với SERVICE: luôn tính nếu startTime trong khoảng thời gian
-                    if ("SERVICE".equalsIgnoreCase(type)) {
-                        return d.getStartTime() != null && 
-                               !d.getStartTime().isBefore(dtFrom) && 
-                               !d.getStartTime().isAfter(dtTo);
-                    }
-                    
-                    // Với RENTAL, DEPOSIT, PICKUP, FULL_PAYMENT: cần check order status
-                    if (!"RENTAL".equalsIgnoreCase(type) && 
-                        !"DEPOSIT".equalsIgnoreCase(type) &&
-                        !"PICKUP".equalsIgnoreCase(type) &&
-                        !"FULL_PAYMENT".equalsIgnoreCase(type)) {
-                        return false;
-                    }
-                    
-                    // Chỉ tính các detail có order hợp lệ
-                    if (d.getOrder() == null) return false;
-                    com.group6.Rental_Car.entities.RentalOrder order = d.getOrder();
-                    String orderStatus = order.getStatus();
-                    if (orderStatus == null) return false;
-                    String upperStatus = orderStatus.toUpperCase();
-                    
-                    // Chỉ tính các đơn có status hợp lệ (bao gồm cả CANCELLED nếu đã thanh toán)
-                    if (!upperStatus.contains("RENTAL") && 
-                        !upperStatus.contains("COMPLETED") &&
-                        !upperStatus.contains("RETURN") &&
-                        !upperStatus.contains("ACTIVE") &&
-                        !upperStatus.contains("PAID") &&
-                        !upperStatus.contains("AWAITING") &&
-                        !upperStatus.contains("DEPOSITED") &&
-                        !upperStatus.contains("PENDING") &&
-                        !upperStatus.contains("CANCELLED") &&
-                        !upperStatus.contains("PENDING_FINAL")) {
-                        return false;
-                    }
-                    
-                    // Với đơn COMPLETED: filter theo createdAt hoặc actualReturnTime
-                    if ("COMPLETED".equals(upperStatus)) {
-                        LocalDateTime orderTime = order.getActualReturnTime() != null ? 
-                                order.getActualReturnTime() : order.getCreatedAt();
-                        return orderTime != null && 
-                               !orderTime.isBefore(dtFrom) && 
-                               !orderTime.isAfter(dtTo);
-                    }
-                    
-                    // Với đơn khác: filter theo startTime của detail
-                    return d.getStartTime() != null && 
-                           !d.getStartTime().isBefore(dtFrom) && 
-                           !d.getStartTime().isAfter(dtTo);
-                })
-                .collect(Collectors.groupingBy(
-                        d -> d.getVehicle().getRentalStation().getStationId(),
-                        Collectors.summingDouble(d -> d.getPrice() != null ? d.getPrice().doubleValue() : 0d)
-                ));
-        
-        // Lấy tất cả stations và tính revenue
-        var allStations = vehicleRepository.countByStation();
-        var revenueByStation = allStations.stream()
-                .map(r -> {
-                    Integer stationId = r[0] != null ? ((Number) r[0]).intValue() : null;
-                    String stationName = (String) r[1];
-                    Double totalRevenue = revenueByStationMap.getOrDefault(stationId, 0d);
-                    
-                    return AdminDashboardResponse.StationRevenue.builder()
-                            .stationId(stationId)
-                            .stationName(stationName != null ? stationName : "Unknown Station")
-                            .totalRevenue(totalRevenue)
-                            .build();
-                })
-                .filter(sr -> sr.getStationId() != null)
+        List<RentalStationRepository.StationMetrics> stationMetrics = stationMetricsSection.get();
+        var revenueByStation = stationMetrics.stream()
+                .map(m -> AdminDashboardResponse.StationRevenue.builder()
+                        .stationId(m.getStationId())
+                        .stationName(stationNameOf(m))
+                        .totalRevenue(m.getRangeRevenue())
+                        .build())
                 .toList();
 
         // ===== REVENUE BY DAY =====
-        // Tính revenue theo ngày bao gồm cả RENTAL và SERVICE
-        // Với SERVICE: luôn filter theo startTime của detail
-        Map<LocalDate, Double> revMap = rentalOrderDetailRepository.findAll().stream()
-                .filter(d -> {
-                    String type = d.getType();
-                    if (type == null) return false;
-                    
-                    // Với SERVICE: luôn tính nếu startTime trong khoảng thời gian
-                    if ("SERVICE".equalsIgnoreCase(type)) {
-                        if (d.getStartTime() == null || 
-                            d.getStartTime().isBefore(dtFrom) || 
-                            d.getStartTime().isAfter(dtTo)) {
-                            return false;
-                        }
-                        return true;
-                    }
-                    
-                    // Với RENTAL, DEPOSIT, PICKUP, FULL_PAYMENT: cần check order status
-                    if (!"RENTAL".equalsIgnoreCase(type) && 
-                        !"DEPOSIT".equalsIgnoreCase(type) &&
-                        !"PICKUP".equalsIgnoreCase(type) &&
-                        !"FULL_PAYMENT".equalsIgnoreCase(type)) {
-                        return false;
-                    }
-                    
-                    // Chỉ tính các detail có order hợp lệ
-                    if (d.getOrder() == null) return false;
-                    com.group6.Rental_Car.entities.RentalOrder order = d.getOrder();
-                    String orderStatus = order.getStatus();
-                    if (orderStatus == null) return false;
-                    String upperStatus = orderStatus.toUpperCase();
-                    
-                    // Chỉ tính các đơn có status hợp lệ (bao gồm cả CANCELLED nếu đã thanh toán)
-                    if (!upperStatus.contains("RENTAL") && 
-                        !upperStatus.contains("COMPLETED") &&
-                        !upperStatus.contains("RETURN") &&
-                        !upperStatus.contains("ACTIVE") &&
-                        !upperStatus.contains("PAID") &&
-                        !upperStatus.contains("AWAITING") &&
-                        !upperStatus.contains("DEPOSITED") &&
-                        !upperStatus.contains("PENDING") &&
-                        !upperStatus.contains("CANCELLED") &&
-                        !upperStatus.contains("PENDING_FINAL")) {
-                        return false;
-                    }
-                    
-                    // Với đơn COMPLETED: filter theo createdAt hoặc actualReturnTime
-                    if ("COMPLETED".equals(upperStatus)) {
-                        LocalDateTime orderTime = order.getActualReturnTime() != null ? 
-                                order.getActualReturnTime() : order.getCreatedAt();
-                        if (orderTime == null || orderTime.isBefore(dtFrom) || orderTime.isAfter(dtTo)) {
-                            return false;
-                        }
-                        return true;
-                    }
-                    
-                    // Với đơn khác: filter theo startTime của detail
-                    return d.getStartTime() != null && 
-                           !d.getStartTime().isBefore(dtFrom) && 
-                           !d.getStartTime().isAfter(dtTo);
-                })
-                .collect(Collectors.groupingBy(
-                        d -> {
-                            String type = d.getType();
-                            // Với SERVICE: luôn dùng startTime
-                            if ("SERVICE".equalsIgnoreCase(type)) {
-                                return d.getStartTime().toLocalDate();
-                            }
-                            // Với đơn COMPLETED: dùng thời gian của order
-                            com.group6.Rental_Car.entities.RentalOrder order = d.getOrder();
-                            if ("COMPLETED".equals(order.getStatus().toUpperCase())) {
-                                LocalDateTime orderTime = order.getActualReturnTime() != null ? 
-                                        order.getActualReturnTime() : order.getCreatedAt();
-                                return orderTime != null ? orderTime.toLocalDate() : d.getStartTime().toLocalDate();
-                            }
-                            // Với đơn khác: dùng startTime của detail
-                            return d.getStartTime().toLocalDate();
-                        },
-                        Collectors.summingDouble(d -> d.getPrice() != null ? d.getPrice().doubleValue() : 0d)
-                ));
-        
+        Map<LocalDate, Double> revMap = revenueByDaySection.get();
         List<AdminDashboardResponse.DayRevenue> revenueByDay = new ArrayList<>();
         for (LocalDate d = fromDate; !d.isAfter(toDate); d = d.plusDays(1)) {
             revenueByDay.add(AdminDashboardResponse.DayRevenue.builder()
@@ -335,46 +186,36 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
         }
 
         // ===== FEEDBACK KPIs =====
-        Double avgRating = Optional.ofNullable(feedbackRepository.avgRating()).orElse(0d);
-        Map<Integer, Long> ratingDistribution = feedbackRepository.ratingDistribution().stream()
-                .collect(Collectors.toMap(
-                        r -> ((Number) r[0]).intValue(),
-                        r -> ((Number) r[1]).longValue(),
-                        Long::sum,
-                        TreeMap::new
-                ));
+        Double avgRating = avgRatingSection.get();
+        Map<Integer, Long> ratingDistribution = ratingDistributionSection.get();
 
         // ===== VEHICLES BY STATUS =====
         List<AdminDashboardResponse.LabelCount> vehiclesByStatus = Arrays.asList(
                 AdminDashboardResponse.LabelCount.builder()
                         .label("AVAILABLE")
-                        .count(availableVehicles)
+                        .count(vehicleCounts.available())
                         .build(),
                 AdminDashboardResponse.LabelCount.builder()
                         .label("RENTAL")
-                        .count(rentedVehicles)
+                        .count(vehicleCounts.rented())
                         .build(),
                 AdminDashboardResponse.LabelCount.builder()
                         .label("MAINTENANCE")
-                        .count(maintenanceVehicles)
+                        .count(vehicleCounts.maintenance())
                         .build()
         );
 
         // ===== VEHICLES BY STATION =====
-        var vehicleStationRows = vehicleRepository.countByStation();
-        List<AdminDashboardResponse.StationCount> vehiclesByStation = vehicleStationRows.stream()
-                .map(r -> {
-                    Integer stationId = r[0] != null ? ((Number) r[0]).intValue() : null;
-                    String stationName = (String) r[1];
-                    Long total = ((Number) r[2]).longValue();
-
-                    // Đếm xe đang rental tại station này
-                    Long rented = stationId != null ? vehicleRepository.countByRentalStation_StationIdAndStatus(stationId, "RENTAL") : 0L;
+        List<AdminDashboardResponse.StationCount> vehiclesByStation = stationMetrics.stream()
+                .map(m -> {
+                    Long total = m.getVehicleTotal();
+                    // Số xe đang rental tại station này
+                    Long rented = m.getVehicleRented();
                     Double utilization = total > 0 ? (rented * 100.0 / total) : 0.0;
 
                     return AdminDashboardResponse.StationCount.builder()
-                            .stationId(stationId)
-                            .stationName(stationName != null ? stationName : "Unknown Station")
+                            .stationId(m.getStationId())
+                            .stationName(stationNameOf(m))
                             .total(total)
                             .rented(rented)
                             .utilization(utilization)
@@ -383,13 +224,7 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
                 .toList();
 
         // ===== ORDER BY HOUR =====
-        var orderHourRows = rentalOrderRepository.countOrdersByHour(dtFrom, dtTo);
-        Map<Integer, Long> orderHourMap = orderHourRows.stream()
-                .collect(Collectors.toMap(
-                        r -> ((Number) r[0]).intValue(),
-                        r -> ((Number) r[1]).longValue()
-                ));
-
+        Map<Integer, Long> orderHourMap = orderHourSection.get();
         List<AdminDashboardResponse.HourCount> orderByHour = new ArrayList<>();
         for (int h = 0; h < 24; h++) {
             orderByHour.add(AdminDashboardResponse.HourCount.builder()
@@ -425,53 +260,36 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
         }
 
         // ===== REVENUE BY STATION ANALYSIS =====
-        List<AdminDashboardResponse.StationRevenueAnalysis> revenueByStationAnalysis = revenueByStation.stream()
-                .map(sr -> {
-                    Integer stationId = sr.getStationId();
-                    String stationName = sr.getStationName();
-
+        // Các kỳ chỉ tính đơn có payment SUCCESS; kỳ trước: hôm qua, tuần trước (14 → 9 ngày trước),
+        // tháng trước (60 → 32 ngày trước)
+        List<AdminDashboardResponse.StationRevenueAnalysis> revenueByStationAnalysis = stationMetrics.stream()
+                .map(m -> {
                     // Tính doanh thu trung bình mỗi ngày (bao gồm cả SERVICE)
                     long dayCount = java.time.temporal.ChronoUnit.DAYS.between(fromDate, toDate) + 1;
-                    Double avgPerDay = sr.getTotalRevenue() / dayCount;
-
-                    // Doanh thu hôm nay (bao gồm cả SERVICE)
-                    LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-                    LocalDateTime todayEnd = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
-                    Double todayRevenue = calculateRevenueWithService(stationId, todayStart, todayEnd);
+                    Double avgPerDay = m.getRangeRevenue() / dayCount;
 
-                    // Doanh thu tuần này (bao gồm cả SERVICE)
-                    LocalDateTime weekStart = LocalDate.now().minusDays(7).atStartOfDay();
-                    Double weekRevenue = calculateRevenueWithService(stationId, weekStart, todayEnd);
+                    Double todayRevenue = m.getTodayRevenue();
+                    Double weekRevenue = m.getWeekRevenue();
+                    Double monthRevenue = m.getMonthRevenue();
 
-                    // Doanh thu tháng này (bao gồm cả SERVICE)
-                    LocalDateTime monthStart = LocalDate.now().minusDays(30).atStartOfDay();
-                    Double monthRevenue = calculateRevenueWithService(stationId, monthStart, todayEnd);
-
-                    // Tính tỷ lệ tăng trưởng (so với kỳ trước) - bao gồm cả SERVICE
                     // Growth Day: so sánh hôm nay với hôm qua
-                    LocalDateTime yesterdayStart = LocalDate.now().minusDays(1).atStartOfDay();
-                    LocalDateTime yesterdayEnd = LocalDateTime.of(LocalDate.now().minusDays(1), LocalTime.MAX);
-                    Double yesterdayRevenue = calculateRevenueWithService(stationId, yesterdayStart, yesterdayEnd);
-                    Double growthDay = yesterdayRevenue > 0 ? 
+                    Double yesterdayRevenue = m.getYesterdayRevenue();
+                    Double growthDay = yesterdayRevenue > 0 ?
                             ((todayRevenue - yesterdayRevenue) / yesterdayRevenue) * 100 : 0.0;
-                    
+
                     // Growth Week: so sánh tuần này với tuần trước
-                    LocalDateTime lastWeekStart = LocalDate.now().minusDays(14).atStartOfDay();
-                    LocalDateTime lastWeekEnd = LocalDate.now().minusDays(8).atStartOfDay();
-                    Double lastWeekRevenue = calculateRevenueWithService(stationId, lastWeekStart, lastWeekEnd);
-                    Double growthWeek = lastWeekRevenue > 0 ? 
+                    Double lastWeekRevenue = m.getLastWeekRevenue();
+                    Double growthWeek = lastWeekRevenue > 0 ?
                             ((weekRevenue - lastWeekRevenue) / lastWeekRevenue) * 100 : 0.0;
-                    
+
                     // Growth Month: so sánh tháng này với tháng trước
-                    LocalDateTime lastMonthStart = LocalDate.now().minusDays(60).atStartOfDay();
-                    LocalDateTime lastMonthEnd = LocalDate.now().minusDays(31).atStartOfDay();
-                    Double lastMonthRevenue = calculateRevenueWithService(stationId, lastMonthStart, lastMonthEnd);
-                    Double growthMonth = lastMonthRevenue > 0 ? 
+                    Double lastMonthRevenue = m.getLastMonthRevenue();
+                    Double growthMonth = lastMonthRevenue > 0 ?
                             ((monthRevenue - lastMonthRevenue) / lastMonthRevenue) * 100 : 0.0;
 
                     return AdminDashboardResponse.StationRevenueAnalysis.builder()
-                            .stationId(stationId)
-                            .stationName(stationName)
+                            .stationId(m.getStationId())
+                            .stationName(stationNameOf(m))
                             .avgPerDay(avgPerDay)
                             .todayRevenue(todayRevenue)
                             .weekRevenue(weekRevenue)
@@ -485,17 +303,17 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
 
         // ===== BUILD RESPONSE =====
         var kpi = AdminDashboardResponse.Kpi.builder()
-                .totalVehicles(totalVehicles)
-                .availableVehicles(availableVehicles)
-                .rentedVehicles(rentedVehicles)
-                .maintenanceVehicles(maintenanceVehicles)
-                .totalOrders(totalOrders)
-                .activeOrders(completedOrders)
+                .totalVehicles(vehicleCounts.total())
+                .availableVehicles(vehicleCounts.available())
+                .rentedVehicles(vehicleCounts.rented())
+                .maintenanceVehicles(vehicleCounts.maintenance())
+                .totalOrders(orderCounts.total())
+                .activeOrders(orderCounts.completed())
                 .revenueInRange(revenueInRange)
-                .totalUsers(totalUsers)
-                .admins(admins)
-                .staffs(staffs)
-                .customers(customers)
+                .totalUsers(userCounts.total())
+                .admins(userCounts.admins())
+                .staffs(userCounts.staffs())
+                .customers(userCounts.customers())
                 .totalServiceCost(totalServiceCost)
                 .totalServices(totalServices)
                 .build();
@@ -521,87 +339,74 @@ public class AdminDashboardServiceImpl implements AdminDashboardService {
                 .servicesByDay(servicesByDay)
                 .serviceKpi(serviceKpi)
                 .recentServices(recentServices)
+                .degraded(!degradedSections.isEmpty())
+                .degradedSections(degradedSections)
                 .build();
     }
-    
-    /**
-     * Tính revenue bao gồm cả RENTAL, SERVICE, DEPOSIT, PICKUP, FULL_PAYMENT từ RentalOrderDetail
-     * Chỉ tính các detail từ order có ít nhất một payment SUCCESS
-     * Với SERVICE: luôn filter theo startTime của detail, không phụ thuộc order status
-     * Với RENTAL + COMPLETED: filter theo createdAt hoặc actualReturnTime của order
-     * Với RENTAL khác: filter theo startTime của detail
-     */
-    private Double calculateRevenueWithService(Integer stationId, LocalDateTime start, LocalDateTime end) {
-        // Tạo set các orderId có payment SUCCESS để filter nhanh
-        Set<UUID> ordersWithSuccessfulPayment = paymentRepository.findAll().stream()
-                .filter(p -> p.getStatus() != null && p.getStatus() == com.group6.Rental_Car.enums.PaymentStatus.SUCCESS)
-                .filter(p -> p.getRentalOrder() != null)
-                .map(p -> p.getRentalOrder().getOrderId())
-                .collect(Collectors.toSet());
-        
-        return rentalOrderDetailRepository.findAll().stream()
-                .filter(d -> d.getVehicle() != null && d.getVehicle().getRentalStation() != null
-                        && d.getVehicle().getRentalStation().getStationId() != null
-                        && d.getVehicle().getRentalStation().getStationId().equals(stationId))
-                .filter(d -> {
-                    String type = d.getType();
-                    if (type == null) return false;
-                    
-                    // Với SERVICE: luôn tính nếu startTime trong khoảng thời gian và order có payment SUCCESS
-                    if ("SERVICE".equalsIgnoreCase(type)) {
-                        if (d.getOrder() == null) return false;
-                        if (!ordersWithSuccessfulPayment.contains(d.getOrder().getOrderId())) return false;
-                        return d.getStartTime() != null && 
-                               !d.getStartTime().isBefore(start) && 
-                               !d.getStartTime().isAfter(end);
-                    }
-                    
-                    // Với RENTAL, DEPOSIT, PICKUP, FULL_PAYMENT: cần check order status và payment SUCCESS
-                    if (!"RENTAL".equalsIgnoreCase(type) && 
-                        !"DEPOSIT".equalsIgnoreCase(type) &&
-                        !"PICKUP".equalsIgnoreCase(type) &&
-                        !"FULL_PAYMENT".equalsIgnoreCase(type)) {
-                        return false;
-                    }
-                    
-                    // Chỉ tính các detail có order hợp lệ và có payment SUCCESS
-                    if (d.getOrder() == null) return false;
-                    if (!ordersWithSuccessfulPayment.contains(d.getOrder().getOrderId())) return false;
-                    
-                    com.group6.Rental_Car.entities.RentalOrder order = d.getOrder();
-                    String orderStatus = order.getStatus();
-                    if (orderStatus == null) return false;
-                    String upperStatus = orderStatus.toUpperCase();
-                    
-                    // Chỉ tính các đơn có status hợp lệ
-                    if (!upperStatus.contains("RENTAL") && 
-                        !upperStatus.contains("COMPLETED") &&
-                        !upperStatus.contains("RETURN") &&
-                        !upperStatus.contains("ACTIVE") &&
-                        !upperStatus.contains("PAID") &&
-                        !upperStatus.contains("AWAITING") &&
-                        !upperStatus.contains("DEPOSITED") &&
-                        !upperStatus.contains("PENDING") &&
-                        !upperStatus.contains("CANCELLED") &&
-                        !upperStatus.contains("PENDING_FINAL")) {
-                        return false;
-                    }
-                    
-                    // Với đơn COMPLETED: filter theo createdAt hoặc actualReturnTime
-                    if ("COMPLETED".equals(upperStatus)) {
-                        LocalDateTime orderTime = order.getActualReturnTime() != null ? 
-                                order.getActualReturnTime() : order.getCreatedAt();
-                        return orderTime != null && 
-                               !orderTime.isBefore(start) && 
-                               !orderTime.isAfter(end);
-                    }
-                    
-                    // Với đơn khác: filter theo startTime của detail
-                    return d.getStartTime() != null && 
-                           !d.getStartTime().isBefore(start) && 
-                           !d.getStartTime().isAfter(end);
-                })
-                .mapToDouble(d -> d.getPrice() != null ? d.getPrice().doubleValue() : 0d)
-                .sum();
+
+    private VehicleCounts vehicleCounts() {
+        if (fleetState.isReady()) {
+            return new VehicleCounts(
+                    fleetState.vehicleCount(),
+                    fleetState.vehicleCount("AVAILABLE"),
+                    fleetState.vehicleCount("RENTAL"),
+                    fleetState.vehicleCount("MAINTENANCE"));
+        }
+        return new VehicleCounts(
+                vehicleRepository.count(),
+                vehicleRepository.countByStatus("AVAILABLE"),
+                vehicleRepository.countByStatus("RENTAL"),
+                vehicleRepository.countByStatus("MAINTENANCE"));
+    }
+
+    private OrderCounts orderCounts() {
+        if (fleetState.isReady()) {
+            return new OrderCounts(fleetState.orderCount(), fleetState.orderCount("COMPLETED"));
+        }
+        return new OrderCounts(rentalOrderRepository.count(), rentalOrderRepository.countByStatus("COMPLETED"));
+    }
+
+    private UserCounts userCounts() {
+        if (fleetState.isReady()) {
+            return new UserCounts(
+                    fleetState.userCount(),
+                    fleetState.userCount(Role.admin),
+                    fleetState.userCount(Role.staff),
+                    fleetState.userCount(Role.customer));
+        }
+        return new UserCounts(
+                userRepository.count(),
+                userRepository.countByRole(Role.admin),
+                userRepository.countByRole(Role.staff),
+                userRepository.countByRole(Role.customer));
+    }
+
+    private static String stationNameOf(RentalStationRepository.StationMetrics metrics) {
+        return metrics.getStationName() != null ? metrics.getStationName() : "Unknown Station";
+    }
+
+    private static Map<String, Long> toCountMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] r : rows) {
+            counts.put((String) r[0], ((Number) r[1]).longValue());
+        }
+        return counts;
+    }
+
+    // Cột date của native query có thể về dạng java.sql.Date tùy driver
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private record VehicleCounts(long total, long available, long rented, long maintenance) {
+    }
+
+    private record OrderCounts(long total, long completed) {
+    }
+
+    private record UserCounts(long total, long admins, long staffs, long customers) {
+    }
+
+    private record ServiceTotals(long count, double cost) {
     }
 }
@@ -0,0 +1,184 @@
+package com.group6.Rental_Car.services.admindashboard;
+
+import com.group6.Rental_Car.dtos.admindashboard.AdminDashboardResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả dashboard theo khoảng ngày đã chuẩn hóa (from, to) + ngày hiện tại
+ * (các KPI tuần / tháng tính theo hôm nay nên sang ngày mới là key mới).
+ * <ul>
+ *   <li>Còn trong dashboard.cache.ttl-ms: trả luôn (hit)</li>
+ *   <li>Hết hạn hoặc bị đánh dấu cũ nhưng chưa quá dashboard.cache.max-stale-ms: trả bản cũ,
+ *       đồng thời chỉ 1 luồng nền tính lại (stale)</li>
+ *   <li>Chưa có / quá cũ: tính đồng bộ, các request cùng key chờ chung 1 lần tính (miss)</li>
+ * </ul>
+ * Ghi order / payment / vehicle chỉ tăng generation (xem {@link DashboardCacheInvalidator}),
+ * entry cũ hơn generation hiện tại coi như hết hạn.
+ * Response degraded (có phần KPI lỗi) không được lưu để lần sau tính lại.
+ */
+@Slf4j
+@Component
+class DashboardCache {
+
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<AdminDashboardResponse>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final int maxEntries;
+
+    DashboardCache(MeterRegistry meterRegistry,
+                   @Value("${dashboard.cache.enabled:true}") boolean enabled,
+                   @Value("${dashboard.cache.ttl-ms:30000}") long ttlMs,
+                   @Value("${dashboard.cache.max-stale-ms:300000}") long maxStaleMs,
+                   @Value("${dashboard.cache.max-entries:64}") int maxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMs, maxStaleMs));
+        this.maxEntries = Math.max(1, maxEntries);
+        meterRegistry.gaugeMapSize("dashboard.cache.size", Tags.empty(), entries);
+    }
+
+    AdminDashboardResponse get(LocalDate from, LocalDate to, LocalDate today, Supplier<AdminDashboardResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Key key = new Key(from, to, today);
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+
+        if (entry != null) {
+            long age = now - entry.loadedAt();
+            boolean current = entry.generation() == generation.get();
+            if (current && age < ttlNanos) {
+                record("hit");
+                return entry.value();
+            }
+            if (age < maxStaleNanos) {
+                record("stale");
+                refreshInBackground(key, entry, loader);
+                return entry.value();
+            }
+        }
+
+        record("miss");
+        return loadShared(key, loader);
+    }
+
+    /**
+     * Đánh dấu toàn bộ entry là cũ; request kế tiếp vẫn được trả bản cũ trong lúc tính lại
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Mỗi entry chỉ có tối đa 1 lần làm mới nền (cờ refreshing của entry đó)
+     */
+    private void refreshInBackground(Key key, Entry entry, Supplier<AdminDashboardResponse> loader) {
+        if (!entry.refreshing().compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                loadShared(key, loader);
+                meterRegistry.counter("dashboard.cache.refresh", "outcome", "success").increment();
+            } catch (RuntimeException e) {
+                meterRegistry.counter("dashboard.cache.refresh", "outcome", "failure").increment();
+                log.warn("Làm mới cache dashboard {} lỗi: {}", key, e.getMessage());
+            } finally {
+                // Thành công thì entry đã bị thay; lỗi thì cho phép lần stale sau thử lại
+                entry.refreshing().set(false);
+            }
+        });
+    }
+
+    /**
+     * Nhiều request cùng key chỉ tính 1 lần, các request còn lại chờ chung kết quả
+     */
+    private AdminDashboardResponse loadShared(Key key, Supplier<AdminDashboardResponse> loader) {
+        CompletableFuture<AdminDashboardResponse> mine = new CompletableFuture<>();
+        CompletableFuture<AdminDashboardResponse> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            // Lấy generation trước khi tính: có ghi xen giữa thì entry sinh ra đã là bản cũ
+            long startGeneration = generation.get();
+            AdminDashboardResponse value = loader.get();
+            if (!value.isDegraded()) {
+                store(key, new Entry(value, System.nanoTime(), startGeneration, new AtomicBoolean()));
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private void store(Key key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) {
+            // Bỏ entry nạp lâu nhất; số key nhỏ nên duyệt hết là đủ
+            entries.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                    .ifPresent(oldest -> entries.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private AdminDashboardResponse await(CompletableFuture<AdminDashboardResponse> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị ngắt khi chờ tính dashboard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("dashboard.cache.requests", "result", result).increment();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private record Key(LocalDate from, LocalDate to, LocalDate today) {
+    }
+
+    private record Entry(AdminDashboardResponse value, long loadedAt, long generation, AtomicBoolean refreshing) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.group6.Rental_Car.services.admindashboard;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bắt mọi thao tác ghi RentalOrder / RentalOrderDetail / Payment / Vehicle để đánh dấu cache dashboard là cũ.
+ * Chỉ đánh dấu sau khi transaction commit, và mỗi transaction chỉ đăng ký 1 lần dù ghi nhiều dòng.
+ * "Đã đăng ký" kiểm trên danh sách synchronization của transaction hiện tại: REQUIRES_NEW tạm cất danh sách
+ * của transaction ngoài nên transaction con tự đăng ký, commit của nó không bị bỏ sót.
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardCacheInvalidator {
+
+    // Lazy để tránh vòng phụ thuộc EntityManagerFactory -> listener -> repository
+    private final ObjectProvider<DashboardCache> dashboardCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterWrite(Object entity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dashboardCache.getObject().invalidateAll();
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof InvalidateAfterCommit) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new InvalidateAfterCommit());
+    }
+
+    private final class InvalidateAfterCommit implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            dashboardCache.getObject().invalidateAll();
+        }
+    }
+}
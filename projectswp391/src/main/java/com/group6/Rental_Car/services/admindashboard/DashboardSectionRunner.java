@@ -0,0 +1,178 @@
+package com.group6.Rental_Car.services.admindashboard;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chạy các phần KPI độc lập của dashboard song song, mỗi phần 1 virtual thread.
+ * 2 giới hạn riêng: mỗi request chạy tối đa dashboard.request-concurrency phần cùng lúc (semaphore theo Scope),
+ * và cả ứng dụng giữ tối đa pool Hikari - 1 query dashboard cùng lúc để đặt xe / thanh toán còn kết nối.
+ * Với pool 2 kết nối (mặc định) giới hạn chung là 1: các phần, kể cả của nhiều request, chạy tuần tự.
+ * Phần chờ lượt quá dashboard.queue-timeout-ms (tính từ lúc mở Scope) bị bỏ. Hạn chạy dashboard.section-timeout-ms
+ * tính từ lúc phần nhận được lượt, không phải lúc fork, nên phần xếp hàng sau không bị ăn mất thời gian.
+ * Phần lỗi / quá hạn trả giá trị mặc định.
+ * Hủy future không dừng được JDBC nên mỗi phần chạy trong transaction read-only có timeout:
+ * query của phần bị DB hủy khi hết hạn (Statement.setQueryTimeout) và trả kết nối về pool.
+ */
+@Slf4j
+@Component
+class DashboardSectionRunner {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final PlatformTransactionManager transactionManager;
+    private final Semaphore globalPermits;
+    private final int requestConcurrency;
+    private final long sectionTimeoutNanos;
+    private final long queueTimeoutNanos;
+
+    DashboardSectionRunner(PlatformTransactionManager transactionManager,
+                           @Value("${dashboard.request-concurrency:4}") int requestConcurrency,
+                           @Value("${dashboard.section-timeout-ms:5000}") long sectionTimeoutMs,
+                           @Value("${dashboard.queue-timeout-ms:5000}") long queueTimeoutMs,
+                           @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.transactionManager = transactionManager;
+        // Chừa ít nhất 1 kết nối cho phần còn lại của ứng dụng
+        int globalLimit = Math.max(1, poolSize - 1);
+        if (poolSize <= 2) {
+            log.info("Pool DB {} kết nối: các phần dashboard chạy tuần tự ({} query cùng lúc)", poolSize, globalLimit);
+        }
+        this.globalPermits = new Semaphore(globalLimit);
+        this.requestConcurrency = Math.max(1, requestConcurrency);
+        this.sectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+    }
+
+    /**
+     * Mở 1 phạm vi cho 1 request: fork các phần rồi join đúng 1 lần
+     */
+    Scope open() {
+        return new Scope();
+    }
+
+    private <T> T inTransaction(Supplier<T> query) {
+        // Timeout của transaction tính bằng giây; Spring áp nó làm query timeout cho mọi query JPA trong phần
+        int timeoutSeconds = (int) Math.max(1, Math.ceil(sectionTimeoutNanos / 1e9));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout(timeoutSeconds);
+        return transaction.execute(status -> query.get());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    final class Scope {
+
+        private final List<Section<?>> sections = new ArrayList<>();
+        private final Semaphore permits = new Semaphore(requestConcurrency);
+        private final long queueDeadline = System.nanoTime() + queueTimeoutNanos;
+
+        private Scope() {
+        }
+
+        <T> Section<T> fork(String name, Supplier<T> query, T fallback) {
+            Section<T> section = new Section<>(name, fallback, queueDeadline);
+            section.future = executor.submit(() -> {
+                // Lượt của request trước, lượt chung sau: không giữ lượt chung trong lúc chờ phần khác của request
+                if (!permits.tryAcquire(queueDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException("Hết hạn khi chờ lượt của request");
+                }
+                try {
+                    if (!globalPermits.tryAcquire(queueDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        throw new TimeoutException("Hết hạn khi chờ lượt truy vấn");
+                    }
+                    try {
+                        section.runDeadline = System.nanoTime() + sectionTimeoutNanos;
+                        return inTransaction(query);
+                    } finally {
+                        globalPermits.release();
+                    }
+                } finally {
+                    permits.release();
+                }
+            });
+            sections.add(section);
+            return section;
+        }
+
+        /**
+         * Chờ mọi phần xong hoặc hết hạn, phần chưa xong bị hủy (không chạy tiếp sau khi request trả về)
+         *
+         * @return tên các phần lỗi / quá hạn, rỗng nếu đủ dữ liệu
+         */
+        List<String> join() {
+            List<String> failed = new ArrayList<>();
+            for (Section<?> section : sections) {
+                if (!section.await()) {
+                    failed.add(section.name);
+                }
+            }
+            return failed;
+        }
+    }
+
+    static final class Section<T> {
+
+        private final String name;
+        private final long queueDeadline;
+        private Future<T> future;
+        // 0 khi chưa nhận được lượt; đặt khi bắt đầu truy vấn
+        private volatile long runDeadline;
+        private T value;
+
+        private Section(String name, T fallback, long queueDeadline) {
+            this.name = name;
+            this.queueDeadline = queueDeadline;
+            this.value = fallback;
+        }
+
+        /**
+         * Giá trị của phần, hoặc giá trị mặc định nếu phần lỗi. Chỉ gọi sau {@link Scope#join()}
+         */
+        T get() {
+            return value;
+        }
+
+        private boolean await() {
+            try {
+                while (true) {
+                    long started = runDeadline;
+                    long deadline = started != 0 ? started : queueDeadline;
+                    try {
+                        value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        return true;
+                    } catch (TimeoutException e) {
+                        // Nhận lượt đúng lúc hết hạn chờ: chờ tiếp theo hạn chạy của phần
+                        if (started == 0 && runDeadline != 0) continue;
+                        future.cancel(true);
+                        log.warn("Dashboard: phần {} quá hạn, trả giá trị mặc định", name);
+                        return false;
+                    }
+                }
+            } catch (ExecutionException e) {
+                log.warn("Dashboard: phần {} lỗi: {}", name, e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.group6.Rental_Car.services.bookinglock;
+
+import com.group6.Rental_Car.exceptions.ConflictException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Khóa dùng chung giữa nhiều node: pg_try_advisory_xact_lock trên chính connection của transaction.
+ * PostgreSQL tự nhả khóa khi transaction commit/rollback. Chờ bằng cách thử lại với backoff tới khi hết timeout.
+ * Khóa gắn với connection nên phải mở transaction trước khi chờ: request đang chờ vẫn giữ 1 connection.
+ */
+public class AdvisoryVehicleBookingLock implements VehicleBookingLock {
+
+    private static final String MODE = "advisory";
+
+    // Namespace (key thứ nhất) để không đụng advisory lock khác
+    private static final int BOOKING_LOCK_NAMESPACE = 0x424B4E47; // "BKNG"
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long timeoutMs;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingLockMetrics metrics;
+
+    public AdvisoryVehicleBookingLock(JdbcTemplate jdbcTemplate, long timeoutMs, TransactionTemplate transactionTemplate,
+                                      BookingLockMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeoutMs = timeoutMs;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> T callLocked(Long vehicleId, Supplier<T> work) {
+        return transactionTemplate.execute(status -> {
+            lockUntilTransactionEnds(vehicleId);
+            return work.get();
+        });
+    }
+
+    private void lockUntilTransactionEnds(Long vehicleId) {
+        long waitStart = System.nanoTime();
+        long deadline = waitStart + timeoutMs * 1_000_000L;
+        long backoffMs = 5;
+        boolean acquired = tryLock(vehicleId);
+
+        while (!acquired && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMs = Math.min(backoffMs * 2, 100);
+            acquired = tryLock(vehicleId);
+        }
+
+        long holdStart = System.nanoTime();
+        metrics.recordWait(MODE, holdStart - waitStart, acquired);
+
+        if (!acquired) {
+            throw new ConflictException("Xe đang được khách hàng khác đặt, vui lòng thử lại sau ít giây");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                metrics.recordHold(MODE, System.nanoTime() - holdStart);
+            }
+        });
+    }
+
+    private boolean tryLock(Long vehicleId) {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?, ?)",
+                Boolean.class,
+                BOOKING_LOCK_NAMESPACE, (int) (vehicleId ^ (vehicleId >>> 32)));
+        return Boolean.TRUE.equals(locked);
+    }
+}
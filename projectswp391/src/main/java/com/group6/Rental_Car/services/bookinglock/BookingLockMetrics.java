@@ -0,0 +1,44 @@
+package com.group6.Rental_Car.services.bookinglock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metric tranh chấp khi đặt xe (xem tại /actuator/metrics):
+ * - booking.lock.wait   : thời gian chờ khóa, tag outcome = acquired | timeout
+ * - booking.lock.hold   : thời gian giữ khóa (tới khi transaction kết thúc)
+ * - booking.conflicts   : số lần bị từ chối vì trùng lịch sau khi đã vào đoạn giữ chỗ (công việc bị bỏ phí)
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingLockMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    void recordWait(String mode, long nanos, boolean acquired) {
+        Timer.builder("booking.lock.wait")
+                .tag("mode", mode)
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordHold(String mode, long nanos) {
+        Timer.builder("booking.lock.hold")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordConflict(String operation) {
+        Counter.builder("booking.conflicts")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,84 @@
+package com.group6.Rental_Car.services.bookinglock;
+
+import com.group6.Rental_Car.exceptions.ConflictException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Khóa phân đoạn trong JVM: vehicleId được băm vào 1 trong N ReentrantLock.
+ * Lấy khóa trước khi mở transaction nên request đang chờ không chiếm connection của pool;
+ * nhả khóa khi TransactionTemplate đã commit/rollback xong.
+ * Chỉ đúng khi chạy 1 node, nhiều node thì dùng {@link AdvisoryVehicleBookingLock}.
+ */
+public class LocalVehicleBookingLock implements VehicleBookingLock {
+
+    private static final String MODE = "local";
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingLockMetrics metrics;
+
+    public LocalVehicleBookingLock(int stripeCount, long timeoutMs, TransactionTemplate transactionTemplate,
+                                   BookingLockMetrics metrics) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> T callLocked(Long vehicleId, Supplier<T> work) {
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(vehicleId) * 0x9E3779B9, stripes.length)];
+        long holdStart = acquire(lock);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Đã ở trong transaction của nơi gọi: giữ khóa tới khi transaction đó kết thúc
+            // (afterCompletion chạy trên chính thread đang giữ khóa)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(lock, holdStart);
+                }
+            });
+            return work.get();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            release(lock, holdStart);
+        }
+    }
+
+    private long acquire(ReentrantLock lock) {
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long holdStart = System.nanoTime();
+        metrics.recordWait(MODE, holdStart - waitStart, acquired);
+
+        if (!acquired) {
+            throw new ConflictException("Xe đang được khách hàng khác đặt, vui lòng thử lại sau ít giây");
+        }
+        return holdStart;
+    }
+
+    private void release(ReentrantLock lock, long holdStart) {
+        lock.unlock();
+        metrics.recordHold(MODE, System.nanoTime() - holdStart);
+    }
+}
@@ -0,0 +1,17 @@
+package com.group6.Rental_Car.services.bookinglock;
+
+import java.util.function.Supplier;
+
+/**
+ * Khóa theo vehicleId bao quanh đoạn giữ chỗ (check → ghi timeline) của createOrder / changeVehicle / createHold.
+ * Khóa được giữ suốt transaction chạy work, tới khi commit hoặc rollback xong.
+ */
+public interface VehicleBookingLock {
+
+    /**
+     * Chạy work trong 1 transaction (mở mới, hoặc tham gia transaction đang có) khi đã giữ khóa của xe.
+     * Chờ tối đa booking.lock.timeout-ms, quá hạn → ConflictException.
+     * Nơi gọi không được tự mở transaction (không @Transactional) để request chờ khóa không giữ connection.
+     */
+    <T> T callLocked(Long vehicleId, Supplier<T> work);
+}
@@ -0,0 +1,120 @@
+package com.group6.Rental_Car.services.fleet;
+
+import com.group6.Rental_Car.entities.RentalOrder;
+import com.group6.Rental_Car.entities.RentalStation;
+import com.group6.Rental_Car.entities.User;
+import com.group6.Rental_Car.entities.Vehicle;
+import com.group6.Rental_Car.enums.Role;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.function.LongSupplier;
+
+/**
+ * Bắt mọi thay đổi trạng thái xe / đơn / role user (ở bất kỳ service nào) để cập nhật {@link FleetStateRegistry}.
+ * Đăng ký thẳng vào event của Hibernate: event update mang cả trạng thái cũ (lúc load) lẫn mới,
+ * nên entity không phải giữ bản sao trạng thái. Update không có trạng thái cũ thì bỏ qua,
+ * lần đối chiếu định kỳ sẽ sửa.
+ * Txid của transaction ghi đọc trên chính connection của session, chỉ khi registry đang đối chiếu.
+ */
+@Component
+@RequiredArgsConstructor
+public class FleetStateListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<FleetStateRegistry> registry;
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, this);
+        listeners.appendListeners(EventType.POST_UPDATE, this);
+        listeners.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event, event.getEntity(), null, snapshotOf(event.getEntity(), event.getPersister(), event.getState()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) return;
+        Object entity = event.getEntity();
+        changed(event, entity, snapshotOf(entity, event.getPersister(), event.getOldState()),
+                snapshotOf(entity, event.getPersister(), event.getState()));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event, event.getEntity(),
+                snapshotOf(event.getEntity(), event.getPersister(), event.getDeletedState()), null);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        // FleetStateRegistry tự hoãn tới afterCommit của transaction Spring
+        return false;
+    }
+
+    private void changed(AbstractEvent event, Object entity,
+                         FleetStateRegistry.Snapshot before, FleetStateRegistry.Snapshot after) {
+        LongSupplier transactionId = () -> currentTransactionId(event);
+        switch (entity) {
+            case Vehicle v -> registry.getObject().onVehicleChanged(before, after, transactionId);
+            case RentalOrder o -> registry.getObject().onOrderChanged(before, after, transactionId);
+            case User u -> registry.getObject().onUserChanged(before, after, transactionId);
+            default -> {
+            }
+        }
+    }
+
+    private static long currentTransactionId(AbstractEvent event) {
+        return event.getSession().doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT CAST(pg_current_xact_id() AS text)")) {
+                rs.next();
+                return Long.parseLong(rs.getString(1));
+            }
+        });
+    }
+
+    /**
+     * Snapshot dựng từ mảng trạng thái Hibernate (theo thứ tự thuộc tính của persister), không đọc field entity
+     */
+    private static FleetStateRegistry.Snapshot snapshotOf(Object entity, EntityPersister persister, Object[] state) {
+        if (state == null) return null;
+        return switch (entity) {
+            case Vehicle v -> {
+                // Trạm có thể là proxy chưa load, getStationId không kích hoạt query
+                RentalStation station = (RentalStation) state[persister.getPropertyIndex("rentalStation")];
+                yield new FleetStateRegistry.Snapshot(station != null ? station.getStationId() : null,
+                        (String) state[persister.getPropertyIndex("status")]);
+            }
+            case RentalOrder o -> new FleetStateRegistry.Snapshot(null, (String) state[persister.getPropertyIndex("status")]);
+            case User u -> {
+                Role role = (Role) state[persister.getPropertyIndex("role")];
+                yield new FleetStateRegistry.Snapshot(null, role != null ? role.name() : null);
+            }
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,424 @@
+package com.group6.Rental_Car.services.fleet;
+
+import com.group6.Rental_Car.enums.Role;
+import com.group6.Rental_Car.repositories.RentalOrderRepository;
+import com.group6.Rental_Car.repositories.UserRepository;
+import com.group6.Rental_Car.repositories.VehicleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Bộ đếm trong bộ nhớ số xe theo (trạm, trạng thái), số user theo role và số đơn theo trạng thái,
+ * để dashboard / màn hình trạm đọc O(1) thay vì chạy COUNT mỗi lần.
+ * Nạp khi khởi động, cập nhật sau commit qua {@link FleetStateListener}
+ * và đối chiếu lại với DB định kỳ để sửa lệch (ghi bằng SQL trực tiếp, chạy nhiều node...).
+ * Trước khi nạp xong {@link #isReady()} = false, nơi đọc tự quay về query DB.
+ * <p>
+ * Đối chiếu đọc 3 bảng trong 1 transaction REPEATABLE READ nên cùng 1 snapshot, và ghi lại
+ * {@code pg_current_snapshot()} của nó. Trong lúc đối chiếu, mỗi thay đổi mang txid của transaction ghi
+ * (lấy lúc flush); khi thay bộ đếm chỉ áp lại thay đổi mà snapshot không thấy, thay đổi snapshot đã thấy
+ * thì đã nằm trong số đọc từ DB nên không bị đếm trùng.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FleetStateRegistry {
+
+    private final VehicleRepository vehicleRepository;
+    private final UserRepository userRepository;
+    private final RentalOrderRepository rentalOrderRepository;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // Thay đổi không có transaction (không biết txid) coi như snapshot không thấy
+    private static final long NO_TRANSACTION = -1;
+    private static final long UNTAGGED_WAIT_MS = 5000;
+
+    private volatile Counters counters;
+
+    // Khóa đọc: áp 1 thay đổi; khóa ghi: bắt đầu ghi lại / thay bộ đếm + áp lại phần đã ghi
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Queue<RecordedChange> changesDuringReconcile;
+
+    // Bật trong lúc đối chiếu: transaction ghi lấy txid khi flush
+    private volatile boolean tagging;
+    // Số transaction đã flush mà chưa lấy txid và chưa kết thúc
+    private final AtomicInteger untaggedInFlight = new AtomicInteger();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 300000, fixedDelay = 300000) // Đối chiếu lại mỗi 5 phút
+    public synchronized void reconcile() {
+        tagging = true;
+        try {
+            // Transaction flush trước khi bật tagging không có txid: chờ chúng kết thúc trước khi ghi lại,
+            // khi đó chúng đã commit (hoặc rollback) trước snapshot nên không cần áp lại
+            if (!awaitUntaggedTransactions()) {
+                log.warn("Bỏ qua đối chiếu fleet state: còn transaction chưa kết thúc sau {} ms", UNTAGGED_WAIT_MS);
+                return;
+            }
+            reconcileTagged();
+        } finally {
+            tagging = false;
+        }
+    }
+
+    private void reconcileTagged() {
+        Queue<RecordedChange> recorded = new ConcurrentLinkedQueue<>();
+        swapLock.writeLock().lock();
+        try {
+            changesDuringReconcile = recorded;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Loaded loaded;
+        try {
+            loaded = load();
+        } catch (RuntimeException e) {
+            stopRecording();
+            throw e;
+        }
+
+        Counters previous;
+        int replayed = 0;
+        swapLock.writeLock().lock();
+        try {
+            previous = counters;
+            for (RecordedChange change : recorded) {
+                if (!loaded.snapshot().sees(change.transactionId())) {
+                    change.change().accept(loaded.counters());
+                    replayed++;
+                }
+            }
+            counters = loaded.counters();
+            changesDuringReconcile = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        log.debug("Đối chiếu fleet state: ghi lại {} thay đổi, áp lại {}", recorded.size(), replayed);
+
+        Counters current = loaded.counters();
+        if (previous == null) {
+            log.info("Nạp fleet state: {} xe, {} user, {} đơn",
+                    current.vehicleTotal.sum(), current.userTotal.sum(), current.orderTotal.sum());
+            return;
+        }
+        long drift = drift(previous.vehiclesByStation, current.vehiclesByStation)
+                + drift(previous.usersByRole, current.usersByRole)
+                + drift(previous.ordersByStatus, current.ordersByStatus);
+        if (drift > 0) {
+            meterRegistry.counter("fleet.state.drift").increment(drift);
+            log.warn("Fleet state lệch {} so với DB, đã nạp lại", drift);
+        }
+    }
+
+    private boolean awaitUntaggedTransactions() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(UNTAGGED_WAIT_MS);
+        while (untaggedInFlight.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Snapshot lấy bằng câu lệnh đầu tiên nên 3 câu COUNT sau đọc đúng snapshot đó
+     */
+    private Loaded load() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            DbSnapshot snapshot = DbSnapshot.parse(
+                    jdbcTemplate.queryForObject("SELECT CAST(pg_current_snapshot() AS text)", String.class));
+            return new Loaded(snapshot, count());
+        });
+    }
+
+    private Counters count() {
+        Counters loaded = new Counters();
+        for (Object[] r : vehicleRepository.countGroupByStationAndStatus()) {
+            loaded.addVehicle(r[0] != null ? ((Number) r[0]).intValue() : null, (String) r[1],
+                    ((Number) r[2]).longValue());
+        }
+        for (Object[] r : userRepository.countGroupByRole()) {
+            loaded.addUser(r[0] != null ? ((Role) r[0]).name() : null, ((Number) r[1]).longValue());
+        }
+        for (Object[] r : rentalOrderRepository.countGroupByStatus()) {
+            loaded.addOrder((String) r[0], ((Number) r[1]).longValue());
+        }
+        return loaded;
+    }
+
+    private void stopRecording() {
+        swapLock.writeLock().lock();
+        try {
+            changesDuringReconcile = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return counters != null;
+    }
+
+    // ========================
+    //  ĐỌC
+    // ========================
+
+    public long vehicleCount() {
+        return current().vehicleTotal.sum();
+    }
+
+    public long vehicleCount(String status) {
+        return sumOf(current().vehiclesByStatus, Counters.keyOf(status));
+    }
+
+    public long vehicleCount(Integer stationId, String status) {
+        return sumOf(current().vehiclesByStation, new StationStatus(stationId, status));
+    }
+
+    public long vehicleCountAtStation(Integer stationId) {
+        return sumOf(current().vehiclesAtStation, Counters.keyOf(stationId));
+    }
+
+    public long userCount() {
+        return current().userTotal.sum();
+    }
+
+    public long userCount(Role role) {
+        return sumOf(current().usersByRole, Counters.keyOf(role != null ? role.name() : null));
+    }
+
+    public long orderCount() {
+        return current().orderTotal.sum();
+    }
+
+    public long orderCount(String status) {
+        return sumOf(current().ordersByStatus, Counters.keyOf(status));
+    }
+
+    // ========================
+    //  CẬP NHẬT TỪ ENTITY LISTENER (before null = thêm mới, after null = xóa)
+    // ========================
+
+    // transactionId: txid của transaction đang ghi, chỉ gọi khi đang đối chiếu
+
+    void onVehicleChanged(Snapshot before, Snapshot after, LongSupplier transactionId) {
+        if (Objects.equals(before, after)) return;
+        afterCommit(c -> {
+            if (before != null) c.addVehicle(before.stationId(), before.status(), -1);
+            if (after != null) c.addVehicle(after.stationId(), after.status(), 1);
+        }, transactionId);
+    }
+
+    void onUserChanged(Snapshot before, Snapshot after, LongSupplier transactionId) {
+        if (Objects.equals(before, after)) return;
+        afterCommit(c -> {
+            if (before != null) c.addUser(before.status(), -1);
+            if (after != null) c.addUser(after.status(), 1);
+        }, transactionId);
+    }
+
+    void onOrderChanged(Snapshot before, Snapshot after, LongSupplier transactionId) {
+        if (Objects.equals(before, after)) return;
+        afterCommit(c -> {
+            if (before != null) c.addOrder(before.status(), -1);
+            if (after != null) c.addOrder(after.status(), 1);
+        }, transactionId);
+    }
+
+    /**
+     * Chỉ áp dụng thay đổi khi transaction commit thành công (rollback thì bộ đếm giữ nguyên).
+     * Tăng untaggedInFlight trước khi đọc tagging: hoặc đối chiếu thấy transaction này đang chạy và chờ,
+     * hoặc transaction này thấy tagging và lấy txid.
+     */
+    private void afterCommit(Consumer<Counters> change, LongSupplier transactionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change, NO_TRANSACTION);
+            return;
+        }
+        untaggedInFlight.incrementAndGet();
+        long txid = NO_TRANSACTION;
+        boolean untagged = true;
+        if (tagging) {
+            try {
+                txid = transactionId.getAsLong();
+                untagged = false;
+                untaggedInFlight.decrementAndGet();
+            } catch (RuntimeException e) {
+                // Không lấy được txid: thay đổi được áp lại như không có transaction
+                log.warn("Không lấy được txid cho fleet state: {}", e.getMessage());
+            }
+        }
+        long tagged = txid;
+        boolean release = untagged;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change, tagged);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (release) {
+                    untaggedInFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    private void apply(Consumer<Counters> change, long transactionId) {
+        swapLock.readLock().lock();
+        try {
+            if (changesDuringReconcile != null) {
+                changesDuringReconcile.add(new RecordedChange(transactionId, change));
+            }
+            // Chưa nạp xong thì chỉ ghi lại, lần nạp đầu áp phần ghi lại lên số đọc từ DB
+            Counters c = counters;
+            if (c != null) {
+                change.accept(c);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private Counters current() {
+        Counters c = counters;
+        if (c == null) {
+            throw new IllegalStateException("Fleet state chưa được nạp");
+        }
+        return c;
+    }
+
+    private static <K> long sumOf(Map<K, LongAdder> map, K key) {
+        LongAdder adder = map.get(key);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private static <K> long drift(Map<K, LongAdder> before, Map<K, LongAdder> after) {
+        Set<K> keys = new HashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        long drift = 0;
+        for (K key : keys) {
+            drift += Math.abs(sumOf(before, key) - sumOf(after, key));
+        }
+        return drift;
+    }
+
+    /**
+     * Trạng thái đã ghi xuống DB của 1 entity mà bộ đếm đang tính:
+     * xe = (trạm, status), user = (null, role), đơn = (null, status)
+     */
+    public record Snapshot(Integer stationId, String status) {
+    }
+
+    private record StationStatus(Integer stationId, String status) {
+    }
+
+    private record RecordedChange(long transactionId, Consumer<Counters> change) {
+    }
+
+    private record Loaded(DbSnapshot snapshot, Counters counters) {
+    }
+
+    /**
+     * pg_current_snapshot() dạng "xmin:xmax:xip,...": txid nhỏ hơn xmin đã kết thúc,
+     * từ xmax trở lên chưa bắt đầu, xip là các transaction đang chạy lúc lấy snapshot
+     */
+    record DbSnapshot(long xmin, long xmax, long[] inProgress) {
+
+        static DbSnapshot parse(String text) {
+            String[] parts = text.split(":", -1);
+            long[] xip = parts[2].isEmpty()
+                    ? new long[0]
+                    : Arrays.stream(parts[2].split(",")).mapToLong(Long::parseLong).sorted().toArray();
+            return new DbSnapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), xip);
+        }
+
+        boolean sees(long txid) {
+            if (txid == NO_TRANSACTION) return false;
+            if (txid < xmin) return true;
+            return txid < xmax && Arrays.binarySearch(inProgress, txid) < 0;
+        }
+    }
+
+    /**
+     * Key null (xe chưa gán trạm, status / role null) được gom vào NULL_KEY vì ConcurrentHashMap không nhận null
+     */
+    private static final class Counters {
+
+        private static final Object NULL_KEY = new Object();
+
+        private final Map<StationStatus, LongAdder> vehiclesByStation = new ConcurrentHashMap<>();
+        private final Map<Object, LongAdder> vehiclesByStatus = new ConcurrentHashMap<>();
+        private final Map<Object, LongAdder> vehiclesAtStation = new ConcurrentHashMap<>();
+        private final Map<Object, LongAdder> usersByRole = new ConcurrentHashMap<>();
+        private final Map<Object, LongAdder> ordersByStatus = new ConcurrentHashMap<>();
+        private final LongAdder vehicleTotal = new LongAdder();
+        private final LongAdder userTotal = new LongAdder();
+        private final LongAdder orderTotal = new LongAdder();
+
+        void addVehicle(Integer stationId, String status, long delta) {
+            add(vehiclesByStation, new StationStatus(stationId, status), delta);
+            add(vehiclesByStatus, keyOf(status), delta);
+            add(vehiclesAtStation, keyOf(stationId), delta);
+            vehicleTotal.add(delta);
+        }
+
+        void addUser(String role, long delta) {
+            add(usersByRole, keyOf(role), delta);
+            userTotal.add(delta);
+        }
+
+        void addOrder(String status, long delta) {
+            add(ordersByStatus, keyOf(status), delta);
+            orderTotal.add(delta);
+        }
+
+        private static Object keyOf(Object key) {
+            return key != null ? key : NULL_KEY;
+        }
+
+        private static <K> void add(Map<K, LongAdder> map, K key, long delta) {
+            map.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+}
@@ -14,6 +14,9 @@ public interface RentalOrderService {
     void deleteOrder(UUID orderId);
     List<OrderResponse> getRentalOrders();
     List<OrderSimpleResponse> getRentalOrdersSimple();
+    OrderPageResponse<OrderResponse> getRentalOrdersPage(OrderPageFilter filter);
+    OrderPageResponse<OrderSimpleResponse> getRentalOrdersSimplePage(OrderPageFilter filter);
+    OrderPageResponse<OrderVerificationResponse> getPendingVerificationOrdersPage(OrderPageFilter filter);
     List<OrderResponse> findByCustomer_UserId(UUID customerId);
     OrderResponse reviewReturn(UUID orderId);
     OrderResponse confirmPickup(UUID orderId);
@@ -8,29 +8,47 @@ import com.group6.Rental_Car.exceptions.BadRequestException;
 import com.group6.Rental_Car.exceptions.ConflictException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
 import com.group6.Rental_Car.repositories.*;
+import com.group6.Rental_Car.services.bookinglock.BookingLockMetrics;
+import com.group6.Rental_Car.services.bookinglock.VehicleBookingLock;
 import com.group6.Rental_Car.services.coupon.CouponService;
+import com.group6.Rental_Car.services.payment.OrderBalanceCalculator;
 import com.group6.Rental_Car.services.pricingrule.PricingRuleService;
 import com.group6.Rental_Car.services.vehicle.VehicleModelService;
+import com.group6.Rental_Car.services.vehiclehold.VehicleHoldService;
 import com.group6.Rental_Car.utils.JwtUserDetails;
+import com.group6.Rental_Car.utils.OrderCursor;
 import com.group6.Rental_Car.utils.UserDocsGuard;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.Comparator;
 import java.util.Random;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RentalOrderServiceImpl implements RentalOrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Trạng thái hiển thị ở màn hình xác minh đơn (giống bộ lọc của getPendingVerificationOrders)
+    private static final List<String> PENDING_VERIFICATION_STATUSES = List.of(
+            "PENDING", "PENDING_DEPOSIT", "PENDING_FINAL", "PENDING_FINAL_PAYMENT", "PENDING_FULL_PAYMENT",
+            "PENDING_SERVICE_PAYMENT", "COMPLETED", "AWAITING", "PAID", "RENTAL", "DEPOSITED", "SERVICE_PAID",
+            "FAILED", "REFUNDED", "PAYMENT_FAILED", "CANCELLED");
+
     private final RentalOrderRepository rentalOrderRepository;
     private final RentalOrderDetailRepository rentalOrderDetailRepository;
     private final VehicleRepository vehicleRepository;
@@ -45,9 +63,20 @@ public class RentalOrderServiceImpl implements RentalOrderService {
     private final PaymentRepository paymentRepository;
     private final NotificationRepository notificationRepository;
     private final VehicleModelRepository vehicleModelRepository;
+    private final VehicleBookingLock vehicleBookingLock;
+    private final BookingLockMetrics bookingLockMetrics;
+    private final VehicleHoldService vehicleHoldService;
+    private final OrderBalanceCalculator orderBalanceCalculator;
+    // Không @Transactional: khóa xe được lấy trước khi mở transaction (xem VehicleBookingLock)
     @Override
-    @Transactional
     public OrderResponse createOrder(OrderCreateRequest request) {
+        if (request.getVehicleId() == null) {
+            throw new BadRequestException("Vui lòng chọn xe");
+        }
+        return vehicleBookingLock.callLocked(request.getVehicleId(), () -> createOrderLocked(request));
+    }
+
+    private OrderResponse createOrderLocked(OrderCreateRequest request) {
 
         JwtUserDetails jwt = currentUser();
         User customer = userRepository.findById(jwt.getUserId())
@@ -86,10 +115,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
             throw new BadRequestException("Thời gian thuê không hợp lệ");
         }
 
-        // Kiểm tra xem có booking trùng lặp không (nếu có thì KHÔNG ĐẶT)
-        if (hasOverlappingActiveBooking(vehicle.getVehicleId(), start, end)) {
-            throw new BadRequestException("Xe đã được đặt trong khoảng thời gian này...");
-        }
+        // Xe đang được khách khác giữ chỗ → từ chối; holdToken của chính khách được tiêu thụ khi commit
+        vehicleHoldService.claimForBooking(customer.getUserId(), vehicle.getVehicleId(), start, end, request.getHoldToken());
 
         VehicleModel model = vehicleModelService.findByVehicle(vehicle);
         PricingRule rule = pricingRuleService.getPricingRuleByCarmodel(model.getCarmodel());
@@ -99,16 +126,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
             coupon = couponService.getCouponByCode(request.getCouponCode().trim());
         }
 
-        // Tính giá dựa trên từng ngày (tự động tính giá cuối tuần)
-        BigDecimal basePrice;
-        if (request.isHoliday() && rule.getHolidayPrice() != null) {
-            // Nếu là holiday và có giá holiday → dùng giá holiday cho tất cả các ngày
-            long rentalDays = Math.max(1, ChronoUnit.DAYS.between(start.toLocalDate(), end.toLocalDate()));
-            basePrice = rule.getHolidayPrice().multiply(BigDecimal.valueOf(rentalDays));
-        } else {
-            // Tính giá theo từng ngày (tự động detect weekend)
-            basePrice = pricingRuleService.calculateRentalPrice(rule, start.toLocalDate(), end.toLocalDate());
-        }
+        // Giá cuối tuần / ngày lễ tự áp dụng theo lịch ngày lễ của hệ thống
+        BigDecimal basePrice = pricingRuleService.calculateRentalPrice(rule, start.toLocalDate(), end.toLocalDate());
 
         BigDecimal totalPrice = couponService.applyCouponIfValid(coupon, basePrice);
 
@@ -145,7 +164,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                 .note("Xe được đặt cho đơn thuê #" + order.getOrderId())
                 .updatedAt(LocalDateTime.now())
                 .build();
-        vehicleTimelineRepository.save(timeline);
+        // Trùng lịch bị DB chặn bằng exclusion constraint (nếu có thì KHÔNG ĐẶT)
+        saveBookingTimeline(timeline, "createOrder", "Xe đã được đặt trong khoảng thời gian này...");
 
         // ====== CẬP NHẬT STATUS XE ======
         // Chỉ set BOOKED nếu xe đang AVAILABLE và chưa có đơn đặt nào
@@ -186,8 +206,11 @@ public class RentalOrderServiceImpl implements RentalOrderService {
     }
 
     @Override
-    @Transactional
     public OrderResponse changeVehicle(UUID orderId, Long newVehicleId, String note) {
+        return vehicleBookingLock.callLocked(newVehicleId, () -> changeVehicleLocked(orderId, newVehicleId, note));
+    }
+
+    private OrderResponse changeVehicleLocked(UUID orderId, Long newVehicleId, String note) {
         RentalOrder order = rentalOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn thuê"));
 
@@ -218,11 +241,6 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                 .findFirst()
                 .orElseThrow(() -> new BadRequestException("Không tìm thấy chi tiết thuê"));
 
-        // Kiểm tra xe mới có bị trùng lịch không
-        if (hasOverlappingActiveBooking(newVehicle.getVehicleId(), mainDetail.getStartTime(), mainDetail.getEndTime())) {
-            throw new BadRequestException("Xe mới đã được đặt trong khoảng thời gian này...");
-        }
-
         Vehicle oldVehicle = mainDetail.getVehicle();
         Long oldVehicleId = oldVehicle.getVehicleId();
 
@@ -260,7 +278,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                         (note != null ? " - " + note : ""))
                 .updatedAt(LocalDateTime.now())
                 .build();
-        vehicleTimelineRepository.save(timeline);
+        // Xe mới bị trùng lịch → DB chặn bằng exclusion constraint
+        saveBookingTimeline(timeline, "changeVehicle", "Xe mới đã được đặt trong khoảng thời gian này...");
 
         // ====== CẬP NHẬT STATUS XE MỚI THÀNH BOOKED ======
         newVehicle.setStatus("BOOKED");
@@ -298,7 +317,7 @@ public class RentalOrderServiceImpl implements RentalOrderService {
         }
 
         // Kiểm tra xem đã thanh toán hết chưa
-        BigDecimal remainingAmount = calculateRemainingAmount(order);
+        BigDecimal remainingAmount = orderBalanceCalculator.remainingAmount(order);
         
         if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
             throw new BadRequestException("Không thể hoàn tất đơn hàng. Còn " + remainingAmount + " VND chưa thanh toán");
@@ -470,21 +489,88 @@ public class RentalOrderServiceImpl implements RentalOrderService {
 
     @Override
     public List<OrderResponse> getRentalOrders() {
-        return rentalOrderRepository.findAll().stream()
-                .map(order -> mapToResponse(order, getMainDetail(order)))
+        List<RentalOrder> orders = rentalOrderRepository.findAllForListing();
+        Map<UUID, OrderBalanceCalculator.Balance> balances = orderBalanceCalculator.balances(orders);
+        return orders.stream()
+                .map(order -> mapToResponse(order, getMainDetail(order), balances.get(order.getOrderId())))
                 .toList();
     }
 
     @Override
     public List<OrderSimpleResponse> getRentalOrdersSimple() {
-        return rentalOrderRepository.findAll().stream()
-                .map(this::mapToSimpleResponse)
+        List<RentalOrder> orders = rentalOrderRepository.findAllForListing();
+        Map<UUID, OrderBalanceCalculator.Balance> balances = orderBalanceCalculator.balances(orders);
+        return orders.stream()
+                .map(order -> mapToSimpleResponse(order, balances.get(order.getOrderId())))
                 .toList();
     }
 
+    @Override
+    public OrderPageResponse<OrderResponse> getRentalOrdersPage(OrderPageFilter filter) {
+        return findOrderPage(filter, null,
+                (orders, balances) -> orders.stream()
+                        .map(order -> mapToResponse(order, getMainDetail(order), balances.get(order.getOrderId())))
+                        .toList());
+    }
+
+    @Override
+    public OrderPageResponse<OrderSimpleResponse> getRentalOrdersSimplePage(OrderPageFilter filter) {
+        return findOrderPage(filter, null, (orders, balances) -> orders.stream()
+                .map(order -> mapToSimpleResponse(order, balances.get(order.getOrderId())))
+                .toList());
+    }
+
+    @Override
+    public OrderPageResponse<OrderVerificationResponse> getPendingVerificationOrdersPage(OrderPageFilter filter) {
+        return findOrderPage(filter, PENDING_VERIFICATION_STATUSES,
+                (orders, balances) -> orders.stream()
+                        .map(order -> mapToVerificationResponse(order, balances.get(order.getOrderId())))
+                        .toList());
+    }
+
+    /**
+     * Đọc limit + 1 đơn sau con trỏ (created_at DESC, order_id DESC): dư 1 đơn nghĩa là còn trang sau
+     */
+    private <T> OrderPageResponse<T> findOrderPage(OrderPageFilter filter, List<String> defaultStatuses,
+                                                   BiFunction<List<RentalOrder>, Map<UUID, OrderBalanceCalculator.Balance>, List<T>> mapper) {
+        int limit = Math.clamp(filter.getLimit() != null ? filter.getLimit() : DEFAULT_PAGE_SIZE, 1, MAX_PAGE_SIZE);
+        OrderCursor cursor = OrderCursor.decode(filter.getCursor());
+
+        List<String> statuses = (filter.getStatuses() != null && !filter.getStatuses().isEmpty())
+                ? filter.getStatuses().stream().map(st -> st.trim().toUpperCase()).toList()
+                : defaultStatuses;
+        boolean allStatuses = statuses == null || statuses.isEmpty();
+        PageRequest pageable = PageRequest.of(0, limit + 1);
+
+        List<RentalOrder> rows;
+        if (allStatuses) {
+            rows = cursor == null
+                    ? rentalOrderRepository.findFirstPage(filter.getFrom(), filter.getTo(), filter.getStationId(), pageable)
+                    : rentalOrderRepository.findPageAfter(filter.getFrom(), filter.getTo(), filter.getStationId(),
+                            cursor.createdAt(), cursor.orderId(), pageable);
+        } else {
+            rows = cursor == null
+                    ? rentalOrderRepository.findFirstPageByStatus(statuses, filter.getFrom(), filter.getTo(),
+                            filter.getStationId(), pageable)
+                    : rentalOrderRepository.findPageByStatusAfter(statuses, filter.getFrom(), filter.getTo(),
+                            filter.getStationId(), cursor.createdAt(), cursor.orderId(), pageable);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<RentalOrder> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            RentalOrder last = page.getLast();
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getOrderId()).encode();
+        }
+        return new OrderPageResponse<>(mapper.apply(page, orderBalanceCalculator.balances(page)), nextCursor, hasMore);
+    }
+
     @Override
     public List<OrderResponse> findByCustomer_UserId(UUID customerId) {
-        return rentalOrderRepository.findByCustomer_UserId(customerId).stream()
+        List<RentalOrder> orders = rentalOrderRepository.findByCustomer_UserId(customerId);
+        Map<UUID, OrderBalanceCalculator.Balance> balances = orderBalanceCalculator.balances(orders);
+        return orders.stream()
                 .map(order -> {
                     OrderResponse res = modelMapper.map(order, OrderResponse.class);
 
@@ -520,9 +606,10 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                     res.setTotalPrice(order.getTotalPrice());
                     res.setStatus(order.getStatus());
                     
-                    // Lấy số tiền còn lại chưa thanh toán từ Payment
-                    BigDecimal remainingAmount = calculateRemainingAmount(order);
-                    res.setRemainingAmount(remainingAmount);
+                    // Đã thanh toán / còn lại (đọc sẵn cho cả danh sách)
+                    OrderBalanceCalculator.Balance balance = balances.get(order.getOrderId());
+                    res.setPaidAmount(balance.paid());
+                    res.setRemainingAmount(balance.remaining());
 
                     return res;
                 })
@@ -708,37 +795,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                         .build();
                 rentalOrderDetailRepository.save(lateFeeDetail);
                 
-                // Cập nhật remainingAmount của payment nếu có (giống logic createService)
-                List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
-                
-                // Tìm payment type 1 (deposit) SUCCESS
-                Optional<Payment> depositPayment = payments.stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst();
-                
-                if (depositPayment.isPresent()) {
-                    Payment deposit = depositPayment.get();
-                    BigDecimal currentRemaining = deposit.getRemainingAmount() != null 
-                            ? deposit.getRemainingAmount() 
-                            : BigDecimal.ZERO;
-                    deposit.setRemainingAmount(currentRemaining.add(lateFee));
-                    paymentRepository.save(deposit);
-                } else {
-                    // Tìm payment type 3 (full payment) SUCCESS
-                    Optional<Payment> fullPayment = payments.stream()
-                            .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                            .findFirst();
-                    
-                    if (fullPayment.isPresent()) {
-                        Payment full = fullPayment.get();
-                        // Type 3 đã thanh toán hết, giờ cần thanh toán thêm phí trễ
-                        BigDecimal currentRemaining = full.getRemainingAmount() != null 
-                                ? full.getRemainingAmount() 
-                                : BigDecimal.ZERO;
-                        full.setRemainingAmount(currentRemaining.add(lateFee));
-                        paymentRepository.save(full);
-                    }
-                }
+                // Cộng phí trễ vào số còn lại của payment đã thanh toán (giống createService)
+                orderBalanceCalculator.adjustOutstanding(order, lateFee);
             }
         }
 
@@ -802,13 +860,14 @@ public class RentalOrderServiceImpl implements RentalOrderService {
             incrementReturnCount(staffId);
         }
 
-        return mapToResponse(order, mainDetail);
+        // Phí trễ vừa đổi totalPrice / payment: cột số dư trên entity chưa cập nhật, tính lại từ Payment
+        return mapToResponse(order, mainDetail, orderBalanceCalculator.computeBalance(order));
     }
 
     @Override
     public List<OrderVerificationResponse> getPendingVerificationOrders() {
         // Lấy tất cả đơn chưa hoàn tất
-        List<RentalOrder> processingOrders = rentalOrderRepository.findAll().stream()
+        List<RentalOrder> processingOrders = rentalOrderRepository.findAllForListing().stream()
                 .filter(o -> {
                     String s = Optional.ofNullable(o.getStatus()).orElse("").toUpperCase();
                     return s.startsWith("PENDING")
@@ -828,49 +887,53 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                 .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
                 .toList();
 
-        return processingOrders.stream().map(order -> {
-            User customer = order.getCustomer();
+        Map<UUID, OrderBalanceCalculator.Balance> balances = orderBalanceCalculator.balances(processingOrders);
+        return processingOrders.stream()
+                .map(order -> mapToVerificationResponse(order, balances.get(order.getOrderId())))
+                .toList();
+    }
 
-            // Lấy chi tiết chính
-            RentalOrderDetail rentalDetail = Optional.ofNullable(order.getDetails())
-                    .orElse(List.of()).stream()
-                    .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                    .findFirst()
-                    .orElse(null);
+    private OrderVerificationResponse mapToVerificationResponse(RentalOrder order, OrderBalanceCalculator.Balance balance) {
+        User customer = order.getCustomer();
 
-            Vehicle vehicle = rentalDetail != null ? rentalDetail.getVehicle() : null;
-            RentalStation station = vehicle != null ? vehicle.getRentalStation() : null;
+        // Lấy chi tiết chính
+        RentalOrderDetail rentalDetail = Optional.ofNullable(order.getDetails())
+                .orElse(List.of()).stream()
+                .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
+                .findFirst()
+                .orElse(null);
 
-            // Tổng phí dịch vụ phát sinh
-            BigDecimal totalServiceCost = BigDecimal.ZERO;
+        Vehicle vehicle = rentalDetail != null ? rentalDetail.getVehicle() : null;
+        RentalStation station = vehicle != null ? vehicle.getRentalStation() : null;
 
-            // Tổng tiền = order.totalPrice (giá thuê)
-            BigDecimal totalPrice = Optional.ofNullable(order.getTotalPrice()).orElse(BigDecimal.ZERO);
+        // Tổng phí dịch vụ phát sinh
+        BigDecimal totalServiceCost = BigDecimal.ZERO;
 
-            // Lấy số tiền còn lại chưa thanh toán từ Payment
-            BigDecimal remainingAmount = calculateRemainingAmount(order);
-            return OrderVerificationResponse.builder()
-                    .userId(customer.getUserId())
-                    .orderId(order.getOrderId())
-                    .customerName(customer.getFullName())
-                    .phone(customer.getPhone())
+        // Tổng tiền = order.totalPrice (giá thuê)
+        BigDecimal totalPrice = Optional.ofNullable(order.getTotalPrice()).orElse(BigDecimal.ZERO);
 
-                    .vehicleId(vehicle != null ? vehicle.getVehicleId() : null)
-                    .vehicleName(vehicle != null ? vehicle.getVehicleName() : null)
-                    .plateNumber(vehicle != null ? vehicle.getPlateNumber() : null)
+        return OrderVerificationResponse.builder()
+                .userId(customer.getUserId())
+                .orderId(order.getOrderId())
+                .customerName(customer.getFullName())
+                .phone(customer.getPhone())
 
-                    .startTime(rentalDetail != null ? rentalDetail.getStartTime() : null)
-                    .endTime(rentalDetail != null ? rentalDetail.getEndTime() : null)
+                .vehicleId(vehicle != null ? vehicle.getVehicleId() : null)
+                .vehicleName(vehicle != null ? vehicle.getVehicleName() : null)
+                .plateNumber(vehicle != null ? vehicle.getPlateNumber() : null)
 
-                    .totalPrice(totalPrice)
-                    .totalServices(totalServiceCost)
-                    .remainingAmount(remainingAmount)
+                .startTime(rentalDetail != null ? rentalDetail.getStartTime() : null)
+                .endTime(rentalDetail != null ? rentalDetail.getEndTime() : null)
 
-                    .status(order.getStatus())
-                    .userStatus(customer.getStatus().name())
-                    .stationId(station != null ? station.getStationId() : null)
-                    .build();
-        }).toList();
+                .totalPrice(totalPrice)
+                .totalServices(totalServiceCost)
+                .paidAmount(balance.paid())
+                .remainingAmount(balance.remaining())
+
+                .status(order.getStatus())
+                .userStatus(customer.getStatus().name())
+                .stationId(station != null ? station.getStationId() : null)
+                .build();
     }
 
 
@@ -1005,79 +1068,14 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                 .orElse(null);
     }
 
-    /**
-     * Tính số tiền còn lại chưa thanh toán
-     * Logic mới:
-     * - DEPOSIT: remainingAmount = total - deposit (bao gồm cả dịch vụ được thêm vào sau)
-     * - FULL_PAYMENT: remainingAmount = 0 ban đầu, cộng thêm dịch vụ khi thêm
-     * - PICKUP: Dựa vào remainingAmount của DEPOSIT hoặc FULL_PAYMENT
-     * - KHÔNG cộng SERVICE PENDING vì đã có trong remainingAmount của payment rồi
-     */
-    private BigDecimal calculateRemainingAmount(RentalOrder order) {
-        // Fetch payments từ repository để đảm bảo load đầy đủ (tránh lazy loading issue)
-        List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
-        
-        if (payments == null || payments.isEmpty()) {
-            // Chưa thanh toán gì → trả về totalPrice
-            BigDecimal totalPrice = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
-            return totalPrice;
-        }
-        
-        // Kiểm tra FULL_PAYMENT (type 3) SUCCESS
-        Optional<Payment> fullPayment = payments.stream()
-                .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
-        
-        if (fullPayment.isPresent()) {
-            // FULL_PAYMENT: remainingAmount đã bao gồm cả dịch vụ (ban đầu = 0, cộng thêm khi thêm dịch vụ)
-            BigDecimal remaining = fullPayment.get().getRemainingAmount();
-            BigDecimal result = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                    ? remaining 
-                    : BigDecimal.ZERO;
-            return result;
-        }
-        
-        // Kiểm tra FINAL_PAYMENT (type 2) SUCCESS → đã thanh toán hết phần còn lại của DEPOSIT
-        // Nhưng có thể còn remainingAmount của DEPOSIT (dịch vụ mới thêm)
-        boolean hasFinalPaymentSuccess = payments.stream()
-                .anyMatch(p -> p.getPaymentType() == 2 && p.getStatus() == PaymentStatus.SUCCESS);
-        if (hasFinalPaymentSuccess) {
-            // Đã thanh toán PICKUP, kiểm tra xem DEPOSIT còn remainingAmount không (dịch vụ mới)
-            Optional<Payment> depositPayment = payments.stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
-            
-            if (depositPayment.isPresent()) {
-                BigDecimal remaining = depositPayment.get().getRemainingAmount();
-                BigDecimal result = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                        ? remaining 
-                        : BigDecimal.ZERO;
-                return result;
-            }
-            // Đã thanh toán hết
-            return BigDecimal.ZERO;
-        }
-        
-        // Kiểm tra DEPOSIT (type 1) SUCCESS → lấy remainingAmount (đã bao gồm dịch vụ)
-        Optional<Payment> depositPayment = payments.stream()
-                .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
-        
-        if (depositPayment.isPresent()) {
-            // DEPOSIT: remainingAmount = phần còn lại từ đặt cọc + dịch vụ đã thêm
-            BigDecimal remaining = depositPayment.get().getRemainingAmount();
-            BigDecimal result = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                    ? remaining 
-                    : BigDecimal.ZERO;
-            return result;
-        }
-        
-        // Chưa thanh toán gì → trả về totalPrice
-        BigDecimal totalPrice = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
-        return totalPrice;
+    // Số dư đọc từ cột của đơn; luồng vừa đổi payment / totalPrice trong transaction thì truyền computeBalance
+    private OrderResponse mapToResponse(RentalOrder order, RentalOrderDetail detail) {
+        if (detail == null) return modelMapper.map(order, OrderResponse.class);
+        return mapToResponse(order, detail, orderBalanceCalculator.balance(order));
     }
 
-    private OrderResponse mapToResponse(RentalOrder order, RentalOrderDetail detail) {
+    private OrderResponse mapToResponse(RentalOrder order, RentalOrderDetail detail,
+                                        OrderBalanceCalculator.Balance balance) {
         if (detail == null) return modelMapper.map(order, OrderResponse.class);
 
         OrderResponse res = modelMapper.map(order, OrderResponse.class);
@@ -1089,9 +1087,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
         res.setCouponCode(order.getCoupon() != null ? order.getCoupon().getCode() : null);
         res.setTotalPrice(order.getTotalPrice());
 
-        // Lấy số tiền còn lại chưa thanh toán từ Payment
-        BigDecimal remainingAmount = calculateRemainingAmount(order);
-        res.setRemainingAmount(remainingAmount);
+        res.setPaidAmount(balance.paid());
+        res.setRemainingAmount(balance.remaining());
 
         if (v != null) {
             res.setPlateNumber(v.getPlateNumber());
@@ -1111,7 +1108,7 @@ public class RentalOrderServiceImpl implements RentalOrderService {
         return res;
     }
 
-    private OrderSimpleResponse mapToSimpleResponse(RentalOrder order) {
+    private OrderSimpleResponse mapToSimpleResponse(RentalOrder order, OrderBalanceCalculator.Balance balance) {
         OrderSimpleResponse res = OrderSimpleResponse.builder()
                 .orderId(order.getOrderId())
                 .createdAt(order.getCreatedAt())
@@ -1120,9 +1117,8 @@ public class RentalOrderServiceImpl implements RentalOrderService {
                 .couponCode(order.getCoupon() != null ? order.getCoupon().getCode() : null)
                 .build();
 
-        // Lấy số tiền còn lại chưa thanh toán từ Payment
-        BigDecimal remainingAmount = calculateRemainingAmount(order);
-        res.setRemainingAmount(remainingAmount);
+        res.setPaidAmount(balance.paid());
+        res.setRemainingAmount(balance.remaining());
 
         // Thông tin khách hàng
         if (order.getCustomer() != null) {
@@ -1248,32 +1244,28 @@ public class RentalOrderServiceImpl implements RentalOrderService {
     }
 
     /**
-     * Kiểm tra xem xe có booking trùng lặp trong khoảng thời gian không
-     * Cho phép multiple bookings nếu thời gian không trùng nhau
-     * Status: pending | confirmed | active | done | cancelled
+     * Ghi timeline BOOKED và flush ngay để exclusion constraint vehicle_timeline_no_overlap được kiểm tra
+     * Vi phạm (SQLState 23P01 - xe đã có BOOKED/RENTAL giao thời gian) → BadRequestException
      */
-    private boolean hasOverlappingActiveBooking(Long vehicleId, LocalDateTime requestStart, LocalDateTime requestEnd) {
-        // Lấy tất cả chi tiết đơn đang ACTIVE (pending, confirmed, active - không including done/cancelled)
-        List<RentalOrderDetail> activeDetails = rentalOrderDetailRepository
-                .findByVehicle_VehicleIdAndStatusIn(vehicleId, List.of("pending", "confirmed", "active"));
-
-        for (RentalOrderDetail detail : activeDetails) {
-            // Kiểm tra overlap: (start1 < end2) AND (end1 > start2)
-            LocalDateTime existingStart = detail.getStartTime();
-            LocalDateTime existingEnd = detail.getEndTime();
-
-            if (existingStart != null && existingEnd != null) {
-                // Nếu booking mới bắt đầu trước hoặc bằng lúc booking cũ kết thúc → OK
-                // Nếu booking mới kết thúc trước hoặc bằng lúc booking cũ bắt đầu → OK
-                // Nếu không thì bị overlap
-                boolean overlaps = requestStart.isBefore(existingEnd) && requestEnd.isAfter(existingStart);
-                if (overlaps) {
-                    return true; // Có overlap với booking đang active
-                }
+    private void saveBookingTimeline(VehicleTimeline timeline, String operation, String conflictMessage) {
+        try {
+            vehicleTimelineRepository.saveAndFlush(timeline);
+        } catch (DataIntegrityViolationException e) {
+            if (isBookingOverlap(e)) {
+                bookingLockMetrics.recordConflict(operation);
+                throw new BadRequestException(conflictMessage);
             }
+            throw e;
         }
+    }
 
-        return false; // Không có overlap
+    private boolean isBookingOverlap(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && "23P01".equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
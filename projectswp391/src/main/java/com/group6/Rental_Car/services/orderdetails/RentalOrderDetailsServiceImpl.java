@@ -13,6 +13,7 @@ import com.group6.Rental_Car.repositories.PaymentRepository;
 import com.group6.Rental_Car.repositories.RentalOrderDetailRepository;
 import com.group6.Rental_Car.repositories.RentalOrderRepository;
 import com.group6.Rental_Car.repositories.VehicleRepository;
+import com.group6.Rental_Car.services.payment.OrderBalanceCalculator;
 import com.group6.Rental_Car.services.vehicle.VehicleModelService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
@@ -37,6 +38,7 @@ import java.util.stream.Collectors;
         private final VehicleRepository vehicleRepository;
         private final ModelMapper modelMapper;
         private final PaymentRepository paymentRepository;
+        private final OrderBalanceCalculator orderBalanceCalculator;
         private final VehicleModelService vehicleModelService;
 
         // =====================================================
@@ -104,38 +106,8 @@ import java.util.stream.Collectors;
                 order.setTotalPrice(updatedTotal);
                 rentalOrderRepository.save(order);
 
-                // Cập nhật remainingAmount của payment (DEPOSIT hoặc FULL_PAYMENT)
-                List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
-
-                Optional<Payment> depositPayment = payments.stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst();
-
-                if (depositPayment.isPresent()) {
-                    Payment deposit = depositPayment.get();
-                    BigDecimal currentRemaining = deposit.getRemainingAmount() != null
-                            ? deposit.getRemainingAmount()
-                            : BigDecimal.ZERO;
-                    deposit.setRemainingAmount(currentRemaining.add(priceDifference));
-                    paymentRepository.save(deposit);
-                    System.out.println("✅ [updateDetail] Đã cập nhật remainingAmount cho deposit payment: " +
-                            currentRemaining + " + " + priceDifference + " = " + deposit.getRemainingAmount());
-                } else {
-                    Optional<Payment> fullPayment = payments.stream()
-                            .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                            .findFirst();
-
-                    if (fullPayment.isPresent()) {
-                        Payment full = fullPayment.get();
-                        BigDecimal currentRemaining = full.getRemainingAmount() != null
-                                ? full.getRemainingAmount()
-                                : BigDecimal.ZERO;
-                        full.setRemainingAmount(currentRemaining.add(priceDifference));
-                        paymentRepository.save(full);
-                        System.out.println("✅ [updateDetail] Đã cập nhật remainingAmount cho full payment: " +
-                                currentRemaining + " + " + priceDifference + " = " + full.getRemainingAmount());
-                    }
-                }
+                // Cộng chênh lệch vào số còn lại của payment đã thanh toán (DEPOSIT hoặc FULL_PAYMENT)
+                orderBalanceCalculator.adjustOutstanding(order, priceDifference);
             }
 
             return toResponse(savedDetail);
@@ -170,46 +142,8 @@ import java.util.stream.Collectors;
                 order.setTotalPrice(updatedTotal);
                 rentalOrderRepository.save(order);
 
-                // Trừ detailPrice khỏi remainingAmount của payment (DEPOSIT hoặc FULL_PAYMENT)
-                List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
-
-                Optional<Payment> depositPayment = payments.stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst();
-
-                if (depositPayment.isPresent()) {
-                    Payment deposit = depositPayment.get();
-                    BigDecimal currentRemaining = deposit.getRemainingAmount() != null
-                            ? deposit.getRemainingAmount()
-                            : BigDecimal.ZERO;
-                    BigDecimal updatedRemaining = currentRemaining.subtract(detailPrice);
-                    if (updatedRemaining.compareTo(BigDecimal.ZERO) < 0) {
-                        updatedRemaining = BigDecimal.ZERO;
-                    }
-                    deposit.setRemainingAmount(updatedRemaining);
-                    paymentRepository.save(deposit);
-                    System.out.println("✅ [deleteDetail] Đã cập nhật remainingAmount cho deposit payment: " +
-                            currentRemaining + " - " + detailPrice + " = " + deposit.getRemainingAmount());
-                } else {
-                    Optional<Payment> fullPayment = payments.stream()
-                            .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                            .findFirst();
-
-                    if (fullPayment.isPresent()) {
-                        Payment full = fullPayment.get();
-                        BigDecimal currentRemaining = full.getRemainingAmount() != null
-                                ? full.getRemainingAmount()
-                                : BigDecimal.ZERO;
-                        BigDecimal updatedRemaining = currentRemaining.subtract(detailPrice);
-                        if (updatedRemaining.compareTo(BigDecimal.ZERO) < 0) {
-                            updatedRemaining = BigDecimal.ZERO;
-                        }
-                        full.setRemainingAmount(updatedRemaining);
-                        paymentRepository.save(full);
-                        System.out.println("✅ [deleteDetail] Đã cập nhật remainingAmount cho full payment: " +
-                                currentRemaining + " - " + detailPrice + " = " + full.getRemainingAmount());
-                    }
-                }
+                // Trừ detailPrice khỏi số còn lại của payment đã thanh toán (DEPOSIT hoặc FULL_PAYMENT)
+                orderBalanceCalculator.adjustOutstanding(order, detailPrice.negate());
             }
         }
 
@@ -273,55 +207,8 @@ import java.util.stream.Collectors;
 
             List<RentalOrderDetail> raw = rentalOrderDetailRepository.findByOrder_OrderId(orderId);
 
-            // Lấy số tiền còn lại chưa thanh toán từ Payment
-            // Logic mới: remainingAmount đã bao gồm cả dịch vụ (không cần cộng thêm SERVICE PENDING)
-            BigDecimal remainingAmount;
-            
-            // Kiểm tra FULL_PAYMENT (type 3) SUCCESS
-            Optional<Payment> fullPayment = payments.stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
-            
-            if (fullPayment.isPresent()) {
-                BigDecimal remaining = fullPayment.get().getRemainingAmount();
-                remainingAmount = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                        ? remaining 
-                        : BigDecimal.ZERO;
-            } else {
-                // Kiểm tra FINAL_PAYMENT (type 2) SUCCESS
-                boolean hasFinalPaymentSuccess = payments.stream()
-                        .anyMatch(p -> p.getPaymentType() == 2 && p.getStatus() == PaymentStatus.SUCCESS);
-                if (hasFinalPaymentSuccess) {
-                    // Đã thanh toán PICKUP, kiểm tra xem DEPOSIT còn remainingAmount không (dịch vụ mới)
-                    Optional<Payment> depositPayment = payments.stream()
-                            .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                            .findFirst();
-                    
-                    if (depositPayment.isPresent()) {
-                        BigDecimal remaining = depositPayment.get().getRemainingAmount();
-                        remainingAmount = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                                ? remaining 
-                                : BigDecimal.ZERO;
-                    } else {
-                        remainingAmount = BigDecimal.ZERO;
-                    }
-                } else {
-                    // Kiểm tra DEPOSIT (type 1) SUCCESS
-                    Optional<Payment> depositPayment = payments.stream()
-                            .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                            .findFirst();
-                    
-                    if (depositPayment.isPresent()) {
-                        BigDecimal remaining = depositPayment.get().getRemainingAmount();
-                        remainingAmount = remaining != null && remaining.compareTo(BigDecimal.ZERO) > 0 
-                                ? remaining 
-                                : BigDecimal.ZERO;
-                    } else {
-                        // Chưa thanh toán gì → trả về totalPrice
-                        remainingAmount = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
-                    }
-                }
-            }
+            // Số tiền còn lại chưa thanh toán: đọc cột của đơn (trigger trên payment duy trì)
+            BigDecimal remainingAmount = orderBalanceCalculator.balance(order).remaining();
 
             // Kiểm tra có PICKUP SUCCESS không và đã thanh toán hết chưa
             boolean hasPickupSuccess = raw.stream()
@@ -4,10 +4,10 @@ import com.group6.Rental_Car.dtos.orderservice.OrderServiceCreateRequest;
 import com.group6.Rental_Car.dtos.orderservice.OrderServiceResponse;
 import com.group6.Rental_Car.dtos.orderservice.ServicePriceCreateRequest;
 import com.group6.Rental_Car.entities.*;
-import com.group6.Rental_Car.enums.PaymentStatus;
 import com.group6.Rental_Car.exceptions.BadRequestException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
 import com.group6.Rental_Car.repositories.*;
+import com.group6.Rental_Car.services.payment.OrderBalanceCalculator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,7 +27,7 @@ public class OrderServiceServiceImpl implements OrderServiceService {
     private final OrderServiceRepository orderServiceRepository;
     private final RentalOrderRepository rentalOrderRepository;
     private final RentalOrderDetailRepository rentalOrderDetailRepository;
-    private final PaymentRepository paymentRepository;
+    private final OrderBalanceCalculator orderBalanceCalculator;
 
     // ===============================
     //  TẠO DỊCH VỤ LIÊN QUAN ĐẾN ORDER
@@ -67,44 +67,8 @@ public class OrderServiceServiceImpl implements OrderServiceService {
         order.setTotalPrice(currentTotal.add(request.getCost()));
         rentalOrderRepository.save(order);
 
-        //  Cập nhật remainingAmount của payment nếu có
-        //  - Nếu có payment type 1 (deposit) SUCCESS → cập nhật remainingAmount = remainingAmount + giá dịch vụ
-        //  - Nếu có payment type 3 (full payment) SUCCESS → cập nhật remainingAmount = 0 + giá dịch vụ (cần thanh toán thêm)
-        List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
-        
-        // Tìm payment type 1 (deposit) SUCCESS
-        Optional<Payment> depositPayment = payments.stream()
-                .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
-        
-        if (depositPayment.isPresent()) {
-            Payment deposit = depositPayment.get();
-            BigDecimal currentRemaining = deposit.getRemainingAmount() != null 
-                    ? deposit.getRemainingAmount() 
-                    : BigDecimal.ZERO;
-            deposit.setRemainingAmount(currentRemaining.add(request.getCost()));
-            paymentRepository.save(deposit);
-            System.out.println("✅ [createService] Đã cập nhật remainingAmount cho deposit payment: " + 
-                    currentRemaining + " + " + request.getCost() + " = " + deposit.getRemainingAmount());
-        } else {
-            // Tìm payment type 3 (full payment) SUCCESS
-            Optional<Payment> fullPayment = payments.stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
-            
-            if (fullPayment.isPresent()) {
-                Payment full = fullPayment.get();
-                // Type 3 đã thanh toán hết, giờ cần thanh toán thêm dịch vụ
-                // Cộng thêm vào remainingAmount hiện tại (có thể đã có dịch vụ trước đó)
-                BigDecimal currentRemaining = full.getRemainingAmount() != null 
-                        ? full.getRemainingAmount() 
-                        : BigDecimal.ZERO;
-                full.setRemainingAmount(currentRemaining.add(request.getCost()));
-                paymentRepository.save(full);
-                System.out.println("✅ [createService] Đã cập nhật remainingAmount cho full payment: " + 
-                        currentRemaining + " + " + request.getCost() + " = " + full.getRemainingAmount());
-            }
-        }
+        //  Cộng giá dịch vụ vào số còn lại của payment đã thanh toán (DEPOSIT hoặc FULL_PAYMENT) nếu có
+        orderBalanceCalculator.adjustOutstanding(order, request.getCost());
 
         //  Tạo response từ RentalOrderDetail
         OrderServiceResponse response = new OrderServiceResponse();
@@ -0,0 +1,173 @@
+package com.group6.Rental_Car.services.payment;
+
+import com.group6.Rental_Car.entities.Payment;
+import com.group6.Rental_Car.entities.RentalOrder;
+import com.group6.Rental_Car.enums.PaymentStatus;
+import com.group6.Rental_Car.repositories.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Số tiền còn lại chưa thanh toán của đơn, tính từ Payment theo thứ tự ưu tiên:
+ * 1. FULL_PAYMENT (type 3) SUCCESS → remainingAmount của payment đó (đã gồm dịch vụ thêm sau)
+ * 2. FINAL_PAYMENT (type 2) SUCCESS → remainingAmount còn lại của DEPOSIT (dịch vụ mới), không có thì 0
+ * 3. DEPOSIT (type 1) SUCCESS → remainingAmount của DEPOSIT
+ * 4. Chưa thanh toán gì → totalPrice
+ * Cùng quy tắc với hàm rentalorder_compute_balance (db/rentalorder_balance.sql) đang duy trì
+ * cột rentalorder.paid_amount / remaining_amount.
+ * Khác code cũ (calculateRemainingAmount lấy findFirst theo thứ tự DB trả về, không cố định):
+ * nếu đơn lỡ có nhiều FULL_PAYMENT / DEPOSIT SUCCESS thì lấy remainingAmount LỚN NHẤT trong số đó,
+ * để kết quả không phụ thuộc thứ tự dòng, khớp MAX(...) trong SQL và không báo thiếu số tiền còn nợ.
+ * Đơn chỉ có 1 payment mỗi loại (trường hợp bình thường) cho kết quả như cũ.
+ * Luồng đọc lấy cột (balance / balances), luồng ghi tính lại từ Payment (computeBalance / remainingAmount).
+ * Phát sinh thêm (dịch vụ, phí trễ, sửa / xóa detail) đi qua {@link #adjustOutstanding} để sửa đúng payment
+ * mà quy tắc trên đọc; trigger trên payment cập nhật lại cột của đơn.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderBalanceCalculator {
+
+    private final PaymentRepository paymentRepository;
+
+    /**
+     * Đã thanh toán / còn lại của 1 đơn
+     */
+    public record Balance(BigDecimal paid, BigDecimal remaining) {
+    }
+
+    /**
+     * Tính trực tiếp từ Payment - dùng trong luồng ghi, khi cột trên entity có thể chưa phản ánh payment vừa lưu
+     */
+    public BigDecimal remainingAmount(RentalOrder order) {
+        return remainingAmount(order, paymentRepository.findByRentalOrder_OrderId(order.getOrderId()));
+    }
+
+    /**
+     * Luồng ghi: tính lại cả 2 số từ Payment
+     */
+    public Balance computeBalance(RentalOrder order) {
+        List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
+        return new Balance(paidAmount(payments), remainingAmount(order, payments));
+    }
+
+    /**
+     * Luồng đọc: lấy cột do trigger duy trì, đơn chưa có cột (chưa backfill / vừa tạo trong transaction) mới đọc payment
+     */
+    public Balance balance(RentalOrder order) {
+        if (order.getRemainingAmount() != null && order.getPaidAmount() != null) {
+            return new Balance(order.getPaidAmount(), order.getRemainingAmount());
+        }
+        return computeBalance(order);
+    }
+
+    /**
+     * orderId → số dư cho danh sách đơn: đọc cột,
+     * chỉ những đơn chưa có cột mới đọc payment, gộp trong 1 query
+     */
+    public Map<UUID, Balance> balances(Collection<RentalOrder> orders) {
+        if (orders.isEmpty()) return Map.of();
+
+        Map<UUID, Balance> result = new HashMap<>(orders.size() * 2);
+        List<RentalOrder> missing = new ArrayList<>();
+        for (RentalOrder order : orders) {
+            if (order.getRemainingAmount() != null && order.getPaidAmount() != null) {
+                result.put(order.getOrderId(), new Balance(order.getPaidAmount(), order.getRemainingAmount()));
+            } else {
+                missing.add(order);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<UUID, List<Payment>> paymentsByOrder = paymentsByOrder(missing);
+            for (RentalOrder order : missing) {
+                List<Payment> payments = paymentsByOrder.getOrDefault(order.getOrderId(), List.of());
+                result.put(order.getOrderId(), new Balance(paidAmount(payments), remainingAmount(order, payments)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cộng delta (âm khi giảm) vào remainingAmount của payment mà quy tắc remaining đang đọc:
+     * FULL_PAYMENT SUCCESS nếu có, không thì DEPOSIT SUCCESS (lấy dòng remainingAmount lớn nhất như trên).
+     * Đơn chưa thanh toán thì không có gì để sửa: remaining = totalPrice, nơi gọi tự cập nhật totalPrice.
+     * Kết quả không âm.
+     */
+    public void adjustOutstanding(RentalOrder order, BigDecimal delta) {
+        if (delta == null || delta.signum() == 0) return;
+
+        List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
+        Payment target = null;
+        for (int type : new int[]{3, 1}) {
+            for (Payment p : payments) {
+                if (p.getStatus() != PaymentStatus.SUCCESS || p.getPaymentType() != type) continue;
+                if (target == null || remainingOf(p).compareTo(remainingOf(target)) > 0) {
+                    target = p;
+                }
+            }
+            if (target != null) break;
+        }
+        if (target == null) return;
+
+        target.setRemainingAmount(positiveOrZero(remainingOf(target).add(delta)));
+        paymentRepository.save(target);
+    }
+
+    public Map<UUID, List<Payment>> paymentsByOrder(Collection<RentalOrder> orders) {
+        if (orders.isEmpty()) return Map.of();
+        List<UUID> orderIds = orders.stream().map(RentalOrder::getOrderId).toList();
+        return paymentRepository.findByRentalOrder_OrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(p -> p.getRentalOrder().getOrderId()));
+    }
+
+    public BigDecimal remainingAmount(RentalOrder order, List<Payment> payments) {
+        boolean hasFull = false, hasFinal = false, hasDeposit = false;
+        BigDecimal fullRemaining = null, depositRemaining = null;
+        for (Payment p : payments) {
+            if (p.getStatus() != PaymentStatus.SUCCESS) continue;
+            switch (p.getPaymentType()) {
+                case 3 -> {
+                    hasFull = true;
+                    // Nhiều payment cùng loại → lấy giá trị lớn nhất (xem javadoc lớp)
+                    fullRemaining = max(fullRemaining, p.getRemainingAmount());
+                }
+                case 2 -> hasFinal = true;
+                case 1 -> {
+                    hasDeposit = true;
+                    depositRemaining = max(depositRemaining, p.getRemainingAmount());
+                }
+                default -> { }
+            }
+        }
+
+        if (hasFull) return positiveOrZero(fullRemaining);
+        if (hasFinal || hasDeposit) return positiveOrZero(depositRemaining);
+        return order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Tổng đã thanh toán = tổng amount các payment SUCCESS (REFUND lưu số âm)
+     */
+    public BigDecimal paidAmount(List<Payment> payments) {
+        return payments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS && p.getAmount() != null)
+                .map(Payment::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal remainingOf(Payment payment) {
+        return payment.getRemainingAmount() != null ? payment.getRemainingAmount() : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal max(BigDecimal current, BigDecimal candidate) {
+        if (candidate == null) return current;
+        return current == null || candidate.compareTo(current) > 0 ? candidate : current;
+    }
+
+    private static BigDecimal positiveOrZero(BigDecimal amount) {
+        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0 ? amount : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,139 @@
+package com.group6.Rental_Car.services.payment;
+
+import com.group6.Rental_Car.entities.Payment;
+import com.group6.Rental_Car.entities.RentalOrder;
+import com.group6.Rental_Car.entities.RentalOrderDetail;
+import com.group6.Rental_Car.entities.Vehicle;
+import com.group6.Rental_Car.enums.PaymentStatus;
+import com.group6.Rental_Car.exceptions.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Order + toàn bộ detail + payment của order, nạp 1 lần cho 1 thao tác thanh toán
+ * (xem {@link OrderPaymentSnapshotLoader}). Các nhánh đặt cọc / thanh toán cuối / toàn bộ / dịch vụ
+ * đọc qua đây thay vì truy vấn lại; detail / payment tạo mới hoặc xóa phải báo lại để snapshot luôn khớp.
+ * Chỉ dùng trong transaction đã nạp nó.
+ */
+public final class OrderPaymentSnapshot {
+
+    public static final short DEPOSIT = 1;
+    public static final short FINAL = 2;
+    public static final short FULL = 3;
+    public static final short REFUND = 4;
+    public static final short SERVICE = 5;
+
+    private final RentalOrder order;
+    private final List<RentalOrderDetail> details;
+    private final List<Payment> payments;
+
+    OrderPaymentSnapshot(RentalOrder order, List<RentalOrderDetail> details, List<Payment> payments) {
+        this.order = order;
+        this.details = new ArrayList<>(details);
+        this.payments = new ArrayList<>(payments);
+    }
+
+    public RentalOrder order() {
+        return order;
+    }
+
+    public List<Payment> payments() {
+        return List.copyOf(payments);
+    }
+
+    // ========================
+    //  PAYMENT
+    // ========================
+
+    public Optional<Payment> successfulDeposit() {
+        return firstPayment(DEPOSIT, PaymentStatus.SUCCESS);
+    }
+
+    public Optional<Payment> successfulFull() {
+        return firstPayment(FULL, PaymentStatus.SUCCESS);
+    }
+
+    public boolean hasSuccessfulFinal() {
+        return firstPayment(FINAL, PaymentStatus.SUCCESS).isPresent();
+    }
+
+    public Optional<Payment> firstSuccessful() {
+        return payments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
+                .findFirst();
+    }
+
+    /**
+     * Payment PENDING loại type có method thỏa điều kiện (method có thể null)
+     */
+    public Optional<Payment> pending(short type, Predicate<String> methodFilter) {
+        return payments.stream()
+                .filter(p -> p.getPaymentType() == type && p.getStatus() == PaymentStatus.PENDING)
+                .filter(p -> methodFilter.test(p.getMethod()))
+                .findFirst();
+    }
+
+    public List<Payment> pendingWithMethod(String method) {
+        return payments.stream()
+                .filter(p -> method.equalsIgnoreCase(p.getMethod()))
+                .filter(p -> p.getStatus() == PaymentStatus.PENDING)
+                .toList();
+    }
+
+    public Payment addPayment(Payment payment) {
+        if (payments.stream().noneMatch(p -> p == payment)) {
+            payments.add(payment);
+        }
+        return payment;
+    }
+
+    // ========================
+    //  DETAIL
+    // ========================
+
+    public Optional<RentalOrderDetail> detail(String type) {
+        return details.stream()
+                .filter(d -> type.equalsIgnoreCase(d.getType()))
+                .findFirst();
+    }
+
+    public List<RentalOrderDetail> details(String type) {
+        return details.stream()
+                .filter(d -> type.equalsIgnoreCase(d.getType()))
+                .toList();
+    }
+
+    public RentalOrderDetail rentalDetail() {
+        return detail("RENTAL")
+                .orElseThrow(() -> new BadRequestException("Missing RENTAL detail for order"));
+    }
+
+    public Vehicle mainVehicle() {
+        return detail("RENTAL")
+                .map(RentalOrderDetail::getVehicle)
+                .orElseThrow(() -> new BadRequestException("Missing RENTAL detail"));
+    }
+
+    public boolean hasServiceDetails() {
+        return detail("SERVICE").isPresent();
+    }
+
+    public RentalOrderDetail addDetail(RentalOrderDetail detail) {
+        details.add(detail);
+        return detail;
+    }
+
+    public void removeDetails(Collection<RentalOrderDetail> removed) {
+        details.removeIf(d -> removed.stream().anyMatch(r -> r == d));
+    }
+
+    private Optional<Payment> firstPayment(short type, PaymentStatus status) {
+        return payments.stream()
+                .filter(p -> p.getPaymentType() == type && p.getStatus() == status)
+                .findFirst();
+    }
+}
@@ -0,0 +1,38 @@
+package com.group6.Rental_Car.services.payment;
+
+import com.group6.Rental_Car.entities.RentalOrder;
+import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
+import com.group6.Rental_Car.repositories.PaymentRepository;
+import com.group6.Rental_Car.repositories.RentalOrderDetailRepository;
+import com.group6.Rental_Car.repositories.RentalOrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Nạp {@link OrderPaymentSnapshot}: order, detail và payment mỗi thứ đúng 1 câu truy vấn
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderPaymentSnapshotLoader {
+
+    private final RentalOrderRepository rentalOrderRepository;
+    private final RentalOrderDetailRepository rentalOrderDetailRepository;
+    private final PaymentRepository paymentRepository;
+
+    public OrderPaymentSnapshot load(UUID orderId) {
+        RentalOrder order = rentalOrderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        return load(order);
+    }
+
+    /**
+     * Dùng khi order đã có sẵn (ví dụ lấy từ payment), chỉ nạp thêm detail + payment
+     */
+    public OrderPaymentSnapshot load(RentalOrder order) {
+        return new OrderPaymentSnapshot(order,
+                rentalOrderDetailRepository.findByOrder_OrderId(order.getOrderId()),
+                paymentRepository.findByRentalOrder_OrderId(order.getOrderId()));
+    }
+}
@@ -1,6 +1,5 @@
 package com.group6.Rental_Car.services.payment;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.group6.Rental_Car.config.MoMoConfig;
 import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentRequest;
 import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentResponse;
@@ -11,28 +10,26 @@ import com.group6.Rental_Car.enums.PaymentStatus;
 import com.group6.Rental_Car.exceptions.BadRequestException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
 import com.group6.Rental_Car.repositories.*;
-import com.group6.Rental_Car.utils.Utils;
+import com.group6.Rental_Car.services.payment.momo.MoMoGatewayClient;
+import com.group6.Rental_Car.services.payment.momo.MoMoOrderId;
+import com.group6.Rental_Car.services.payment.momo.MoMoSigner;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentServiceImpl implements PaymentService {
 
     private final MoMoConfig momoConfig;
-    private final ObjectMapper objectMapper;
     private final RentalOrderRepository rentalOrderRepository;
     private final RentalOrderDetailRepository rentalOrderDetailRepository;
     private final PaymentRepository paymentRepository;
@@ -40,21 +37,41 @@ public class PaymentServiceImpl implements PaymentService {
     private final UserRepository userRepository;
     private final VehicleRepository vehicleRepository;
     private final VehicleTimelineRepository vehicleTimelineRepository;
-
+    private final MoMoGatewayClient momoGatewayClient;
+    private final MoMoSigner momoSigner;
+    private final OrderPaymentSnapshotLoader snapshotLoader;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Ghi payment PENDING trong 1 transaction ngắn, commit xong mới gọi MoMo
+     * để thời gian chờ MoMo không giữ connection DB (pool chỉ có vài connection).
+     * MoMo lỗi thì bù lại đúng những gì lần gọi này đã ghi (xem revertPendingPayment).
+     */
     @Override
-    @Transactional
     public PaymentResponse createPaymentUrl(PaymentDto dto, UUID userId) {
+        PendingMoMoPayment pending = transactionTemplate.execute(status -> preparePayment(dto, userId));
+        try {
+            return requestMoMoPayment(pending);
+        } catch (RuntimeException e) {
+            log.warn("Tạo link MoMo thất bại cho payment {}: {}", pending.paymentId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> revertPendingPayment(pending));
+            throw e;
+        }
+    }
+
+    private PendingMoMoPayment preparePayment(PaymentDto dto, UUID userId) {
         userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        RentalOrder order = rentalOrderRepository.findById(dto.getOrderId())
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        OrderPaymentSnapshot snapshot = snapshotLoader.load(dto.getOrderId());
+        RentalOrder order = snapshot.order();
+        String previousStatus = order.getStatus();
 
         short type = dto.getPaymentType();
         if (type < 1 || type > 5)
             throw new BadRequestException("Invalid payment type");
 
-        Vehicle vehicle = getMainVehicle(order);
+        Vehicle vehicle = snapshot.mainVehicle();
         BigDecimal total = order.getTotalPrice();
 
         String method = dto.getMethod();
@@ -74,15 +91,9 @@ public class PaymentServiceImpl implements PaymentService {
             amount = total.divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
             remainingAmount = total.subtract(amount);
         } else if (type == 2) {
-            Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
-            Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
             if (depositPaymentOpt.isPresent()) {
                 Payment depositPayment = depositPaymentOpt.get();
@@ -105,33 +116,26 @@ public class PaymentServiceImpl implements PaymentService {
 
             remainingAmount = BigDecimal.ZERO;
 
-            Payment existingFinalPayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 2 && p.getStatus() == PaymentStatus.PENDING)
-                    .findFirst()
+            Payment existingFinalPayment = snapshot.pending(OrderPaymentSnapshot.FINAL, m -> true)
                     .orElse(null);
 
             if (existingFinalPayment != null) {
+                PaymentState previous = PaymentState.of(existingFinalPayment);
                 existingFinalPayment.setAmount(amount);
                 existingFinalPayment.setRemainingAmount(BigDecimal.ZERO);
                 existingFinalPayment.setMethod(method);
                 Payment payment = paymentRepository.save(existingFinalPayment);
                 updateOrderStatus(order, type);
-                return buildMoMoPaymentUrl(order, payment, amount);
+                return pendingMoMoPayment(order, payment, amount, previousStatus,
+                        new PaymentUndo(previous, List.of(), List.of()));
             }
         } else if (type == 3) {
             amount = total;
             remainingAmount = BigDecimal.ZERO;
         } else if (type == 5) {
-            Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
-            Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
             if (fullPaymentOpt.isPresent()) {
                 Payment fullPayment = fullPaymentOpt.get();
@@ -154,23 +158,18 @@ public class PaymentServiceImpl implements PaymentService {
             remainingAmount = BigDecimal.ZERO;
 
             List<String> momoMethods = List.of("captureWallet", "payWithMethod", "momo");
-            Payment existingMoMoServicePayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 5 && p.getStatus() == PaymentStatus.PENDING)
-                    .filter(p -> {
-                        String pMethod = p.getMethod();
-                        return pMethod != null && momoMethods.contains(pMethod);
-                    })
-                    .findFirst()
+            Payment existingMoMoServicePayment = snapshot.pending(OrderPaymentSnapshot.SERVICE, m -> m != null && momoMethods.contains(m))
                     .orElse(null);
 
             if (existingMoMoServicePayment != null) {
+                PaymentState previous = PaymentState.of(existingMoMoServicePayment);
                 existingMoMoServicePayment.setAmount(amount);
                 existingMoMoServicePayment.setRemainingAmount(BigDecimal.ZERO);
                 existingMoMoServicePayment.setMethod(method);
                 Payment payment = paymentRepository.save(existingMoMoServicePayment);
                 updateOrderStatus(order, type);
-                return buildMoMoPaymentUrl(order, payment, amount);
+                return pendingMoMoPayment(order, payment, amount, previousStatus,
+                        new PaymentUndo(previous, List.of(), List.of()));
             }
         } else {
             amount = BigDecimal.ZERO;
@@ -179,10 +178,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         if (type == 2) {
             if (amount.compareTo(total) == 0) {
-                Payment depositPayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                        .stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst()
+                Payment depositPayment = snapshot.successfulDeposit()
                         .orElse(null);
                 if (depositPayment != null) {
                     BigDecimal correctAmount = depositPayment.getRemainingAmount();
@@ -194,7 +190,7 @@ public class PaymentServiceImpl implements PaymentService {
             }
         }
 
-        Payment payment = paymentRepository.save(
+        Payment payment = snapshot.addPayment(paymentRepository.save(
                 Payment.builder()
                         .rentalOrder(order)
                         .amount(amount)
@@ -203,67 +199,34 @@ public class PaymentServiceImpl implements PaymentService {
                         .paymentType(type)
                         .status(PaymentStatus.PENDING)
                         .build()
-        );
+        ));
 
         updateOrderStatus(order, type);
 
+        // Ghi lại detail tạo mới / trạng thái cũ của detail bị sửa để bù nếu MoMo lỗi
+        List<Long> createdDetailIds = new ArrayList<>();
+        List<DetailState> previousDetails = new ArrayList<>();
+
         if (type != 2 && type != 5) {
-            createOrUpdateDetail(order, vehicle, getTypeName(type), amount, getDescription(type), "PENDING");
+            String detailType = getTypeName(type);
+            Optional<RentalOrderDetail> existing = snapshot.detail(detailType);
+            existing.map(DetailState::of).ifPresent(previousDetails::add);
+            createOrUpdateDetail(snapshot, vehicle, detailType, amount, getDescription(type), "PENDING");
+            if (existing.isEmpty()) {
+                snapshot.detail(detailType).ifPresent(d -> createdDetailIds.add(d.getDetailId()));
+            }
         }
 
         if (type == 2) {
-            List<RentalOrderDetail> allDetails = rentalOrderDetailRepository.findByOrder_OrderId(order.getOrderId());
-            RentalOrderDetail rentalDetail = allDetails.stream()
-                    .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                    .findFirst()
-                    .orElseThrow(() -> new BadRequestException("Missing RENTAL detail for order"));
-
-            Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
-
-            BigDecimal pickupPrice;
-            if (depositPaymentOpt.isPresent()) {
-                Payment depositPayment = depositPaymentOpt.get();
-                BigDecimal depositRemaining = depositPayment.getRemainingAmount();
-                
-                if (depositRemaining != null && depositRemaining.compareTo(BigDecimal.ZERO) > 0) {
-                    pickupPrice = depositRemaining;
-                } else {
-                    pickupPrice = amount;
-                }
-            } else {
-                pickupPrice = amount;
-            }
-
-            RentalOrderDetail existingPickupDetail = allDetails.stream()
-                    .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (existingPickupDetail == null) {
-                Vehicle pickupVehicle = rentalDetail.getVehicle();
-                if (pickupVehicle == null) {
-                    throw new BadRequestException("Missing vehicle in RENTAL detail");
-                }
-
-                RentalOrderDetail pickupDetail = RentalOrderDetail.builder()
-                        .order(order)
-                        .vehicle(pickupVehicle)
-                        .type("PICKUP")
-                        .startTime(rentalDetail.getStartTime())
-                        .endTime(rentalDetail.getEndTime())
-                        .price(pickupPrice)
-                        .status("PENDING")
-                        .description("Thanh toán thuê xe")
-                        .build();
-
-                rentalOrderDetailRepository.save(pickupDetail);
+            boolean hadPickup = snapshot.detail("PICKUP").isPresent();
+            createPendingPickupDetail(snapshot, amount);
+            if (!hadPickup) {
+                snapshot.detail("PICKUP").ifPresent(d -> createdDetailIds.add(d.getDetailId()));
             }
         }
 
-        return buildMoMoPaymentUrl(order, payment, amount);
+        return pendingMoMoPayment(order, payment, amount, previousStatus,
+                new PaymentUndo(null, createdDetailIds, previousDetails));
     }
 
     @Override
@@ -273,41 +236,37 @@ public class PaymentServiceImpl implements PaymentService {
         if (orderId == null)
             throw new BadRequestException("Missing orderId in MoMo callback");
 
-        String raw = orderId.split("-")[0];
-        String uuid = raw.replaceFirst(
-                "(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})",
-                "$1-$2-$3-$4-$5"
-        );
-
-        Payment payment = paymentRepository.findById(UUID.fromString(uuid))
+        Payment payment = paymentRepository.findById(MoMoOrderId.paymentIdOf(orderId))
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
 
         RentalOrder order = payment.getRentalOrder();
 
+        // IPN và /verify có thể cùng báo 1 giao dịch: đã ghi nhận thành công thì không xử lý lại
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
+            return buildCallbackResponse(order, payment, true);
+        }
+
         String resultCode = params.get("resultCode");
         boolean ok = "0".equals(resultCode);
 
         if (!ok) {
             payment.setStatus(PaymentStatus.FAILED);
-            order.setStatus("PAYMENT_FAILED");
             paymentRepository.save(payment);
-            rentalOrderRepository.save(order);
+            // Chỉ đặt cọc / thanh toán toàn bộ thất bại mới làm hỏng đơn;
+            // thanh toán cuối / dịch vụ thất bại thì đơn (đang thuê...) giữ nguyên, khách trả lại sau
+            if (payment.getPaymentType() == OrderPaymentSnapshot.DEPOSIT
+                    || payment.getPaymentType() == OrderPaymentSnapshot.FULL) {
+                order.setStatus("PAYMENT_FAILED");
+                rentalOrderRepository.save(order);
+            }
             return buildCallbackResponse(order, payment, false);
         }
 
+        OrderPaymentSnapshot snapshot = snapshotLoader.load(order);
         payment.setStatus(PaymentStatus.SUCCESS);
 
-        switch (payment.getPaymentType()) {
-            case 1 -> {
-                Vehicle v = getMainVehicle(order);
-                depositSuccess(order, payment, v);
-            }
-            case 2 -> finalSuccess(order, payment);
-            case 3 -> {
-                Vehicle v = getMainVehicle(order);
-                fullSuccess(order, payment, v);
-            }
-            case 5 -> servicePaymentSuccess(order, payment);
+        if (payment.getPaymentType() != 4) {
+            applyPaymentSuccess(snapshot, payment);
         }
 
         paymentRepository.save(payment);
@@ -318,7 +277,8 @@ public class PaymentServiceImpl implements PaymentService {
         return buildCallbackResponse(order, payment, true);
     }
 
-    private void depositSuccess(RentalOrder order, Payment payment, Vehicle v) {
+    private void depositSuccess(OrderPaymentSnapshot snapshot, Payment payment) {
+        RentalOrder order = snapshot.order();
         order.setStatus("DEPOSITED");
         BigDecimal deposit = payment.getAmount();
         BigDecimal totalPrice = order.getTotalPrice();
@@ -327,27 +287,16 @@ public class PaymentServiceImpl implements PaymentService {
         payment.setRemainingAmount(remainingAmount);
         paymentRepository.save(payment);
         
-        createOrUpdateDetail(order, v, "DEPOSIT", deposit, "Đặt cọc giữ xe", "SUCCESS");
+        createOrUpdateDetail(snapshot, snapshot.mainVehicle(), "DEPOSIT", deposit, "Đặt cọc giữ xe", "SUCCESS");
     }
 
-    private void finalSuccess(RentalOrder order, Payment payment) {
+    private void finalSuccess(OrderPaymentSnapshot snapshot, Payment payment) {
         payment.setRemainingAmount(BigDecimal.ZERO);
 
-        UUID orderId = order.getOrderId();
-        
-        order = rentalOrderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
-        
-        List<RentalOrderDetail> allDetails = rentalOrderDetailRepository.findByOrder_OrderId(orderId);
-        RentalOrderDetail rentalDetail = allDetails.stream()
-                .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                .findFirst()
-                .orElseThrow(() -> new BadRequestException("Missing RENTAL detail for order"));
-        
-        Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(orderId)
-                .stream()
-                .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
+        RentalOrder order = snapshot.order();
+        snapshot.rentalDetail();
+
+        Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
         if (depositPaymentOpt.isPresent()) {
             Payment depositPayment = depositPaymentOpt.get();
@@ -372,55 +321,33 @@ public class PaymentServiceImpl implements PaymentService {
             depositPayment.setRemainingAmount(newRemaining);
             paymentRepository.save(depositPayment);
             
-            RentalOrderDetail pickupDetail = rentalOrderDetailRepository.findByOrder_OrderId(orderId)
-                    .stream()
-                    .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                    .findFirst()
+            RentalOrderDetail pickupDetail = snapshot.detail("PICKUP")
                     .orElseThrow(() -> new BadRequestException("PICKUP detail not found. Please create payment URL first."));
 
             pickupDetail.setStatus("SUCCESS");
             pickupDetail.setPrice(currentRemaining);
             pickupDetail.setDescription("Thanh toán thuê xe");
             rentalOrderDetailRepository.save(pickupDetail);
-            rentalOrderDetailRepository.flush();
-
-            List<RentalOrderDetail> allPickupDetails = rentalOrderDetailRepository.findByOrder_OrderId(orderId)
-                    .stream()
-                    .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                    .collect(java.util.stream.Collectors.toList());
-
-            if (allPickupDetails.size() > 1 && pickupDetail != null) {
-                List<RentalOrderDetail> duplicatesToDelete = new java.util.ArrayList<>();
-                for (RentalOrderDetail d : allPickupDetails) {
-                    if (!d.getDetailId().equals(pickupDetail.getDetailId())) {
-                        duplicatesToDelete.add(d);
-                    }
-                }
-                if (!duplicatesToDelete.isEmpty()) {
-                    rentalOrderDetailRepository.deleteAll(duplicatesToDelete);
-                }
-            }
+
+            deleteDuplicateDetails(snapshot, "PICKUP", pickupDetail);
 
             if (newRemaining.compareTo(BigDecimal.ZERO) == 0) {
-                markServiceDetailsAsSuccess(order);
-                updateOrderStatusAfterPayment(order);
+                markServiceDetailsAsSuccess(snapshot);
+                updateOrderStatusAfterPayment(snapshot);
             } else {
                 order.setStatus("PENDING_FINAL_PAYMENT");
             }
             return;
         }
 
-        Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                .stream()
-                .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
+        Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
         if (fullPaymentOpt.isPresent()) {
             Payment fullPayment = fullPaymentOpt.get();
             BigDecimal outstanding = Optional.ofNullable(fullPayment.getRemainingAmount()).orElse(BigDecimal.ZERO);
 
             if (outstanding.compareTo(BigDecimal.ZERO) <= 0) {
-                updateOrderStatusAfterPayment(order);
+                updateOrderStatusAfterPayment(snapshot);
                 return;
             }
 
@@ -434,106 +361,87 @@ public class PaymentServiceImpl implements PaymentService {
             paymentRepository.save(fullPayment);
 
             if (newRemaining.compareTo(BigDecimal.ZERO) == 0) {
-                markServiceDetailsAsSuccess(order);
-                updateOrderStatusAfterPayment(order);
+                markServiceDetailsAsSuccess(snapshot);
+                updateOrderStatusAfterPayment(snapshot);
             } else {
                 order.setStatus("PENDING_FINAL_PAYMENT");
             }
         } else {
-            RentalOrderDetail pickupDetail = rentalOrderDetailRepository.findByOrder_OrderId(orderId)
-                    .stream()
-                    .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                    .findFirst()
+            RentalOrderDetail pickupDetail = snapshot.detail("PICKUP")
                     .orElseThrow(() -> new BadRequestException("PICKUP detail not found. Please create payment URL first."));
 
             pickupDetail.setStatus("SUCCESS");
             pickupDetail.setPrice(payment.getAmount());
             pickupDetail.setDescription("Thanh toán thuê xe");
             rentalOrderDetailRepository.save(pickupDetail);
-            rentalOrderDetailRepository.flush();
 
-            updateOrderStatusAfterPayment(order);
+            updateOrderStatusAfterPayment(snapshot);
         }
     }
 
-    private void createOrUpdatePickupDetail(RentalOrder order, BigDecimal amount) {
-        UUID orderId = order.getOrderId();
-        
-        order = rentalOrderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+    /**
+     * Tạo PICKUP detail PENDING cho thanh toán cuối (type 2) nếu chưa có
+     */
+    private void createPendingPickupDetail(OrderPaymentSnapshot snapshot, BigDecimal amount) {
+        RentalOrderDetail rentalDetail = snapshot.rentalDetail();
 
-        Vehicle vehicle = getMainVehicle(order);
-        if (vehicle == null) {
-            return;
-        }
+        Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
-        List<RentalOrderDetail> allPickupDetails = rentalOrderDetailRepository.findByOrder_OrderId(orderId)
-                .stream()
-                .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                .collect(java.util.stream.Collectors.toList());
-
-        if (!allPickupDetails.isEmpty()) {
-            RentalOrderDetail detailToUpdate = allPickupDetails.stream()
-                    .sorted((d1, d2) -> {
-                        boolean d1Pending = "PENDING".equalsIgnoreCase(d1.getStatus());
-                        boolean d2Pending = "PENDING".equalsIgnoreCase(d2.getStatus());
-                        if (d1Pending && !d2Pending) return -1;
-                        if (!d1Pending && d2Pending) return 1;
-                        return 0;
-                    })
-                    .findFirst()
-                    .orElse(allPickupDetails.get(0));
-
-            detailToUpdate.setStatus("SUCCESS");
-            detailToUpdate.setPrice(amount);
-            detailToUpdate.setDescription("Thanh toán thuê xe");
-            rentalOrderDetailRepository.save(detailToUpdate);
-
-            if (allPickupDetails.size() > 1) {
-                List<RentalOrderDetail> duplicatesToDelete = new java.util.ArrayList<>();
-                for (RentalOrderDetail d : allPickupDetails) {
-                    if (!d.getDetailId().equals(detailToUpdate.getDetailId())) {
-                        duplicatesToDelete.add(d);
-                    }
-                }
-                
-                if (!duplicatesToDelete.isEmpty()) {
-                    rentalOrderDetailRepository.deleteAll(duplicatesToDelete);
-                }
-            }
-        } else {
-            List<RentalOrderDetail> doubleCheck = rentalOrderDetailRepository.findByOrder_OrderId(orderId)
-                    .stream()
-                    .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                    .collect(java.util.stream.Collectors.toList());
+        BigDecimal pickupPrice;
+        if (depositPaymentOpt.isPresent()) {
+            Payment depositPayment = depositPaymentOpt.get();
+            BigDecimal depositRemaining = depositPayment.getRemainingAmount();
             
-            if (doubleCheck.isEmpty()) {
-                createDetail(order, vehicle, "PICKUP", amount, "Thanh toán thuê xe", "SUCCESS");
+            if (depositRemaining != null && depositRemaining.compareTo(BigDecimal.ZERO) > 0) {
+                pickupPrice = depositRemaining;
             } else {
-                RentalOrderDetail existingDetail = doubleCheck.get(0);
-                existingDetail.setStatus("SUCCESS");
-                existingDetail.setPrice(amount);
-                existingDetail.setDescription("Thanh toán thuê xe");
-                rentalOrderDetailRepository.save(existingDetail);
-                
-                if (doubleCheck.size() > 1) {
-                    List<RentalOrderDetail> duplicatesToDelete = new java.util.ArrayList<>();
-                    for (RentalOrderDetail d : doubleCheck) {
-                        if (!d.getDetailId().equals(existingDetail.getDetailId())) {
-                            duplicatesToDelete.add(d);
-                        }
-                    }
-                    if (!duplicatesToDelete.isEmpty()) {
-                        rentalOrderDetailRepository.deleteAll(duplicatesToDelete);
-                    }
-                }
+                pickupPrice = amount;
             }
+        } else {
+            pickupPrice = amount;
         }
+
+        if (snapshot.detail("PICKUP").isPresent()) {
+            return;
+        }
+
+        Vehicle pickupVehicle = rentalDetail.getVehicle();
+        if (pickupVehicle == null) {
+            throw new BadRequestException("Missing vehicle in RENTAL detail");
+        }
+
+        RentalOrderDetail pickupDetail = RentalOrderDetail.builder()
+                .order(snapshot.order())
+                .vehicle(pickupVehicle)
+                .type("PICKUP")
+                .startTime(rentalDetail.getStartTime())
+                .endTime(rentalDetail.getEndTime())
+                .price(pickupPrice)
+                .status("PENDING")
+                .description("Thanh toán thuê xe")
+                .build();
+
+        snapshot.addDetail(rentalOrderDetailRepository.save(pickupDetail));
     }
 
-    private void updateOrderStatusAfterPayment(RentalOrder order) {
-        order = rentalOrderRepository.findById(order.getOrderId())
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+    /**
+     * Xóa các detail cùng loại bị tạo trùng, chỉ giữ lại keep.
+     * Flush rồi đọc lại từ DB (không dùng snapshot) để thấy cả detail trùng do request song song tạo sau khi nạp snapshot
+     */
+    private void deleteDuplicateDetails(OrderPaymentSnapshot snapshot, String type, RentalOrderDetail keep) {
+        rentalOrderDetailRepository.flush();
+        List<RentalOrderDetail> duplicates = rentalOrderDetailRepository.findByOrder_OrderId(snapshot.order().getOrderId()).stream()
+                .filter(d -> type.equalsIgnoreCase(d.getType()))
+                .filter(d -> !d.getDetailId().equals(keep.getDetailId()))
+                .toList();
+        if (!duplicates.isEmpty()) {
+            rentalOrderDetailRepository.deleteAll(duplicates);
+            snapshot.removeDetails(duplicates);
+        }
+    }
+
+    private void updateOrderStatusAfterPayment(OrderPaymentSnapshot snapshot) {
+        RentalOrder order = snapshot.order();
         String currentStatus = order.getStatus();
 
         boolean isReturned = currentStatus.equals("PENDING_FINAL_PAYMENT") ||
@@ -541,11 +449,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         if (isReturned) {
         } else {
-            boolean hasServiceDetails = Optional.ofNullable(order.getDetails())
-                    .orElse(List.of()).stream()
-                    .anyMatch(d -> "SERVICE".equalsIgnoreCase(d.getType()));
-            
-            if (hasServiceDetails) {
+            if (snapshot.hasServiceDetails()) {
                 order.setStatus("PAID");
             } else {
                 order.setStatus("AWAITING");
@@ -554,11 +458,12 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private void fullSuccess(RentalOrder order, Payment payment, Vehicle v) {
+    private void fullSuccess(OrderPaymentSnapshot snapshot, Payment payment) {
+        RentalOrder order = snapshot.order();
         BigDecimal fullAmount = payment.getAmount();
         payment.setRemainingAmount(BigDecimal.ZERO);
 
-        createOrUpdateDetail(order, v, "FULL_PAYMENT", fullAmount, "Thanh toán toàn bộ đơn", "SUCCESS");
+        createOrUpdateDetail(snapshot, snapshot.mainVehicle(), "FULL_PAYMENT", fullAmount, "Thanh toán toàn bộ đơn", "SUCCESS");
 
         String currentStatus = order.getStatus();
         boolean isReturned = currentStatus.equals("PENDING_FINAL_PAYMENT") ||
@@ -566,11 +471,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         if (isReturned) {
         } else {
-            boolean hasServiceDetails = Optional.ofNullable(order.getDetails())
-                    .orElse(List.of()).stream()
-                    .anyMatch(d -> "SERVICE".equalsIgnoreCase(d.getType()));
-            
-            if (hasServiceDetails) {
+            if (snapshot.hasServiceDetails()) {
                 order.setStatus("PAID");
             } else {
                 order.setStatus("AWAITING");
@@ -578,15 +479,12 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private void servicePaymentSuccess(RentalOrder order, Payment payment) {
+    private void servicePaymentSuccess(OrderPaymentSnapshot snapshot, Payment payment) {
         payment.setRemainingAmount(BigDecimal.ZERO);
 
-        UUID orderId = order.getOrderId();
+        RentalOrder order = snapshot.order();
 
-        Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(orderId)
-                .stream()
-                .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
+        Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
         if (fullPaymentOpt.isPresent()) {
             Payment fullPayment = fullPaymentOpt.get();
@@ -603,8 +501,8 @@ public class PaymentServiceImpl implements PaymentService {
                 paymentRepository.save(fullPayment);
 
                 if (newRemaining.compareTo(BigDecimal.ZERO) == 0) {
-                    markServiceDetailsAsSuccess(order);
-                    updateOrderStatusAfterPayment(order);
+                    markServiceDetailsAsSuccess(snapshot);
+                    updateOrderStatusAfterPayment(snapshot);
                 } else {
                     order.setStatus("PENDING_FINAL_PAYMENT");
                 }
@@ -612,10 +510,7 @@ public class PaymentServiceImpl implements PaymentService {
             }
         }
 
-        Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(orderId)
-                .stream()
-                .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst();
+        Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
         if (depositPaymentOpt.isPresent()) {
             Payment depositPayment = depositPaymentOpt.get();
@@ -632,8 +527,8 @@ public class PaymentServiceImpl implements PaymentService {
                 paymentRepository.save(depositPayment);
 
                 if (newRemaining.compareTo(BigDecimal.ZERO) == 0) {
-                    markServiceDetailsAsSuccess(order);
-                    updateOrderStatusAfterPayment(order);
+                    markServiceDetailsAsSuccess(snapshot);
+                    updateOrderStatusAfterPayment(snapshot);
                 } else {
                     order.setStatus("PENDING_FINAL_PAYMENT");
                 }
@@ -641,24 +536,25 @@ public class PaymentServiceImpl implements PaymentService {
             }
         }
 
-        markServiceDetailsAsSuccess(order);
-        updateOrderStatusAfterPayment(order);
+        markServiceDetailsAsSuccess(snapshot);
+        updateOrderStatusAfterPayment(snapshot);
     }
 
-    private Vehicle getMainVehicle(RentalOrder order) {
-        return order.getDetails().stream()
-                .filter(d -> d.getType().equals("RENTAL"))
-                .map(RentalOrderDetail::getVehicle)
-                .findFirst()
-                .orElseThrow(() -> new BadRequestException("Missing RENTAL detail"));
+    /**
+     * Ghi nhận payment thành công theo loại (đặt cọc / thanh toán cuối / toàn bộ / dịch vụ)
+     */
+    private void applyPaymentSuccess(OrderPaymentSnapshot snapshot, Payment payment) {
+        switch (payment.getPaymentType()) {
+            case 1 -> depositSuccess(snapshot, payment);
+            case 2 -> finalSuccess(snapshot, payment);
+            case 3 -> fullSuccess(snapshot, payment);
+            case 5 -> servicePaymentSuccess(snapshot, payment);
+            default -> throw new BadRequestException("Unknown payment type");
+        }
     }
 
-    private void createOrUpdateDetail(RentalOrder order, Vehicle v, String type, BigDecimal price, String desc, String status) {
-        Optional<RentalOrderDetail> opt = rentalOrderDetailRepository
-                .findByOrder_OrderId(order.getOrderId())
-                .stream()
-                .filter(d -> d.getType().equals(type))
-                .findFirst();
+    private void createOrUpdateDetail(OrderPaymentSnapshot snapshot, Vehicle v, String type, BigDecimal price, String desc, String status) {
+        Optional<RentalOrderDetail> opt = snapshot.detail(type);
 
         if (opt.isPresent()) {
             RentalOrderDetail d = opt.get();
@@ -667,21 +563,18 @@ public class PaymentServiceImpl implements PaymentService {
             d.setDescription(desc);
             rentalOrderDetailRepository.save(d);
         } else {
-            createDetail(order, v, type, price, desc, status);
+            createDetail(snapshot, v, type, price, desc, status);
         }
     }
 
-    private void createDetail(RentalOrder order, Vehicle v, String type, BigDecimal price, String desc, String status) {
-        RentalOrderDetail rentalDetail = order.getDetails().stream()
-                .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                .findFirst()
-                .orElse(null);
+    private void createDetail(OrderPaymentSnapshot snapshot, Vehicle v, String type, BigDecimal price, String desc, String status) {
+        RentalOrderDetail rentalDetail = snapshot.detail("RENTAL").orElse(null);
 
         LocalDateTime startTime = rentalDetail != null ? rentalDetail.getStartTime() : LocalDateTime.now();
         LocalDateTime endTime = rentalDetail != null ? rentalDetail.getEndTime() : LocalDateTime.now();
 
         RentalOrderDetail detail = RentalOrderDetail.builder()
-                .order(order)
+                .order(snapshot.order())
                 .vehicle(v)
                 .type(type)
                 .startTime(startTime)
@@ -691,13 +584,11 @@ public class PaymentServiceImpl implements PaymentService {
                 .description(desc)
                 .build();
 
-        rentalOrderDetailRepository.save(detail);
+        snapshot.addDetail(rentalOrderDetailRepository.save(detail));
     }
 
-    private void markServiceDetailsAsSuccess(RentalOrder order) {
-        List<RentalOrderDetail> serviceDetails = Optional.ofNullable(order.getDetails())
-                .orElse(List.of()).stream()
-                .filter(d -> "SERVICE".equalsIgnoreCase(d.getType()))
+    private void markServiceDetailsAsSuccess(OrderPaymentSnapshot snapshot) {
+        List<RentalOrderDetail> serviceDetails = snapshot.details("SERVICE").stream()
                 .filter(d -> !"SUCCESS".equalsIgnoreCase(d.getStatus()))
                 .toList();
 
@@ -707,125 +598,173 @@ public class PaymentServiceImpl implements PaymentService {
         rentalOrderDetailRepository.saveAll(serviceDetails);
     }
 
-    private PaymentResponse buildMoMoPaymentUrl(RentalOrder order, Payment payment, BigDecimal amount) {
+    /**
+     * Dữ liệu payment đã commit, đủ để gọi MoMo mà không cần entity / transaction
+     */
+    private record PendingMoMoPayment(UUID paymentId, String momoOrderId, UUID orderId,
+                                      BigDecimal amount, BigDecimal remainingAmount,
+                                      short paymentType, String method, PaymentStatus status,
+                                      String previousOrderStatus, String pendingOrderStatus,
+                                      PaymentUndo undo) {
+    }
+
+    /**
+     * Những gì preparePayment đã ghi: previousPayment != null nghĩa là dùng lại payment PENDING có sẵn
+     * (giá trị trước khi sửa), null nghĩa là payment do lần này tạo
+     */
+    private record PaymentUndo(PaymentState previousPayment, List<Long> createdDetailIds,
+                               List<DetailState> previousDetails) {
+    }
+
+    private record PaymentState(BigDecimal amount, BigDecimal remainingAmount, String method) {
+        static PaymentState of(Payment p) {
+            return new PaymentState(p.getAmount(), p.getRemainingAmount(), p.getMethod());
+        }
+    }
+
+    private record DetailState(Long detailId, BigDecimal price, String status, String description) {
+        static DetailState of(RentalOrderDetail d) {
+            return new DetailState(d.getDetailId(), d.getPrice(), d.getStatus(), d.getDescription());
+        }
+    }
+
+    private PendingMoMoPayment pendingMoMoPayment(RentalOrder order, Payment payment, BigDecimal amount,
+                                                  String previousOrderStatus, PaymentUndo undo) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BadRequestException("Payment amount must be greater than 0");
         }
+        // Lưu orderId gửi MoMo để job đối soát tra cứu được khi mất IPN
+        payment.setMomoOrderId(MoMoOrderId.of(payment.getPaymentId()));
+        return new PendingMoMoPayment(payment.getPaymentId(), payment.getMomoOrderId(), order.getOrderId(),
+                amount, payment.getRemainingAmount(),
+                payment.getPaymentType(), payment.getMethod(), payment.getStatus(),
+                previousOrderStatus, order.getStatus(), undo);
+    }
 
-        try {
-            String partnerCode = momoConfig.getPartnerCode();
-            String accessKey = momoConfig.getAccessKey();
-            String secretKey = momoConfig.getSecretKey();
-            String returnUrl = momoConfig.getReturnUrl();
-            String notifyUrl = momoConfig.getNotifyUrl();
-            String endpoint = momoConfig.getEndpoint();
-            String requestType = momoConfig.getRequestType();
-
-            String encoded = payment.getPaymentId().toString().replace("-", "");
-            String orderId = encoded + "-" + System.currentTimeMillis();
-            String orderInfo = "Order " + order.getOrderId();
-
-            String amountStr = String.valueOf(amount.longValue());
-            String extraData = "";
-
-            String rawSignature = "accessKey=" + accessKey +
-                    "&amount=" + amountStr +
-                    "&extraData=" + extraData +
-                    "&ipnUrl=" + notifyUrl +
-                    "&orderId=" + orderId +
-                    "&orderInfo=" + orderInfo +
-                    "&partnerCode=" + partnerCode +
-                    "&redirectUrl=" + returnUrl +
-                    "&requestId=" + orderId +
-                    "&requestType=" + requestType;
-
-            String signature = Utils.hmacSHA256(secretKey, rawSignature);
-
-            MomoCreatePaymentRequest momoRequest = MomoCreatePaymentRequest.builder()
-                    .partnerCode(partnerCode)
-                    .accessKey(accessKey)
-                    .requestId(orderId)
-                    .amount(amountStr)
-                    .orderId(orderId)
-                    .orderInfo(orderInfo)
-                    .redirectUrl(returnUrl)
-                    .ipnUrl(notifyUrl)
-                    .requestType(requestType)
-                    .extraData(extraData)
-                    .lang("vi")
-                    .signature(signature)
-                    .build();
-
-            String requestBody = objectMapper.writeValueAsString(momoRequest);
-
-            URI uri = new URI(endpoint);
-            HttpURLConnection conn = (HttpURLConnection) uri.toURL().openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-
-            OutputStream os = conn.getOutputStream();
-            os.write(requestBody.getBytes(StandardCharsets.UTF_8));
-            os.flush();
-            os.close();
-
-            int responseCode = conn.getResponseCode();
-
-            BufferedReader br = new BufferedReader(
-                    new InputStreamReader(
-                            responseCode == 200 ? conn.getInputStream() : conn.getErrorStream(),
-                            StandardCharsets.UTF_8
-                    )
-            );
-
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line);
-            }
-            br.close();
-            conn.disconnect();
+    /**
+     * Bù cho những gì preparePayment đã ghi khi MoMo không tạo được link:
+     * - payment do lần này tạo → FAILED; payment PENDING có sẵn được dùng lại → trả lại amount / method cũ, vẫn PENDING
+     * - detail PENDING do lần này tạo → xóa; detail có sẵn bị sửa → trả lại giá / trạng thái cũ
+     * - order về trạng thái cũ
+     * Chỉ bù những dòng chưa ai đổi tiếp (payment / detail còn PENDING, order còn PENDING_*)
+     */
+    private void revertPendingPayment(PendingMoMoPayment pending) {
+        PaymentUndo undo = pending.undo();
+
+        paymentRepository.findById(pending.paymentId())
+                .filter(p -> p.getStatus() == PaymentStatus.PENDING)
+                .ifPresent(p -> {
+                    PaymentState previous = undo.previousPayment();
+                    if (previous == null) {
+                        p.setStatus(PaymentStatus.FAILED);
+                    } else {
+                        p.setAmount(previous.amount());
+                        p.setRemainingAmount(previous.remainingAmount());
+                        p.setMethod(previous.method());
+                    }
+                    paymentRepository.save(p);
+                });
+
+        if (!undo.createdDetailIds().isEmpty()) {
+            List<RentalOrderDetail> created = rentalOrderDetailRepository.findAllById(undo.createdDetailIds()).stream()
+                    .filter(d -> "PENDING".equalsIgnoreCase(d.getStatus()))
+                    .toList();
+            rentalOrderDetailRepository.deleteAll(created);
+        }
 
-            String responseStr = response.toString();
+        for (DetailState previous : undo.previousDetails()) {
+            rentalOrderDetailRepository.findById(previous.detailId())
+                    .filter(d -> "PENDING".equalsIgnoreCase(d.getStatus()))
+                    .ifPresent(d -> {
+                        d.setPrice(previous.price());
+                        d.setStatus(previous.status());
+                        d.setDescription(previous.description());
+                        rentalOrderDetailRepository.save(d);
+                    });
+        }
 
-            MomoCreatePaymentResponse momoResponse = objectMapper.readValue(
-                    responseStr,
-                    MomoCreatePaymentResponse.class
-            );
+        rentalOrderRepository.findById(pending.orderId())
+                .filter(o -> Objects.equals(o.getStatus(), pending.pendingOrderStatus()))
+                .ifPresent(o -> {
+                    o.setStatus(pending.previousOrderStatus());
+                    rentalOrderRepository.save(o);
+                });
+    }
 
-            Integer resultCode = momoResponse.getResultCode();
-            Integer errorCode = momoResponse.getErrorCode();
+    private PaymentResponse requestMoMoPayment(PendingMoMoPayment pending) {
+        BigDecimal amount = pending.amount();
+
+        String partnerCode = momoConfig.getPartnerCode();
+        String accessKey = momoConfig.getAccessKey();
+        String returnUrl = momoConfig.getReturnUrl();
+        String notifyUrl = momoConfig.getNotifyUrl();
+        String requestType = momoConfig.getRequestType();
+
+        String orderId = pending.momoOrderId();
+        String orderInfo = "Order " + pending.orderId();
+
+        String amountStr = String.valueOf(amount.longValue());
+        String extraData = "";
+
+        String signature = momoSigner.canonical()
+                .add("accessKey", accessKey)
+                .add("amount", amountStr)
+                .add("extraData", extraData)
+                .add("ipnUrl", notifyUrl)
+                .add("orderId", orderId)
+                .add("orderInfo", orderInfo)
+                .add("partnerCode", partnerCode)
+                .add("redirectUrl", returnUrl)
+                .add("requestId", orderId)
+                .add("requestType", requestType)
+                .sign();
+
+        MomoCreatePaymentRequest momoRequest = MomoCreatePaymentRequest.builder()
+                .partnerCode(partnerCode)
+                .accessKey(accessKey)
+                .requestId(orderId)
+                .amount(amountStr)
+                .orderId(orderId)
+                .orderInfo(orderInfo)
+                .redirectUrl(returnUrl)
+                .ipnUrl(notifyUrl)
+                .requestType(requestType)
+                .extraData(extraData)
+                .lang("vi")
+                .signature(signature)
+                .build();
 
-            if (resultCode != null && resultCode != 0) {
-                String errorMsg = momoResponse.getMessage() != null ? momoResponse.getMessage() : "Unknown error";
-                throw new BadRequestException("MoMo Error: " + errorMsg + " (ResultCode: " + resultCode + ")");
-            }
+        MomoCreatePaymentResponse momoResponse = momoGatewayClient.createPayment(momoRequest);
 
-            if (errorCode != null && errorCode != 0) {
-                String errorMsg = momoResponse.getMessage() != null ? momoResponse.getMessage() : "Unknown error";
-                throw new BadRequestException("MoMo Error: " + errorMsg + " (ErrorCode: " + errorCode + ")");
-            }
+        Integer resultCode = momoResponse.getResultCode();
+        Integer errorCode = momoResponse.getErrorCode();
 
-            if (momoResponse.getPayUrl() == null || momoResponse.getPayUrl().isEmpty()) {
-                throw new BadRequestException("MoMo Error: Payment URL is empty");
-            }
+        if (resultCode != null && resultCode != 0) {
+            String errorMsg = momoResponse.getMessage() != null ? momoResponse.getMessage() : "Unknown error";
+            throw new BadRequestException("MoMo Error: " + errorMsg + " (ResultCode: " + resultCode + ")");
+        }
 
-            return PaymentResponse.builder()
-                    .paymentId(payment.getPaymentId())
-                    .orderId(order.getOrderId())
-                    .amount(amount)
-                    .remainingAmount(payment.getRemainingAmount())
-                    .paymentType(payment.getPaymentType())
-                    .method(payment.getMethod())
-                    .status(payment.getStatus())
-                    .paymentUrl(momoResponse.getPayUrl())
-                    .qrCodeUrl(momoResponse.getQrCodeUrl())
-                    .deeplink(momoResponse.getDeeplink())
-                    .build();
+        if (errorCode != null && errorCode != 0) {
+            String errorMsg = momoResponse.getMessage() != null ? momoResponse.getMessage() : "Unknown error";
+            throw new BadRequestException("MoMo Error: " + errorMsg + " (ErrorCode: " + errorCode + ")");
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create MoMo payment: " + e.getMessage(), e);
+        if (momoResponse.getPayUrl() == null || momoResponse.getPayUrl().isEmpty()) {
+            throw new BadRequestException("MoMo Error: Payment URL is empty");
         }
+
+        return PaymentResponse.builder()
+                .paymentId(pending.paymentId())
+                .orderId(pending.orderId())
+                .amount(amount)
+                .remainingAmount(pending.remainingAmount())
+                .paymentType(pending.paymentType())
+                .method(pending.method())
+                .status(pending.status())
+                .paymentUrl(momoResponse.getPayUrl())
+                .qrCodeUrl(momoResponse.getQrCodeUrl())
+                .deeplink(momoResponse.getDeeplink())
+                .build();
     }
 
     private PaymentResponse buildCallbackResponse(RentalOrder order, Payment payment, boolean success) {
@@ -887,14 +826,11 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional
     public PaymentResponse refund(UUID orderId, BigDecimal amount) {
-        RentalOrder order = rentalOrderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        OrderPaymentSnapshot snapshot = snapshotLoader.load(orderId);
+        RentalOrder order = snapshot.order();
 
         // Lấy payment SUCCESS đầu tiên để tính số tiền có thể hoàn
-        Payment originalPayment = paymentRepository.findByRentalOrder_OrderId(orderId)
-                .stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .findFirst()
+        Payment originalPayment = snapshot.firstSuccessful()
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found for order"));
 
         // Nếu không nhập amount, mặc định hoàn toàn bộ số tiền đã thanh toán
@@ -918,7 +854,7 @@ public class PaymentServiceImpl implements PaymentService {
                 .amount(refundAmount.negate()) // Số tiền âm để thể hiện hoàn tiền
                 .remainingAmount(BigDecimal.ZERO)
                 .status(PaymentStatus.SUCCESS)
-                .paymentType((short) 4) // Type 4 = REFUND
+                .paymentType(OrderPaymentSnapshot.REFUND)
                 .method("INTERNAL_REFUND")
                 .build();
 
@@ -937,10 +873,7 @@ public class PaymentServiceImpl implements PaymentService {
         recordTransaction(order, refundPayment, "REFUND");
 
         // Lấy rentalDetail để cập nhật vehicle status (không tạo detail mới)
-        RentalOrderDetail rentalDetail = order.getDetails().stream()
-                .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                .findFirst()
-                .orElse(null);
+        RentalOrderDetail rentalDetail = snapshot.detail("RENTAL").orElse(null);
 
         // Sau khi hoàn tiền (full hoặc partial) → coi như đơn đã được hoàn,
         // cập nhật trạng thái order & trả xe về trạng thái phù hợp (thường là AVAILABLE)
@@ -1002,7 +935,7 @@ public class PaymentServiceImpl implements PaymentService {
                         : BigDecimal.ZERO)
                 .method("INTERNAL_REFUND")
                 .status(PaymentStatus.SUCCESS)
-                .paymentType((short) 4)
+                .paymentType(OrderPaymentSnapshot.REFUND)
                 .message("Hoàn tiền thành công: " + refundAmount)
                 .build();
     }
@@ -1013,8 +946,8 @@ public class PaymentServiceImpl implements PaymentService {
         userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        RentalOrder order = rentalOrderRepository.findById(dto.getOrderId())
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        OrderPaymentSnapshot snapshot = snapshotLoader.load(dto.getOrderId());
+        RentalOrder order = snapshot.order();
 
         short type = dto.getPaymentType();
         if (type < 1 || type > 5)
@@ -1028,15 +961,9 @@ public class PaymentServiceImpl implements PaymentService {
             amount = total.divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
             remainingAmount = total.subtract(amount);
         } else if (type == 2) {
-            Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
-            Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
             if (depositPaymentOpt.isPresent()) {
                 Payment depositPayment = depositPaymentOpt.get();
@@ -1062,10 +989,7 @@ public class PaymentServiceImpl implements PaymentService {
 
             remainingAmount = BigDecimal.ZERO;
         } else if (type == 3) {
-            Optional<Payment> existingDeposit = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> existingDeposit = snapshot.successfulDeposit();
 
             if (existingDeposit.isPresent()) {
                 Payment depositPayment = existingDeposit.get();
@@ -1084,15 +1008,9 @@ public class PaymentServiceImpl implements PaymentService {
                 remainingAmount = BigDecimal.ZERO;
             }
         } else if (type == 5) {
-            Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> depositPaymentOpt = snapshot.successfulDeposit();
 
-            Optional<Payment> fullPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                    .stream()
-                    .filter(p -> p.getPaymentType() == 3 && p.getStatus() == PaymentStatus.SUCCESS)
-                    .findFirst();
+            Optional<Payment> fullPaymentOpt = snapshot.successfulFull();
 
             if (fullPaymentOpt.isPresent()) {
                 Payment fullPayment = fullPaymentOpt.get();
@@ -1119,10 +1037,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         if (type == 2) {
             if (amount.compareTo(total) == 0) {
-                Payment depositPayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                        .stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst()
+                Payment depositPayment = snapshot.successfulDeposit()
                         .orElse(null);
                 if (depositPayment != null) {
                     BigDecimal correctAmount = depositPayment.getRemainingAmount();
@@ -1137,11 +1052,7 @@ public class PaymentServiceImpl implements PaymentService {
         Payment payment;
         try {
             if (type == 2) {
-                Payment existingFinalPayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                        .stream()
-                        .filter(p -> p.getPaymentType() == 2 && p.getStatus() == PaymentStatus.PENDING)
-                        .filter(p -> "CASH".equalsIgnoreCase(p.getMethod()))
-                        .findFirst()
+                Payment existingFinalPayment = snapshot.pending(OrderPaymentSnapshot.FINAL, "CASH"::equalsIgnoreCase)
                         .orElse(null);
 
                 if (existingFinalPayment != null) {
@@ -1162,11 +1073,7 @@ public class PaymentServiceImpl implements PaymentService {
                     );
                 }
             } else if (type == 5) {
-                Payment existingCashServicePayment = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                        .stream()
-                        .filter(p -> p.getPaymentType() == 5 && p.getStatus() == PaymentStatus.PENDING)
-                        .filter(p -> "CASH".equalsIgnoreCase(p.getMethod()))
-                        .findFirst()
+                Payment existingCashServicePayment = snapshot.pending(OrderPaymentSnapshot.SERVICE, "CASH"::equalsIgnoreCase)
                         .orElse(null);
 
                 if (existingCashServicePayment != null) {
@@ -1214,62 +1121,12 @@ public class PaymentServiceImpl implements PaymentService {
 
         try {
             if (type == 1) {
-                Vehicle v = getMainVehicle(order);
-                createOrUpdateDetail(order, v, "DEPOSIT", amount, "Đặt cọc giữ xe", "PENDING");
+                createOrUpdateDetail(snapshot, snapshot.mainVehicle(), "DEPOSIT", amount, "Đặt cọc giữ xe", "PENDING");
             } else if (type == 3) {
-                Vehicle v = getMainVehicle(order);
-                createOrUpdateDetail(order, v, "FULL_PAYMENT", amount, "Thanh toán toàn bộ đơn", "PENDING");
+                createOrUpdateDetail(snapshot, snapshot.mainVehicle(), "FULL_PAYMENT", amount, "Thanh toán toàn bộ đơn", "PENDING");
             } else if (type == 2) {
                 // Tạo PICKUP detail cho type 2 (giống như MoMo)
-                List<RentalOrderDetail> allDetails = rentalOrderDetailRepository.findByOrder_OrderId(order.getOrderId());
-                RentalOrderDetail rentalDetail = allDetails.stream()
-                        .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                        .findFirst()
-                        .orElseThrow(() -> new BadRequestException("Missing RENTAL detail for order"));
-
-                Optional<Payment> depositPaymentOpt = paymentRepository.findByRentalOrder_OrderId(order.getOrderId())
-                        .stream()
-                        .filter(p -> p.getPaymentType() == 1 && p.getStatus() == PaymentStatus.SUCCESS)
-                        .findFirst();
-
-                BigDecimal pickupPrice;
-                if (depositPaymentOpt.isPresent()) {
-                    Payment depositPayment = depositPaymentOpt.get();
-                    BigDecimal depositRemaining = depositPayment.getRemainingAmount();
-                    
-                    if (depositRemaining != null && depositRemaining.compareTo(BigDecimal.ZERO) > 0) {
-                        pickupPrice = depositRemaining;
-                    } else {
-                        pickupPrice = amount;
-                    }
-                } else {
-                    pickupPrice = amount;
-                }
-
-                RentalOrderDetail existingPickupDetail = allDetails.stream()
-                        .filter(d -> "PICKUP".equalsIgnoreCase(d.getType()))
-                        .findFirst()
-                        .orElse(null);
-
-                if (existingPickupDetail == null) {
-                    Vehicle pickupVehicle = rentalDetail.getVehicle();
-                    if (pickupVehicle == null) {
-                        throw new BadRequestException("Missing vehicle in RENTAL detail");
-                    }
-
-                    RentalOrderDetail pickupDetail = RentalOrderDetail.builder()
-                            .order(order)
-                            .vehicle(pickupVehicle)
-                            .type("PICKUP")
-                            .startTime(rentalDetail.getStartTime())
-                            .endTime(rentalDetail.getEndTime())
-                            .price(pickupPrice)
-                            .status("PENDING")
-                            .description("Thanh toán thuê xe")
-                            .build();
-
-                    rentalOrderDetailRepository.save(pickupDetail);
-                }
+                createPendingPickupDetail(snapshot, amount);
             }
         } catch (Exception e) {
         }
@@ -1289,13 +1146,10 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional
     public void approveCashPaymentByOrder(UUID orderId) {
-        RentalOrder order = rentalOrderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        OrderPaymentSnapshot snapshot = snapshotLoader.load(orderId);
+        RentalOrder order = snapshot.order();
 
-        List<Payment> allCashPending = paymentRepository.findByRentalOrder_OrderId(orderId).stream()
-                .filter(p -> "CASH".equalsIgnoreCase(p.getMethod()))
-                .filter(p -> p.getStatus() == PaymentStatus.PENDING)
-                .toList();
+        List<Payment> allCashPending = snapshot.pendingWithMethod("CASH");
 
         Payment payment = allCashPending.stream()
                 .findFirst()
@@ -1303,41 +1157,27 @@ public class PaymentServiceImpl implements PaymentService {
 
         short type = payment.getPaymentType();
 
+        if (type == 4) {
+            throw new BadRequestException("Unknown payment type");
+        }
+
         payment.setStatus(PaymentStatus.SUCCESS);
         payment = paymentRepository.save(payment);
 
-        switch (type) {
-            case 1 -> {
-                Vehicle v = getMainVehicle(order);
-                depositSuccess(order, payment, v);
-            }
-            case 2 -> finalSuccess(order, payment);
-            case 3 -> {
-                Vehicle v = getMainVehicle(order);
-                fullSuccess(order, payment, v);
-            }
-            case 5 -> servicePaymentSuccess(order, payment);
-            default -> throw new BadRequestException("Unknown payment type");
-        }
+        applyPaymentSuccess(snapshot, payment);
 
         rentalOrderRepository.save(order);
 
         String currentStatus = order.getStatus();
-        Vehicle vehicle = getMainVehicle(order);
-        String vehicleStatus = vehicle != null ? vehicle.getStatus() : null;
 
-        BigDecimal remainingAmount = calculateRemainingAmountForOrder(order);
+        BigDecimal remainingAmount = calculateRemainingAmountForOrder(snapshot);
 
         boolean isReturned = currentStatus.equals("PENDING_FINAL_PAYMENT") ||
                 currentStatus.equals("RETURNED");
 
         if (isReturned && remainingAmount.compareTo(BigDecimal.ZERO) == 0) {
         } else if (remainingAmount.compareTo(BigDecimal.ZERO) == 0) {
-            boolean hasServiceDetails = Optional.ofNullable(order.getDetails())
-                    .orElse(List.of()).stream()
-                    .anyMatch(d -> "SERVICE".equalsIgnoreCase(d.getType()));
-            
-            if (hasServiceDetails) {
+            if (snapshot.hasServiceDetails()) {
                 order.setStatus("PAID");
             } else {
                 order.setStatus("AWAITING");
@@ -1362,7 +1202,9 @@ public class PaymentServiceImpl implements PaymentService {
                 return;
             }
 
-            Vehicle vehicle = getMainVehicle(order);
+            OrderPaymentSnapshot snapshot = snapshotLoader.load(order);
+
+            Vehicle vehicle = snapshot.mainVehicle();
             String vehicleStatus = vehicle != null ? vehicle.getStatus() : null;
 
             boolean isReturned = "CHECKING".equalsIgnoreCase(vehicleStatus) ||
@@ -1373,7 +1215,7 @@ public class PaymentServiceImpl implements PaymentService {
                 return;
             }
 
-            BigDecimal remainingAmount = calculateRemainingAmountForOrder(order);
+            BigDecimal remainingAmount = calculateRemainingAmountForOrder(snapshot);
 
             if (remainingAmount.compareTo(BigDecimal.ZERO) == 0) {
                 order.setStatus("COMPLETED");
@@ -1383,8 +1225,9 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private BigDecimal calculateRemainingAmountForOrder(RentalOrder order) {
-        List<Payment> payments = paymentRepository.findByRentalOrder_OrderId(order.getOrderId());
+    private BigDecimal calculateRemainingAmountForOrder(OrderPaymentSnapshot snapshot) {
+        RentalOrder order = snapshot.order();
+        List<Payment> payments = snapshot.payments();
 
         if (payments == null || payments.isEmpty()) {
             BigDecimal totalPrice = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
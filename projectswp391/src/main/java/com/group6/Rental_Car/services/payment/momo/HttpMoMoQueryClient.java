@@ -0,0 +1,40 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.dtos.payment.MomoQueryRequest;
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Gọi API query thật của MoMo qua {@link MoMoGatewayClient} (dùng chung pool kết nối, timeout, ngắt mạch)
+ */
+@RequiredArgsConstructor
+public class HttpMoMoQueryClient implements MoMoQueryClient {
+
+    private final MoMoConfig momoConfig;
+    private final MoMoSigner momoSigner;
+    private final MoMoGatewayClient momoGatewayClient;
+
+    @Override
+    public CompletableFuture<MomoQueryResponse> query(String momoOrderId) {
+        String requestId = UUID.randomUUID().toString();
+        String signature = momoSigner.canonical()
+                .add("accessKey", momoConfig.getAccessKey())
+                .add("orderId", momoOrderId)
+                .add("partnerCode", momoConfig.getPartnerCode())
+                .add("requestId", requestId)
+                .sign();
+
+        MomoQueryRequest request = MomoQueryRequest.builder()
+                .partnerCode(momoConfig.getPartnerCode())
+                .requestId(requestId)
+                .orderId(momoOrderId)
+                .lang("vi")
+                .signature(signature)
+                .build();
+        return momoGatewayClient.queryPaymentAsync(request);
+    }
+}
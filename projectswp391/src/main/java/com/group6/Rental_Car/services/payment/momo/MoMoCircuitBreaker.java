@@ -0,0 +1,53 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+/**
+ * Ngắt mạch đơn giản cho MoMo:
+ * CLOSED → (threshold lỗi liên tiếp) → OPEN, từ chối ngay trong openMillis
+ * → HALF_OPEN cho đúng 1 request thử: thành công thì CLOSED, lỗi thì OPEN lại.
+ */
+final class MoMoCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    MoMoCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return false nếu đang ngắt mạch (không được gọi MoMo)
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) return false;
+            state = State.HALF_OPEN;
+            return true;
+        }
+        // HALF_OPEN: đã có 1 request thử đang chạy
+        return state == State.CLOSED;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
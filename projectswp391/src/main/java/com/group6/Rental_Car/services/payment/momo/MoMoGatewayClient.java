@@ -0,0 +1,141 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentRequest;
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentResponse;
+import com.group6.Rental_Car.dtos.payment.MomoQueryRequest;
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import com.group6.Rental_Car.exceptions.PaymentGatewayException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Client gọi API MoMo dùng chung 1 HttpClient (giữ kết nối keep-alive giữa các request),
+ * có timeout kết nối / request, chạy bất đồng bộ trên virtual thread và ngắt mạch khi MoMo lỗi liên tục.
+ * Tạo giao dịch và tra cứu (job đối soát) dùng 2 bộ ngắt mạch riêng: đối soát lỗi không chặn khách thanh toán.
+ * Không được gọi trong @Transactional: thời gian chờ MoMo sẽ giữ luôn connection DB.
+ */
+@Slf4j
+@Component
+public class MoMoGatewayClient {
+
+    private final MoMoConfig momoConfig;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final MoMoCircuitBreaker createCircuitBreaker;
+    private final MoMoCircuitBreaker queryCircuitBreaker;
+
+    public MoMoGatewayClient(MoMoConfig momoConfig, ObjectMapper objectMapper) {
+        this.momoConfig = momoConfig;
+        this.objectMapper = objectMapper;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(momoConfig.getConnectTimeoutMs()))
+                .executor(executor)
+                .build();
+        this.createCircuitBreaker = new MoMoCircuitBreaker(
+                momoConfig.getCircuitFailureThreshold(), momoConfig.getCircuitOpenMs());
+        this.queryCircuitBreaker = new MoMoCircuitBreaker(
+                momoConfig.getCircuitFailureThreshold(), momoConfig.getCircuitOpenMs());
+    }
+
+    /**
+     * Tạo giao dịch MoMo (POST /create), chờ kết quả
+     */
+    public MomoCreatePaymentResponse createPayment(MomoCreatePaymentRequest request) {
+        try {
+            return createPaymentAsync(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Bị gián đoạn khi chờ MoMo", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new PaymentGatewayException("Không gọi được MoMo: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public CompletableFuture<MomoCreatePaymentResponse> createPaymentAsync(MomoCreatePaymentRequest request) {
+        return postAsync("create", momoConfig.getEndpoint(), request, MomoCreatePaymentResponse.class, createCircuitBreaker);
+    }
+
+    /**
+     * Tra cứu trạng thái giao dịch (POST /query), dùng khi mất IPN
+     */
+    public CompletableFuture<MomoQueryResponse> queryPaymentAsync(MomoQueryRequest request) {
+        return postAsync("query", queryEndpoint(), request, MomoQueryResponse.class, queryCircuitBreaker);
+    }
+
+    private String queryEndpoint() {
+        return StringUtils.hasText(momoConfig.getQueryEndpoint())
+                ? momoConfig.getQueryEndpoint()
+                : momoConfig.getEndpoint().replace("/create", "/query");
+    }
+
+    private <T> CompletableFuture<T> postAsync(String operation, String endpoint, Object request, Class<T> responseType,
+                                               MoMoCircuitBreaker circuitBreaker) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(request);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new PaymentGatewayException("Cổng MoMo đang tạm gián đoạn, vui lòng thử lại sau ít phút"));
+        }
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(Duration.ofMillis(momoConfig.getRequestTimeoutMs()))
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .handle((response, error) -> {
+                    long tookMs = (System.nanoTime() - start) / 1_000_000;
+                    if (error != null) {
+                        circuitBreaker.onFailure();
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        log.warn("MoMo {} lỗi sau {} ms: {}", operation, tookMs, cause.toString());
+                        throw new PaymentGatewayException("Không kết nối được MoMo: " + cause.getMessage(), cause);
+                    }
+                    if (response.statusCode() >= 500) {
+                        circuitBreaker.onFailure();
+                        log.warn("MoMo {} trả HTTP {} sau {} ms", operation, response.statusCode(), tookMs);
+                        throw new PaymentGatewayException("MoMo đang lỗi (HTTP " + response.statusCode() + ")");
+                    }
+                    circuitBreaker.onSuccess();
+                    log.debug("MoMo {} HTTP {} trong {} ms", operation, response.statusCode(), tookMs);
+                    try {
+                        return objectMapper.readValue(response.body(), responseType);
+                    } catch (IOException e) {
+                        throw new PaymentGatewayException("Phản hồi MoMo không hợp lệ (HTTP " + response.statusCode() + ")", e);
+                    }
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
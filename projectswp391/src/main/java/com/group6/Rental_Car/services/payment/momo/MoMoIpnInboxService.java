@@ -0,0 +1,12 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import java.util.Map;
+
+public interface MoMoIpnInboxService {
+
+    /**
+     * Kiểm chữ ký và ghi IPN vào hộp thư, chưa xử lý nghiệp vụ
+     * @return false nếu IPN này đã nhận trước đó (MoMo gửi lại)
+     */
+    boolean receive(Map<String, String> params);
+}
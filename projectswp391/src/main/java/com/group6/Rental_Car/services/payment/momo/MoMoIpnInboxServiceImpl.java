@@ -0,0 +1,75 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.exceptions.BadRequestException;
+import com.group6.Rental_Car.repositories.MoMoIpnInboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MoMoIpnInboxServiceImpl implements MoMoIpnInboxService {
+
+    private final MoMoConfig momoConfig;
+    private final MoMoIpnInboxRepository inboxRepository;
+    private final MoMoIpnMetrics ipnMetrics;
+    private final MoMoSigner momoSigner;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional
+    public boolean receive(Map<String, String> params) {
+        if (!momoConfig.getPartnerCode().equals(params.get("partnerCode"))
+                || !momoSigner.verifyIpn(params)) {
+            ipnMetrics.recordReceived("rejected");
+            log.warn("IPN MoMo sai chữ ký, orderId={}", params.get("orderId"));
+            throw new BadRequestException("Invalid MoMo signature");
+        }
+
+        String momoOrderId = params.get("orderId");
+        String requestId = params.get("requestId");
+        if (momoOrderId == null || requestId == null) {
+            ipnMetrics.recordReceived("rejected");
+            throw new BadRequestException("Missing orderId/requestId in MoMo callback");
+        }
+
+        UUID paymentId;
+        try {
+            paymentId = MoMoOrderId.paymentIdOf(momoOrderId);
+        } catch (IllegalArgumentException e) {
+            ipnMetrics.recordReceived("rejected");
+            throw new BadRequestException("Invalid MoMo orderId: " + momoOrderId);
+        }
+
+        Integer resultCode = null;
+        try {
+            resultCode = Integer.valueOf(params.get("resultCode"));
+        } catch (NumberFormatException ignored) {
+            // Worker sẽ coi như thất bại, giống handleMoMoCallback
+        }
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid MoMo callback payload");
+        }
+
+        boolean queued = inboxRepository.insertIfAbsent(momoOrderId, requestId, paymentId, resultCode,
+                payload, LocalDateTime.now()) == 1;
+        ipnMetrics.recordReceived(queued ? "queued" : "duplicate");
+        if (!queued) {
+            log.info("IPN MoMo trùng, bỏ qua: orderId={}, requestId={}", momoOrderId, requestId);
+        }
+        return queued;
+    }
+}
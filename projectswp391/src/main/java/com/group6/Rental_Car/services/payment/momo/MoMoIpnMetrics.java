@@ -0,0 +1,51 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metric hộp thư IPN MoMo (xem tại /actuator/metrics):
+ * - momo.ipn.received       : IPN nhận được, tag outcome = queued | duplicate | rejected
+ * - momo.ipn.inbox.depth    : số IPN PENDING/PROCESSING (cập nhật mỗi lần worker quét)
+ * - momo.ipn.processing     : thời gian xử lý 1 IPN, tag outcome = done | retry | failed
+ * - momo.ipn.latency        : từ lúc nhận tới lúc xử lý xong
+ */
+@Component
+public class MoMoIpnMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong inboxDepth = new AtomicLong();
+
+    public MoMoIpnMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("momo.ipn.inbox.depth", inboxDepth, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    void recordReceived(String outcome) {
+        meterRegistry.counter("momo.ipn.received", "outcome", outcome).increment();
+    }
+
+    void recordProcessed(String outcome, long processingNanos, LocalDateTime receivedAt) {
+        Timer.builder("momo.ipn.processing")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(processingNanos, TimeUnit.NANOSECONDS);
+        if ("done".equals(outcome)) {
+            Timer.builder("momo.ipn.latency")
+                    .register(meterRegistry)
+                    .record(Duration.between(receivedAt, LocalDateTime.now()));
+        }
+    }
+
+    void updateDepth(long depth) {
+        inboxDepth.set(depth);
+    }
+}
@@ -0,0 +1,147 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.entities.MoMoIpnInbox;
+import com.group6.Rental_Car.exceptions.BadRequestException;
+import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
+import com.group6.Rental_Car.repositories.MoMoIpnInboxRepository;
+import com.group6.Rental_Car.services.payment.PaymentService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Xử lý hộp thư IPN: mỗi lần quét lấy 1 batch (SKIP LOCKED), chạy song song trên momo.ipn.workers luồng.
+ * Thứ tự theo từng payment do câu truy vấn lấy batch đảm bảo; lỗi tạm thời được thử lại với backoff.
+ */
+@Slf4j
+@Component
+public class MoMoIpnWorker {
+
+    private static final List<String> OPEN_STATUSES = List.of(MoMoIpnInbox.PENDING, MoMoIpnInbox.PROCESSING);
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    private final MoMoIpnInboxRepository inboxRepository;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MoMoIpnMetrics ipnMetrics;
+    private final MoMoConfig.Ipn config;
+    private final ExecutorService executor;
+
+    public MoMoIpnWorker(MoMoIpnInboxRepository inboxRepository,
+                         PaymentService paymentService,
+                         TransactionTemplate transactionTemplate,
+                         ObjectMapper objectMapper,
+                         MoMoIpnMetrics ipnMetrics,
+                         MoMoConfig momoConfig) {
+        this.inboxRepository = inboxRepository;
+        this.paymentService = paymentService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ipnMetrics = ipnMetrics;
+        this.config = momoConfig.getIpn();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getWorkers()),
+                Thread.ofPlatform().name("momo-ipn-", 0).daemon(true).factory());
+    }
+
+    @Scheduled(fixedDelayString = "${momo.ipn.poll-ms:1000}")
+    public void drain() {
+        try {
+            List<MoMoIpnInbox> batch;
+            do {
+                batch = transactionTemplate.execute(status -> claimBatch());
+                if (batch.isEmpty()) break;
+
+                List<Callable<Void>> tasks = batch.stream()
+                        .<Callable<Void>>map(entry -> () -> {
+                            process(entry);
+                            return null;
+                        })
+                        .toList();
+                executor.invokeAll(tasks);
+            } while (batch.size() == config.getBatchSize());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ipnMetrics.updateDepth(inboxRepository.countByStatusIn(OPEN_STATUSES));
+        }
+    }
+
+    @Scheduled(cron = "0 15 4 * * *") // 4h15 mỗi ngày
+    public void purgeProcessed() {
+        LocalDateTime before = LocalDateTime.now().minusDays(config.getRetentionDays());
+        Integer deleted = transactionTemplate.execute(status -> inboxRepository.deleteProcessedBefore(before));
+        log.info("Xóa {} IPN MoMo đã xử lý trước {}", deleted, before);
+    }
+
+    private List<MoMoIpnInbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<MoMoIpnInbox> batch = inboxRepository.lockDueEntries(
+                now, now.minusSeconds(config.getStaleSeconds()), config.getBatchSize());
+        for (MoMoIpnInbox entry : batch) {
+            entry.setStatus(MoMoIpnInbox.PROCESSING);
+            entry.setClaimedAt(now);
+            entry.setAttempts(entry.getAttempts() + 1);
+        }
+        return inboxRepository.saveAll(batch);
+    }
+
+    private void process(MoMoIpnInbox entry) {
+        long start = System.nanoTime();
+        try {
+            Map<String, String> params = objectMapper.readValue(entry.getPayload(), new TypeReference<>() {});
+            paymentService.handleMoMoCallback(params);
+            transactionTemplate.executeWithoutResult(status -> markDone(entry.getInboxId()));
+            ipnMetrics.recordProcessed("done", System.nanoTime() - start, entry.getReceivedAt());
+        } catch (Exception e) {
+            boolean permanent = e instanceof BadRequestException
+                    || e instanceof ResourceNotFoundException
+                    || e instanceof JsonProcessingException;
+            boolean giveUp = permanent || entry.getAttempts() >= config.getMaxAttempts();
+            log.warn("Xử lý IPN {} (payment {}) lỗi lần {}: {}", entry.getInboxId(), entry.getPaymentId(),
+                    entry.getAttempts(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> markError(entry.getInboxId(), e, giveUp));
+            ipnMetrics.recordProcessed(giveUp ? "failed" : "retry", System.nanoTime() - start, entry.getReceivedAt());
+        }
+    }
+
+    private void markDone(Long inboxId) {
+        inboxRepository.findById(inboxId).ifPresent(entry -> {
+            entry.setStatus(MoMoIpnInbox.DONE);
+            entry.setProcessedAt(LocalDateTime.now());
+            entry.setLastError(null);
+        });
+    }
+
+    private void markError(Long inboxId, Exception error, boolean giveUp) {
+        inboxRepository.findById(inboxId).ifPresent(entry -> {
+            entry.setLastError(String.valueOf(error.getMessage()));
+            if (giveUp) {
+                entry.setStatus(MoMoIpnInbox.FAILED);
+                entry.setProcessedAt(LocalDateTime.now());
+            } else {
+                long backoff = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(entry.getAttempts(), 10));
+                entry.setStatus(MoMoIpnInbox.PENDING);
+                entry.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,28 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import java.util.UUID;
+
+/**
+ * orderId gửi MoMo = paymentId bỏ dấu '-' + "-" + timestamp (mỗi lần tạo link là 1 orderId mới)
+ */
+public final class MoMoOrderId {
+
+    private MoMoOrderId() {
+    }
+
+    public static String of(UUID paymentId) {
+        return paymentId.toString().replace("-", "") + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * @throws IllegalArgumentException nếu orderId không theo định dạng trên
+     */
+    public static UUID paymentIdOf(String momoOrderId) {
+        String raw = momoOrderId.split("-")[0];
+        String uuid = raw.replaceFirst(
+                "(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})",
+                "$1-$2-$3-$4-$5"
+        );
+        return UUID.fromString(uuid);
+    }
+}
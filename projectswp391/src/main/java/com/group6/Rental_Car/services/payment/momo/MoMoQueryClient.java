@@ -0,0 +1,14 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tra cứu trạng thái giao dịch MoMo theo orderId đã gửi lúc tạo link.
+ * Chọn cài đặt qua momo.reconcile.client (http | stub), xem MoMoQueryClientConfig.
+ */
+public interface MoMoQueryClient {
+
+    CompletableFuture<MomoQueryResponse> query(String momoOrderId);
+}
@@ -0,0 +1,159 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.utils.Utils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * Ký HMAC-SHA256 cho MoMo bằng secret key trong cấu hình.
+ * Mac chỉ khởi tạo 1 lần: mỗi platform thread giữ 1 bản (ThreadLocal), virtual thread clone từ bản mẫu.
+ * Chuỗi ký được ghép trong buffer dùng lại của luồng và mã hóa thẳng vào ByteBuffer, không tạo String trung gian.
+ */
+@Component
+public class MoMoSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // Trường trong chuỗi ký IPN / redirect (API v2), theo thứ tự alphabet, sau accessKey
+    private static final String[] IPN_FIELDS = {
+            "amount", "extraData", "message", "orderId", "orderInfo", "orderType", "partnerCode",
+            "payType", "requestId", "responseTime", "resultCode", "transId"
+    };
+
+    private final String accessKey;
+    private final SecretKeySpec secretKey;
+    private final Mac prototype;
+    private final ThreadLocal<Mac> threadMac = ThreadLocal.withInitial(this::newMac);
+    private final ThreadLocal<Canonical> threadCanonical = ThreadLocal.withInitial(Canonical::new);
+
+    public MoMoSigner(MoMoConfig momoConfig) {
+        this.accessKey = momoConfig.getAccessKey();
+        this.secretKey = StringUtils.hasText(momoConfig.getSecretKey())
+                ? new SecretKeySpec(momoConfig.getSecretKey().getBytes(StandardCharsets.UTF_8), ALGORITHM)
+                : null;
+        this.prototype = secretKey != null ? createMac() : null;
+    }
+
+    /**
+     * Bắt đầu 1 chuỗi ký mới. Không giữ lại đối tượng trả về sau khi gọi {@link Canonical#sign()}:
+     * trên platform thread nó được dùng lại cho lần ký sau.
+     */
+    public Canonical canonical() {
+        Canonical canonical = Thread.currentThread().isVirtual() ? new Canonical() : threadCanonical.get();
+        canonical.reset();
+        return canonical;
+    }
+
+    /**
+     * Kiểm chữ ký IPN / redirect MoMo, trường thiếu coi như chuỗi rỗng
+     */
+    public boolean verifyIpn(Map<String, String> params) {
+        String signature = params.get("signature");
+        if (signature == null || signature.isBlank()) return false;
+
+        String expected = signIpn(params);
+        // So sánh thời gian hằng, tránh dò chữ ký qua thời gian phản hồi
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Chữ ký IPN / redirect theo bộ trường của MoMo (bỏ qua "signature" nếu có trong params)
+     */
+    public String signIpn(Map<String, String> params) {
+        Canonical canonical = canonical().add("accessKey", accessKey);
+        for (String field : IPN_FIELDS) {
+            canonical.add(field, params.get(field));
+        }
+        return canonical.sign();
+    }
+
+    private Mac mac() {
+        if (secretKey == null) {
+            throw new IllegalStateException("momo.secret-key chưa được cấu hình");
+        }
+        return Thread.currentThread().isVirtual() ? newMac() : threadMac.get();
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return createMac();
+        }
+    }
+
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không khởi tạo được " + ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Chuỗi ký dạng key1=value1&key2=value2..., giá trị null ghi thành rỗng
+     */
+    public final class Canonical {
+
+        private final StringBuilder raw = new StringBuilder(512);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final byte[] digest = new byte[32];
+        private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+        private Canonical() {
+        }
+
+        public Canonical add(String key, Object value) {
+            if (!raw.isEmpty()) raw.append('&');
+            raw.append(key).append('=');
+            if (value != null) raw.append(value);
+            return this;
+        }
+
+        /**
+         * @return chữ ký hex chữ thường
+         */
+        public String sign() {
+            encode();
+            Mac mac = mac();
+            mac.update(bytes);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Không ký được dữ liệu MoMo", e);
+            }
+            return Utils.toHex(digest);
+        }
+
+        private void reset() {
+            raw.setLength(0);
+        }
+
+        private void encode() {
+            while (true) {
+                encoder.reset();
+                bytes.clear();
+                CoderResult result = encoder.encode(CharBuffer.wrap(raw), bytes, true);
+                if (!result.isOverflow()) result = encoder.flush(bytes);
+                if (!result.isOverflow()) break;
+                bytes = ByteBuffer.allocate(Math.max(bytes.capacity() * 2, raw.length() * 3));
+            }
+            bytes.flip();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentRequest;
+import com.group6.Rental_Car.dtos.payment.MomoCreatePaymentResponse;
+import com.group6.Rental_Car.dtos.payment.MomoQueryRequest;
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giả lập cổng MoMo v2 (create / query / IPN) để chạy luồng thanh toán và load test không cần MoMo sandbox.
+ * Dùng chung partnerCode / secretKey với ứng dụng nên chữ ký 2 chiều kiểm được như MoMo thật.
+ * Độ trễ, tỉ lệ lỗi, tỉ lệ từ chối và IPN trùng cấu hình qua momo.simulator.*
+ * Giao dịch chỉ giữ trong bộ nhớ tối đa transactionTtlMs và maxTransactions (load test dài không làm đầy heap).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "momo.simulator", name = "enabled", havingValue = "true")
+public class MoMoSimulator {
+
+    // Mã kết quả MoMo dùng trong giả lập
+    private static final int SUCCESS = 0;
+    private static final int PROCESSING = 1000;
+    private static final int INVALID_SIGNATURE = 11;
+    private static final int NOT_FOUND = 42;
+    private static final int DECLINED = 1006;
+
+    private final MoMoConfig momoConfig;
+    private final MoMoConfig.Simulator config;
+    private final MoMoSigner momoSigner;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("momo-sim").daemon().factory());
+    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+    // orderId theo thứ tự tạo: xoá quá hạn / vượt giới hạn từ đầu hàng đợi, không phải quét cả map
+    private final Queue<Transaction> expiry = new ConcurrentLinkedQueue<>();
+    private final AtomicLong transIds = new AtomicLong(System.currentTimeMillis());
+
+    public MoMoSimulator(MoMoConfig momoConfig, MoMoSigner momoSigner, ObjectMapper objectMapper) {
+        this.momoConfig = momoConfig;
+        this.config = momoConfig.getSimulator();
+        this.momoSigner = momoSigner;
+        this.objectMapper = objectMapper;
+        long sweepMs = Math.max(1000, config.getTransactionTtlMs() / 10);
+        scheduler.scheduleWithFixedDelay(this::evict, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+        log.warn("MoMo simulator đang bật: không dùng ở production");
+    }
+
+    /**
+     * @return null nếu giả lập lỗi hệ thống (controller trả HTTP 503)
+     */
+    public MomoCreatePaymentResponse create(MomoCreatePaymentRequest request, String payUrlBase) {
+        delay();
+        if (ThreadLocalRandom.current().nextDouble() < config.getErrorRate()) {
+            return null;
+        }
+
+        String expected = momoSigner.canonical()
+                .add("accessKey", request.getAccessKey())
+                .add("amount", request.getAmount())
+                .add("extraData", request.getExtraData())
+                .add("ipnUrl", request.getIpnUrl())
+                .add("orderId", request.getOrderId())
+                .add("orderInfo", request.getOrderInfo())
+                .add("partnerCode", request.getPartnerCode())
+                .add("redirectUrl", request.getRedirectUrl())
+                .add("requestId", request.getRequestId())
+                .add("requestType", request.getRequestType())
+                .sign();
+        if (!expected.equals(request.getSignature())) {
+            return createResponse(request, INVALID_SIGNATURE, "Sai chữ ký", null);
+        }
+
+        Transaction transaction = new Transaction(request);
+        if (transactions.putIfAbsent(request.getOrderId(), transaction) != null) {
+            return createResponse(request, 41, "Trùng orderId", null);
+        }
+        expiry.add(transaction);
+        if (transactions.size() > config.getMaxTransactions()) {
+            evict();
+        }
+
+        if (config.isAutoPay()) {
+            scheduler.schedule(() -> complete(request.getOrderId()), config.getIpnDelayMs(), TimeUnit.MILLISECONDS);
+        }
+        String payUrl = UriComponentsBuilder.fromUriString(payUrlBase)
+                .queryParam("orderId", request.getOrderId())
+                .build().toUriString();
+        return createResponse(request, SUCCESS, "Thành công.", payUrl);
+    }
+
+    public MomoQueryResponse query(MomoQueryRequest request) {
+        delay();
+        Transaction transaction = transactions.get(request.getOrderId());
+        if (transaction == null) {
+            return MomoQueryResponse.builder()
+                    .partnerCode(request.getPartnerCode())
+                    .orderId(request.getOrderId())
+                    .requestId(request.getRequestId())
+                    .resultCode(NOT_FOUND)
+                    .message("Không tìm thấy giao dịch")
+                    .responseTime(System.currentTimeMillis())
+                    .build();
+        }
+        return MomoQueryResponse.builder()
+                .partnerCode(transaction.request.getPartnerCode())
+                .orderId(transaction.request.getOrderId())
+                .requestId(request.getRequestId())
+                .extraData(transaction.request.getExtraData())
+                .amount(Long.parseLong(transaction.request.getAmount()))
+                .transId(transaction.transId)
+                .payType("qr")
+                .resultCode(transaction.resultCode)
+                .message(transaction.resultCode == PROCESSING ? "Giao dịch đang xử lý" : "Đã xử lý")
+                .responseTime(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Người dùng "thanh toán" trên payUrl (hoặc tự động khi autoPay): chốt kết quả và bắn IPN
+     *
+     * @return URL redirect về ứng dụng kèm tham số như MoMo, null nếu không có giao dịch
+     */
+    public String complete(String orderId) {
+        Transaction transaction = transactions.get(orderId);
+        if (transaction == null) return null;
+
+        synchronized (transaction) {
+            if (transaction.resultCode == PROCESSING) {
+                transaction.resultCode = ThreadLocalRandom.current().nextDouble() < config.getDeclineRate()
+                        ? DECLINED : SUCCESS;
+                transaction.transId = transIds.incrementAndGet();
+                transaction.responseTime = System.currentTimeMillis();
+                Map<String, String> ipn = ipnParams(transaction);
+                sendIpn(transaction.request.getIpnUrl(), ipn);
+                if (ThreadLocalRandom.current().nextDouble() < config.getDuplicateRate()) {
+                    scheduler.schedule(() -> sendIpn(transaction.request.getIpnUrl(), ipn),
+                            ThreadLocalRandom.current().nextLong(50, 500), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        UriComponentsBuilder redirect = UriComponentsBuilder.fromUriString(transaction.request.getRedirectUrl());
+        ipnParams(transaction).forEach(redirect::queryParam);
+        return redirect.encode().build().toUriString();
+    }
+
+    /**
+     * Xoá giao dịch quá transactionTtlMs, rồi giao dịch cũ nhất cho đến khi không vượt maxTransactions
+     */
+    void evict() {
+        long expiredBefore = System.currentTimeMillis() - config.getTransactionTtlMs();
+        Transaction oldest;
+        while ((oldest = expiry.peek()) != null
+                && (oldest.createdAt < expiredBefore || transactions.size() > config.getMaxTransactions())) {
+            if (expiry.remove(oldest)) {
+                transactions.remove(oldest.request.getOrderId(), oldest);
+            }
+        }
+    }
+
+    private Map<String, String> ipnParams(Transaction transaction) {
+        MomoCreatePaymentRequest request = transaction.request;
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("partnerCode", request.getPartnerCode());
+        params.put("orderId", request.getOrderId());
+        params.put("requestId", request.getRequestId());
+        params.put("amount", request.getAmount());
+        params.put("orderInfo", request.getOrderInfo());
+        params.put("orderType", "momo_wallet");
+        params.put("transId", String.valueOf(transaction.transId));
+        params.put("resultCode", String.valueOf(transaction.resultCode));
+        params.put("message", transaction.resultCode == SUCCESS ? "Thành công." : "Người dùng từ chối giao dịch");
+        params.put("payType", "qr");
+        params.put("responseTime", String.valueOf(transaction.responseTime));
+        params.put("extraData", request.getExtraData() == null ? "" : request.getExtraData());
+        params.put("signature", momoSigner.signIpn(params));
+        return params;
+    }
+
+    private void sendIpn(String ipnUrl, Map<String, String> params) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            log.warn("MoMo simulator không serialize được IPN: {}", e.getMessage());
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(ipnUrl))
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.warn("MoMo simulator gửi IPN {} lỗi: {}", params.get("orderId"), error.toString());
+                    } else if (response.statusCode() >= 300) {
+                        log.warn("MoMo simulator gửi IPN {} nhận HTTP {}", params.get("orderId"), response.statusCode());
+                    }
+                });
+    }
+
+    private MomoCreatePaymentResponse createResponse(MomoCreatePaymentRequest request, int resultCode,
+                                                     String message, String payUrl) {
+        long responseTime = System.currentTimeMillis();
+        String signature = momoSigner.canonical()
+                .add("accessKey", momoConfig.getAccessKey())
+                .add("amount", request.getAmount())
+                .add("message", message)
+                .add("orderId", request.getOrderId())
+                .add("partnerCode", request.getPartnerCode())
+                .add("payUrl", payUrl)
+                .add("requestId", request.getRequestId())
+                .add("responseTime", responseTime)
+                .add("resultCode", resultCode)
+                .sign();
+        return MomoCreatePaymentResponse.builder()
+                .partnerCode(request.getPartnerCode())
+                .requestId(request.getRequestId())
+                .orderId(request.getOrderId())
+                .amount(parseAmount(request.getAmount()))
+                .responseTime(responseTime)
+                .resultCode(resultCode)
+                .message(message)
+                .requestType(request.getRequestType())
+                .payUrl(payUrl)
+                .signature(signature)
+                .build();
+    }
+
+    private static Long parseAmount(String amount) {
+        try {
+            return amount == null ? null : Long.parseLong(amount);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void delay() {
+        if (config.getLatencyMs() <= 0) return;
+        try {
+            Thread.sleep(config.getLatencyMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Transaction {
+        private final MomoCreatePaymentRequest request;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile int resultCode = PROCESSING;
+        private volatile long transId;
+        private volatile long responseTime;
+
+        private Transaction(MomoCreatePaymentRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.group6.Rental_Car.services.payment.momo;
+
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Không gọi MoMo, mọi giao dịch trả cùng 1 resultCode (momo.reconcile.stub-result-code).
+ * Dùng cho test và môi trường không có tài khoản MoMo sandbox.
+ */
+@RequiredArgsConstructor
+public class StubMoMoQueryClient implements MoMoQueryClient {
+
+    private final int resultCode;
+
+    @Override
+    public CompletableFuture<MomoQueryResponse> query(String momoOrderId) {
+        return CompletableFuture.completedFuture(MomoQueryResponse.builder()
+                .orderId(momoOrderId)
+                .resultCode(resultCode)
+                .message("Stub query result")
+                .responseTime(System.currentTimeMillis())
+                .build());
+    }
+}
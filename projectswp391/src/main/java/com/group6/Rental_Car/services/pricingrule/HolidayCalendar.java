@@ -0,0 +1,86 @@
+package com.group6.Rental_Car.services.pricingrule;
+
+import com.group6.Rental_Car.entities.Holiday;
+import com.group6.Rental_Car.repositories.HolidayRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lịch ngày lễ (bảng holiday) trong bộ nhớ, dạng mảng epochDay đã sắp xếp.
+ * Chỉ giữ ngày lễ rơi vào thứ 2 - thứ 6: ngày lễ trùng cuối tuần vốn đã tính giá cuối tuần.
+ * Ngày lễ trong [start, end) = 2 lần binary search rồi chép đoạn giữa.
+ * Nạp khi khởi động, sau mỗi lần thêm / xóa (sau commit) và định kỳ (sửa tay trong DB, nhiều node).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HolidayCalendar {
+
+    private final HolidayRepository holidayRepository;
+
+    private volatile long[] weekdayHolidays = new long[0];
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 3600000, fixedDelay = 3600000) // Đồng bộ lại mỗi giờ
+    public synchronized void reload() {
+        weekdayHolidays = holidayRepository.findAllByOrderByHolidayDateAsc().stream()
+                .map(Holiday::getHolidayDate)
+                .filter(date -> !isWeekend(date))
+                .mapToLong(LocalDate::toEpochDay)
+                .toArray();
+        log.info("Nạp lịch ngày lễ: {} ngày (thứ 2 - thứ 6)", weekdayHolidays.length);
+    }
+
+    /**
+     * Nạp lại khi transaction hiện tại commit (thêm / xóa ngày lễ)
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * Các ngày lễ thứ 2 - thứ 6 trong [start, end), tăng dần
+     */
+    public List<LocalDate> weekdayHolidays(LocalDate start, LocalDate end) {
+        long[] days = weekdayHolidays;
+        int from = lowerBound(days, start.toEpochDay());
+        int to = lowerBound(days, end.toEpochDay());
+        List<LocalDate> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(LocalDate.ofEpochDay(days[i]));
+        }
+        return result;
+    }
+
+    static boolean isWeekend(LocalDate date) {
+        DayOfWeek d = date.getDayOfWeek();
+        return d == DayOfWeek.SATURDAY || d == DayOfWeek.SUNDAY;
+    }
+
+    // Vị trí phần tử đầu tiên >= key
+    private static int lowerBound(long[] days, long key) {
+        int i = Arrays.binarySearch(days, key);
+        return i >= 0 ? i : -i - 1;
+    }
+}
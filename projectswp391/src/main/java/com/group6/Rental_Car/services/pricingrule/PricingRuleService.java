@@ -1,5 +1,7 @@
 package com.group6.Rental_Car.services.pricingrule;
 
+import com.group6.Rental_Car.dtos.pricingrule.HolidayDto;
+import com.group6.Rental_Car.dtos.pricingrule.PricingQuoteResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleUpdateRequest;
 import com.group6.Rental_Car.entities.Coupon;
@@ -14,6 +16,10 @@ public interface PricingRuleService {
 
     BigDecimal calculateRentalPrice(PricingRule pricingRule, LocalDate startDate, LocalDate endDate);
 
+    PricingQuoteResponse quote(PricingRule pricingRule, LocalDate startDate, LocalDate endDate);
+
+    PricingQuoteResponse quote(String carmodel, LocalDate startDate, LocalDate endDate);
+
     BigDecimal applyLateFee(PricingRule pricingRule, long lateDays);
 
     BigDecimal applyCoupon(BigDecimal basePrice, Coupon coupon);
@@ -21,4 +27,10 @@ public interface PricingRuleService {
     List<PricingRuleResponse> getAllPricingRules();
 
     PricingRuleResponse updatePricingRule(String carmodel, PricingRuleUpdateRequest req);
+
+    List<HolidayDto> getHolidays();
+
+    HolidayDto addHoliday(HolidayDto req);
+
+    void deleteHoliday(LocalDate date);
 }
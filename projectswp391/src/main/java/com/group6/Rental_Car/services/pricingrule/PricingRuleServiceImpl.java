@@ -1,11 +1,16 @@
 package com.group6.Rental_Car.services.pricingrule;
 
+import com.group6.Rental_Car.dtos.pricingrule.HolidayDto;
+import com.group6.Rental_Car.dtos.pricingrule.PricingQuoteResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleResponse;
 import com.group6.Rental_Car.dtos.pricingrule.PricingRuleUpdateRequest;
 import com.group6.Rental_Car.entities.Coupon;
+import com.group6.Rental_Car.entities.Holiday;
 import com.group6.Rental_Car.entities.PricingRule;
 import com.group6.Rental_Car.exceptions.BadRequestException;
+import com.group6.Rental_Car.exceptions.ConflictException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
+import com.group6.Rental_Car.repositories.HolidayRepository;
 import com.group6.Rental_Car.repositories.PricingRuleRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
@@ -13,9 +18,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,6 +31,8 @@ public class PricingRuleServiceImpl implements PricingRuleService {
 
     private final PricingRuleRepository pricingRuleRepository;
     private final ModelMapper modelMapper;
+    private final HolidayRepository holidayRepository;
+    private final HolidayCalendar holidayCalendar;
 
     @Override
     public PricingRule getPricingRuleByCarmodel(String carmodel) {
@@ -37,33 +44,78 @@ public class PricingRuleServiceImpl implements PricingRuleService {
 
     @Override
     public BigDecimal calculateRentalPrice(PricingRule pricingRule, LocalDate startDate, LocalDate endDate) {
+        return quote(pricingRule, startDate, endDate).getTotal();
+    }
+
+    @Override
+    public PricingQuoteResponse quote(String carmodel, LocalDate startDate, LocalDate endDate) {
+        return quote(getPricingRuleByCarmodel(carmodel), startDate, endDate);
+    }
+
+    /**
+     * Tính giá cho [startDate, endDate) (KHÔNG bao gồm endDate vì đó là ngày trả)
+     * Ví dụ: 23/11 đến 28/11 = 5 ngày (23, 24, 25, 26, 27) - ngày 28 là ngày trả, không tính
+     * Cuối tuần và ngày lễ (lịch holiday) tính holidayPrice nếu pricing rule có, còn lại dailyPrice.
+     * Số ngày mỗi loại đếm bằng công thức, không duyệt từng ngày.
+     */
+    @Override
+    public PricingQuoteResponse quote(PricingRule pricingRule, LocalDate startDate, LocalDate endDate) {
         if (pricingRule == null) throw new BadRequestException("Thiếu quy tắc giá");
         if (startDate == null || endDate == null || !endDate.isAfter(startDate))
             throw new BadRequestException("Ngày thuê không hợp lệ");
 
-        // Tính số ngày: từ startDate đến endDate (KHÔNG bao gồm endDate vì đó là ngày trả)
-        // Ví dụ: 23/11 đến 28/11 = 5 ngày (23, 24, 25, 26, 27) - ngày 28 là ngày trả, không tính
         long days = ChronoUnit.DAYS.between(startDate, endDate);
-        BigDecimal total = BigDecimal.ZERO;
-
-        System.out.println("📅 [calculateRentalPrice] Start: " + startDate + ", End: " + endDate + ", Days: " + days);
-
-        for (int i = 0; i < days; i++) {
-            LocalDate current = startDate.plusDays(i);
-            BigDecimal dayPrice = pricingRule.getDailyPrice();
+        BigDecimal dailyPrice = pricingRule.getDailyPrice();
+        BigDecimal holidayPrice = pricingRule.getHolidayPrice();
+
+        List<PricingQuoteResponse.Line> lines = new ArrayList<>();
+        List<LocalDate> holidays = List.of();
+        if (holidayPrice == null) {
+            // Không có giá ngày lễ → mọi ngày tính dailyPrice
+            lines.add(line("WEEKDAY", days, dailyPrice));
+        } else {
+            long weekendDays = weekendDaysBefore(endDate) - weekendDaysBefore(startDate);
+            holidays = holidayCalendar.weekdayHolidays(startDate, endDate);
+            long holidayDays = holidays.size();
+            long weekdayDays = days - weekendDays - holidayDays;
+
+            lines.add(line("WEEKDAY", weekdayDays, dailyPrice));
+            lines.add(line("WEEKEND", weekendDays, holidayPrice));
+            lines.add(line("HOLIDAY", holidayDays, holidayPrice));
+        }
 
-            if (isWeekend(current) && pricingRule.getHolidayPrice() != null) {
-                dayPrice = pricingRule.getHolidayPrice();
-                System.out.println("📅 [calculateRentalPrice] " + current + " (WEEKEND) = " + dayPrice);
-            } else {
-                System.out.println("📅 [calculateRentalPrice] " + current + " (WEEKDAY) = " + dayPrice);
-            }
+        BigDecimal total = lines.stream()
+                .map(PricingQuoteResponse.Line::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        return PricingQuoteResponse.builder()
+                .carmodel(pricingRule.getCarmodel())
+                .startDate(startDate)
+                .endDate(endDate)
+                .totalDays(days)
+                .lines(lines)
+                .holidays(holidays)
+                .total(total)
+                .build();
+    }
 
-            total = total.add(dayPrice);
-        }
+    private static PricingQuoteResponse.Line line(String type, long days, BigDecimal unitPrice) {
+        return PricingQuoteResponse.Line.builder()
+                .type(type)
+                .days(days)
+                .unitPrice(unitPrice)
+                .amount(unitPrice.multiply(BigDecimal.valueOf(days)))
+                .build();
+    }
 
-        System.out.println("💰 [calculateRentalPrice] Total: " + total);
-        return total;
+    /**
+     * Số ngày thứ 7 / chủ nhật trong [1970-01-01, date).
+     * Dời gốc về thứ 2 (1970-01-01 là thứ 5, chỉ số 3 khi thứ 2 = 0): mỗi 7 ngày có 2 ngày cuối tuần,
+     * phần dư r ngày có max(0, r - 5) ngày cuối tuần (chỉ số 5, 6).
+     */
+    static long weekendDaysBefore(LocalDate date) {
+        long m = date.toEpochDay() + 3;
+        return 2 * Math.floorDiv(m, 7) + Math.max(0, Math.floorMod(m, 7) - 5);
     }
 
     /**
@@ -137,8 +189,31 @@ public class PricingRuleServiceImpl implements PricingRuleService {
             throw new BadRequestException("Coupon không khả dụng");
     }
 
-    private boolean isWeekend(LocalDate date) {
-        DayOfWeek d = date.getDayOfWeek();
-        return d == DayOfWeek.SATURDAY || d == DayOfWeek.SUNDAY;
+    @Override
+    public List<HolidayDto> getHolidays() {
+        return holidayRepository.findAllByOrderByHolidayDateAsc().stream()
+                .map(h -> new HolidayDto(h.getHolidayDate(), h.getName()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public HolidayDto addHoliday(HolidayDto req) {
+        if (req.getDate() == null || req.getName() == null || req.getName().isBlank())
+            throw new BadRequestException("Thiếu ngày hoặc tên ngày lễ");
+        if (holidayRepository.existsById(req.getDate()))
+            throw new ConflictException("Ngày lễ đã tồn tại: " + req.getDate());
+
+        Holiday saved = holidayRepository.save(new Holiday(req.getDate(), req.getName().trim()));
+        holidayCalendar.reloadAfterCommit();
+        return new HolidayDto(saved.getHolidayDate(), saved.getName());
+    }
+
+    @Override
+    public void deleteHoliday(LocalDate date) {
+        if (!holidayRepository.existsById(date))
+            throw new ResourceNotFoundException("Không tìm thấy ngày lễ: " + date);
+
+        holidayRepository.deleteById(date);
+        holidayCalendar.reloadAfterCommit();
     }
 }
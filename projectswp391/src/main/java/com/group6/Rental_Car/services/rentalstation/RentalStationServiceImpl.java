@@ -7,6 +7,7 @@ import com.group6.Rental_Car.entities.RentalStation;
 import com.group6.Rental_Car.exceptions.ConflictException;
 import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
 import com.group6.Rental_Car.repositories.RentalStationRepository;
+import com.group6.Rental_Car.services.fleet.FleetStateRegistry;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
@@ -16,10 +17,13 @@ import java.util.List;
 public class RentalStationServiceImpl implements RentalStationService{
 private final RentalStationRepository repository;
 private final ModelMapper modelMapper;
+private final FleetStateRegistry fleetState;
 
-    public RentalStationServiceImpl(RentalStationRepository repository, ModelMapper modelMapper) {
+    public RentalStationServiceImpl(RentalStationRepository repository, ModelMapper modelMapper,
+                                    FleetStateRegistry fleetState) {
         this.repository = repository;
         this.modelMapper = modelMapper;
+        this.fleetState = fleetState;
     }
 
     @Override
@@ -92,6 +96,11 @@ private final ModelMapper modelMapper;
         dto.setDistrict(s.getDistrict());
         dto.setWard(s.getWard());
         dto.setStreet(s.getStreet());
+        // Số xe đọc từ bộ đếm trong bộ nhớ, không thêm query cho mỗi trạm; null khi bộ đếm chưa nạp xong
+        if (fleetState.isReady()) {
+            dto.setTotalVehicles(fleetState.vehicleCountAtStation(s.getStationId()));
+            dto.setAvailableVehicles(fleetState.vehicleCount(s.getStationId(), "AVAILABLE"));
+        }
         return dto;
     }
 
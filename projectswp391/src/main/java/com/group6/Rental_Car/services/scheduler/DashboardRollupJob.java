@@ -0,0 +1,39 @@
+package com.group6.Rental_Car.services.scheduler;
+
+import com.group6.Rental_Car.repositories.RentalOrderDetailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dựng lại rollup dashboard (revenue_daily, order_hourly) từ dữ liệu gốc mỗi đêm.
+ * Trong ngày trigger cập nhật rollup cùng transaction với detail / đơn / payment;
+ * lần dựng lại sửa phần trigger không theo được (xe đổi trạm, dòng xe, sửa tay) và bỏ các nhóm đã về 0.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardRollupJob {
+
+    private final RentalOrderDetailRepository rentalOrderDetailRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger rollupRows = new AtomicInteger();
+
+    @Scheduled(cron = "0 0 3 * * *") // 3h mỗi ngày
+    public void rebuildRollup() {
+        long start = System.nanoTime();
+        Integer rows = transactionTemplate.execute(status -> rentalOrderDetailRepository.rebuildDashboardRollup());
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        meterRegistry.timer("dashboard.rollup.rebuild").record(tookMs, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("dashboard.rollup.rows", rollupRows).set(rows != null ? rows : 0);
+        log.info("Dựng lại rollup dashboard: {} dòng revenue_daily trong {} ms", rows, tookMs);
+    }
+}
@@ -0,0 +1,88 @@
+package com.group6.Rental_Car.services.scheduler;
+
+import com.group6.Rental_Car.entities.Payment;
+import com.group6.Rental_Car.entities.RentalOrder;
+import com.group6.Rental_Car.repositories.RentalOrderRepository;
+import com.group6.Rental_Car.services.payment.OrderBalanceCalculator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Đối chiếu rentalorder.paid_amount / remaining_amount với Payment, sửa đơn bị lệch.
+ * Bình thường số lệch = 0 vì trigger cập nhật cột trong cùng transaction với payment;
+ * khác 0 nghĩa là có dữ liệu ghi ngoài luồng (sửa tay, import...) cần xem lại.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderBalanceRebuildJob {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final RentalOrderRepository rentalOrderRepository;
+    private final OrderBalanceCalculator orderBalanceCalculator;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(cron = "0 30 3 * * *") // 3h30 mỗi ngày
+    public void rebuildBalances() {
+        int page = 0;
+        int checked = 0;
+        int drifted = 0;
+        boolean hasNext = true;
+        while (hasNext) {
+            final int current = page++;
+            int[] result = transactionTemplate.execute(status -> rebuildBatch(current));
+            checked += result[0];
+            drifted += result[1];
+            hasNext = result[0] == BATCH_SIZE;
+        }
+
+        meterRegistry.counter("order.balance.drift").increment(drifted);
+        if (drifted > 0) {
+            log.warn("Đối chiếu số dư: {}/{} đơn bị lệch, đã tính lại từ payment", drifted, checked);
+        } else {
+            log.info("Đối chiếu số dư: {} đơn, không có đơn lệch", checked);
+        }
+    }
+
+    /**
+     * @return [số đơn đã kiểm tra, số đơn lệch]
+     */
+    private int[] rebuildBatch(int page) {
+        Page<RentalOrder> orders = rentalOrderRepository.findAll(
+                PageRequest.of(page, BATCH_SIZE, Sort.by("createdAt", "orderId")));
+        Map<UUID, List<Payment>> paymentsByOrder = orderBalanceCalculator.paymentsByOrder(orders.getContent());
+
+        int drifted = 0;
+        for (RentalOrder order : orders) {
+            List<Payment> payments = paymentsByOrder.getOrDefault(order.getOrderId(), List.of());
+            BigDecimal paid = orderBalanceCalculator.paidAmount(payments);
+            BigDecimal remaining = orderBalanceCalculator.remainingAmount(order, payments);
+
+            if (!sameAmount(paid, order.getPaidAmount()) || !sameAmount(remaining, order.getRemainingAmount())) {
+                log.debug("Order {} lệch số dư: paid {} -> {}, remaining {} -> {}", order.getOrderId(),
+                        order.getPaidAmount(), paid, order.getRemainingAmount(), remaining);
+                rentalOrderRepository.updateBalance(order.getOrderId(), paid, remaining);
+                drifted++;
+            }
+        }
+        return new int[]{orders.getNumberOfElements(), drifted};
+    }
+
+    private static boolean sameAmount(BigDecimal expected, BigDecimal stored) {
+        return stored != null && expected.compareTo(stored) == 0;
+    }
+}
@@ -1,5 +1,14 @@
 package com.group6.Rental_Car.services.scheduler;
 
+import java.util.UUID;
+
 public interface OrderMaintenanceService {
     void autoCancelPendingOrders();
+
+    /**
+     * Hủy đơn chưa thanh toán được gì (không có payment PENDING / SUCCESS) và trả xe,
+     * dùng sau khi đối soát xác nhận payment MoMo thất bại.
+     * @return true nếu đơn được hủy
+     */
+    boolean releaseUnpaidOrder(UUID orderId);
 }
\ No newline at end of file
@@ -18,12 +18,18 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderMaintenanceServiceImpl implements OrderMaintenanceService {
 
+    // Trạng thái đơn còn ở bước thanh toán ban đầu (PAYMENT_FAILED do IPN / đối soát báo thất bại)
+    private static final Set<String> RELEASABLE_STATUSES =
+            Set.of("PENDING", "PENDING_DEPOSIT", "PENDING_FULL_PAYMENT", "PAYMENT_FAILED");
+
     private final RentalOrderRepository rentalOrderRepository;
     private final VehicleRepository vehicleRepository;
     private final VehicleTimelineRepository vehicleTimelineRepository;
@@ -61,33 +67,58 @@ public class OrderMaintenanceServiceImpl implements OrderMaintenanceService {
                     continue;
                 }
 
-                //  Cập nhật trạng thái đơn
-                order.setStatus("PAYMENT_FAILED");
-
-                //  Tìm xe trong chi tiết chính
-                Vehicle vehicle = order.getDetails().stream()
-                        .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
-                        .map(RentalOrderDetail::getVehicle)
-                        .findFirst()
-                        .orElse(null);
-
-                if (vehicle != null) {
-                    //  Giải phóng xe
-                    vehicle.setStatus("AVAILABLE");
-                    vehicleRepository.save(vehicle);
-
-                    //  Xóa toàn bộ timeline liên quan đến xe này
-                    List<VehicleTimeline> timelines = vehicleTimelineRepository.findByVehicle_VehicleId(vehicle.getVehicleId());
-                    if (!timelines.isEmpty()) {
-                        vehicleTimelineRepository.deleteAll(timelines);
-                        log.info(" Xóa {} timeline của xe {} do order {} bị hủy",
-                                timelines.size(), vehicle.getVehicleId(), order.getOrderId());
-                    }
-                }
-
-                rentalOrderRepository.save(order);
+                cancelAndReleaseVehicle(order);
                 log.info("Auto-cancel order {} — quá 30 phút chưa thanh toán và không có payment PENDING", order.getOrderId());
             }
         }
     }
+
+    @Override
+    @Transactional
+    public boolean releaseUnpaidOrder(UUID orderId) {
+        RentalOrder order = rentalOrderRepository.findById(orderId).orElse(null);
+        if (order == null || !RELEASABLE_STATUSES.contains(order.getStatus())) {
+            return false;
+        }
+
+        boolean hasOpenOrPaidPayment = paymentRepository.findByRentalOrder_OrderId(orderId).stream()
+                .anyMatch(p -> p.getStatus() == PaymentStatus.PENDING || p.getStatus() == PaymentStatus.SUCCESS);
+        if (hasOpenOrPaidPayment) {
+            return false;
+        }
+
+        cancelAndReleaseVehicle(order);
+        log.info("Hủy order {} sau đối soát — payment MoMo thất bại, chưa thanh toán khoản nào", orderId);
+        return true;
+    }
+
+    private void cancelAndReleaseVehicle(RentalOrder order) {
+        //  Cập nhật trạng thái đơn
+        order.setStatus("PAYMENT_FAILED");
+
+        //  Tìm xe trong chi tiết chính
+        Vehicle vehicle = order.getDetails().stream()
+                .filter(d -> "RENTAL".equalsIgnoreCase(d.getType()))
+                .map(RentalOrderDetail::getVehicle)
+                .findFirst()
+                .orElse(null);
+
+        if (vehicle != null) {
+            //  Giải phóng xe
+            vehicle.setStatus("AVAILABLE");
+            vehicleRepository.save(vehicle);
+
+            //  Xóa timeline của đơn này (không đụng lịch của đơn khác trên cùng xe)
+            List<VehicleTimeline> timelines = vehicleTimelineRepository.findByVehicle_VehicleId(vehicle.getVehicleId()).stream()
+                    .filter(t -> t.getOrder() != null && order.getOrderId().equals(t.getOrder().getOrderId()))
+                    .toList();
+            if (!timelines.isEmpty()) {
+                vehicleTimelineRepository.deleteAll(timelines);
+                log.info(" Xóa {} timeline của xe {} do order {} bị hủy",
+                        timelines.size(), vehicle.getVehicleId(), order.getOrderId());
+            }
+        }
+
+        rentalOrderRepository.save(order);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.group6.Rental_Car.services.scheduler;
+
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.dtos.payment.MomoQueryResponse;
+import com.group6.Rental_Car.entities.Payment;
+import com.group6.Rental_Car.enums.PaymentStatus;
+import com.group6.Rental_Car.repositories.PaymentRepository;
+import com.group6.Rental_Car.services.payment.OrderPaymentSnapshot;
+import com.group6.Rental_Car.services.payment.PaymentService;
+import com.group6.Rental_Car.services.payment.momo.MoMoQueryClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Đối soát payment MoMo PENDING bị mất IPN: duyệt theo trang, tra cứu MoMo song song (giới hạn
+ * momo.reconcile.concurrency request cùng lúc) rồi ghi kết quả qua đúng handleMoMoCallback như IPN.
+ * Đặt cọc / thanh toán toàn bộ thất bại thì hủy đơn và trả xe luôn, không chờ ai xử lý tay.
+ */
+@Slf4j
+@Component
+public class PaymentReconciliationJob {
+
+    // Giao dịch MoMo chưa kết thúc (chờ người dùng xác nhận / đang xử lý) → để lần sau
+    private static final Set<Integer> IN_PROGRESS_CODES = Set.of(1000, 7000, 7002);
+    private static final LocalDateTime START_CURSOR = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID START_ID = new UUID(0, 0);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final OrderMaintenanceService orderMaintenanceService;
+    private final MoMoQueryClient momoQueryClient;
+    private final MeterRegistry meterRegistry;
+    private final MoMoConfig.Reconcile config;
+
+    public PaymentReconciliationJob(PaymentRepository paymentRepository,
+                                    PaymentService paymentService,
+                                    OrderMaintenanceService orderMaintenanceService,
+                                    MoMoQueryClient momoQueryClient,
+                                    MeterRegistry meterRegistry,
+                                    MoMoConfig momoConfig) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.orderMaintenanceService = orderMaintenanceService;
+        this.momoQueryClient = momoQueryClient;
+        this.meterRegistry = meterRegistry;
+        this.config = momoConfig.getReconcile();
+    }
+
+    @Scheduled(initialDelay = 120000, fixedDelayString = "${momo.reconcile.interval-ms:300000}")
+    public void reconcile() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(config.getStaleMinutes());
+        LocalDateTime afterCreatedAt = START_CURSOR;
+        UUID afterPaymentId = START_ID;
+        Map<String, Integer> totals = new HashMap<>();
+
+        while (true) {
+            List<Payment> batch = paymentRepository.findStaleMoMoPayments(PaymentStatus.PENDING, staleBefore,
+                    afterCreatedAt, afterPaymentId, PageRequest.of(0, config.getBatchSize()));
+            if (batch.isEmpty()) break;
+
+            List<StalePayment> stale = batch.stream().map(StalePayment::of).toList();
+            List<MomoQueryResponse> results = queryAll(stale);
+            for (int i = 0; i < stale.size(); i++) {
+                String outcome = apply(stale.get(i), results.get(i));
+                totals.merge(outcome, 1, Integer::sum);
+                meterRegistry.counter("momo.reconcile.outcome", "outcome", outcome).increment();
+            }
+
+            Payment last = batch.get(batch.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterPaymentId = last.getPaymentId();
+            if (batch.size() < config.getBatchSize()) break;
+        }
+
+        if (!totals.isEmpty()) {
+            log.info("Đối soát MoMo: {}", totals);
+        }
+    }
+
+    /**
+     * Tra cứu cả trang, tối đa concurrency request cùng lúc; lỗi của từng payment trả null
+     */
+    private List<MomoQueryResponse> queryAll(List<StalePayment> stale) {
+        Semaphore permits = new Semaphore(Math.max(1, config.getConcurrency()));
+        List<CompletableFuture<MomoQueryResponse>> futures = new ArrayList<>(stale.size());
+        for (StalePayment payment : stale) {
+            permits.acquireUninterruptibly();
+            futures.add(momoQueryClient.query(payment.momoOrderId())
+                    .exceptionally(e -> {
+                        log.warn("Tra cứu MoMo {} lỗi: {}", payment.momoOrderId(), e.getMessage());
+                        return null;
+                    })
+                    .whenComplete((r, e) -> permits.release()));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private String apply(StalePayment payment, MomoQueryResponse result) {
+        if (result == null || result.getResultCode() == null) return "error";
+        int resultCode = result.getResultCode();
+        if (IN_PROGRESS_CODES.contains(resultCode)) return "pending";
+
+        try {
+            Map<String, String> params = new HashMap<>();
+            params.put("orderId", payment.momoOrderId());
+            params.put("resultCode", String.valueOf(resultCode));
+            params.put("message", result.getMessage());
+            if (result.getTransId() != null) params.put("transId", String.valueOf(result.getTransId()));
+            paymentService.handleMoMoCallback(params);
+        } catch (Exception e) {
+            log.warn("Ghi kết quả đối soát payment {} lỗi: {}", payment.paymentId(), e.getMessage());
+            return "error";
+        }
+
+        if (resultCode == 0) return "success";
+
+        // Đặt cọc / thanh toán toàn bộ thất bại: đơn chưa trả đồng nào thì hủy và trả xe
+        if (payment.paymentType() == OrderPaymentSnapshot.DEPOSIT || payment.paymentType() == OrderPaymentSnapshot.FULL) {
+            orderMaintenanceService.releaseUnpaidOrder(payment.orderId());
+        }
+        return "failed";
+    }
+
+    // Giữ lại những gì cần sau khi entity đã detach (mỗi handleMoMoCallback chạy transaction riêng)
+    private record StalePayment(UUID paymentId, String momoOrderId, UUID orderId, short paymentType) {
+        static StalePayment of(Payment payment) {
+            return new StalePayment(payment.getPaymentId(), payment.getMomoOrderId(),
+                    payment.getRentalOrder().getOrderId(), payment.getPaymentType());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.group6.Rental_Car.services.timeline;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Các phép tính trên danh sách khoảng thời gian [start, end) của timeline, không truy vấn DB
+ */
+public final class TimelineIntervals {
+
+    private TimelineIntervals() {
+    }
+
+    public record Interval(LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Sweep-line: duyệt windows theo end tăng dần, đồng thời đẩy con trỏ qua busy (đã sắp theo start).
+     * Mọi busy đã đi qua đều có start < window.end, nên window bị chiếm khi max(end) của chúng > window.start.
+     * O((W + B) log W) thay vì W x B phép so sánh.
+     *
+     * @param busySortedByStart khoảng BOOKED/RENTAL của 1 xe, sắp theo start
+     * @return free[i] = windows.get(i) không giao với khoảng busy nào
+     */
+    public static boolean[] freeFlags(List<Interval> busySortedByStart, List<Interval> windows) {
+        Integer[] order = new Integer[windows.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(i -> windows.get(i).end()));
+
+        boolean[] free = new boolean[windows.size()];
+        int next = 0;
+        LocalDateTime maxEnd = null;
+        for (int idx : order) {
+            Interval window = windows.get(idx);
+            while (next < busySortedByStart.size() && busySortedByStart.get(next).start().isBefore(window.end())) {
+                LocalDateTime end = busySortedByStart.get(next++).end();
+                if (maxEnd == null || end.isAfter(maxEnd)) maxEnd = end;
+            }
+            free[idx] = maxEnd == null || !maxEnd.isAfter(window.start());
+        }
+        return free;
+    }
+
+    /**
+     * Tối đa limit khoảng rảnh dài ít nhất duration trong [from, horizon), mỗi khe trống lấy 1 khoảng sớm nhất.
+     * Đi 1 lượt qua busy (sắp theo start), các khoảng busy chồng nhau được gộp bằng con trỏ cursor.
+     */
+    public static List<Interval> freeSlots(List<Interval> busySortedByStart, LocalDateTime from,
+                                           LocalDateTime horizon, Duration duration, int limit) {
+        List<Interval> slots = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (Interval busy : busySortedByStart) {
+            if (slots.size() >= limit || !cursor.isBefore(horizon)) return slots;
+            if (!busy.end().isAfter(cursor)) continue;
+
+            LocalDateTime slotEnd = cursor.plus(duration);
+            if (!slotEnd.isAfter(busy.start()) && !slotEnd.isAfter(horizon)) {
+                slots.add(new Interval(cursor, slotEnd));
+            }
+            cursor = busy.end();
+        }
+        LocalDateTime slotEnd = cursor.plus(duration);
+        if (slots.size() < limit && !slotEnd.isAfter(horizon)) {
+            slots.add(new Interval(cursor, slotEnd));
+        }
+        return slots;
+    }
+}
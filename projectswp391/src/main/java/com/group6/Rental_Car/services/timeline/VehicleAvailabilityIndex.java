@@ -0,0 +1,179 @@
+package com.group6.Rental_Car.services.timeline;
+
+import com.group6.Rental_Car.entities.VehicleTimeline;
+import com.group6.Rental_Car.repositories.VehicleTimelineRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index trong bộ nhớ các khoảng thời gian BOOKED/RENTAL của từng xe (lấy từ vehicle_timeline).
+ * Mỗi xe giữ một mảng window sắp xếp theo startTime kèm mảng max(endTime) cộng dồn,
+ * nên câu hỏi "xe có rảnh trong [start, end) không" trả lời bằng 1 lần binary search, không truy vấn DB.
+ * Index được nạp khi khởi động, cập nhật sau commit qua {@link VehicleTimelineIndexListener}
+ * và nạp lại định kỳ để sửa lệch (ví dụ khi chạy nhiều node).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VehicleAvailabilityIndex {
+
+    public static final List<String> BLOCKING_STATUSES = List.of("BOOKED", "RENTAL");
+
+    private final VehicleTimelineRepository vehicleTimelineRepository;
+
+    private final Map<Long, VehicleWindows> windowsByVehicle = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 300000, fixedDelay = 300000) // Đồng bộ lại mỗi 5 phút
+    public synchronized void reload() {
+        Map<Long, List<Window>> grouped = new HashMap<>();
+        for (VehicleTimeline t : vehicleTimelineRepository.findBlockingWindows(BLOCKING_STATUSES)) {
+            grouped.computeIfAbsent(t.getVehicle().getVehicleId(), k -> new ArrayList<>())
+                    .add(new Window(t.getTimelineId(), t.getStartTime(), t.getEndTime()));
+        }
+
+        Map<Long, VehicleWindows> rebuilt = new HashMap<>();
+        grouped.forEach((vehicleId, windows) -> rebuilt.put(vehicleId, VehicleWindows.of(windows)));
+
+        windowsByVehicle.keySet().retainAll(rebuilt.keySet());
+        windowsByVehicle.putAll(rebuilt);
+        log.info("Nạp availability index: {} xe, {} timeline", rebuilt.size(),
+                grouped.values().stream().mapToInt(List::size).sum());
+    }
+
+    /**
+     * Xe không có timeline BOOKED/RENTAL nào giao với [start, end)
+     * Overlap: (start1 < end2) AND (end1 > start2)
+     */
+    public boolean isFree(Long vehicleId, LocalDateTime start, LocalDateTime end) {
+        VehicleWindows windows = windowsByVehicle.get(vehicleId);
+        return windows == null || !windows.overlaps(start, end);
+    }
+
+    /**
+     * Danh sách window BOOKED/RENTAL của xe, đã sắp xếp theo startTime
+     */
+    public List<Window> windowsOf(Long vehicleId) {
+        VehicleWindows windows = windowsByVehicle.get(vehicleId);
+        return windows == null ? List.of() : List.of(windows.windows);
+    }
+
+    // ========================
+    //  CẬP NHẬT TỪ ENTITY LISTENER
+    // ========================
+
+    void onSaved(VehicleTimeline timeline) {
+        Long vehicleId = timeline.getVehicle() != null ? timeline.getVehicle().getVehicleId() : null;
+        Long timelineId = timeline.getTimelineId();
+        if (vehicleId == null || timelineId == null) return;
+
+        boolean blocking = timeline.getStatus() != null
+                && BLOCKING_STATUSES.contains(timeline.getStatus().toUpperCase())
+                && timeline.getStartTime() != null
+                && timeline.getEndTime() != null;
+
+        if (blocking) {
+            Window window = new Window(timelineId, timeline.getStartTime(), timeline.getEndTime());
+            afterCommit(() -> upsert(vehicleId, window));
+        } else {
+            afterCommit(() -> remove(vehicleId, timelineId));
+        }
+    }
+
+    void onRemoved(VehicleTimeline timeline) {
+        Long vehicleId = timeline.getVehicle() != null ? timeline.getVehicle().getVehicleId() : null;
+        Long timelineId = timeline.getTimelineId();
+        if (vehicleId == null || timelineId == null) return;
+
+        afterCommit(() -> remove(vehicleId, timelineId));
+    }
+
+    private synchronized void upsert(Long vehicleId, Window window) {
+        List<Window> windows = new ArrayList<>(windowsOf(vehicleId));
+        windows.removeIf(w -> w.timelineId().equals(window.timelineId()));
+        windows.add(window);
+        windowsByVehicle.put(vehicleId, VehicleWindows.of(windows));
+    }
+
+    private synchronized void remove(Long vehicleId, Long timelineId) {
+        VehicleWindows current = windowsByVehicle.get(vehicleId);
+        if (current == null) return;
+
+        List<Window> windows = new ArrayList<>(List.of(current.windows));
+        if (!windows.removeIf(w -> w.timelineId().equals(timelineId))) return;
+
+        if (windows.isEmpty()) {
+            windowsByVehicle.remove(vehicleId);
+        } else {
+            windowsByVehicle.put(vehicleId, VehicleWindows.of(windows));
+        }
+    }
+
+    /**
+     * Chỉ áp dụng thay đổi khi transaction commit thành công (rollback thì index giữ nguyên)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Window(Long timelineId, LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Snapshot bất biến của 1 xe: window sắp theo start + maxEnd[i] = max(end[0..i])
+     */
+    private static final class VehicleWindows {
+        private final Window[] windows;
+        private final LocalDateTime[] maxEnd;
+
+        private VehicleWindows(Window[] windows) {
+            this.windows = windows;
+            this.maxEnd = new LocalDateTime[windows.length];
+            for (int i = 0; i < windows.length; i++) {
+                LocalDateTime end = windows[i].end();
+                maxEnd[i] = (i == 0 || end.isAfter(maxEnd[i - 1])) ? end : maxEnd[i - 1];
+            }
+        }
+
+        static VehicleWindows of(List<Window> windows) {
+            Window[] sorted = windows.toArray(new Window[0]);
+            Arrays.sort(sorted, Comparator.comparing(Window::start));
+            return new VehicleWindows(sorted);
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            // Tìm window cuối cùng có start < end của khoảng cần kiểm tra
+            int lo = 0, hi = windows.length - 1, last = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (windows[mid].start().isBefore(end)) {
+                    last = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            // Trong các window đó, chỉ cần 1 window kết thúc sau start là overlap
+            return last >= 0 && maxEnd[last].isAfter(start);
+        }
+    }
+}
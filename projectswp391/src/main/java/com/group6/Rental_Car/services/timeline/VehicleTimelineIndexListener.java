@@ -0,0 +1,32 @@
+package com.group6.Rental_Car.services.timeline;
+
+import com.group6.Rental_Car.entities.VehicleTimeline;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bắt mọi thao tác ghi vehicle_timeline (save, deleteAll, cascade từ Vehicle...)
+ * để giữ {@link VehicleAvailabilityIndex} luôn khớp với DB.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleTimelineIndexListener {
+
+    // Lazy để tránh vòng phụ thuộc EntityManagerFactory -> listener -> repository
+    private final ObjectProvider<VehicleAvailabilityIndex> availabilityIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void afterSave(VehicleTimeline timeline) {
+        availabilityIndex.getObject().onSaved(timeline);
+    }
+
+    @PostRemove
+    public void afterRemove(VehicleTimeline timeline) {
+        availabilityIndex.getObject().onRemoved(timeline);
+    }
+}
@@ -0,0 +1,164 @@
+package com.group6.Rental_Car.services.vehicle;
+
+import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.entities.Vehicle;
+import com.group6.Rental_Car.entities.VehicleModel;
+import com.group6.Rental_Car.repositories.VehicleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache read-through các {@link VehicleResponse} đã ghép sẵn VehicleModel + RentalStation, theo vehicleId,
+ * kèm index theo trạm và theo carmodel (mỗi danh sách sắp theo biển số) và {@link VehicleFacetIndex} cho tìm kiếm.
+ * Lần đọc đầu nạp toàn bộ bằng 1 query; sau đó {@link VehicleCatalogListener} đánh dấu xe bị ghi (sau commit)
+ * và lần đọc kế tiếp chỉ nạp lại các xe đó. Đổi trạm (tên...) thì nạp lại toàn bộ.
+ * DTO trả về dùng chung giữa các request, nơi gọi không được sửa.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VehicleCatalog {
+
+    private final VehicleRepository vehicleRepository;
+    private final VehicleModelService vehicleModelService;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloadAll = new AtomicBoolean(true);
+    private volatile Snapshot snapshot;
+
+    public List<VehicleResponse> all() {
+        return current().all();
+    }
+
+    public Optional<VehicleResponse> find(Long vehicleId) {
+        return Optional.ofNullable(current().byId().get(vehicleId));
+    }
+
+    public List<VehicleResponse> byStation(Integer stationId) {
+        return current().byStation().getOrDefault(stationId, List.of());
+    }
+
+    /**
+     * Trạm có ít nhất 1 xe trong catalog (trạm không có xe vẫn phải kiểm tra ở DB)
+     */
+    public boolean hasStation(Integer stationId) {
+        return current().byStation().containsKey(stationId);
+    }
+
+    public List<VehicleResponse> byCarmodel(String carmodel) {
+        if (carmodel == null) return List.of();
+        return current().byCarmodel().getOrDefault(carmodelKey(carmodel), List.of());
+    }
+
+    VehicleFacetIndex facetIndex() {
+        return current().facetIndex();
+    }
+
+    // ========================
+    //  ĐÁNH DẤU TỪ ENTITY LISTENER
+    // ========================
+
+    void evict(Long vehicleId) {
+        if (vehicleId != null) {
+            dirty.add(vehicleId);
+        }
+    }
+
+    void evictAll() {
+        reloadAll.set(true);
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null && !reloadAll.get() && dirty.isEmpty()) {
+            return s;
+        }
+        return refresh();
+    }
+
+    /**
+     * Cờ / danh sách xe được lấy ra TRƯỚC khi query: ghi xen giữa sẽ đánh dấu lại và lần đọc sau nạp tiếp
+     */
+    private synchronized Snapshot refresh() {
+        if (reloadAll.getAndSet(false) || snapshot == null) {
+            dirty.clear();
+            snapshot = Snapshot.of(toResponses(vehicleRepository.findAllWithDetails()));
+            meterRegistry.counter("vehicle.catalog.reload", "scope", "full").increment();
+            log.info("Nạp vehicle catalog: {} xe", snapshot.byId().size());
+            return snapshot;
+        }
+
+        List<Long> ids = new ArrayList<>(dirty);
+        if (ids.isEmpty()) {
+            return snapshot;
+        }
+        dirty.removeAll(ids);
+
+        Map<Long, VehicleResponse> byId = new HashMap<>(snapshot.byId());
+        ids.forEach(byId::remove);
+        toResponses(vehicleRepository.findWithDetailsByIds(ids)).forEach(r -> byId.put(r.getVehicleId(), r));
+        snapshot = Snapshot.of(byId.values());
+        meterRegistry.counter("vehicle.catalog.reload", "scope", "partial").increment();
+        return snapshot;
+    }
+
+    private List<VehicleResponse> toResponses(List<Vehicle> vehicles) {
+        return vehicles.stream()
+                .map(v -> {
+                    List<VehicleModel> attributes = v.getAttributes();
+                    VehicleModel model = (attributes == null || attributes.isEmpty()) ? null : attributes.getFirst();
+                    return vehicleModelService.convertToDto(v, model);
+                })
+                .toList();
+    }
+
+    private static String carmodelKey(String carmodel) {
+        return carmodel.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<Long, VehicleResponse> byId,
+                            List<VehicleResponse> all,
+                            Map<Integer, List<VehicleResponse>> byStation,
+                            Map<String, List<VehicleResponse>> byCarmodel,
+                            VehicleFacetIndex facetIndex) {
+
+        static Snapshot of(Collection<VehicleResponse> responses) {
+            List<VehicleResponse> sorted = responses.stream()
+                    .sorted(Comparator.comparing(VehicleResponse::getPlateNumber,
+                            Comparator.nullsLast(Comparator.naturalOrder())))
+                    .toList();
+
+            Map<Long, VehicleResponse> byId = new HashMap<>();
+            Map<Integer, List<VehicleResponse>> byStation = new HashMap<>();
+            Map<String, List<VehicleResponse>> byCarmodel = new HashMap<>();
+            for (VehicleResponse r : sorted) {
+                byId.put(r.getVehicleId(), r);
+                if (r.getStationId() != null) {
+                    byStation.computeIfAbsent(r.getStationId(), k -> new ArrayList<>()).add(r);
+                }
+                if (r.getCarmodel() != null) {
+                    byCarmodel.computeIfAbsent(carmodelKey(r.getCarmodel()), k -> new ArrayList<>()).add(r);
+                }
+            }
+            byStation.replaceAll((k, v) -> List.copyOf(v));
+            byCarmodel.replaceAll((k, v) -> List.copyOf(v));
+            return new Snapshot(Map.copyOf(byId), sorted, Map.copyOf(byStation), Map.copyOf(byCarmodel),
+                    new VehicleFacetIndex(sorted));
+        }
+    }
+}
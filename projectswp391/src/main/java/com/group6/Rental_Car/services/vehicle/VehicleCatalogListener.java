@@ -0,0 +1,60 @@
+package com.group6.Rental_Car.services.vehicle;
+
+import com.group6.Rental_Car.entities.RentalStation;
+import com.group6.Rental_Car.entities.Vehicle;
+import com.group6.Rental_Car.entities.VehicleModel;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bắt mọi thao tác ghi Vehicle / VehicleModel / RentalStation (createVehicle, updateVehicle, updateStatusVehicle,
+ * deleteVehicle và cả các chỗ đổi status xe trong luồng đặt / trả xe) để {@link VehicleCatalog} nạp lại phần bị đổi.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleCatalogListener {
+
+    // Lazy để tránh vòng phụ thuộc EntityManagerFactory -> listener -> repository
+    private final ObjectProvider<VehicleCatalog> vehicleCatalog;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterWrite(Object entity) {
+        switch (entity) {
+            case Vehicle v -> {
+                Long vehicleId = v.getVehicleId();
+                afterCommit(() -> vehicleCatalog.getObject().evict(vehicleId));
+            }
+            case VehicleModel m -> {
+                Long vehicleId = m.getVehicle() != null ? m.getVehicle().getVehicleId() : null;
+                afterCommit(() -> vehicleCatalog.getObject().evict(vehicleId));
+            }
+            case RentalStation s -> afterCommit(() -> vehicleCatalog.getObject().evictAll());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Chỉ đánh dấu khi transaction commit thành công, tránh lần đọc xen giữa nạp lại dữ liệu chưa commit
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.group6.Rental_Car.services.vehicle;
+
+import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index trên catalog: mỗi giá trị của mỗi thuộc tính (facet) giữ 1 BitSet các xe có giá trị đó,
+ * bit i ứng với docs.get(i) (docs theo thứ tự biển số của catalog).
+ * Lọc = OR các BitSet trong 1 facet rồi AND / OR giữa các facet; đếm facet = cardinality của phép AND.
+ * Bất biến, dựng lại cùng snapshot của {@link VehicleCatalog}.
+ * Facet số (số ghế, dung lượng pin, trạm) so theo giá trị số: "42 kWh", "42.0" và 42 là cùng 1 giá trị.
+ */
+final class VehicleFacetIndex {
+
+    enum Facet {
+        CARMODEL("carmodel", VehicleResponse::getCarmodel, false),
+        COLOR("color", VehicleResponse::getColor, false),
+        SEAT_COUNT("seatCount", VehicleResponse::getSeatCount, true),
+        VARIANT("variant", VehicleResponse::getVariant, false),
+        TRANSMISSION("transmission", VehicleResponse::getTransmission, false),
+        BATTERY_CAPACITY("batteryCapacity", VehicleResponse::getBatteryCapacity, true),
+        STATION("stationId", VehicleResponse::getStationId, true),
+        STATUS("status", VehicleResponse::getStatus, false);
+
+        private final String key;
+        private final Function<VehicleResponse, Object> extractor;
+        private final boolean numeric;
+
+        Facet(String key, Function<VehicleResponse, Object> extractor, boolean numeric) {
+            this.key = key;
+            this.extractor = extractor;
+            this.numeric = numeric;
+        }
+
+        String key() {
+            return key;
+        }
+    }
+
+    private static final Pattern NUMBER = Pattern.compile("[-+]?\\d+(?:[.,]\\d+)?");
+
+    private final List<VehicleResponse> docs;
+    // facet -> giá trị đã chuẩn hóa -> xe có giá trị đó
+    private final Map<Facet, Map<String, BitSet>> postings = new EnumMap<>(Facet.class);
+    // facet -> giá trị đã chuẩn hóa -> giá trị hiển thị (lần gặp đầu)
+    private final Map<Facet, Map<String, String>> labels = new EnumMap<>(Facet.class);
+
+    VehicleFacetIndex(List<VehicleResponse> docs) {
+        this.docs = docs;
+        for (Facet facet : Facet.values()) {
+            Map<String, BitSet> byValue = new HashMap<>();
+            Map<String, String> byLabel = new HashMap<>();
+            for (int i = 0; i < docs.size(); i++) {
+                Object value = facet.extractor.apply(docs.get(i));
+                if (value == null) continue;
+                String label = value.toString().trim();
+                if (label.isEmpty()) continue;
+                String key = normalize(facet, label);
+                byValue.computeIfAbsent(key, k -> new BitSet(docs.size())).set(i);
+                byLabel.putIfAbsent(key, label);
+            }
+            postings.put(facet, byValue);
+            labels.put(facet, byLabel);
+        }
+    }
+
+    int size() {
+        return docs.size();
+    }
+
+    VehicleResponse doc(int ordinal) {
+        return docs.get(ordinal);
+    }
+
+    BitSet all() {
+        BitSet bits = new BitSet(docs.size());
+        bits.set(0, docs.size());
+        return bits;
+    }
+
+    /**
+     * Xe có giá trị thuộc 1 trong các values (OR trong cùng facet)
+     */
+    BitSet match(Facet facet, Collection<String> values) {
+        BitSet bits = new BitSet(docs.size());
+        Map<String, BitSet> byValue = postings.get(facet);
+        for (String value : values) {
+            if (value == null) continue;
+            BitSet posting = byValue.get(normalize(facet, value));
+            if (posting != null) {
+                bits.or(posting);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Số xe trong base theo từng giá trị của facet, bỏ giá trị có 0 xe; sắp theo số xe giảm dần
+     */
+    Map<String, Long> counts(Facet facet, BitSet base) {
+        Map<String, Long> counts = new HashMap<>();
+        postings.get(facet).forEach((key, posting) -> {
+            BitSet hit = (BitSet) posting.clone();
+            hit.and(base);
+            int count = hit.cardinality();
+            if (count > 0) {
+                counts.put(labels.get(facet).get(key), (long) count);
+            }
+        });
+
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Số đầu tiên trong chuỗi ("42 kWh" -> 42, "87,5kWh" -> 87.5), null nếu không có
+     */
+    static BigDecimal numericValue(String value) {
+        if (value == null) return null;
+        Matcher m = NUMBER.matcher(value);
+        return m.find() ? new BigDecimal(m.group().replace(',', '.')) : null;
+    }
+
+    private static String normalize(Facet facet, String value) {
+        if (facet.numeric) {
+            BigDecimal number = numericValue(value);
+            if (number != null) {
+                return number.stripTrailingZeros().toPlainString();
+            }
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
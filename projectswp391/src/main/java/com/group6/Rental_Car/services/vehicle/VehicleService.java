@@ -1,8 +1,13 @@
 package com.group6.Rental_Car.services.vehicle;
 
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleCreateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleDetailResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSlotSuggestionResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateStatusRequest;
 import org.springframework.web.multipart.MultipartFile;
@@ -20,10 +25,13 @@ public interface VehicleService {
     List<VehicleResponse> getAllVehicles();
     VehicleResponse updateStatusVehicle(Long vehicleId, VehicleUpdateStatusRequest req);
     List<VehicleResponse> getVehiclesByStation(Integer stationId);
-    List<VehicleResponse> getAvailableVehiclesByStation(Integer stationId, String carmodel);
+    List<VehicleResponse> getAvailableVehiclesByStation(Integer stationId, String carmodel, LocalDateTime startTime, LocalDateTime endTime);
     List<VehicleResponse> getVehiclesByCarmodel(String carmodel);
-    List<VehicleResponse> getAvailableVehicles(LocalDateTime startTime, LocalDateTime endTime, Integer stationId);
+    List<VehicleResponse> getAvailableVehicles(LocalDateTime startTime, LocalDateTime endTime, Integer stationId, String carmodel);
     List<VehicleResponse> getSimilarAvailableVehicles(Long vehicleId);
+    VehicleAvailabilityMatrixResponse getAvailabilityMatrix(VehicleAvailabilityMatrixRequest request);
+    List<VehicleSlotSuggestionResponse> suggestFreeSlots(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime, int limit);
+    VehicleSearchResponse searchVehicles(VehicleSearchRequest request);
 }
 
 
@@ -1,8 +1,13 @@
 package com.group6.Rental_Car.services.vehicle;
 
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleAvailabilityMatrixResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleCreateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleDetailResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchRequest;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSearchResponse;
+import com.group6.Rental_Car.dtos.vehicle.VehicleSlotSuggestionResponse;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateRequest;
 import com.group6.Rental_Car.dtos.vehicle.VehicleUpdateStatusRequest;
 import com.group6.Rental_Car.entities.RentalOrderDetail;
@@ -22,13 +27,27 @@ import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
 import com.group6.Rental_Car.services.storage.StorageService;
+import com.group6.Rental_Car.services.timeline.TimelineIntervals;
+import com.group6.Rental_Car.services.timeline.TimelineIntervals.Interval;
+import com.group6.Rental_Car.services.timeline.VehicleAvailabilityIndex;
+import com.group6.Rental_Car.services.vehicle.VehicleFacetIndex.Facet;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.group6.Rental_Car.utils.ValidationUtil.*;
@@ -38,6 +57,36 @@ import static com.group6.Rental_Car.utils.ValidationUtil.*;
 public class VehicleServiceImpl implements VehicleService {
     private static final Set<String> ALLOWED_STATUS = Set.of("available", "rented", "maintenance","BOOKED");
     private static final Set<String> ALLOWED_VARIANT = Set.of("air", "pro", "plus");
+    private static final int SUGGESTION_HORIZON_DAYS = 60; // Chỉ tìm khung rảnh trong 60 ngày tới
+    private static final int SEARCH_DEFAULT_SIZE = 20;
+    private static final int SEARCH_MAX_SIZE = 100;
+    private static final Map<String, SearchSort<?>> SEARCH_SORTS = Map.of(
+            "platenumber", new SearchSort<>(VehicleResponse::getPlateNumber, Comparator.<String>naturalOrder()),
+            "vehiclename", new SearchSort<>(VehicleResponse::getVehicleName, String.CASE_INSENSITIVE_ORDER),
+            "carmodel", new SearchSort<>(VehicleResponse::getCarmodel, String.CASE_INSENSITIVE_ORDER),
+            "seatcount", new SearchSort<>(VehicleResponse::getSeatCount, Comparator.<Integer>naturalOrder()),
+            "year", new SearchSort<>(VehicleResponse::getYear, Comparator.<Integer>naturalOrder()),
+            // "42 kWh" / "100" so sánh theo số, không theo chuỗi
+            "batterycapacity", new SearchSort<>(v -> VehicleFacetIndex.numericValue(v.getBatteryCapacity()),
+                    Comparator.<BigDecimal>naturalOrder())
+    );
+
+    /**
+     * Khóa sắp xếp của searchVehicles; giá trị null luôn nằm cuối dù tăng hay giảm dần
+     */
+    private record SearchSort<T>(Function<VehicleResponse, T> key, Comparator<T> order) {
+        Comparator<VehicleResponse> comparator(boolean desc) {
+            return Comparator.comparing(key, Comparator.nullsLast(desc ? order.reversed() : order));
+        }
+    }
+
+    /**
+     * Thứ tự kết quả searchVehicles theo sortBy (đã chuẩn hóa chữ thường), null nếu sortBy không hỗ trợ
+     */
+    static Comparator<VehicleResponse> searchComparator(String sortKey, boolean desc) {
+        SearchSort<?> sort = SEARCH_SORTS.get(sortKey);
+        return sort != null ? sort.comparator(desc) : null;
+    }
 
     private final VehicleRepository vehicleRepository;
     private final RentalStationRepository rentalStationRepository;
@@ -47,6 +96,8 @@ public class VehicleServiceImpl implements VehicleService {
     private final ModelMapper modelMapper;
     private final VehicleModelRepository vehicleModelRepository;
     private final StorageService storageService;
+    private final VehicleAvailabilityIndex vehicleAvailabilityIndex;
+    private final VehicleCatalog vehicleCatalog;
 
     @Override
     public VehicleResponse createVehicle(VehicleCreateRequest req, List<MultipartFile> images) {
@@ -182,11 +233,8 @@ public class VehicleServiceImpl implements VehicleService {
 
     @Override
     public VehicleResponse getVehicleById(Long id) {
-        Vehicle vehicle = vehicleRepository.findById(id)
+        return vehicleCatalog.find(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Vehicle not found"));
-
-        var attr = vehicleModelService.findByVehicle(vehicle);
-        return vehicleModelService.convertToDto(vehicle, attr);
     }
 
     @Override
@@ -200,9 +248,7 @@ public class VehicleServiceImpl implements VehicleService {
 
     @Override
     public List<VehicleResponse> getAllVehicles() {
-        return vehicleRepository.findAll().stream()
-                .map(v -> vehicleModelService.convertToDto(v, vehicleModelService.findByVehicle(v)))
-                .collect(Collectors.toList());
+        return vehicleCatalog.all();
     }
 
     @Override
@@ -213,41 +259,33 @@ public class VehicleServiceImpl implements VehicleService {
         }
 
         // Kiểm tra station có tồn tại không
-        rentalStationRepository.findById(stationId)
-                .orElseThrow(() -> new ResourceNotFoundException("Rental Station không tồn tại: " + stationId));
+        requireStation(stationId);
 
-        // Lấy tất cả xe theo station, sắp xếp theo biển số
-        return vehicleRepository.findByRentalStation_StationIdOrderByPlateNumberAsc(stationId).stream()
-                .map(v -> vehicleModelService.convertToDto(v, vehicleModelService.findByVehicle(v)))
-                .collect(Collectors.toList());
+        // Lấy tất cả xe theo station từ catalog, đã sắp xếp theo biển số
+        return vehicleCatalog.byStation(stationId);
     }
 
     @Override
-    public List<VehicleResponse> getAvailableVehiclesByStation(Integer stationId, String carmodel) {
+    public List<VehicleResponse> getAvailableVehiclesByStation(Integer stationId, String carmodel,
+                                                               LocalDateTime startTime, LocalDateTime endTime) {
         // Validate stationId
         if (stationId == null || stationId <= 0) {
             throw new BadRequestException("stationId phải là số dương");
         }
+        // Nếu có khoảng thời gian thì phải đủ cả start và end
+        if ((startTime == null) != (endTime == null)) {
+            throw new BadRequestException("startTime và endTime phải được truyền cùng nhau");
+        }
+        if (startTime != null && !endTime.isAfter(startTime)) {
+            throw new BadRequestException("endTime phải sau startTime");
+        }
 
         // Kiểm tra station có tồn tại không
-        rentalStationRepository.findById(stationId)
-                .orElseThrow(() -> new ResourceNotFoundException("Rental Station không tồn tại: " + stationId));
-
-        // Lấy xe có status AVAILABLE theo station, sắp xếp theo biển số
-        return vehicleRepository.findByRentalStation_StationIdAndStatusOrderByPlateNumberAsc(stationId, "AVAILABLE").stream()
-                .filter(v -> {
-                    // Nếu có carmodel, filter theo carmodel
-                    if (carmodel != null && !carmodel.isBlank()) {
-                        VehicleModel model = vehicleModelService.findByVehicle(v);
-                        if (model == null || model.getCarmodel() == null) {
-                            return false;
-                        }
-                        return model.getCarmodel().equalsIgnoreCase(carmodel.trim());
-                    }
-                    return true;
-                })
-                .map(v -> vehicleModelService.convertToDto(v, vehicleModelService.findByVehicle(v)))
-                .collect(Collectors.toList());
+        requireStation(stationId);
+
+        // Xe có status AVAILABLE theo station (lọc carmodel + lịch đặt trong bộ nhớ), sắp xếp theo biển số
+        return filterAvailable(vehicleCatalog.byStation(stationId), "AVAILABLE",
+                normalizeCarmodel(carmodel), startTime, endTime);
     }
 
     @Override
@@ -256,14 +294,12 @@ public class VehicleServiceImpl implements VehicleService {
             throw new BadRequestException("carmodel không được để trống");
         }
 
-        List<VehicleModel> models = vehicleModelRepository.findByCarmodelIgnoreCase(carmodel.trim());
-        return models.stream()
-                .map(model -> vehicleModelService.convertToDto(model.getVehicle(), model))
-                .collect(Collectors.toList());
+        return vehicleCatalog.byCarmodel(carmodel.trim());
     }
 
     @Override
-    public List<VehicleResponse> getAvailableVehicles(LocalDateTime startTime, LocalDateTime endTime, Integer stationId) {
+    public List<VehicleResponse> getAvailableVehicles(LocalDateTime startTime, LocalDateTime endTime,
+                                                      Integer stationId, String carmodel) {
         if (startTime == null || endTime == null) {
             throw new BadRequestException("startTime và endTime không được để trống");
         }
@@ -271,100 +307,43 @@ public class VehicleServiceImpl implements VehicleService {
             throw new BadRequestException("endTime phải sau startTime");
         }
 
-        // Lấy xe theo stationId nếu có, nếu không thì lấy tất cả
-        List<Vehicle> allVehicles;
         if (stationId != null) {
             // Validate stationId
             if (stationId <= 0) {
                 throw new BadRequestException("stationId phải là số dương");
             }
             // Kiểm tra station có tồn tại không
-            rentalStationRepository.findById(stationId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Rental Station không tồn tại: " + stationId));
-            allVehicles = vehicleRepository.findByRentalStation_StationIdOrderByPlateNumberAsc(stationId);
-        } else {
-            allVehicles = vehicleRepository.findAll();
-        }
-
-        // Lọc những xe không có booking overlap trong khoảng thời gian
-        return allVehicles.stream()
-                .filter(vehicle -> {
-                    // Kiểm tra timeline BOOKED/RENTAL có overlap không
-                    List<VehicleTimeline> timelines = vehicleTimelineRepository.findByVehicle_VehicleId(vehicle.getVehicleId());
-                    
-                    boolean hasOverlap = timelines.stream()
-                            .anyMatch(timeline -> {
-                                String status = timeline.getStatus();
-                                // Chỉ kiểm tra các status BOOKED, RENTAL
-                                if (!"BOOKED".equalsIgnoreCase(status) && !"RENTAL".equalsIgnoreCase(status)) {
-                                    return false;
-                                }
-                                
-                                LocalDateTime timelineStart = timeline.getStartTime();
-                                LocalDateTime timelineEnd = timeline.getEndTime();
-                                
-                                if (timelineStart == null || timelineEnd == null) {
-                                    return false;
-                                }
-                                
-                                // Kiểm tra overlap: (start1 < end2) AND (end1 > start2)
-                                return startTime.isBefore(timelineEnd) && endTime.isAfter(timelineStart);
-                            });
-                    
-                    return !hasOverlap;
-                })
-                .map(vehicle -> vehicleModelService.convertToDto(vehicle, vehicleModelService.findByVehicle(vehicle)))
-                .collect(Collectors.toList());
+            requireStation(stationId);
+        }
+
+        // Lọc trên catalog, loại xe có timeline BOOKED/RENTAL overlap bằng availability index
+        List<VehicleResponse> candidates = stationId != null ? vehicleCatalog.byStation(stationId) : vehicleCatalog.all();
+        return filterAvailable(candidates, null, normalizeCarmodel(carmodel), startTime, endTime);
     }
 
     @Override
     public List<VehicleResponse> getSimilarAvailableVehicles(Long vehicleId) {
         // Lấy xe hiện tại
-        Vehicle currentVehicle = vehicleRepository.findById(vehicleId)
+        VehicleResponse current = vehicleCatalog.find(vehicleId)
                 .orElseThrow(() -> new ResourceNotFoundException("Vehicle không tồn tại: " + vehicleId));
 
-        // Lấy station ID của xe hiện tại
-        final Integer currentStationId = (currentVehicle.getRentalStation() != null) 
-                ? currentVehicle.getRentalStation().getStationId() 
-                : null;
-
-        // Lấy thông tin model của xe hiện tại
-        VehicleModel currentModel = vehicleModelService.findByVehicle(currentVehicle);
-        if (currentModel == null) {
-            throw new ResourceNotFoundException("VehicleModel không tồn tại cho vehicleId: " + vehicleId);
-        }
-
-        String carmodel = currentModel.getCarmodel();
-
+        // Thông tin model của xe hiện tại đã ghép sẵn trong catalog
+        String carmodel = current.getCarmodel();
         if (carmodel == null || carmodel.isBlank()) {
             throw new BadRequestException("Xe không có thông tin carmodel");
         }
+        final Integer currentStationId = current.getStationId();
 
-        // Tìm các xe có cùng carmodel (cùng model xe)
-        List<VehicleModel> similarModels = vehicleModelRepository
-                .findByCarmodelIgnoreCase(carmodel);
-
-        // Lọc các xe:
+        // Lọc các xe cùng carmodel:
         // 1. Không phải xe hiện tại
         // 2. Status = "available"
         // 3. Cùng trạm với xe hiện tại
-        List<VehicleResponse> similarAvailable = similarModels.stream()
-                .map(VehicleModel::getVehicle)
+        return vehicleCatalog.byCarmodel(carmodel).stream()
                 .filter(vehicle -> !vehicle.getVehicleId().equals(vehicleId)) // Loại trừ xe hiện tại
                 .filter(vehicle -> "available".equalsIgnoreCase(vehicle.getStatus())) // Chỉ lấy xe available
-                .filter(vehicle -> {
-                    // Lọc theo cùng trạm
-                    if (currentStationId == null) {
-                        return vehicle.getRentalStation() == null;
-                    }
-                    return vehicle.getRentalStation() != null && 
-                           vehicle.getRentalStation().getStationId().equals(currentStationId);
-                })
+                .filter(vehicle -> Objects.equals(vehicle.getStationId(), currentStationId)) // Cùng trạm
                 .limit(2) // Chỉ lấy tối đa 2 xe
-                .map(vehicle -> vehicleModelService.convertToDto(vehicle, vehicleModelService.findByVehicle(vehicle)))
                 .collect(Collectors.toList());
-
-        return similarAvailable;
     }
 
     @Override
@@ -565,4 +544,229 @@ public class VehicleServiceImpl implements VehicleService {
                 .build();
         vehicleTimelineRepository.save(timeline);
     }
+
+    /**
+     * Ma trận rảnh / bận: 1 query xe + 1 query timeline giao với [min start, max end), tính bằng sweep line
+     */
+    @Override
+    public VehicleAvailabilityMatrixResponse getAvailabilityMatrix(VehicleAvailabilityMatrixRequest request) {
+        List<VehicleAvailabilityMatrixRequest.TimeWindow> windows = request.getWindows();
+        if (windows == null || windows.isEmpty()) {
+            throw new BadRequestException("Danh sách khoảng thời gian không được để trống");
+        }
+
+        List<Interval> windowIntervals = new ArrayList<>(windows.size());
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (VehicleAvailabilityMatrixRequest.TimeWindow w : windows) {
+            if (w.getStartTime() == null || w.getEndTime() == null || !w.getEndTime().isAfter(w.getStartTime())) {
+                throw new BadRequestException("Khoảng thời gian không hợp lệ: endTime phải sau startTime");
+            }
+            windowIntervals.add(new Interval(w.getStartTime(), w.getEndTime()));
+            if (from == null || w.getStartTime().isBefore(from)) from = w.getStartTime();
+            if (to == null || w.getEndTime().isAfter(to)) to = w.getEndTime();
+        }
+
+        List<Vehicle> vehicles = (request.getVehicleIds() != null && !request.getVehicleIds().isEmpty())
+                ? vehicleRepository.findWithDetailsByIds(request.getVehicleIds())
+                : vehicleRepository.findAvailableWithDetails(request.getStationId(), normalizeCarmodel(request.getCarmodel()), null, null, null);
+        if (vehicles.isEmpty()) {
+            return new VehicleAvailabilityMatrixResponse(windows, List.of());
+        }
+
+        // 1 query cho toàn bộ timeline giao với [min start, max end), đã sắp theo xe + startTime
+        Map<Long, List<Interval>> busyByVehicle = new HashMap<>();
+        List<Long> vehicleIds = vehicles.stream().map(Vehicle::getVehicleId).toList();
+        for (Object[] row : vehicleTimelineRepository.findBlockingIntervals(
+                vehicleIds, VehicleAvailabilityIndex.BLOCKING_STATUSES, from, to)) {
+            busyByVehicle.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new Interval((LocalDateTime) row[1], (LocalDateTime) row[2]));
+        }
+
+        List<VehicleAvailabilityMatrixResponse.Row> rows = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            boolean[] free = TimelineIntervals.freeFlags(
+                    busyByVehicle.getOrDefault(vehicle.getVehicleId(), List.of()), windowIntervals);
+            List<Boolean> available = new ArrayList<>(free.length);
+            for (boolean f : free) available.add(f);
+            rows.add(new VehicleAvailabilityMatrixResponse.Row(
+                    vehicle.getVehicleId(), vehicle.getPlateNumber(), vehicle.getStatus(), available));
+        }
+        return new VehicleAvailabilityMatrixResponse(windows, rows);
+    }
+
+    @Override
+    public VehicleSearchResponse searchVehicles(VehicleSearchRequest request) {
+        boolean orMode;
+        String mode = request.getMode() == null ? "AND" : request.getMode().trim().toUpperCase();
+        switch (mode) {
+            case "AND" -> orMode = false;
+            case "OR" -> orMode = true;
+            default -> throw new BadRequestException("mode phải là AND hoặc OR");
+        }
+
+        String sortKey = request.getSortBy() == null ? "platenumber" : request.getSortBy().trim().toLowerCase();
+        boolean desc = "desc".equalsIgnoreCase(request.getSortDir());
+        Comparator<VehicleResponse> order = searchComparator(sortKey, desc);
+        if (order == null) {
+            throw new BadRequestException("sortBy không hợp lệ: " + request.getSortBy());
+        }
+
+        int page = request.getPage() == null ? 0 : request.getPage();
+        int size = request.getSize() == null ? SEARCH_DEFAULT_SIZE : request.getSize();
+        if (page < 0 || size <= 0 || size > SEARCH_MAX_SIZE) {
+            throw new BadRequestException("page >= 0 và size trong khoảng 1.." + SEARCH_MAX_SIZE);
+        }
+
+        LocalDateTime startTime = request.getStartTime();
+        LocalDateTime endTime = request.getEndTime();
+        if ((startTime == null) != (endTime == null)) {
+            throw new BadRequestException("startTime và endTime phải được truyền cùng nhau");
+        }
+        if (startTime != null && !endTime.isAfter(startTime)) {
+            throw new BadRequestException("endTime phải sau startTime");
+        }
+
+        VehicleFacetIndex index = vehicleCatalog.facetIndex();
+
+        // Tập gốc: toàn bộ xe, hoặc chỉ xe rảnh trong khung giờ (availability index)
+        BitSet base = index.all();
+        if (startTime != null) {
+            for (int i = base.nextSetBit(0); i >= 0; i = base.nextSetBit(i + 1)) {
+                if (!vehicleAvailabilityIndex.isFree(index.doc(i).getVehicleId(), startTime, endTime)) {
+                    base.clear(i);
+                }
+            }
+        }
+
+        // Mỗi thuộc tính có chọn giá trị -> BitSet các xe khớp (OR các giá trị)
+        Map<Facet, BitSet> matches = new EnumMap<>(Facet.class);
+        addFilter(matches, index, Facet.CARMODEL, request.getCarmodels());
+        addFilter(matches, index, Facet.COLOR, request.getColors());
+        addFilter(matches, index, Facet.SEAT_COUNT, request.getSeatCounts());
+        addFilter(matches, index, Facet.VARIANT, request.getVariants());
+        addFilter(matches, index, Facet.TRANSMISSION, request.getTransmissions());
+        addFilter(matches, index, Facet.BATTERY_CAPACITY, request.getBatteryCapacities());
+        addFilter(matches, index, Facet.STATION, request.getStationIds());
+        addFilter(matches, index, Facet.STATUS, request.getStatuses());
+
+        BitSet result = (BitSet) base.clone();
+        if (!matches.isEmpty()) {
+            if (orMode) {
+                BitSet any = new BitSet(index.size());
+                matches.values().forEach(any::or);
+                result.and(any);
+            } else {
+                matches.values().forEach(result::and);
+            }
+        }
+
+        // Đếm facet: mode AND đếm trên tập lọc bởi các thuộc tính khác, mode OR đếm trên kết quả
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        for (Facet facet : Facet.values()) {
+            BitSet scope = result;
+            if (!orMode && matches.containsKey(facet)) {
+                scope = (BitSet) base.clone();
+                for (Map.Entry<Facet, BitSet> m : matches.entrySet()) {
+                    if (m.getKey() != facet) scope.and(m.getValue());
+                }
+            }
+            facets.put(facet.key(), index.counts(facet, scope));
+        }
+
+        // Thứ tự doc trong index đã theo biển số tăng dần, chỉ sắp lại khi sortBy / chiều khác;
+        // sort ổn định nên các xe bằng khóa vẫn theo biển số
+        List<VehicleResponse> hits = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            hits.add(index.doc(i));
+        }
+        if (desc || !"platenumber".equals(sortKey)) {
+            hits.sort(order);
+        }
+
+        int from = (int) Math.min((long) page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        return new VehicleSearchResponse(hits.size(), page, size, List.copyOf(hits.subList(from, to)), facets);
+    }
+
+    private static void addFilter(Map<Facet, BitSet> matches, VehicleFacetIndex index, Facet facet, List<?> values) {
+        if (values == null || values.isEmpty()) return;
+        matches.put(facet, index.match(facet, values.stream()
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .toList()));
+    }
+
+    @Override
+    public List<VehicleSlotSuggestionResponse> suggestFreeSlots(Long vehicleId, LocalDateTime startTime,
+                                                                LocalDateTime endTime, int limit) {
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime)) {
+            throw new BadRequestException("endTime phải sau startTime");
+        }
+        int maxResults = Math.clamp(limit, 1, 20);
+
+        Vehicle current = vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle không tồn tại: " + vehicleId));
+        VehicleModel currentModel = vehicleModelService.findByVehicle(current);
+        Integer stationId = current.getRentalStation() != null ? current.getRentalStation().getStationId() : null;
+
+        // Xe đã chọn + xe cùng carmodel cùng trạm (1 query), lịch bận đọc từ availability index trong bộ nhớ
+        List<Vehicle> candidates = new ArrayList<>();
+        candidates.add(current);
+        if (currentModel != null && currentModel.getCarmodel() != null && stationId != null) {
+            vehicleRepository.findAvailableWithDetails(stationId, currentModel.getCarmodel(), null, null, null).stream()
+                    .filter(v -> !v.getVehicleId().equals(vehicleId))
+                    .filter(v -> !"MAINTENANCE".equalsIgnoreCase(v.getStatus()))
+                    .forEach(candidates::add);
+        }
+
+        Duration duration = Duration.between(startTime, endTime);
+        LocalDateTime from = startTime.isBefore(LocalDateTime.now()) ? LocalDateTime.now() : startTime;
+        LocalDateTime horizon = from.plusDays(SUGGESTION_HORIZON_DAYS);
+
+        List<VehicleSlotSuggestionResponse> suggestions = new ArrayList<>();
+        for (Vehicle vehicle : candidates) {
+            List<Interval> busy = vehicleAvailabilityIndex.windowsOf(vehicle.getVehicleId()).stream()
+                    .map(w -> new Interval(w.start(), w.end()))
+                    .toList();
+            for (Interval slot : TimelineIntervals.freeSlots(busy, from, horizon, duration, maxResults)) {
+                suggestions.add(new VehicleSlotSuggestionResponse(vehicle.getVehicleId(), vehicle.getPlateNumber(),
+                        vehicle.getVehicleId().equals(vehicleId), slot.start(), slot.end()));
+            }
+        }
+
+        // Gộp các danh sách đã sắp theo thời gian: sớm nhất trước, cùng giờ thì ưu tiên xe đã chọn
+        return suggestions.stream()
+                .sorted(Comparator.comparing(VehicleSlotSuggestionResponse::getStartTime)
+                        .thenComparing(s -> !s.isSameVehicle()))
+                .limit(maxResults)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Station phải tồn tại; trạm đã có xe trong catalog thì không cần hỏi DB
+     */
+    private void requireStation(Integer stationId) {
+        if (!vehicleCatalog.hasStation(stationId) && !rentalStationRepository.existsById(stationId)) {
+            throw new ResourceNotFoundException("Rental Station không tồn tại: " + stationId);
+        }
+    }
+
+    /**
+     * Cùng điều kiện với VehicleRepository.findAvailableWithDetails nhưng chạy trên catalog:
+     * tham số null = bỏ qua điều kiện, lịch BOOKED/RENTAL kiểm tra qua availability index
+     */
+    private List<VehicleResponse> filterAvailable(List<VehicleResponse> candidates, String status, String carmodel,
+                                                  LocalDateTime startTime, LocalDateTime endTime) {
+        return candidates.stream()
+                .filter(v -> status == null || status.equals(v.getStatus()))
+                .filter(v -> carmodel == null || carmodel.equalsIgnoreCase(v.getCarmodel()))
+                .filter(v -> startTime == null || endTime == null
+                        || vehicleAvailabilityIndex.isFree(v.getVehicleId(), startTime, endTime))
+                .collect(Collectors.toList());
+    }
+
+    private String normalizeCarmodel(String carmodel) {
+        return (carmodel == null || carmodel.isBlank()) ? null : carmodel.trim();
+    }
 }
@@ -0,0 +1,66 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hashed timer wheel: mỗi hold được bỏ vào ô ceil(deadline / tick) % slots,
+ * tức tick đầu tiên mà lúc bắt đầu tick đó hold đã hết hạn.
+ * Mỗi tick chỉ duyệt các ô vừa đi qua thay vì quét toàn bộ hold,
+ * hold có TTL dài hơn 1 vòng bánh xe được giữ lại ô cũ tới vòng sau.
+ */
+final class HoldTimerWheel {
+
+    private final long tickMillis;
+    private final List<Map<UUID, Long>> slots;
+    private long lastTick;
+
+    HoldTimerWheel(long tickMillis, int slotCount, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    synchronized void schedule(UUID key, long deadlineMillis) {
+        slotOf(deadlineMillis).put(key, deadlineMillis);
+    }
+
+    synchronized void cancel(UUID key, long deadlineMillis) {
+        slotOf(deadlineMillis).remove(key);
+    }
+
+    /**
+     * Quay bánh xe tới nowMillis, trả về các key đã tới hạn (và bỏ chúng khỏi bánh xe)
+     */
+    synchronized List<UUID> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<UUID> expired = new ArrayList<>();
+        if (nowTick <= lastTick) return expired;
+
+        // Ô của tick t chỉ chứa deadline <= t * tick <= nowMillis (hoặc hold của vòng sau),
+        // nên không bỏ sót hold nào của vòng hiện tại. Trễ hơn 1 vòng thì mỗi ô chỉ cần duyệt 1 lần
+        long ticks = Math.min(nowTick - lastTick, slots.size());
+        for (long t = nowTick - ticks + 1; t <= nowTick; t++) {
+            Map<UUID, Long> slot = slots.get((int) Math.floorMod(t, (long) slots.size()));
+            slot.entrySet().removeIf(e -> {
+                if (e.getValue() <= nowMillis) {
+                    expired.add(e.getKey());
+                    return true;
+                }
+                return false;
+            });
+        }
+        lastTick = nowTick;
+        return expired;
+    }
+
+    private Map<UUID, Long> slotOf(long deadlineMillis) {
+        return slots.get((int) Math.floorMod(Math.ceilDiv(deadlineMillis, tickMillis), (long) slots.size()));
+    }
+}
@@ -0,0 +1,97 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import com.group6.Rental_Car.entities.VehicleHold;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giữ chỗ trong bộ nhớ, hết hạn qua {@link HoldTimerWheel} (tick 1 giây).
+ */
+@Slf4j
+public class InMemoryVehicleHoldStore implements VehicleHoldStore {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SLOTS = 512;
+
+    private final Map<UUID, VehicleHold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UUID>> holdsByVehicle = new ConcurrentHashMap<>();
+    private final HoldTimerWheel wheel = new HoldTimerWheel(TICK_MILLIS, WHEEL_SLOTS, System.currentTimeMillis());
+
+    @Override
+    public synchronized void save(VehicleHold hold) {
+        holds.put(hold.getHoldId(), hold);
+        holdsByVehicle.computeIfAbsent(hold.getVehicleId(), k -> ConcurrentHashMap.newKeySet()).add(hold.getHoldId());
+        wheel.schedule(hold.getHoldId(), toMillis(hold.getExpiresAt()));
+    }
+
+    @Override
+    public Optional<VehicleHold> find(UUID holdId) {
+        VehicleHold hold = holds.get(holdId);
+        if (hold == null || hold.isExpired(LocalDateTime.now())) return Optional.empty();
+        return Optional.of(hold);
+    }
+
+    @Override
+    public List<VehicleHold> findActiveByVehicle(Long vehicleId) {
+        Set<UUID> ids = holdsByVehicle.get(vehicleId);
+        if (ids == null) return List.of();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<VehicleHold> result = new ArrayList<>();
+        for (UUID id : ids) {
+            VehicleHold hold = holds.get(id);
+            if (hold != null && !hold.isExpired(now)) result.add(hold);
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(UUID holdId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(holdId, true);
+                }
+            });
+        } else {
+            evict(holdId, true);
+        }
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void expireHolds() {
+        List<UUID> expired = wheel.advance(System.currentTimeMillis());
+        for (UUID holdId : expired) {
+            evict(holdId, false);
+        }
+        if (!expired.isEmpty()) {
+            log.debug("Hết hạn {} giữ chỗ", expired.size());
+        }
+    }
+
+    private synchronized void evict(UUID holdId, boolean cancelTimer) {
+        VehicleHold hold = holds.remove(holdId);
+        if (hold == null) return;
+
+        if (cancelTimer) {
+            wheel.cancel(holdId, toMillis(hold.getExpiresAt()));
+        }
+        Set<UUID> ids = holdsByVehicle.get(hold.getVehicleId());
+        if (ids != null) {
+            ids.remove(holdId);
+            if (ids.isEmpty()) holdsByVehicle.remove(hold.getVehicleId());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,53 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import com.group6.Rental_Car.entities.VehicleHold;
+import com.group6.Rental_Car.repositories.VehicleHoldRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Giữ chỗ dùng chung giữa nhiều node qua bảng vehicle_hold (script db/vehicle_hold.sql).
+ * Hold hết hạn không còn được đọc ra; dòng cũ được dọn theo index expires_at.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class JpaVehicleHoldStore implements VehicleHoldStore {
+
+    private final VehicleHoldRepository vehicleHoldRepository;
+
+    @Override
+    public void save(VehicleHold hold) {
+        vehicleHoldRepository.save(hold);
+    }
+
+    @Override
+    public Optional<VehicleHold> find(UUID holdId) {
+        return vehicleHoldRepository.findByHoldIdAndExpiresAtAfter(holdId, LocalDateTime.now());
+    }
+
+    @Override
+    public List<VehicleHold> findActiveByVehicle(Long vehicleId) {
+        return vehicleHoldRepository.findByVehicleIdAndExpiresAtAfter(vehicleId, LocalDateTime.now());
+    }
+
+    @Override
+    public void remove(UUID holdId) {
+        vehicleHoldRepository.deleteById(holdId);
+    }
+
+    @Scheduled(fixedDelay = 60000) // Mỗi 1 phút
+    @Transactional
+    public void purgeExpired() {
+        int deleted = vehicleHoldRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Xóa {} giữ chỗ hết hạn", deleted);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldRequest;
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldResponse;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface VehicleHoldService {
+    VehicleHoldResponse createHold(VehicleHoldRequest request);
+    void releaseHold(UUID holdToken);
+
+    /**
+     * Gọi trong createOrder khi đã giữ khóa xe: kiểm tra xe không bị khách khác giữ chỗ
+     * và tiêu thụ holdToken của chính khách (nếu có) khi transaction commit
+     */
+    void claimForBooking(UUID customerId, Long vehicleId, LocalDateTime start, LocalDateTime end, UUID holdToken);
+}
@@ -0,0 +1,119 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldRequest;
+import com.group6.Rental_Car.dtos.vehiclehold.VehicleHoldResponse;
+import com.group6.Rental_Car.entities.VehicleHold;
+import com.group6.Rental_Car.exceptions.BadRequestException;
+import com.group6.Rental_Car.exceptions.ResourceNotFoundException;
+import com.group6.Rental_Car.repositories.VehicleRepository;
+import com.group6.Rental_Car.services.bookinglock.VehicleBookingLock;
+import com.group6.Rental_Car.services.timeline.VehicleAvailabilityIndex;
+import com.group6.Rental_Car.utils.JwtUserDetails;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class VehicleHoldServiceImpl implements VehicleHoldService {
+
+    private final VehicleHoldStore vehicleHoldStore;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleBookingLock vehicleBookingLock;
+    private final VehicleAvailabilityIndex vehicleAvailabilityIndex;
+
+    @Value("${booking.hold.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Cùng khóa với createOrder để giữ chỗ và đặt xe không chen nhau; khóa lấy trước khi mở transaction
+    @Override
+    public VehicleHoldResponse createHold(VehicleHoldRequest request) {
+        UUID customerId = currentUser().getUserId();
+
+        LocalDateTime start = request.getStartTime();
+        LocalDateTime end = request.getEndTime();
+        if (start == null || end == null || !end.isAfter(start)) {
+            throw new BadRequestException("Thời gian thuê không hợp lệ");
+        }
+        return vehicleBookingLock.callLocked(request.getVehicleId(), () -> createHoldLocked(customerId, request));
+    }
+
+    private VehicleHoldResponse createHoldLocked(UUID customerId, VehicleHoldRequest request) {
+        LocalDateTime start = request.getStartTime();
+        LocalDateTime end = request.getEndTime();
+        if (!vehicleRepository.existsById(request.getVehicleId())) {
+            throw new ResourceNotFoundException("Vehicle not found");
+        }
+
+        if (!vehicleAvailabilityIndex.isFree(request.getVehicleId(), start, end)) {
+            throw new BadRequestException("Xe đã được đặt trong khoảng thời gian này...");
+        }
+        assertNotHeldByOthers(customerId, request.getVehicleId(), start, end);
+
+        VehicleHold hold = VehicleHold.builder()
+                .holdId(UUID.randomUUID())
+                .vehicleId(request.getVehicleId())
+                .customerId(customerId)
+                .startTime(start)
+                .endTime(end)
+                .expiresAt(LocalDateTime.now().plusSeconds(ttlSeconds))
+                .build();
+        vehicleHoldStore.save(hold);
+
+        return VehicleHoldResponse.builder()
+                .holdToken(hold.getHoldId())
+                .vehicleId(hold.getVehicleId())
+                .startTime(hold.getStartTime())
+                .endTime(hold.getEndTime())
+                .expiresAt(hold.getExpiresAt())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public void releaseHold(UUID holdToken) {
+        UUID customerId = currentUser().getUserId();
+        VehicleHold hold = vehicleHoldStore.find(holdToken)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy giữ chỗ hoặc giữ chỗ đã hết hạn"));
+        if (!hold.getCustomerId().equals(customerId)) {
+            throw new BadRequestException("Không thể hủy giữ chỗ của khách hàng khác");
+        }
+        vehicleHoldStore.remove(holdToken);
+    }
+
+    @Override
+    public void claimForBooking(UUID customerId, Long vehicleId, LocalDateTime start, LocalDateTime end, UUID holdToken) {
+        if (holdToken != null) {
+            VehicleHold hold = vehicleHoldStore.find(holdToken)
+                    .orElseThrow(() -> new BadRequestException("Giữ chỗ đã hết hạn, vui lòng chọn lại xe"));
+            if (!hold.getCustomerId().equals(customerId) || !hold.getVehicleId().equals(vehicleId)) {
+                throw new BadRequestException("Giữ chỗ không khớp với khách hàng hoặc xe");
+            }
+            if (start.isBefore(hold.getStartTime()) || end.isAfter(hold.getEndTime())) {
+                throw new BadRequestException("Thời gian thuê nằm ngoài khoảng đã giữ chỗ");
+            }
+            vehicleHoldStore.remove(holdToken);
+        }
+        assertNotHeldByOthers(customerId, vehicleId, start, end);
+    }
+
+    private void assertNotHeldByOthers(UUID customerId, Long vehicleId, LocalDateTime start, LocalDateTime end) {
+        boolean heldByOthers = vehicleHoldStore.findActiveByVehicle(vehicleId).stream()
+                .anyMatch(h -> !h.getCustomerId().equals(customerId) && h.overlaps(start, end));
+        if (heldByOthers) {
+            throw new BadRequestException("Xe đang được khách hàng khác giữ chỗ, vui lòng thử lại sau ít phút");
+        }
+    }
+
+    private JwtUserDetails currentUser() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof JwtUserDetails jwt))
+            throw new BadRequestException("Phiên đăng nhập không hợp lệ");
+        return jwt;
+    }
+}
@@ -0,0 +1,25 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import com.group6.Rental_Car.entities.VehicleHold;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Nơi lưu giữ chỗ: bộ nhớ (1 node) hoặc bảng vehicle_hold (nhiều node), chọn qua booking.hold.store.
+ * Mọi hàm đọc chỉ trả về hold chưa hết hạn.
+ */
+public interface VehicleHoldStore {
+
+    void save(VehicleHold hold);
+
+    Optional<VehicleHold> find(UUID holdId);
+
+    List<VehicleHold> findActiveByVehicle(Long vehicleId);
+
+    /**
+     * Trong transaction: chỉ thực sự xóa khi commit (rollback thì hold vẫn còn)
+     */
+    void remove(UUID holdId);
+}
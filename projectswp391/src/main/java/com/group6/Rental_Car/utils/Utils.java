@@ -9,6 +9,8 @@ import java.util.Random;
 import java.util.stream.Collectors;
 
 public class Utils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     public static String randomNumber(int length){
         Random random = new Random();
 
@@ -33,12 +35,7 @@ public class Utils {
             // Calculate the HMAC
             byte[] hashBytes = hmacSHA512.doFinal(data.getBytes(StandardCharsets.UTF_8));
 
-            // Convert to hex string
-            StringBuilder hashHex = new StringBuilder();
-            for (byte b : hashBytes) {
-                hashHex.append(String.format("%02x", b & 0xff));
-            }
-            return hashHex.toString();
+            return toHex(hashBytes);
         } catch (Exception e) {
             throw new RuntimeException("Error while generating HMAC SHA512 hash", e);
         }
@@ -57,17 +54,25 @@ public class Utils {
             // Calculate the HMAC
             byte[] hashBytes = hmacSHA256.doFinal(data.getBytes(StandardCharsets.UTF_8));
 
-            // Convert to hex string
-            StringBuilder hashHex = new StringBuilder();
-            for (byte b : hashBytes) {
-                hashHex.append(String.format("%02x", b & 0xff));
-            }
-            return hashHex.toString();
+            return toHex(hashBytes);
         } catch (Exception e) {
             throw new RuntimeException("Error while generating HMAC SHA256 hash", e);
         }
     }
 
+    /**
+     * Hex chữ thường, tra bảng thay cho String.format từng byte
+     */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[i * 2] = HEX_DIGITS[v >>> 4];
+            out[i * 2 + 1] = HEX_DIGITS[v & 0x0f];
+        }
+        return new String(out);
+    }
+
     public static String getPaymentURL(Map<String, String> paramsMap, boolean encodeValue) {
         return paramsMap.entrySet().stream()
                 .filter(entry -> entry.getValue() != null && !entry.getValue().isEmpty())
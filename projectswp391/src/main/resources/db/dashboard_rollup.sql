@@ -0,0 +1,342 @@
+-- =====================================
+-- ROLLUP DASHBOARD (doanh thu theo ngày / trạm / dòng xe, số đơn theo giờ)
+-- =====================================
+-- Dashboard đọc revenue_daily / order_hourly (vài dòng mỗi ngày) thay vì quét toàn bộ rentalorder_detail.
+-- Trigger trên rentalorder_detail, rentalorder và payment ghi nhận đơn bị đổi; lúc commit transaction
+-- tính lại phần đóng góp của tất cả các đơn đó 1 lần: trừ phần cũ (lưu ở bảng *_contrib), cộng phần mới.
+-- Quy tắc ghi nhận doanh thu giữ nguyên như dashboard trước đây:
+--   SERVICE → ngày start_time của detail
+--   RENTAL / DEPOSIT / PICKUP / FULL_PAYMENT của đơn còn hiệu lực (kể cả CANCELLED đã thanh toán)
+--     → đơn COMPLETED: ngày trả xe (hoặc ngày tạo đơn), đơn khác: ngày start_time của detail
+-- Trạm / dòng xe lấy theo xe tại thời điểm ghi; DashboardRollupJob dựng lại toàn bộ mỗi đêm
+-- (sửa lệch khi xe đổi trạm, dữ liệu sửa tay...) và dọn các dòng đã về 0.
+
+CREATE TABLE IF NOT EXISTS revenue_daily (
+    day          DATE           NOT NULL,
+    station_id   INTEGER        NOT NULL,            -- 0 = xe không thuộc trạm nào
+    carmodel     VARCHAR(50)    NOT NULL,            -- '' = xe chưa khai báo dòng xe
+    paid         BOOLEAN        NOT NULL,            -- đơn đã có payment SUCCESS
+    revenue      NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    detail_count INTEGER        NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, station_id, carmodel, paid)
+);
+
+CREATE TABLE IF NOT EXISTS revenue_daily_contrib (
+    order_id     UUID           NOT NULL,
+    day          DATE           NOT NULL,
+    station_id   INTEGER        NOT NULL,
+    carmodel     VARCHAR(50)    NOT NULL,
+    paid         BOOLEAN        NOT NULL,
+    revenue      NUMERIC(14, 2) NOT NULL,
+    detail_count INTEGER        NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_revenue_daily_contrib_order ON revenue_daily_contrib (order_id);
+
+CREATE TABLE IF NOT EXISTS order_hourly (
+    day         DATE     NOT NULL,
+    hour        SMALLINT NOT NULL,
+    order_count INTEGER  NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, hour)
+);
+
+CREATE TABLE IF NOT EXISTS order_hourly_contrib (
+    order_id UUID     NOT NULL,
+    day      DATE     NOT NULL,
+    hour     SMALLINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_order_hourly_contrib_order ON order_hourly_contrib (order_id);
+
+CREATE INDEX IF NOT EXISTS idx_rentalorder_detail_order_id ON rentalorder_detail (order_id);
+
+-- Ngày ghi nhận doanh thu của 1 detail, NULL nếu detail không được tính
+CREATE OR REPLACE FUNCTION revenue_day_of(p_type TEXT, p_start TIMESTAMP, p_order_status TEXT,
+                                          p_return TIMESTAMP, p_order_created TIMESTAMP) RETURNS DATE AS $$
+    SELECT CASE
+        WHEN UPPER(p_type) = 'SERVICE' THEN CAST(p_start AS DATE)
+        WHEN UPPER(p_type) IN ('RENTAL', 'DEPOSIT', 'PICKUP', 'FULL_PAYMENT')
+             AND UPPER(p_order_status) ~ '(RENTAL|COMPLETED|RETURN|ACTIVE|PAID|AWAITING|DEPOSITED|PENDING|CANCELLED)'
+            THEN CAST(CASE WHEN UPPER(p_order_status) = 'COMPLETED'
+                           THEN COALESCE(p_return, p_order_created)
+                           ELSE p_start
+                      END AS DATE)
+    END
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Đóng góp doanh thu của từng đơn (lọc theo order_id khi làm mới 1 đơn)
+CREATE OR REPLACE VIEW revenue_daily_source AS
+SELECT d.order_id,
+       x.day,
+       COALESCE(v.station_id, 0)         AS station_id,
+       COALESCE(m.carmodel, '')          AS carmodel,
+       pay.paid,
+       SUM(COALESCE(d.price, 0))         AS revenue,
+       CAST(COUNT(*) AS INTEGER)         AS detail_count
+FROM rentalorder_detail d
+JOIN rentalorder o ON o.order_id = d.order_id
+LEFT JOIN vehicle v ON v.vehicle_id = d.vehicle_id
+LEFT JOIN LATERAL (
+    SELECT vm.carmodel FROM vehiclemodel vm
+    WHERE vm.vehicle_id = d.vehicle_id AND vm.carmodel IS NOT NULL
+    ORDER BY vm.attr_id
+    LIMIT 1
+) m ON TRUE
+CROSS JOIN LATERAL (
+    SELECT EXISTS (SELECT 1 FROM payment p WHERE p.order_id = d.order_id AND p.status = 'SUCCESS') AS paid
+) pay
+CROSS JOIN LATERAL (
+    SELECT revenue_day_of(d.type, d.start_time, o.status, o.actual_return_time, o.created_at) AS day
+) x
+WHERE x.day IS NOT NULL
+GROUP BY d.order_id, x.day, COALESCE(v.station_id, 0), COALESCE(m.carmodel, ''), pay.paid;
+
+-- Giờ có detail bắt đầu của từng đơn (mỗi đơn tính 1 lần cho mỗi ngày + giờ)
+CREATE OR REPLACE VIEW order_hourly_source AS
+SELECT DISTINCT d.order_id,
+       CAST(d.start_time AS DATE)                   AS day,
+       CAST(EXTRACT(HOUR FROM d.start_time) AS SMALLINT) AS hour
+FROM rentalorder_detail d
+WHERE d.start_time IS NOT NULL;
+
+-- Tính lại phần đóng góp của 1 nhóm đơn: gom phần cũ (trừ) và phần mới (cộng) của mọi đơn thành 1 delta ròng
+-- cho mỗi khóa rồi ghi bằng 1 câu INSERT ... ON CONFLICT duy nhất, dòng đi theo thứ tự khóa.
+-- Chỉ gọi 1 lần mỗi transaction (lúc commit, xem dashboard_rollup_flush) nên mỗi transaction khóa theo cùng
+-- 1 thứ tự toàn cục: advisory lock theo khóa băm, rồi revenue_daily, rồi order_hourly theo khóa.
+-- 2 transaction chạm chung dòng chỉ chờ nhau, không deadlock. Khóa có delta 0 không bị chạm.
+CREATE OR REPLACE FUNCTION dashboard_rollup_refresh_orders(p_order_ids UUID[]) RETURNS VOID AS $$
+BEGIN
+    IF p_order_ids IS NULL OR cardinality(p_order_ids) = 0 THEN
+        RETURN;
+    END IF;
+    -- 2 transaction cùng làm mới 1 đơn chạy lần lượt, bản sau thấy phần đóng góp bản trước đã ghi
+    PERFORM pg_advisory_xact_lock(k)
+    FROM (SELECT DISTINCT hashtext('dashboard_rollup:' || id::text) AS k FROM unnest(p_order_ids) id) keys
+    ORDER BY k;
+
+    WITH old AS (
+        DELETE FROM revenue_daily_contrib
+        WHERE order_id = ANY (p_order_ids)
+        RETURNING day, station_id, carmodel, paid, -revenue AS revenue, -detail_count AS detail_count
+    ), fresh AS (
+        INSERT INTO revenue_daily_contrib (order_id, day, station_id, carmodel, paid, revenue, detail_count)
+        SELECT order_id, day, station_id, carmodel, paid, revenue, detail_count
+        FROM revenue_daily_source
+        WHERE order_id = ANY (p_order_ids)
+        RETURNING day, station_id, carmodel, paid, revenue, detail_count
+    ), delta AS (
+        SELECT day, station_id, carmodel, paid, SUM(revenue) AS revenue, SUM(detail_count) AS detail_count
+        FROM (SELECT * FROM old UNION ALL SELECT * FROM fresh) c
+        GROUP BY day, station_id, carmodel, paid
+        HAVING SUM(revenue) <> 0 OR SUM(detail_count) <> 0
+    )
+    INSERT INTO revenue_daily AS r (day, station_id, carmodel, paid, revenue, detail_count)
+    SELECT day, station_id, carmodel, paid, revenue, detail_count
+    FROM delta
+    ORDER BY day, station_id, carmodel, paid
+    ON CONFLICT (day, station_id, carmodel, paid) DO UPDATE
+        SET revenue = r.revenue + EXCLUDED.revenue,
+            detail_count = r.detail_count + EXCLUDED.detail_count;
+
+    WITH old AS (
+        DELETE FROM order_hourly_contrib
+        WHERE order_id = ANY (p_order_ids)
+        RETURNING day, hour, -1 AS order_count
+    ), fresh AS (
+        INSERT INTO order_hourly_contrib (order_id, day, hour)
+        SELECT order_id, day, hour
+        FROM order_hourly_source
+        WHERE order_id = ANY (p_order_ids)
+        RETURNING day, hour, 1 AS order_count
+    ), delta AS (
+        SELECT day, hour, SUM(order_count) AS order_count
+        FROM (SELECT * FROM old UNION ALL SELECT * FROM fresh) c
+        GROUP BY day, hour
+        HAVING SUM(order_count) <> 0
+    )
+    INSERT INTO order_hourly AS h (day, hour, order_count)
+    SELECT day, hour, order_count
+    FROM delta
+    ORDER BY day, hour
+    ON CONFLICT (day, hour) DO UPDATE SET order_count = h.order_count + EXCLUDED.order_count;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP FUNCTION IF EXISTS dashboard_rollup_refresh_order(UUID);
+
+-- Dựng lại toàn bộ rollup từ dữ liệu gốc (chỉ giữ nhóm khác 0), trả về số dòng revenue_daily
+CREATE OR REPLACE FUNCTION dashboard_rollup_rebuild() RETURNS INTEGER AS $$
+DECLARE
+    rows_written INTEGER;
+BEGIN
+    -- Trigger ghi rollup chờ đến khi dựng xong, dashboard vẫn đọc được bản cũ
+    LOCK TABLE revenue_daily, revenue_daily_contrib, order_hourly, order_hourly_contrib IN EXCLUSIVE MODE;
+
+    DELETE FROM revenue_daily_contrib;
+    DELETE FROM revenue_daily;
+    DELETE FROM order_hourly_contrib;
+    DELETE FROM order_hourly;
+
+    INSERT INTO revenue_daily_contrib (order_id, day, station_id, carmodel, paid, revenue, detail_count)
+    SELECT order_id, day, station_id, carmodel, paid, revenue, detail_count
+    FROM revenue_daily_source;
+
+    INSERT INTO revenue_daily (day, station_id, carmodel, paid, revenue, detail_count)
+    SELECT day, station_id, carmodel, paid, SUM(revenue), SUM(detail_count)
+    FROM revenue_daily_contrib
+    GROUP BY day, station_id, carmodel, paid;
+    GET DIAGNOSTICS rows_written = ROW_COUNT;
+
+    INSERT INTO order_hourly_contrib (order_id, day, hour)
+    SELECT order_id, day, hour
+    FROM order_hourly_source;
+
+    INSERT INTO order_hourly (day, hour, order_count)
+    SELECT day, hour, COUNT(*)
+    FROM order_hourly_contrib
+    GROUP BY day, hour;
+
+    RETURN rows_written;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Đơn bị chạm trong transaction hiện tại, chờ làm mới 1 lần lúc commit (bảng tạm theo session)
+CREATE OR REPLACE FUNCTION dashboard_rollup_mark(p_order_id UUID) RETURNS VOID AS $$
+BEGIN
+    IF p_order_id IS NULL THEN
+        RETURN;
+    END IF;
+    IF to_regclass('pg_temp.dashboard_rollup_pending') IS NULL THEN
+        CREATE TEMP TABLE dashboard_rollup_pending (order_id UUID PRIMARY KEY) ON COMMIT DELETE ROWS;
+    END IF;
+    INSERT INTO dashboard_rollup_pending (order_id) VALUES (p_order_id) ON CONFLICT DO NOTHING;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Trigger ghi nhận, dùng chung cho rentalorder_detail, rentalorder, payment (đều có order_id)
+CREATE OR REPLACE FUNCTION dashboard_rollup_on_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM dashboard_rollup_mark(NEW.order_id);
+    END IF;
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND OLD.order_id IS DISTINCT FROM NEW.order_id) THEN
+        PERFORM dashboard_rollup_mark(OLD.order_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Constraint trigger hoãn tới commit: lần chạy đầu lấy hết đơn đã ghi nhận và làm mới trong 1 lượt,
+-- các lần sau trong cùng transaction thấy bảng rỗng và bỏ qua
+CREATE OR REPLACE FUNCTION dashboard_rollup_flush() RETURNS TRIGGER AS $$
+DECLARE
+    ids UUID[];
+BEGIN
+    IF to_regclass('pg_temp.dashboard_rollup_pending') IS NULL THEN
+        RETURN NULL;
+    END IF;
+    WITH taken AS (
+        DELETE FROM dashboard_rollup_pending RETURNING order_id
+    )
+    SELECT array_agg(order_id ORDER BY order_id) INTO ids FROM taken;
+    PERFORM dashboard_rollup_refresh_orders(ids);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Hibernate ghi lại mọi cột khi update nên chỉ ghi nhận khi cột liên quan thực sự đổi
+DROP TRIGGER IF EXISTS trg_rentalorder_detail_rollup ON rentalorder_detail;
+CREATE TRIGGER trg_rentalorder_detail_rollup
+    AFTER INSERT OR DELETE ON rentalorder_detail
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_detail_rollup_update ON rentalorder_detail;
+CREATE TRIGGER trg_rentalorder_detail_rollup_update
+    AFTER UPDATE ON rentalorder_detail
+    FOR EACH ROW
+    WHEN (OLD.order_id IS DISTINCT FROM NEW.order_id
+          OR OLD.vehicle_id IS DISTINCT FROM NEW.vehicle_id
+          OR OLD.type IS DISTINCT FROM NEW.type
+          OR OLD.start_time IS DISTINCT FROM NEW.start_time
+          OR OLD.price IS DISTINCT FROM NEW.price)
+    EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_detail_rollup_flush ON rentalorder_detail;
+CREATE CONSTRAINT TRIGGER trg_rentalorder_detail_rollup_flush
+    AFTER INSERT OR DELETE ON rentalorder_detail
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_flush();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_detail_rollup_flush_update ON rentalorder_detail;
+CREATE CONSTRAINT TRIGGER trg_rentalorder_detail_rollup_flush_update
+    AFTER UPDATE ON rentalorder_detail
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+    WHEN (OLD.order_id IS DISTINCT FROM NEW.order_id
+          OR OLD.vehicle_id IS DISTINCT FROM NEW.vehicle_id
+          OR OLD.type IS DISTINCT FROM NEW.type
+          OR OLD.start_time IS DISTINCT FROM NEW.start_time
+          OR OLD.price IS DISTINCT FROM NEW.price)
+    EXECUTE FUNCTION dashboard_rollup_flush();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_rollup ON rentalorder;
+CREATE TRIGGER trg_rentalorder_rollup
+    AFTER DELETE ON rentalorder
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_rollup_update ON rentalorder;
+CREATE TRIGGER trg_rentalorder_rollup_update
+    AFTER UPDATE ON rentalorder
+    FOR EACH ROW
+    WHEN (OLD.status IS DISTINCT FROM NEW.status
+          OR OLD.actual_return_time IS DISTINCT FROM NEW.actual_return_time
+          OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+    EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_rollup_flush ON rentalorder;
+CREATE CONSTRAINT TRIGGER trg_rentalorder_rollup_flush
+    AFTER DELETE ON rentalorder
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_flush();
+
+DROP TRIGGER IF EXISTS trg_rentalorder_rollup_flush_update ON rentalorder;
+CREATE CONSTRAINT TRIGGER trg_rentalorder_rollup_flush_update
+    AFTER UPDATE ON rentalorder
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+    WHEN (OLD.status IS DISTINCT FROM NEW.status
+          OR OLD.actual_return_time IS DISTINCT FROM NEW.actual_return_time
+          OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+    EXECUTE FUNCTION dashboard_rollup_flush();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup ON payment;
+CREATE TRIGGER trg_payment_rollup
+    AFTER INSERT OR DELETE ON payment
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_update ON payment;
+CREATE TRIGGER trg_payment_rollup_update
+    AFTER UPDATE ON payment
+    FOR EACH ROW
+    WHEN (OLD.status IS DISTINCT FROM NEW.status OR OLD.order_id IS DISTINCT FROM NEW.order_id)
+    EXECUTE FUNCTION dashboard_rollup_on_change();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_flush ON payment;
+CREATE CONSTRAINT TRIGGER trg_payment_rollup_flush
+    AFTER INSERT OR DELETE ON payment
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW EXECUTE FUNCTION dashboard_rollup_flush();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_flush_update ON payment;
+CREATE CONSTRAINT TRIGGER trg_payment_rollup_flush_update
+    AFTER UPDATE ON payment
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+    WHEN (OLD.status IS DISTINCT FROM NEW.status OR OLD.order_id IS DISTINCT FROM NEW.order_id)
+    EXECUTE FUNCTION dashboard_rollup_flush();
+
+-- Lần đầu: dựng rollup từ dữ liệu cũ
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM revenue_daily_contrib) AND NOT EXISTS (SELECT 1 FROM order_hourly_contrib) THEN
+        PERFORM dashboard_rollup_rebuild();
+    END IF;
+END $$;
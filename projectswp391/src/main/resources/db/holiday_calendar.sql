@@ -0,0 +1,10 @@
+-- =====================================
+-- LỊCH NGÀY LỄ (TÍNH GIÁ)
+-- =====================================
+-- Ngày trong bảng tính theo holidayPrice của pricing rule như cuối tuần.
+-- HolidayCalendar nạp toàn bộ vào mảng đã sắp xếp, đếm số ngày lễ trong kỳ thuê bằng binary search.
+
+CREATE TABLE IF NOT EXISTS holiday (
+    holiday_date DATE PRIMARY KEY,
+    name         VARCHAR(100) NOT NULL
+);
@@ -0,0 +1,31 @@
+-- =====================================
+-- HỘP THƯ IPN MOMO
+-- =====================================
+-- Callback chỉ kiểm chữ ký + ghi vào đây rồi trả 204 ngay, worker xử lý sau.
+-- Unique (momo_order_id, request_id) loại IPN MoMo gửi lại.
+
+CREATE TABLE IF NOT EXISTS momo_ipn_inbox (
+    inbox_id        BIGSERIAL PRIMARY KEY,
+    momo_order_id   VARCHAR(100) NOT NULL,
+    request_id      VARCHAR(100) NOT NULL,
+    payment_id      UUID         NOT NULL,
+    result_code     INTEGER,
+    payload         TEXT         NOT NULL,
+    status          VARCHAR(20)  NOT NULL,
+    attempts        INTEGER      NOT NULL DEFAULT 0,
+    last_error      TEXT,
+    received_at     TIMESTAMP    NOT NULL,
+    next_attempt_at TIMESTAMP    NOT NULL,
+    claimed_at      TIMESTAMP,
+    processed_at    TIMESTAMP,
+    CONSTRAINT uq_momo_ipn_inbox_order_request UNIQUE (momo_order_id, request_id)
+);
+
+-- Worker chỉ quét phần chưa xong
+CREATE INDEX IF NOT EXISTS idx_momo_ipn_inbox_due ON momo_ipn_inbox (next_attempt_at, inbox_id)
+    WHERE status IN ('PENDING', 'PROCESSING');
+
+CREATE INDEX IF NOT EXISTS idx_momo_ipn_inbox_payment ON momo_ipn_inbox (payment_id, inbox_id);
+
+CREATE INDEX IF NOT EXISTS idx_momo_ipn_inbox_processed ON momo_ipn_inbox (processed_at)
+    WHERE status = 'DONE';
@@ -0,0 +1,13 @@
+-- =====================================
+-- ĐỐI SOÁT PAYMENT MOMO
+-- =====================================
+-- momo_order_id: orderId gửi MoMo ở lần tạo link gần nhất, để tra cứu khi mất IPN.
+-- created_at: payment cũ chưa có thời điểm tạo → lấy thời điểm chạy script.
+
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS momo_order_id VARCHAR(100);
+
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT now();
+
+-- Job đối soát chỉ quét payment MoMo còn PENDING, theo (created_at, payment_id)
+CREATE INDEX IF NOT EXISTS idx_payment_pending_momo ON payment (created_at, payment_id)
+    WHERE status = 'PENDING' AND momo_order_id IS NOT NULL;
@@ -0,0 +1,110 @@
+-- =====================================
+-- SỐ DƯ ĐƠN HÀNG (paid_amount / remaining_amount)
+-- =====================================
+-- Cột được tính lại trong cùng transaction mỗi khi payment thay đổi (trigger trên payment)
+-- hoặc khi total_price của đơn thay đổi (trigger trên rentalorder), nên đọc danh sách đơn chỉ cần lấy cột.
+-- Quy tắc remaining giống OrderBalanceCalculator:
+--   FULL_PAYMENT (3) SUCCESS → remaining_amount của payment đó
+--   FINAL_PAYMENT (2) SUCCESS → remaining_amount của DEPOSIT (nếu có), không thì 0
+--   DEPOSIT (1) SUCCESS → remaining_amount của DEPOSIT
+--   chưa thanh toán → total_price
+-- Đơn có nhiều FULL_PAYMENT / DEPOSIT SUCCESS thì lấy MAX(remaining_amount) của loại đó
+-- (code cũ lấy dòng đầu tiên theo thứ tự không xác định; đơn 1 payment mỗi loại cho kết quả như cũ).
+-- paid_amount = tổng amount các payment SUCCESS (REFUND đã là số âm).
+-- OrderBalanceRebuildJob đối chiếu định kỳ và sửa lệch.
+-- Hàm plpgsql không kiểm tra bảng lúc tạo; cột, index, trigger và backfill chỉ chạy khi
+-- rentalorder và payment đã có (schema mới: bỏ qua, lần khởi động sau sẽ tạo).
+
+CREATE OR REPLACE FUNCTION rentalorder_compute_balance(p_order_id UUID, p_total_price NUMERIC,
+                                                       OUT paid NUMERIC, OUT remaining NUMERIC) AS $$
+DECLARE
+    has_full    BOOLEAN;
+    has_final   BOOLEAN;
+    has_deposit BOOLEAN;
+    full_rem    NUMERIC;
+    deposit_rem NUMERIC;
+BEGIN
+    SELECT COALESCE(SUM(amount), 0),
+           COALESCE(BOOL_OR(payment_type = 3), FALSE),
+           COALESCE(BOOL_OR(payment_type = 2), FALSE),
+           COALESCE(BOOL_OR(payment_type = 1), FALSE),
+           MAX(remaining_amount) FILTER (WHERE payment_type = 3),
+           MAX(remaining_amount) FILTER (WHERE payment_type = 1)
+    INTO paid, has_full, has_final, has_deposit, full_rem, deposit_rem
+    FROM payment
+    WHERE order_id = p_order_id
+      AND status = 'SUCCESS';
+
+    IF has_full THEN
+        remaining := GREATEST(COALESCE(full_rem, 0), 0);
+    ELSIF has_final THEN
+        remaining := GREATEST(COALESCE(deposit_rem, 0), 0);
+    ELSIF has_deposit THEN
+        remaining := GREATEST(COALESCE(deposit_rem, 0), 0);
+    ELSE
+        remaining := COALESCE(p_total_price, 0);
+    END IF;
+END;
+$$ LANGUAGE plpgsql STABLE;
+
+-- Khi đổi total_price (thêm dịch vụ, phí trễ...) hoặc tạo đơn mới
+CREATE OR REPLACE FUNCTION rentalorder_balance_on_write() RETURNS TRIGGER AS $$
+BEGIN
+    SELECT b.paid, b.remaining
+    INTO NEW.paid_amount, NEW.remaining_amount
+    FROM rentalorder_compute_balance(NEW.order_id, NEW.total_price) b;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Ghi lại số dư 1 đơn (không đụng total_price nên không kích hoạt trg_rentalorder_balance)
+CREATE OR REPLACE FUNCTION rentalorder_refresh_balance(p_order_id UUID) RETURNS VOID AS $$
+BEGIN
+    UPDATE rentalorder
+    SET (paid_amount, remaining_amount) =
+        (SELECT b.paid, b.remaining FROM rentalorder_compute_balance(order_id, total_price) b)
+    WHERE order_id = p_order_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Khi thêm / sửa / xóa payment
+CREATE OR REPLACE FUNCTION payment_refresh_order_balance() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM rentalorder_refresh_balance(NEW.order_id);
+    END IF;
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND OLD.order_id IS DISTINCT FROM NEW.order_id) THEN
+        PERFORM rentalorder_refresh_balance(OLD.order_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    IF to_regclass('public.rentalorder') IS NULL OR to_regclass('public.payment') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE rentalorder ADD COLUMN IF NOT EXISTS paid_amount NUMERIC(12, 2);
+    ALTER TABLE rentalorder ADD COLUMN IF NOT EXISTS remaining_amount NUMERIC(12, 2);
+
+    CREATE INDEX IF NOT EXISTS idx_payment_order_id ON payment (order_id);
+
+    DROP TRIGGER IF EXISTS trg_rentalorder_balance ON rentalorder;
+    CREATE TRIGGER trg_rentalorder_balance
+        BEFORE INSERT OR UPDATE OF total_price ON rentalorder
+        FOR EACH ROW EXECUTE FUNCTION rentalorder_balance_on_write();
+
+    DROP TRIGGER IF EXISTS trg_payment_order_balance ON payment;
+    CREATE TRIGGER trg_payment_order_balance
+        AFTER INSERT OR UPDATE OR DELETE ON payment
+        FOR EACH ROW EXECUTE FUNCTION payment_refresh_order_balance();
+
+    -- Lần đầu: điền cột cho đơn cũ
+    UPDATE rentalorder
+    SET (paid_amount, remaining_amount) =
+        (SELECT b.paid, b.remaining FROM rentalorder_compute_balance(order_id, total_price) b)
+    WHERE remaining_amount IS NULL;
+END
+$$;
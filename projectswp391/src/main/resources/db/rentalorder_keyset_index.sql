@@ -0,0 +1,11 @@
+-- =====================================
+-- PHÂN TRANG ĐƠN HÀNG THEO CON TRỎ
+-- =====================================
+-- Danh sách đơn sắp theo (created_at DESC, order_id DESC): mỗi trang chỉ đọc limit dòng trên index,
+-- thời gian phản hồi không phụ thuộc số lượng đơn đã có.
+
+CREATE INDEX IF NOT EXISTS idx_rentalorder_created_order
+    ON rentalorder (created_at DESC, order_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_rentalorder_status_created_order
+    ON rentalorder (UPPER(status), created_at DESC, order_id DESC);
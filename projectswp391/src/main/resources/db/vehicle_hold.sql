@@ -0,0 +1,27 @@
+-- =====================================
+-- GIỮ CHỖ TẠM THỜI (SOFT HOLD)
+-- =====================================
+-- Chỉ dùng khi booking.hold.store=db (chạy nhiều node). Mặc định giữ chỗ nằm trong bộ nhớ.
+-- Hold hết hạn được xóa theo index expires_at, không quét cả bảng.
+-- Schema mới chưa có bảng vehicle (Hibernate chưa tạo) thì bỏ qua, lần khởi động sau sẽ tạo.
+
+DO $$
+BEGIN
+    IF to_regclass('public.vehicle') IS NULL THEN
+        RETURN;
+    END IF;
+
+    CREATE TABLE IF NOT EXISTS vehicle_hold (
+        hold_id     UUID PRIMARY KEY,
+        vehicle_id  BIGINT    NOT NULL REFERENCES vehicle (vehicle_id) ON DELETE CASCADE,
+        customer_id UUID      NOT NULL,
+        start_time  TIMESTAMP NOT NULL,
+        end_time    TIMESTAMP NOT NULL,
+        expires_at  TIMESTAMP NOT NULL
+    );
+
+    CREATE INDEX IF NOT EXISTS idx_vehicle_hold_vehicle_expires ON vehicle_hold (vehicle_id, expires_at);
+
+    CREATE INDEX IF NOT EXISTS idx_vehicle_hold_expires ON vehicle_hold (expires_at);
+END
+$$;
@@ -0,0 +1,56 @@
+-- =====================================
+-- CHẶN ĐẶT TRÙNG LỊCH Ở MỨC DATABASE
+-- =====================================
+-- booking_period = [start_time, end_time) của timeline (NULL nếu thiếu end_time hoặc khoảng không hợp lệ).
+-- vehicle_timeline_no_overlap: 2 timeline BOOKED/RENTAL của cùng 1 xe không được giao nhau,
+-- trừ khi thuộc cùng 1 chi tiết đơn (BOOKED -> RENTAL khi nhận xe, AUTO_QUEUE của chính booking đó).
+-- Timeline không có detail_id dùng khóa -timeline_id (detail_id luôn dương) nên vẫn bị chặn trùng với mọi dòng khác.
+-- Trạng thái so bằng upper(status) để 'booked' / 'Rental' cũng bị chặn.
+-- Script idempotent, chạy mỗi lần khởi động qua spring.sql.init.
+
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DO $$
+BEGIN
+    IF to_regclass('public.vehicle_timeline') IS NULL THEN
+        RETURN;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1
+                   FROM information_schema.columns
+                   WHERE table_name = 'vehicle_timeline'
+                     AND column_name = 'booking_period') THEN
+        ALTER TABLE vehicle_timeline
+            ADD COLUMN booking_period tsrange
+            GENERATED ALWAYS AS (
+                CASE WHEN end_time IS NOT NULL AND end_time > start_time
+                     THEN tsrange(start_time, end_time, '[)')
+                END
+            ) STORED;
+    END IF;
+
+    -- Bản cũ (detail_id WITH <>, status phân biệt hoa thường) được thay trong cùng khối con:
+    -- nếu dữ liệu đang trùng lịch thì rollback khối con, giữ lại ràng buộc cũ
+    IF NOT EXISTS (SELECT 1
+                   FROM pg_constraint
+                   WHERE conname = 'vehicle_timeline_no_overlap'
+                     AND pg_get_constraintdef(oid) ILIKE '%coalesce(detail_id%'
+                     AND pg_get_constraintdef(oid) ILIKE '%upper(%') THEN
+        BEGIN
+            ALTER TABLE vehicle_timeline
+                DROP CONSTRAINT IF EXISTS vehicle_timeline_no_overlap;
+            ALTER TABLE vehicle_timeline
+                ADD CONSTRAINT vehicle_timeline_no_overlap
+                EXCLUDE USING gist (
+                    vehicle_id WITH =,
+                    booking_period WITH &&,
+                    (COALESCE(detail_id, -timeline_id)) WITH <>
+                )
+                WHERE (upper(status) IN ('BOOKED', 'RENTAL'));
+        EXCEPTION WHEN exclusion_violation THEN
+            -- Dữ liệu cũ đang có lịch trùng: không chặn khởi động, cần dọn dữ liệu rồi khởi động lại
+            RAISE WARNING 'vehicle_timeline_no_overlap chưa được tạo / cập nhật: đang có timeline BOOKED/RENTAL trùng lịch';
+        END;
+    END IF;
+END
+$$;
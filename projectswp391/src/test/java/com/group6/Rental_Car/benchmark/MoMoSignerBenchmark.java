@@ -0,0 +1,174 @@
+package com.group6.Rental_Car.benchmark;
+
+import com.group6.Rental_Car.config.MoMoConfig;
+import com.group6.Rental_Car.services.payment.momo.MoMoSigner;
+import com.group6.Rental_Car.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ký request tạo thanh toán / kiểm IPN MoMo: cách cũ (ghép String + Mac.getInstance + String.format từng byte)
+ * so với MoMoSigner (Mac dùng lại theo luồng, buffer dùng lại, hex tra bảng).
+ * Tốc độ cấp phát: thêm profiler gc
+ * mvn test-compile exec:exec -Pbenchmark -Dbenchmark=MoMoSignerBenchmark -Djmh.args="-prof gc"
+ * (xem gc.alloc.rate.norm = byte / op).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MoMoSignerBenchmark {
+
+    private static final String ACCESS_KEY = "F8BBA842ECF85";
+    private static final String SECRET_KEY = "K951B6PE1waDMi640xX08PD3vg6EkVlz";
+    private static final String PARTNER_CODE = "MOMO";
+    private static final String RETURN_URL = "https://rental.example.vn/payment/return";
+    private static final String NOTIFY_URL = "https://api.rental.example.vn/api/payment/momo/ipn";
+    private static final String REQUEST_TYPE = "captureWallet";
+
+    private static final String[] IPN_FIELDS = {
+            "amount", "extraData", "message", "orderId", "orderInfo", "orderType", "partnerCode",
+            "payType", "requestId", "responseTime", "resultCode", "transId"
+    };
+
+    private MoMoSigner signer;
+    private String orderId;
+    private String orderInfo;
+    private String amount;
+    private Map<String, String> ipn;
+
+    @Setup
+    public void setUp() {
+        MoMoConfig config = new MoMoConfig();
+        config.setAccessKey(ACCESS_KEY);
+        config.setSecretKey(SECRET_KEY);
+        signer = new MoMoSigner(config);
+
+        orderId = UUID.randomUUID().toString();
+        orderInfo = "Order " + UUID.randomUUID();
+        amount = "1250000";
+
+        ipn = new HashMap<>();
+        ipn.put("partnerCode", PARTNER_CODE);
+        ipn.put("orderId", orderId);
+        ipn.put("requestId", orderId);
+        ipn.put("amount", amount);
+        ipn.put("orderInfo", orderInfo);
+        ipn.put("orderType", "momo_wallet");
+        ipn.put("transId", "4088878653");
+        ipn.put("resultCode", "0");
+        ipn.put("message", "Thành công.");
+        ipn.put("payType", "qr");
+        ipn.put("responseTime", "1721720663942");
+        ipn.put("extraData", "");
+        ipn.put("signature", legacyIpnSignature());
+
+        // Hai cách phải ra cùng chữ ký, nếu không số đo vô nghĩa
+        if (!legacyCreateSignature().equals(signerCreateSignature())) {
+            throw new IllegalStateException("MoMoSigner ký khác cách cũ");
+        }
+        if (!signer.verifyIpn(ipn)) {
+            throw new IllegalStateException("MoMoSigner không chấp nhận chữ ký IPN của cách cũ");
+        }
+    }
+
+    @Benchmark
+    public String legacyCreateSignature() {
+        String rawSignature = "accessKey=" + ACCESS_KEY +
+                "&amount=" + amount +
+                "&extraData=" + "" +
+                "&ipnUrl=" + NOTIFY_URL +
+                "&orderId=" + orderId +
+                "&orderInfo=" + orderInfo +
+                "&partnerCode=" + PARTNER_CODE +
+                "&redirectUrl=" + RETURN_URL +
+                "&requestId=" + orderId +
+                "&requestType=" + REQUEST_TYPE;
+        return legacyHmacSHA256(SECRET_KEY, rawSignature);
+    }
+
+    @Benchmark
+    public String utilsCreateSignature() {
+        String rawSignature = "accessKey=" + ACCESS_KEY +
+                "&amount=" + amount +
+                "&extraData=" + "" +
+                "&ipnUrl=" + NOTIFY_URL +
+                "&orderId=" + orderId +
+                "&orderInfo=" + orderInfo +
+                "&partnerCode=" + PARTNER_CODE +
+                "&redirectUrl=" + RETURN_URL +
+                "&requestId=" + orderId +
+                "&requestType=" + REQUEST_TYPE;
+        return Utils.hmacSHA256(SECRET_KEY, rawSignature);
+    }
+
+    @Benchmark
+    public String signerCreateSignature() {
+        return signer.canonical()
+                .add("accessKey", ACCESS_KEY)
+                .add("amount", amount)
+                .add("extraData", "")
+                .add("ipnUrl", NOTIFY_URL)
+                .add("orderId", orderId)
+                .add("orderInfo", orderInfo)
+                .add("partnerCode", PARTNER_CODE)
+                .add("redirectUrl", RETURN_URL)
+                .add("requestId", orderId)
+                .add("requestType", REQUEST_TYPE)
+                .sign();
+    }
+
+    @Benchmark
+    public boolean legacyVerifyIpn() {
+        return legacyIpnSignature().equals(ipn.get("signature"));
+    }
+
+    @Benchmark
+    public boolean signerVerifyIpn() {
+        return signer.verifyIpn(ipn);
+    }
+
+    private String legacyIpnSignature() {
+        StringBuilder raw = new StringBuilder("accessKey=").append(ACCESS_KEY);
+        for (String field : IPN_FIELDS) {
+            String value = ipn.get(field);
+            raw.append('&').append(field).append('=').append(value == null ? "" : value);
+        }
+        return legacyHmacSHA256(SECRET_KEY, raw.toString());
+    }
+
+    // Utils.hmacSHA256 trước khi có MoMoSigner
+    private static String legacyHmacSHA256(String key, String data) {
+        try {
+            Mac hmacSHA256 = Mac.getInstance("HmacSHA256");
+            SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            hmacSHA256.init(secretKeySpec);
+            byte[] hashBytes = hmacSHA256.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hashHex = new StringBuilder();
+            for (byte b : hashBytes) {
+                hashHex.append(String.format("%02x", b & 0xff));
+            }
+            return hashHex.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Error while generating HMAC SHA256 hash", e);
+        }
+    }
+}
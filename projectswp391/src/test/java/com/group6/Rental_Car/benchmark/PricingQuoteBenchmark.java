@@ -0,0 +1,98 @@
+package com.group6.Rental_Car.benchmark;
+
+import com.group6.Rental_Car.entities.Holiday;
+import com.group6.Rental_Car.entities.PricingRule;
+import com.group6.Rental_Car.repositories.HolidayRepository;
+import com.group6.Rental_Car.services.pricingrule.HolidayCalendar;
+import com.group6.Rental_Car.services.pricingrule.PricingRuleServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tính giá thuê: vòng lặp cũ (cộng từng ngày, kiểm cuối tuần từng ngày)
+ * so với PricingRuleServiceImpl.quote (đếm cuối tuần bằng công thức, ngày lễ bằng binary search).
+ * Lịch: 1 ngày lễ thứ 2 - thứ 6 mỗi tháng trong 10 năm.
+ * Chạy: mvn test-compile exec:exec -Pbenchmark -Dbenchmark=PricingQuoteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PricingQuoteBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 3);
+
+    @Param({"3", "30", "365"})
+    public int rentalDays;
+
+    private PricingRule rule;
+    private PricingRuleServiceImpl service;
+    private LocalDate end;
+
+    @Setup
+    public void setUp() {
+        List<Holiday> holidays = new ArrayList<>();
+        for (LocalDate month = LocalDate.of(2020, 1, 15); month.getYear() < 2030; month = month.plusMonths(1)) {
+            LocalDate day = month;
+            while (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                day = day.plusDays(1);
+            }
+            holidays.add(new Holiday(day, "Lễ " + day));
+        }
+        HolidayRepository holidayRepository = mock(HolidayRepository.class);
+        when(holidayRepository.findAllByOrderByHolidayDateAsc()).thenReturn(holidays);
+        HolidayCalendar calendar = new HolidayCalendar(holidayRepository);
+        calendar.reload();
+
+        rule = new PricingRule();
+        rule.setCarmodel("VF5");
+        rule.setDailyPrice(new BigDecimal("500000"));
+        rule.setHolidayPrice(new BigDecimal("750000"));
+        service = new PricingRuleServiceImpl(null, null, holidayRepository, calendar);
+        end = START.plusDays(rentalDays);
+    }
+
+    // PricingRuleServiceImpl.calculateRentalPrice trước khi có quote (bỏ System.out)
+    @Benchmark
+    public BigDecimal legacyPerDayLoop() {
+        long days = ChronoUnit.DAYS.between(START, end);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < days; i++) {
+            LocalDate current = START.plusDays(i);
+            BigDecimal dayPrice = rule.getDailyPrice();
+            DayOfWeek d = current.getDayOfWeek();
+            if ((d == DayOfWeek.SATURDAY || d == DayOfWeek.SUNDAY) && rule.getHolidayPrice() != null) {
+                dayPrice = rule.getHolidayPrice();
+            }
+            total = total.add(dayPrice);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal closedFormQuote() {
+        return service.quote(rule, START, end).getTotal();
+    }
+}
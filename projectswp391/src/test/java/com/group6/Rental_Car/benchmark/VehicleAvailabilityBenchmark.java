@@ -0,0 +1,156 @@
+package com.group6.Rental_Car.benchmark;
+
+import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.entities.Vehicle;
+import com.group6.Rental_Car.entities.VehicleModel;
+import com.group6.Rental_Car.entities.VehicleTimeline;
+import com.group6.Rental_Car.repositories.VehicleRepository;
+import com.group6.Rental_Car.repositories.VehicleTimelineRepository;
+import com.group6.Rental_Car.services.vehicle.VehicleModelService;
+import com.group6.Rental_Car.support.TestApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Xe rảnh trong 1 khung giờ: vòng lặp cũ (mỗi xe 1 query timeline + 1 query VehicleModel, lọc trong Java)
+ * so với VehicleRepository.findAvailableWithDetails (1 câu NOT EXISTS).
+ * Dữ liệu: 200 xe, timelineRows dòng BOOKED chia đều, không chồng lấn.
+ * Cuối mỗi trial in số câu SQL / lần gọi (Hibernate statistics).
+ * Chạy: mvn test-compile exec:exec -Pbenchmark -Dbenchmark=VehicleAvailabilityBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VehicleAvailabilityBenchmark {
+
+    private static final int VEHICLES = 200;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Param({"1000", "10000", "100000"})
+    public int timelineRows;
+
+    private ConfigurableApplicationContext context;
+    private VehicleRepository vehicleRepository;
+    private VehicleTimelineRepository vehicleTimelineRepository;
+    private VehicleModelService vehicleModelService;
+    private TransactionTemplate readOnly;
+
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    private String benchmark;
+    private long calls;
+    private long statementsBefore;
+
+    @Setup
+    public void setUp(BenchmarkParams params) {
+        benchmark = params.getBenchmark();
+        context = TestApplication.start(Map.of());
+        vehicleRepository = context.getBean(VehicleRepository.class);
+        vehicleTimelineRepository = context.getBean(VehicleTimelineRepository.class);
+        vehicleModelService = context.getBean(VehicleModelService.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        seed(context.getBean(JdbcTemplate.class));
+
+        // Khung giờ giữa lịch: khoảng 1/4 số xe đang bận
+        int daysPerVehicle = Math.max(1, timelineRows / VEHICLES);
+        startTime = BASE.plusDays(daysPerVehicle / 2).plusHours(2);
+        endTime = startTime.plusHours(6);
+
+        statementsBefore = TestApplication.statementCount(context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        long statements = TestApplication.statementCount(context) - statementsBefore;
+        System.out.printf("%n%s timelineRows=%d: %.1f câu SQL / lần gọi (%d lần)%n",
+                benchmark, timelineRows, calls == 0 ? 0.0 : (double) statements / calls, calls);
+        context.close();
+    }
+
+    @Benchmark
+    public List<VehicleResponse> perVehicleLoop() {
+        calls++;
+        return readOnly.execute(status -> vehicleRepository.findAll().stream()
+                .filter(v -> vehicleTimelineRepository.findByVehicle_VehicleId(v.getVehicleId()).stream()
+                        .noneMatch(this::overlaps))
+                .map(v -> vehicleModelService.convertToDto(v, vehicleModelService.findByVehicle(v)))
+                .toList());
+    }
+
+    @Benchmark
+    public List<VehicleResponse> setBasedQuery() {
+        calls++;
+        return readOnly.execute(status -> vehicleRepository.findAvailableWithDetails(null, null, null, startTime, endTime)
+                .stream()
+                .map(v -> vehicleModelService.convertToDto(v, firstModel(v)))
+                .toList());
+    }
+
+    // Điều kiện lọc của vòng lặp cũ trong VehicleServiceImpl.getAvailableVehicles
+    private boolean overlaps(VehicleTimeline t) {
+        if (!"BOOKED".equalsIgnoreCase(t.getStatus()) && !"RENTAL".equalsIgnoreCase(t.getStatus())) {
+            return false;
+        }
+        if (t.getStartTime() == null || t.getEndTime() == null) {
+            return false;
+        }
+        return startTime.isBefore(t.getEndTime()) && endTime.isAfter(t.getStartTime());
+    }
+
+    private static VehicleModel firstModel(Vehicle v) {
+        List<VehicleModel> attributes = v.getAttributes();
+        return (attributes == null || attributes.isEmpty()) ? null : attributes.getFirst();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        jdbc.update("INSERT INTO rentalstation (name, city) VALUES ('Bench station 1', 'HCM'), ('Bench station 2', 'HCM')");
+        jdbc.update("""
+                INSERT INTO vehicle (station_id, plate_number, status, vehicle_name)
+                SELECT (SELECT MIN(station_id) FROM rentalstation) + (i % 2), 'BENCH-' || i, 'AVAILABLE', 'Bench ' || i
+                FROM generate_series(1, ?) AS i
+                """, VEHICLES);
+        jdbc.update("""
+                INSERT INTO vehiclemodel (vehicle_id, brand, carmodel, color, seat_count, transmission)
+                SELECT vehicle_id, 'VinFast', CASE WHEN vehicle_id % 3 = 0 THEN 'VF8' ELSE 'VF5' END,
+                       'White', 5, 'AUTO'
+                FROM vehicle
+                """);
+        // Mỗi xe 1 chuỗi booking theo ngày liên tiếp, lệch giờ theo xe để 1 khung giờ chỉ trúng 1 phần các xe
+        jdbc.update("""
+                INSERT INTO vehicle_timeline (vehicle_id, day, start_time, end_time, status, source_type, updated_at)
+                SELECT v.vehicle_id, (? + d * INTERVAL '1 day')::date,
+                       ? + d * INTERVAL '1 day' + (v.vehicle_id % 4) * INTERVAL '6 hours',
+                       ? + d * INTERVAL '1 day' + (v.vehicle_id % 4) * INTERVAL '6 hours' + INTERVAL '5 hours',
+                       'BOOKED', 'ORDER', NOW()
+                FROM vehicle v
+                CROSS JOIN generate_series(0, ? - 1) AS d
+                """, BASE, BASE, BASE, Math.max(1, timelineRows / VEHICLES));
+        jdbc.execute("ANALYZE");
+    }
+}
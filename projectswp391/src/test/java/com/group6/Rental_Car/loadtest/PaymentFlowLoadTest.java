@@ -0,0 +1,327 @@
+package com.group6.Rental_Car.loadtest;
+
+import com.group6.Rental_Car.dtos.order.OrderCreateRequest;
+import com.group6.Rental_Car.dtos.order.OrderReturnRequest;
+import com.group6.Rental_Car.dtos.payment.PaymentDto;
+import com.group6.Rental_Car.repositories.RentalOrderRepository;
+import com.group6.Rental_Car.services.order.RentalOrderService;
+import com.group6.Rental_Car.services.payment.PaymentService;
+import com.group6.Rental_Car.support.StatementCounter;
+import com.group6.Rental_Car.support.TestApplication;
+import com.group6.Rental_Car.utils.JwtUserDetails;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test luồng thuê xe đầy đủ trên MoMo simulator:
+ * tạo đơn → đặt cọc (MoMo) → thanh toán cuối (MoMo) → bàn giao xe → trả xe.
+ * Thanh toán đi qua đường thật: MoMoGatewayClient → simulator (HTTP) → IPN → hộp thư → MoMoIpnWorker.
+ * Bàn giao chỉ nhận đơn AWAITING (đã thanh toán đủ) nên thanh toán cuối chạy trước bàn giao.
+ * <p>
+ * Mỗi giây khởi động loadtest.rps luồng, tổng loadtest.flows luồng; in p50 / p99 từng bước
+ * và số câu SQL / luồng (đếm theo bước bằng {@link StatementCounter}).
+ * Chạy: mvn test -Dtest=PaymentFlowLoadTest -Dloadtest=true -Dloadtest.rps=10 -Dloadtest.flows=200
+ * (DB: Testcontainers hoặc -Dtest.db.url, xem TestDatabase)
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PaymentFlowLoadTest {
+
+    private static final int RPS = Integer.getInteger("loadtest.rps", 5);
+    private static final int FLOWS = Integer.getInteger("loadtest.flows", 100);
+    private static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(Integer.getInteger("loadtest.payment-timeout-s", 30));
+
+    private static final String CREATE = "1-create";
+    private static final String DEPOSIT = "2-deposit";
+    private static final String FINAL = "3-final";
+    private static final String PICKUP = "4-pickup";
+    private static final String RETURN = "5-return";
+    private static final String FLOW = "flow";
+    // Chờ IPN: đọc trạng thái đơn, không tính vào câu SQL của luồng
+    private static final String WAIT = "wait-ipn";
+    private static final List<String> STEPS = List.of(CREATE, DEPOSIT, FINAL, PICKUP, RETURN, FLOW);
+
+    private static ConfigurableApplicationContext context;
+    private static RentalOrderService rentalOrderService;
+    private static PaymentService paymentService;
+    private static RentalOrderRepository rentalOrderRepository;
+
+    private static List<UUID> customers;
+    private static UUID staffId;
+    private static List<Long> vehicles;
+
+    private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void startApplication() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String base = "http://localhost:" + port;
+        context = TestApplication.start(Map.ofEntries(
+                Map.entry("server.port", port),
+                Map.entry("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                        StatementCounter.class.getName()),
+                Map.entry("momo.endpoint", base + "/api/momo-sim/v2/gateway/api/create"),
+                Map.entry("momo.notify-url", base + "/api/payment/momo-callback"),
+                Map.entry("momo.return-url", base + "/api/payment/momo-return"),
+                Map.entry("momo.ipn.poll-ms", 100),
+                Map.entry("momo.simulator.enabled", true),
+                Map.entry("momo.simulator.latency-ms", Integer.getInteger("loadtest.momo-latency-ms", 50)),
+                Map.entry("momo.simulator.ipn-delay-ms", Integer.getInteger("loadtest.ipn-delay-ms", 200))));
+
+        rentalOrderService = context.getBean(RentalOrderService.class);
+        paymentService = context.getBean(PaymentService.class);
+        rentalOrderRepository = context.getBean(RentalOrderRepository.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void rentalFlowAtTargetRate() throws InterruptedException {
+        StatementCounter.reset();
+        CountDownLatch done = new CountDownLatch(FLOWS);
+        AtomicInteger launched = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        long startNanos = System.nanoTime();
+        try (ExecutorService flows = Executors.newVirtualThreadPerTaskExecutor();
+             ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor()) {
+            pacer.scheduleAtFixedRate(() -> {
+                int i = launched.getAndIncrement();
+                if (i >= FLOWS) {
+                    pacer.shutdown();
+                    return;
+                }
+                flows.submit(() -> {
+                    try {
+                        if (runFlow(customers.get(i), vehicles.get(i))) {
+                            completed.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }, 0, TimeUnit.SECONDS.toNanos(1) / RPS, TimeUnit.NANOSECONDS);
+
+            assertTrue(done.await(FLOWS / RPS + PAYMENT_TIMEOUT.toSeconds() * 4 + 60, TimeUnit.SECONDS),
+                    "Load test không chạy xong");
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        report(completed.get(), elapsedSeconds);
+        assertEquals(FLOWS, completed.get(), "Có luồng lỗi: " + failures);
+    }
+
+    /**
+     * @return true nếu đi hết 5 bước
+     */
+    private boolean runFlow(UUID customerId, Long vehicleId) {
+        long flowStart = System.nanoTime();
+        try {
+            LocalDateTime start = LocalDate.now().plusDays(2).atTime(9, 0);
+            UUID orderId = step(CREATE, customerId, () -> rentalOrderService.createOrder(OrderCreateRequest.builder()
+                    .vehicleId(vehicleId)
+                    .startTime(start)
+                    .endTime(start.plusDays(2))
+                    .build()).getOrderId());
+            if (orderId == null) return false;
+
+            if (!pay(DEPOSIT, customerId, orderId, (short) 1, "DEPOSITED")) return false;
+            if (!pay(FINAL, customerId, orderId, (short) 2, "AWAITING")) return false;
+
+            if (step(PICKUP, staffId, () -> rentalOrderService.confirmPickup(orderId)) == null) return false;
+
+            OrderReturnRequest returnRequest = new OrderReturnRequest();
+            returnRequest.setActualReturnTime(start.plusDays(2));
+            if (step(RETURN, staffId, () -> rentalOrderService.confirmReturn(orderId, returnRequest)) == null) {
+                return false;
+            }
+
+            record(FLOW, System.nanoTime() - flowStart);
+            return true;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Tạo URL MoMo rồi chờ simulator bắn IPN và worker chuyển đơn sang expectedStatus.
+     * Độ trễ của bước tính đến lúc đơn đổi trạng thái (khách thấy thanh toán xong).
+     */
+    private boolean pay(String name, UUID customerId, UUID orderId, short paymentType, String expectedStatus) {
+        long begin = System.nanoTime();
+        Object url = step(name, customerId, () -> paymentService.createPaymentUrl(
+                PaymentDto.builder().orderId(orderId).paymentType(paymentType).method("MOMO").build(), customerId));
+        if (url == null) return false;
+
+        long deadline = System.nanoTime() + PAYMENT_TIMEOUT.toNanos();
+        StatementCounter.enter(WAIT);
+        try {
+            while (System.nanoTime() < deadline) {
+                String status = rentalOrderRepository.findById(orderId).map(o -> o.getStatus()).orElse(null);
+                if (expectedStatus.equals(status)) {
+                    record(name, System.nanoTime() - begin);
+                    return true;
+                }
+                if ("PAYMENT_FAILED".equals(status)) break;
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            StatementCounter.exit();
+        }
+        failures.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Chạy 1 bước với quyền của userId, đếm câu SQL vào bước đó
+     *
+     * @return kết quả, null nếu lỗi (đã ghi nhận)
+     */
+    private <T> T step(String name, UUID userId, Supplier<T> action) {
+        JwtUserDetails principal = JwtUserDetails.builder()
+                .userId(userId)
+                .email(userId + "@loadtest.vn")
+                .role(userId.equals(staffId) ? "staff" : "customer")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        long begin = System.nanoTime();
+        StatementCounter.enter(name);
+        try {
+            T result = action.get();
+            // Bước thanh toán tự ghi độ trễ khi IPN về
+            if (!DEPOSIT.equals(name) && !FINAL.equals(name)) {
+                record(name, System.nanoTime() - begin);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            failures.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+            System.err.printf("%s lỗi: %s%n", name, e);
+            return null;
+        } finally {
+            StatementCounter.exit();
+        }
+    }
+
+    private void record(String name, long nanos) {
+        latencies.computeIfAbsent(name, k -> new ConcurrentLinkedQueue<>()).add(nanos);
+    }
+
+    private void report(int completed, double elapsedSeconds) {
+        Map<String, Long> statements = StatementCounter.snapshot();
+        System.out.printf("%n=== Load test: %d/%d luồng xong trong %.1fs (mục tiêu %d luồng/s, đạt %.2f luồng/s) ===%n",
+                completed, FLOWS, elapsedSeconds, RPS, completed / elapsedSeconds);
+        System.out.printf("%-10s %8s %10s %10s %14s%n", "bước", "mẫu", "p50 (ms)", "p99 (ms)", "SQL / luồng");
+        long flowStatements = 0;
+        for (String name : STEPS) {
+            List<Long> samples = new ArrayList<>(latencies.getOrDefault(name, new ConcurrentLinkedQueue<>()));
+            samples.sort(null);
+            long count = statements.getOrDefault(name, 0L);
+            flowStatements += count;
+            System.out.printf("%-10s %8d %10.1f %10.1f %14s%n", name, samples.size(),
+                    percentile(samples, 0.50), percentile(samples, 0.99),
+                    FLOW.equals(name) ? "" : String.format("%.1f", perFlow(count, completed)));
+        }
+        long background = statements.getOrDefault(StatementCounter.BACKGROUND, 0L);
+        System.out.printf("SQL / luồng: %.1f đồng bộ + %.1f nền (IPN worker) = %.1f; chờ IPN đọc thêm %.1f%n",
+                perFlow(flowStatements, completed), perFlow(background, completed),
+                perFlow(flowStatements + background, completed), perFlow(statements.getOrDefault(WAIT, 0L), completed));
+        if (!failures.isEmpty()) {
+            System.out.println("Lỗi theo bước: " + failures);
+        }
+    }
+
+    private static double perFlow(long count, int completed) {
+        return completed == 0 ? 0 : (double) count / completed;
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+
+    // Mỗi luồng 1 khách (createOrder chặn khách có đơn đang xử lý) và 1 xe riêng
+    private static void seed(JdbcTemplate jdbc) {
+        jdbc.update("INSERT INTO rentalstation (name, city) VALUES ('Load test station', 'HCM')");
+        jdbc.update("""
+                INSERT INTO pricingrule (carmodel, daily_price, holiday_price, late_fee_per_day)
+                VALUES ('VF5', 500000, 700000, 200000)
+                """);
+        jdbc.update("""
+                INSERT INTO "user" (user_id, full_name, email, role, status)
+                SELECT gen_random_uuid(), 'Load customer ' || i, 'load-' || i || '@loadtest.vn', 'customer', 'ACTIVE'
+                FROM generate_series(1, ?) AS i
+                """, FLOWS);
+        jdbc.update("""
+                INSERT INTO "user" (user_id, full_name, email, role, status)
+                VALUES (gen_random_uuid(), 'Load staff', 'staff@loadtest.vn', 'staff', 'ACTIVE')
+                """);
+        jdbc.update("""
+                INSERT INTO photo (user_id, photo_url, type, uploaded_at)
+                SELECT u.user_id, 'https://example.vn/' || t.type || '.jpg', t.type, NOW()
+                FROM "user" u CROSS JOIN (VALUES ('CCCD'), ('GPLX')) AS t(type)
+                WHERE u.role = 'customer'
+                """);
+        jdbc.update("""
+                INSERT INTO vehicle (station_id, plate_number, status, vehicle_name)
+                SELECT (SELECT MIN(station_id) FROM rentalstation), 'LOAD-' || i, 'AVAILABLE', 'Load ' || i
+                FROM generate_series(1, ?) AS i
+                """, FLOWS);
+        jdbc.update("""
+                INSERT INTO vehiclemodel (vehicle_id, pricingrule_id, brand, carmodel, color, seat_count,
+                                          transmission, battery_status)
+                SELECT vehicle_id, (SELECT MIN(pricingrule_id) FROM pricingrule), 'VinFast', 'VF5', 'White', 5,
+                       'AUTO', '90%'
+                FROM vehicle
+                """);
+        jdbc.execute("ANALYZE");
+
+        customers = jdbc.queryForList("""
+                SELECT user_id FROM "user" WHERE role = 'customer' ORDER BY email
+                """, UUID.class);
+        staffId = jdbc.queryForObject("SELECT user_id FROM \"user\" WHERE role = 'staff'", UUID.class);
+        vehicles = jdbc.queryForList("SELECT vehicle_id FROM vehicle ORDER BY vehicle_id", Long.class);
+    }
+}
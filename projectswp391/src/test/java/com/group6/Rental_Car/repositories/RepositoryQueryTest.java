@@ -0,0 +1,87 @@
+package com.group6.Rental_Car.repositories;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mọi @Query JPQL trong repositories phải parse được với mapping entity hiện tại,
+ * không cần database (Hibernate không đọc metadata JDBC).
+ */
+class RepositoryQueryTest {
+
+    private static final String BASE_PACKAGE = "com.group6.Rental_Car";
+
+    @Test
+    void allJpqlQueriesParse() throws Exception {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .applySetting("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .applySetting("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName())
+                // Entity listener lấy bean qua Spring như khi chạy app
+                .applySetting("hibernate.resource.beans.container",
+                        new SpringBeanContainer(new DefaultListableBeanFactory()))
+                .build();
+        MetadataSources sources = new MetadataSources(registry);
+        ClassPathScanningCandidateComponentProvider entities = new ClassPathScanningCandidateComponentProvider(false);
+        entities.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (BeanDefinition bd : entities.findCandidateComponents(BASE_PACKAGE + ".entities")) {
+            sources.addAnnotatedClass(Class.forName(bd.getBeanClassName()));
+        }
+
+        // Repository là interface nên phải nhận cả ứng viên không phải class cụ thể
+        ClassPathScanningCandidateComponentProvider repositories = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return true;
+            }
+        };
+        repositories.addIncludeFilter((reader, factory) -> reader.getClassMetadata().getClassName().endsWith("Repository"));
+
+        int checked = 0;
+        List<String> failures = new ArrayList<>();
+        try (SessionFactory sessionFactory = sources.buildMetadata().buildSessionFactory();
+             EntityManager em = sessionFactory.createEntityManager()) {
+            for (BeanDefinition bd : repositories.findCandidateComponents(BASE_PACKAGE + ".repositories")) {
+                Class<?> repository = Class.forName(bd.getBeanClassName());
+                for (Method method : repository.getDeclaredMethods()) {
+                    Query query = method.getAnnotation(Query.class);
+                    if (query == null || query.nativeQuery()) {
+                        continue;
+                    }
+                    checked++;
+                    try {
+                        em.createQuery(query.value());
+                    } catch (RuntimeException e) {
+                        failures.add(repository.getSimpleName() + "." + method.getName() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+
+        assertThat(checked).isPositive();
+        assertThat(failures).isEmpty();
+    }
+}
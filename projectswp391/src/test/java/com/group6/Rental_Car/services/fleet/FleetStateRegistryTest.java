@@ -0,0 +1,152 @@
+package com.group6.Rental_Car.services.fleet;
+
+import com.group6.Rental_Car.repositories.RentalOrderRepository;
+import com.group6.Rental_Car.repositories.UserRepository;
+import com.group6.Rental_Car.repositories.VehicleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đơn chuyển PENDING -> PAID và commit trong lúc reconcile đang chạy load():
+ * snapshot đã thấy transaction đó thì không áp lại, chưa thấy thì áp lại; cả hai đều ra đúng số đơn.
+ * Snapshot DB giả: "102:106:103" (101 đã commit, 103 đang chạy, từ 106 chưa bắt đầu).
+ */
+class FleetStateRegistryTest {
+
+    private static final String SNAPSHOT = "102:106:103";
+
+    private final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RentalOrderRepository rentalOrderRepository = mock(RentalOrderRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private FleetStateRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(vehicleRepository.countGroupByStationAndStatus()).thenReturn(List.of());
+        when(userRepository.countGroupByRole()).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(SNAPSHOT);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        registry = new FleetStateRegistry(vehicleRepository, userRepository, rentalOrderRepository,
+                new SimpleMeterRegistry(), jdbcTemplate, transactionManager);
+
+        when(rentalOrderRepository.countGroupByStatus()).thenReturn(rows("PENDING", 5));
+        registry.reconcile();
+    }
+
+    @Test
+    void changeVisibleToSnapshotIsNotReplayed() {
+        // Transaction 101 commit trước snapshot: COUNT đã thấy đơn PAID
+        when(rentalOrderRepository.countGroupByStatus()).thenAnswer(invocation -> {
+            commitStatusChange(101);
+            return rows("PENDING", 4, "PAID", 1);
+        });
+
+        registry.reconcile();
+
+        assertThat(registry.orderCount("PENDING")).isEqualTo(4);
+        assertThat(registry.orderCount("PAID")).isEqualTo(1);
+        assertThat(registry.orderCount()).isEqualTo(5);
+    }
+
+    @Test
+    void changeStartedAfterSnapshotIsReplayed() {
+        when(rentalOrderRepository.countGroupByStatus()).thenAnswer(invocation -> {
+            commitStatusChange(106);
+            return rows("PENDING", 5);
+        });
+
+        registry.reconcile();
+
+        assertThat(registry.orderCount("PENDING")).isEqualTo(4);
+        assertThat(registry.orderCount("PAID")).isEqualTo(1);
+        assertThat(registry.orderCount()).isEqualTo(5);
+    }
+
+    @Test
+    void changeInProgressAtSnapshotIsReplayed() {
+        when(rentalOrderRepository.countGroupByStatus()).thenAnswer(invocation -> {
+            commitStatusChange(103);
+            return rows("PENDING", 5);
+        });
+
+        registry.reconcile();
+
+        assertThat(registry.orderCount("PENDING")).isEqualTo(4);
+        assertThat(registry.orderCount("PAID")).isEqualTo(1);
+    }
+
+    @Test
+    void rolledBackChangeIsIgnored() {
+        when(rentalOrderRepository.countGroupByStatus()).thenAnswer(invocation -> {
+            runInTransaction(106, false);
+            return rows("PENDING", 5);
+        });
+
+        registry.reconcile();
+
+        assertThat(registry.orderCount("PENDING")).isEqualTo(5);
+        assertThat(registry.orderCount("PAID")).isZero();
+    }
+
+    @Test
+    void changeCommittedOutsideReconcileIsAppliedDirectly() {
+        runInTransaction(200, true);
+
+        assertThat(registry.orderCount("PENDING")).isEqualTo(4);
+        assertThat(registry.orderCount("PAID")).isEqualTo(1);
+    }
+
+    private void commitStatusChange(long txid) {
+        runInTransaction(txid, true);
+    }
+
+    /**
+     * Transaction ghi chạy ở thread khác (như request thật), đồng bộ giống JpaTransactionManager:
+     * flush gọi listener, rồi afterCommit (nếu commit) và afterCompletion
+     */
+    private void runInTransaction(long txid, boolean commit) {
+        CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                registry.onOrderChanged(new FleetStateRegistry.Snapshot(null, "PENDING"),
+                        new FleetStateRegistry.Snapshot(null, "PAID"), () -> txid);
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                if (commit) {
+                    synchronizations.forEach(TransactionSynchronization::afterCommit);
+                }
+                int status = commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+                synchronizations.forEach(s -> s.afterCompletion(status));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }).join();
+    }
+
+    private static List<Object[]> rows(Object... statusCounts) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < statusCounts.length; i += 2) {
+            rows.add(new Object[]{statusCounts[i], ((Integer) statusCounts[i + 1]).longValue()});
+        }
+        return rows;
+    }
+}
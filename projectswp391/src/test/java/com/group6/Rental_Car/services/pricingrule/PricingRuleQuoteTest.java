@@ -0,0 +1,120 @@
+package com.group6.Rental_Car.services.pricingrule;
+
+import com.group6.Rental_Car.entities.Holiday;
+import com.group6.Rental_Car.entities.PricingRule;
+import com.group6.Rental_Car.repositories.HolidayRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * quote(...).getTotal() (đếm bằng công thức + lịch ngày lễ) phải bằng vòng lặp cộng từng ngày:
+ * ngày cuối tuần / ngày lễ tính holidayPrice nếu có, còn lại dailyPrice.
+ */
+class PricingRuleQuoteTest {
+
+    private static final BigDecimal DAILY = new BigDecimal("500000");
+    private static final BigDecimal HOLIDAY = new BigDecimal("750000.50");
+    private static final LocalDate EPOCH = LocalDate.ofEpochDay(0);
+
+    private final Random random = new Random(20251118L);
+
+    @Test
+    void matchesPerDayLoopOnRandomRanges() {
+        Set<LocalDate> holidays = randomHolidays(400);
+        for (Config config : configs(holidays)) {
+            for (int i = 0; i < 5_000; i++) {
+                LocalDate start = EPOCH.plusDays(random.nextInt(-3650, 36500));
+                assertMatchesPerDayLoop(config, start, start.plusDays(random.nextInt(1, 120)));
+            }
+        }
+    }
+
+    @Test
+    void matchesPerDayLoopAcrossEpochBoundary() {
+        // epochDay âm / dương: công thức cuối tuần dùng floorDiv / floorMod
+        Set<LocalDate> holidays = Set.of(LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 1), LocalDate.of(1970, 1, 2));
+        for (Config config : configs(holidays)) {
+            for (int from = -30; from <= 0; from++) {
+                for (int to = 1; to <= 30; to++) {
+                    assertMatchesPerDayLoop(config, EPOCH.plusDays(from), EPOCH.plusDays(to));
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesPerDayLoopOnOneToThreeDayRanges() {
+        // 3 tuần liên tiếp: mọi thứ bắt đầu, có lễ rơi vào thứ 2 - thứ 6 và cuối tuần
+        LocalDate monday = LocalDate.of(2025, 4, 28);
+        Set<LocalDate> holidays = Set.of(LocalDate.of(2025, 4, 30), LocalDate.of(2025, 5, 1),
+                LocalDate.of(2025, 5, 3), LocalDate.of(2025, 5, 12));
+        for (Config config : configs(holidays)) {
+            for (int offset = 0; offset < 21; offset++) {
+                LocalDate start = monday.plusDays(offset);
+                for (int days = 1; days <= 3; days++) {
+                    assertMatchesPerDayLoop(config, start, start.plusDays(days));
+                }
+            }
+        }
+    }
+
+    private void assertMatchesPerDayLoop(Config config, LocalDate start, LocalDate end) {
+        BigDecimal expected = BigDecimal.ZERO;
+        for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+            boolean special = HolidayCalendar.isWeekend(day) || config.holidays().contains(day);
+            expected = expected.add(special && config.rule().getHolidayPrice() != null
+                    ? config.rule().getHolidayPrice()
+                    : config.rule().getDailyPrice());
+        }
+
+        BigDecimal actual = config.service().quote(config.rule(), start, end).getTotal();
+        assertThat(actual)
+                .as("%s [%s, %s)", config.name(), start, end)
+                .isEqualByComparingTo(expected);
+    }
+
+    // Có / không holidayPrice × có / không lịch ngày lễ
+    private static List<Config> configs(Set<LocalDate> holidays) {
+        return List.of(
+                config("holidayPrice, lịch lễ", HOLIDAY, holidays),
+                config("holidayPrice, không lịch lễ", HOLIDAY, Set.of()),
+                config("không holidayPrice, lịch lễ", null, holidays),
+                config("không holidayPrice, không lịch lễ", null, Set.of()));
+    }
+
+    private static Config config(String name, BigDecimal holidayPrice, Set<LocalDate> holidays) {
+        HolidayRepository holidayRepository = mock(HolidayRepository.class);
+        when(holidayRepository.findAllByOrderByHolidayDateAsc()).thenReturn(new TreeSet<>(holidays).stream()
+                .map(date -> new Holiday(date, "Lễ " + date))
+                .toList());
+        HolidayCalendar calendar = new HolidayCalendar(holidayRepository);
+        calendar.reload();
+
+        PricingRule rule = new PricingRule();
+        rule.setCarmodel("VF5");
+        rule.setDailyPrice(DAILY);
+        rule.setHolidayPrice(holidayPrice);
+        return new Config(name, rule, holidays, new PricingRuleServiceImpl(null, null, holidayRepository, calendar));
+    }
+
+    private Set<LocalDate> randomHolidays(int count) {
+        Set<LocalDate> holidays = new TreeSet<>();
+        while (holidays.size() < count) {
+            holidays.add(EPOCH.plusDays(random.nextInt(-3650, 36600)));
+        }
+        return holidays;
+    }
+
+    private record Config(String name, PricingRule rule, Set<LocalDate> holidays, PricingRuleServiceImpl service) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.group6.Rental_Car.services.vehicle;
+
+import com.group6.Rental_Car.dtos.vehicle.VehicleResponse;
+import com.group6.Rental_Car.services.vehicle.VehicleFacetIndex.Facet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Facet số so theo giá trị (BigDecimal), lọc = OR trong facet / AND giữa facet,
+ * và thứ tự searchVehicles để giá trị null cuối cả khi giảm dần.
+ */
+class VehicleFacetIndexTest {
+
+    // Thứ tự theo biển số như catalog
+    private final List<VehicleResponse> docs = List.of(
+            vehicle("51A-001", "VF5", "42 kWh", 5, 1),
+            vehicle("51A-002", "VF5", "42.0", 5, 2),
+            vehicle("51A-003", "vf8", "87,5kWh", 7, 1),
+            vehicle("51A-004", "VF8", null, 7, null),
+            vehicle("51A-005", "VF9", "100", 7, 2));
+
+    private final VehicleFacetIndex index = new VehicleFacetIndex(docs);
+
+    @Test
+    void numericValueParsesFirstNumber() {
+        assertThat(VehicleFacetIndex.numericValue("42 kWh")).isEqualByComparingTo("42");
+        assertThat(VehicleFacetIndex.numericValue("87,5kWh")).isEqualByComparingTo("87.5");
+        assertThat(VehicleFacetIndex.numericValue("-3.50")).isEqualByComparingTo("-3.5");
+        assertThat(VehicleFacetIndex.numericValue("kWh")).isNull();
+        assertThat(VehicleFacetIndex.numericValue(null)).isNull();
+    }
+
+    @Test
+    void numericFacetMatchesByValue() {
+        // "42 kWh", "42.0" và "42" là cùng 1 giá trị
+        assertThat(plates(index.match(Facet.BATTERY_CAPACITY, List.of("42")))).containsExactly("51A-001", "51A-002");
+        assertThat(plates(index.match(Facet.BATTERY_CAPACITY, List.of("42.00 kWh")))).containsExactly("51A-001", "51A-002");
+        assertThat(plates(index.match(Facet.BATTERY_CAPACITY, List.of("87.5")))).containsExactly("51A-003");
+        assertThat(plates(index.match(Facet.BATTERY_CAPACITY, List.of("100.0")))).containsExactly("51A-005");
+        assertThat(plates(index.match(Facet.STATION, List.of("01")))).containsExactly("51A-001", "51A-003");
+    }
+
+    @Test
+    void numericFacetCountsMergeEqualValues() {
+        Map<String, Long> counts = index.counts(Facet.BATTERY_CAPACITY, index.all());
+
+        // Nhãn = giá trị hiển thị lần gặp đầu
+        assertThat(counts).containsExactly(
+                Map.entry("42 kWh", 2L),
+                Map.entry("100", 1L),
+                Map.entry("87,5kWh", 1L));
+    }
+
+    @Test
+    void textFacetIgnoresCase() {
+        assertThat(plates(index.match(Facet.CARMODEL, List.of(" VF8 ")))).containsExactly("51A-003", "51A-004");
+    }
+
+    @Test
+    void postingsOrWithinFacetAndAcrossFacets() {
+        BitSet models = index.match(Facet.CARMODEL, List.of("VF5", "VF9"));
+        assertThat(plates(models)).containsExactly("51A-001", "51A-002", "51A-005");
+
+        BitSet station = index.match(Facet.STATION, List.of("2"));
+        BitSet both = (BitSet) models.clone();
+        both.and(station);
+        assertThat(plates(both)).containsExactly("51A-002", "51A-005");
+
+        // Đếm facet trên tập đã lọc theo facet khác
+        assertThat(index.counts(Facet.SEAT_COUNT, station)).containsExactly(Map.entry("5", 1L), Map.entry("7", 1L));
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        assertThat(index.match(Facet.COLOR, List.of("red")).isEmpty()).isTrue();
+        assertThat(index.match(Facet.STATION, Collections.singletonList(null)).isEmpty()).isTrue();
+    }
+
+    @Test
+    void batteryCapacitySortsNumericallyWithNullsLast() {
+        assertThat(sorted("batterycapacity", false))
+                .containsExactly("51A-001", "51A-002", "51A-003", "51A-005", "51A-004");
+        assertThat(sorted("batterycapacity", true))
+                .containsExactly("51A-005", "51A-003", "51A-001", "51A-002", "51A-004");
+    }
+
+    @Test
+    void descendingKeepsNullsLast() {
+        List<VehicleResponse> withNullModel = new ArrayList<>(docs);
+        withNullModel.add(0, vehicle("51A-000", null, "50", 4, 1));
+
+        List<VehicleResponse> asc = new ArrayList<>(withNullModel);
+        asc.sort(VehicleServiceImpl.searchComparator("carmodel", false));
+        assertThat(asc.getLast().getPlateNumber()).isEqualTo("51A-000");
+
+        List<VehicleResponse> desc = new ArrayList<>(withNullModel);
+        desc.sort(VehicleServiceImpl.searchComparator("carmodel", true));
+        assertThat(desc.getLast().getPlateNumber()).isEqualTo("51A-000");
+        assertThat(desc.getFirst().getCarmodel()).isEqualTo("VF9");
+    }
+
+    @Test
+    void unknownSortKeyIsRejected() {
+        assertThat(VehicleServiceImpl.searchComparator("price", false)).isNull();
+    }
+
+    private List<String> sorted(String sortKey, boolean desc) {
+        List<VehicleResponse> hits = new ArrayList<>(docs);
+        hits.sort(VehicleServiceImpl.searchComparator(sortKey, desc));
+        return hits.stream().map(VehicleResponse::getPlateNumber).toList();
+    }
+
+    private List<String> plates(BitSet bits) {
+        List<String> plates = new ArrayList<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            plates.add(index.doc(i).getPlateNumber());
+        }
+        return plates;
+    }
+
+    private static VehicleResponse vehicle(String plate, String carmodel, String batteryCapacity,
+                                           Integer seatCount, Integer stationId) {
+        VehicleResponse v = new VehicleResponse();
+        v.setPlateNumber(plate);
+        v.setCarmodel(carmodel);
+        v.setBatteryCapacity(batteryCapacity);
+        v.setSeatCount(seatCount);
+        v.setStationId(stationId);
+        return v;
+    }
+}
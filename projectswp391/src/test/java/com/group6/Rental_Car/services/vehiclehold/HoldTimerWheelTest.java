@@ -0,0 +1,47 @@
+package com.group6.Rental_Car.services.vehiclehold;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HoldTimerWheelTest {
+
+    private static final long TICK = 1000;
+    private static final int SLOTS = 512;
+
+    @Test
+    void expiresOnFirstTickAfterDeadlineEvenIfItsTickWasAlreadySwept() {
+        HoldTimerWheel wheel = new HoldTimerWheel(TICK, SLOTS, 10_000);
+        UUID key = UUID.randomUUID();
+        wheel.schedule(key, 12_500);
+
+        // Quét giữa tick chứa deadline, hold chưa hết hạn
+        assertThat(wheel.advance(12_100)).isEmpty();
+        assertThat(wheel.advance(13_000)).containsExactly(key);
+    }
+
+    @Test
+    void keepsHoldsOfLaterRotations() {
+        HoldTimerWheel wheel = new HoldTimerWheel(TICK, SLOTS, 0);
+        UUID later = UUID.randomUUID();
+        long deadline = 5_000 + SLOTS * TICK;
+        wheel.schedule(later, deadline);
+
+        assertThat(wheel.advance(5_000)).isEmpty();
+        assertThat(wheel.advance(deadline)).containsExactly(later);
+    }
+
+    @Test
+    void cancelledHoldsDoNotExpire() {
+        HoldTimerWheel wheel = new HoldTimerWheel(TICK, SLOTS, 0);
+        UUID key = UUID.randomUUID();
+        wheel.schedule(key, 1_500);
+        wheel.cancel(key, 1_500);
+
+        List<UUID> expired = wheel.advance(10_000);
+        assertThat(expired).isEmpty();
+    }
+}
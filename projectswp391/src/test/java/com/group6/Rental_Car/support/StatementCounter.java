@@ -0,0 +1,46 @@
+package com.group6.Rental_Car.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm câu SQL Hibernate theo "bước" mà luồng hiện tại đang chạy (load test).
+ * Bật bằng spring.jpa.properties.hibernate.session_factory.statement_inspector = tên class này.
+ * Câu SQL chạy trên luồng không gắn bước (worker IPN, scheduler...) được gom vào {@link #BACKGROUND}.
+ */
+public class StatementCounter implements StatementInspector {
+
+    public static final String BACKGROUND = "background";
+
+    private static final ThreadLocal<String> CURRENT_STEP = new ThreadLocal<>();
+    private static final Map<String, LongAdder> COUNTS = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        String step = CURRENT_STEP.get();
+        COUNTS.computeIfAbsent(step == null ? BACKGROUND : step, k -> new LongAdder()).increment();
+        return sql;
+    }
+
+    public static void enter(String step) {
+        CURRENT_STEP.set(step);
+    }
+
+    public static void exit() {
+        CURRENT_STEP.remove();
+    }
+
+    public static void reset() {
+        COUNTS.clear();
+    }
+
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        COUNTS.forEach((step, count) -> result.put(step, count.sum()));
+        return result;
+    }
+}
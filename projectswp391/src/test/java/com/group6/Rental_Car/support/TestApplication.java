@@ -0,0 +1,79 @@
+package com.group6.Rental_Car.support;
+
+import com.group6.Rental_Car.Retal_CarApplication;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Khởi động toàn bộ ứng dụng trên {@link TestDatabase} cho benchmark / load test.
+ * Các cấu hình bên ngoài (mail, S3, JWT, MoMo) nhận giá trị giả, truyền dạng tham số dòng lệnh
+ * để đè các placeholder ${...} trong application.properties.
+ */
+public final class TestApplication {
+
+    private TestApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        Map<String, Object> props = new LinkedHashMap<>(TestDatabase.datasourceProperties());
+        props.put("spring.jpa.hibernate.ddl-auto", "create");
+        // Script trong db/*.sql cần bảng do Hibernate tạo trước
+        props.put("spring.jpa.defer-datasource-initialization", "true");
+        props.put("spring.jpa.show-sql", "false");
+        props.put("spring.jpa.properties.hibernate.generate_statistics", "true");
+        props.put("server.port", "0");
+
+        props.put("spring.mail.host", "localhost");
+        props.put("spring.mail.port", "2525");
+        props.put("spring.mail.username", "test");
+        props.put("spring.mail.password", "test");
+        props.put("spring.mail.properties.mail.smtp.auth", "false");
+        props.put("spring.mail.properties.mail.smtp.starttls.enable", "false");
+        props.put("spring.mail.properties.mail.smtp.connectiontimeout", "1000");
+        props.put("spring.mail.properties.mail.smtp.timeout", "1000");
+        props.put("spring.mail.properties.mail.smtp.writetimeout", "1000");
+
+        props.put("longvan.s3.endpoint", "http://localhost:9000");
+        props.put("longvan.s3.region", "vn-hcm");
+        props.put("longvan.s3.bucket", "test");
+        props.put("longvan.s3.accessKey", "test");
+        props.put("longvan.s3.secretKey", "test");
+
+        props.put("JWT_ACCESSKEY", "test-access-key-0123456789abcdef0123456789abcdef");
+        props.put("JWT_REFRESHKEY", "test-refresh-key-0123456789abcdef0123456789abcdef");
+        props.put("JWT_ACCESSEXPIRATION", "3600000");
+        props.put("JWT_REFRESHEXPIRATION", "86400000");
+
+        props.put("momo.partner-code", "MOMOTEST");
+        props.put("momo.access-key", "test-access-key");
+        props.put("momo.secret-key", "test-secret-key");
+        props.put("momo.endpoint", "http://localhost:9/v2/gateway/api/create");
+        props.put("momo.return-url", "http://localhost/return");
+        props.put("momo.notify-url", "http://localhost/ipn");
+        props.put("momo.request-type", "captureWallet");
+
+        props.putAll(overrides);
+
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(Retal_CarApplication.class).run(args);
+    }
+
+    /**
+     * Số câu lệnh SQL Hibernate đã chuẩn bị từ lúc khởi động (cần hibernate.generate_statistics=true)
+     */
+    public static long statementCount(ConfigurableApplicationContext context) {
+        return statistics(context).getPrepareStatementCount();
+    }
+
+    private static Statistics statistics(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+}
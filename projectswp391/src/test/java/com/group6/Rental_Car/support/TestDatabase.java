@@ -0,0 +1,39 @@
+package com.group6.Rental_Car.support;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.Map;
+
+/**
+ * PostgreSQL dùng cho benchmark / load test.
+ * Mặc định bật 1 container (Testcontainers, cần Docker) dùng chung cho cả JVM;
+ * chỉ định -Dtest.db.url (+ test.db.username / test.db.password) để chạy trên DB có sẵn.
+ * Schema được Hibernate tạo lại từ đầu (ddl-auto=create) → chỉ trỏ vào DB dùng để thử.
+ */
+public final class TestDatabase {
+
+    private static PostgreSQLContainer<?> container;
+
+    private TestDatabase() {
+    }
+
+    public static synchronized Map<String, Object> datasourceProperties() {
+        String url = System.getProperty("test.db.url");
+        if (url != null && !url.isBlank()) {
+            return Map.of(
+                    "spring.datasource.url", url,
+                    "spring.datasource.username", System.getProperty("test.db.username", "postgres"),
+                    "spring.datasource.password", System.getProperty("test.db.password", "postgres"));
+        }
+
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(container::stop));
+        }
+        return Map.of(
+                "spring.datasource.url", container.getJdbcUrl(),
+                "spring.datasource.username", container.getUsername(),
+                "spring.datasource.password", container.getPassword());
+    }
+}